@@ -2,6 +2,8 @@ package com.nikogrid.backend;
 
 import com.nikogrid.backend.exceptions.ChargerUnavailable;
 import com.nikogrid.backend.exceptions.DuplicateUserException;
+import com.nikogrid.backend.exceptions.ImportInProgress;
+import com.nikogrid.backend.exceptions.InvalidImportData;
 import com.nikogrid.backend.exceptions.ReservationConflict;
 import com.nikogrid.backend.exceptions.ResourceNotFound;
 import io.swagger.v3.oas.annotations.Hidden;
@@ -122,4 +124,16 @@ public class ErrorHandler {
     public ProblemDetail handleChargerUnavailable(ChargerUnavailable exc) {
         return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, "Selected charger is unavailable");
     }
+
+    @ExceptionHandler(ImportInProgress.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ProblemDetail handleImportInProgress(ImportInProgress exc) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, "Another import is already running");
+    }
+
+    @ExceptionHandler(InvalidImportData.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ProblemDetail handleInvalidImportData(InvalidImportData exc) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, exc.getMessage());
+    }
 }
@@ -0,0 +1,67 @@
+package com.nikogrid.backend;
+
+import com.nikogrid.backend.dto.ImportResultDTO;
+import com.nikogrid.backend.services.LocationImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Imports a file at startup, for loading data without going through the API:
+ *
+ * <p>{@code }`
+ * java -jar backend.jar --spring.main.web-application-type=none --locations.import.relay.enabled=false \
+ *     --locations.import.file=stations.csv
+ * {@code }`
+ *
+ * <p>Files ending in {@code .ndjson} or {@code .jsonl} are read as NDJSON, anything else as CSV. A failed import fails
+ * the startup.
+ *
+ * <p>Running servers hear of the import through {@link com.nikogrid.backend.services.LocationImportRelay} and drop
+ * what they derived from the dataset. One that had lost its connection to the database when the import
+ * committed keeps serving the previous data, and has to be restarted.
+ */
+@Component
+@ConditionalOnProperty("locations.import.file")
+public class LocationImportRunner implements ApplicationRunner {
+    private final LocationImportService importService;
+    private final Path file;
+    private final PrintStream out;
+
+    @Autowired
+    public LocationImportRunner(LocationImportService importService, @Value("${locations.import.file}") Path file) {
+        this(importService, file, System.out);
+    }
+
+    LocationImportRunner(LocationImportService importService, Path file, PrintStream out) {
+        this.importService = importService;
+        this.file = file;
+        this.out = out;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        final String name = this.file.getFileName().toString();
+        final LocationImportService.Format format = name.endsWith(".ndjson") || name.endsWith(".jsonl")
+                ? LocationImportService.Format.NDJSON
+                : LocationImportService.Format.CSV;
+
+        final ImportResultDTO result;
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(this.file))) {
+            result = this.importService.importLocations(input, format, progress ->
+                    this.out.printf("%s: %d rows, %d bytes%n", progress.phase, progress.rows, progress.bytes));
+        }
+        this.out.printf("Imported %d rows in %d ms: %d locations inserted, %d updated, %d chargers inserted, %d updated%n",
+                result.rows, result.durationMillis,
+                result.locationsInserted, result.locationsUpdated, result.chargersInserted, result.chargersUpdated);
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -45,9 +46,21 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/v1/auth/register").permitAll()
                         .requestMatchers("/api/v1/auth/login").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/v1/locations").permitAll()
+                        .requestMatchers("/api/v1/locations/details").permitAll()
+                        // Would otherwise be taken for a location id
+                        .requestMatchers("/api/v1/locations/import").authenticated()
                         .requestMatchers("/api/v1/locations/{id}").permitAll()
                         .requestMatchers("/api/v1/locations/nearby").permitAll()
+                        .requestMatchers("/api/v1/locations/nearby/diff").permitAll()
+                        .requestMatchers("/api/v1/locations/heatmap").permitAll()
+                        .requestMatchers("/api/v1/locations/availability/stream").permitAll()
                         .requestMatchers("/api/v1/locations/closest").permitAll()
+                        .requestMatchers("/api/v1/locations/closest/batch").permitAll()
+                        .requestMatchers("/api/v1/locations/corridor").permitAll()
+                        .requestMatchers("/api/v1/locations/tiles/**").permitAll()
+                        // Charge points have no user account, they authenticate during the handshake
+                        .requestMatchers("/ocpp/*").permitAll()
                         .requestMatchers(
                                 "/v3/api-docs/**",
                                 "/swagger-ui/**",
@@ -0,0 +1,181 @@
+package com.nikogrid.backend.configurations;
+
+import com.nikogrid.backend.dto.ClusterInterestPoint;
+import com.nikogrid.backend.dto.InterestPointBaseDTO;
+import com.nikogrid.backend.dto.LocationInterestPoint;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes {@code /nearby} results in the protobuf wire format described by {@code proto/interest_points.proto}.
+ * The schema is simple enough to encode by hand, which saves generating classes and copying every
+ * point into them.
+ */
+@Component
+public class InterestPointsProtobufConverter extends AbstractGenericHttpMessageConverter<Collection<? extends InterestPointBaseDTO>> {
+    public static final String MEDIA_TYPE_VALUE = "application/x-protobuf";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    static final double COORDINATE_SCALE = 1e6;
+
+    private static final int LON = 1;
+    private static final int LAT = 2;
+    private static final int COUNT = 3;
+    private static final int ID = 4;
+    private static final int NAME = 5;
+    private static final int NAMES = 6;
+    private static final int CHARGERS = 7;
+    private static final int AVAILABLE = 8;
+    private static final int MAX_POWER = 9;
+    private static final int LENGTH_DELIMITED = 2;
+
+    public InterestPointsProtobufConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(@NonNull Class<?> clazz) {
+        return Collection.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(@NonNull Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, @NonNull Class<?> clazz, @Nullable MediaType mediaType) {
+        if (type != null) {
+            final Class<?> element = ResolvableType.forType(type).asCollection().resolveGeneric(0);
+            if (element == null || !InterestPointBaseDTO.class.isAssignableFrom(element)) return false;
+        }
+        return supports(clazz) && canWrite(mediaType);
+    }
+
+    @Override
+    @NonNull
+    public Collection<? extends InterestPointBaseDTO> read(@NonNull Type type, @Nullable Class<?> contextClass, @NonNull HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Interest points can't be read", inputMessage);
+    }
+
+    @Override
+    @NonNull
+    protected Collection<? extends InterestPointBaseDTO> readInternal(@NonNull Class<? extends Collection<? extends InterestPointBaseDTO>> clazz, @NonNull HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Interest points can't be read", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(@NonNull Collection<? extends InterestPointBaseDTO> points, @Nullable Type type, @NonNull HttpOutputMessage outputMessage) throws IOException {
+        outputMessage.getBody().write(encode(points));
+    }
+
+    public static byte[] encode(Collection<? extends InterestPointBaseDTO> points) {
+        final Buffer lons = new Buffer();
+        final Buffer lats = new Buffer();
+        final Buffer counts = new Buffer();
+        final Buffer ids = new Buffer();
+        final Buffer names = new Buffer();
+        final Buffer nameTable = new Buffer();
+        final Buffer chargers = new Buffer();
+        final Buffer available = new Buffer();
+        final Buffer maxPowers = new Buffer();
+        final Map<String, Integer> nameIndexes = new HashMap<>();
+
+        int lastLon = 0;
+        int lastLat = 0;
+        for (InterestPointBaseDTO point : points) {
+            final int lon = (int) Math.round(point.longitude * COORDINATE_SCALE);
+            final int lat = (int) Math.round(point.latitude * COORDINATE_SCALE);
+            lons.writeVarint(zigZag(lon - lastLon));
+            lats.writeVarint(zigZag(lat - lastLat));
+            lastLon = lon;
+            lastLat = lat;
+
+            if (point instanceof ClusterInterestPoint cluster) {
+                counts.writeVarint(cluster.numPoints);
+            } else if (point instanceof LocationInterestPoint location) {
+                counts.writeVarint(1);
+                ids.writeVarint(location.id);
+
+                final String name = location.name == null ? "" : location.name;
+                Integer index = nameIndexes.get(name);
+                if (index == null) {
+                    index = nameIndexes.size();
+                    nameIndexes.put(name, index);
+                    nameTable.writeField(NAMES, name.getBytes(StandardCharsets.UTF_8));
+                }
+                names.writeVarint(index);
+
+                chargers.writeVarint(location.chargers);
+                available.writeVarint(location.availableChargers);
+                maxPowers.writeFixed32(Float.floatToIntBits(location.maxPower));
+            }
+        }
+
+        final Buffer message = new Buffer();
+        message.writePacked(LON, lons);
+        message.writePacked(LAT, lats);
+        message.writePacked(COUNT, counts);
+        message.writePacked(ID, ids);
+        message.writePacked(NAME, names);
+        nameTable.writeTo(message);
+        message.writePacked(CHARGERS, chargers);
+        message.writePacked(AVAILABLE, available);
+        message.writePacked(MAX_POWER, maxPowers);
+        return message.toByteArray();
+    }
+
+    private static long zigZag(int value) {
+        return Integer.toUnsignedLong((value << 1) ^ (value >> 31));
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeFixed32(int value) {
+            write(value);
+            write(value >>> 8);
+            write(value >>> 16);
+            write(value >>> 24);
+        }
+
+        void writeField(int field, byte[] bytes) {
+            writeVarint((long) field << 3 | LENGTH_DELIMITED);
+            writeVarint(bytes.length);
+            writeBytes(bytes);
+        }
+
+        /** Empty repeated fields are left out, as protobuf encoders do */
+        void writePacked(int field, Buffer values) {
+            if (values.size() == 0) return;
+            writeVarint((long) field << 3 | LENGTH_DELIMITED);
+            writeVarint(values.size());
+            values.writeTo(this);
+        }
+
+        void writeTo(Buffer other) {
+            other.write(this.buf, 0, this.count);
+        }
+    }
+}
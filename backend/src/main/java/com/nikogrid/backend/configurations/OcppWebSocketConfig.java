@@ -0,0 +1,29 @@
+package com.nikogrid.backend.configurations;
+
+import com.nikogrid.backend.controllers.OcppHandshakeInterceptor;
+import com.nikogrid.backend.controllers.OcppWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class OcppWebSocketConfig implements WebSocketConfigurer {
+    private final OcppWebSocketHandler ocppWebSocketHandler;
+    private final OcppHandshakeInterceptor ocppHandshakeInterceptor;
+
+    @Autowired
+    public OcppWebSocketConfig(OcppWebSocketHandler ocppWebSocketHandler, OcppHandshakeInterceptor ocppHandshakeInterceptor) {
+        this.ocppWebSocketHandler = ocppWebSocketHandler;
+        this.ocppHandshakeInterceptor = ocppHandshakeInterceptor;
+    }
+
+    /** Charge points send no Origin header, so the default same-origin check only turns away browsers */
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(this.ocppWebSocketHandler, OcppWebSocketHandler.PATH)
+                .addInterceptors(this.ocppHandshakeInterceptor);
+    }
+}
@@ -0,0 +1,83 @@
+package com.nikogrid.backend.configurations;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level cache for locations and their chargers, which are read far more often than
+ * they change. Every region is created here with its own bounds, Hibernate is set to fail on any other.
+ *
+ * <p>Writes made through Hibernate keep the regions up to date, the time to live only bounds how long a
+ * change made around it (the charger summary trigger, bulk SQL) can go unseen.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+    public static final String LOCATIONS_REGION = "locations";
+    public static final String LOCATION_CHARGERS_REGION = "locations.chargers";
+    public static final String CHARGERS_REGION = "chargers";
+
+    public static final String HIT_RATIO_METRIC = "cache.hit.ratio";
+
+    /** Each context gets a manager of its own, the provider's default one is shared by the whole JVM */
+    @Bean(destroyMethod = "close")
+    CacheManager secondLevelCacheManager(
+            MeterRegistry meterRegistry,
+            @Value("${locations.l2-cache.ttl:10m}") Duration ttl,
+            @Value("${locations.l2-cache.max-locations:100000}") long maxLocations,
+            @Value("${locations.l2-cache.max-chargers:500000}") long maxChargers
+    ) {
+        final CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("nikogrid-l2-" + UUID.randomUUID()), getClass().getClassLoader());
+
+        createRegion(cacheManager, meterRegistry, LOCATIONS_REGION, maxLocations, ttl);
+        createRegion(cacheManager, meterRegistry, LOCATION_CHARGERS_REGION, maxLocations, ttl);
+        // Collection entries only hold ids, so chargers must outlive them or a cached collection
+        // would load its chargers one by one
+        createRegion(cacheManager, meterRegistry, CHARGERS_REGION, maxChargers, ttl.multipliedBy(2));
+        return cacheManager;
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+
+    /** Entries are stored by reference, Hibernate already caches a disassembled copy of the state */
+    static void createRegion(CacheManager cacheManager, MeterRegistry meterRegistry, String name, long maxEntries, Duration ttl) {
+        final CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(true);
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+
+        final Cache<Object, Object> cache = cacheManager.createCache(name, configuration);
+        JCacheMetrics.monitor(meterRegistry, cache);
+
+        final FunctionCounter hits = meterRegistry.get("cache.gets").tags("cache", name, "result", "hit").functionCounter();
+        final FunctionCounter misses = meterRegistry.get("cache.gets").tags("cache", name, "result", "miss").functionCounter();
+        Gauge.builder(HIT_RATIO_METRIC, () -> {
+                    final double total = hits.count() + misses.count();
+                    return total == 0 ? Double.NaN : hits.count() / total;
+                })
+                .description("Share of second-level cache lookups served from the cache since startup")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,39 @@
+package com.nikogrid.backend.configurations;
+
+import com.nikogrid.backend.entities.Charger;
+import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import com.nikogrid.backend.events.LocationsImported;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * A charger change also rewrites the charger summary of its location through a trigger, which the
+ * cached location doesn't see. The charger is dropped as well, so writers going around Hibernate
+ * only have to publish the event.
+ */
+@Component
+public class SecondLevelCacheEviction {
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public SecondLevelCacheEviction(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChargerAvailabilityChanged(ChargerAvailabilityChanged event) {
+        final Cache cache = this.entityManagerFactory.getCache();
+        cache.evict(Location.class, event.locationId());
+        cache.evict(Charger.class, event.chargerId());
+    }
+
+    /** Imports write around Hibernate and may touch any row */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationsImported(LocationsImported event) {
+        this.entityManagerFactory.getCache().evictAll();
+    }
+}
@@ -0,0 +1,77 @@
+package com.nikogrid.backend.controllers;
+
+import com.nikogrid.backend.dto.ChargerScheduleDTO;
+import com.nikogrid.backend.dto.ChargerStatusBatch;
+import com.nikogrid.backend.dto.OcppKeyDTO;
+import com.nikogrid.backend.exceptions.ResourceNotFound;
+import com.nikogrid.backend.services.ChargerScheduleService;
+import com.nikogrid.backend.services.ChargerService;
+import com.nikogrid.backend.services.ChargerStatusIngestionService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+
+@RestController
+@RequestMapping(value = "/api/v1/chargers", produces = MediaType.APPLICATION_JSON_VALUE)
+@Validated
+public class ChargerController {
+    private final ChargerStatusIngestionService ingestionService;
+    private final ChargerScheduleService scheduleService;
+    private final ChargerService chargerService;
+
+    @Autowired
+    public ChargerController(
+            ChargerStatusIngestionService ingestionService,
+            ChargerScheduleService scheduleService,
+            ChargerService chargerService
+    ) {
+        this.ingestionService = ingestionService;
+        this.scheduleService = scheduleService;
+        this.chargerService = chargerService;
+    }
+
+    /** Free slots of the charger, from now and for a week unless told otherwise */
+    @GetMapping("/{id}/availability")
+    public ChargerScheduleDTO getAvailability(
+            @PathVariable("id") long id,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to) throws ResourceNotFound {
+        return this.scheduleService.getChargerSchedule(id, from, to);
+    }
+
+    /**
+     * Statuses are written shortly after being accepted. A 503 means the backlog is full and the
+     * whole batch should be sent again later.
+     */
+    @PostMapping("/status")
+    @PreAuthorize("principal.getUser().isAdmin()")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void reportStatuses(@Valid @RequestBody ChargerStatusBatch req) {
+        if (!this.ingestionService.submit(req.statuses))
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many pending statuses");
+    }
+
+    /**
+     * Issues a new key for the charge point of the charger, to be set as its OCPP AuthorizationKey. It
+     * replaces the previous one and can't be read again.
+     */
+    @PostMapping("/{id}/ocpp-key")
+    @PreAuthorize("principal.getUser().isAdmin()")
+    public OcppKeyDTO renewOcppKey(@PathVariable("id") long id) throws ResourceNotFound {
+        return new OcppKeyDTO(Long.toString(id), this.chargerService.renewOcppKey(id));
+    }
+}
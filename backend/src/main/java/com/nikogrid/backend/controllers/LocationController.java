@@ -1,20 +1,46 @@
 package com.nikogrid.backend.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nikogrid.backend.configurations.InterestPointsProtobufConverter;
 import com.nikogrid.backend.dto.ChargerDTO;
+import com.nikogrid.backend.dto.ChargerScheduleDTO;
+import com.nikogrid.backend.dto.ClosestBatchPoint;
+import com.nikogrid.backend.dto.ClosestBatchRequest;
+import com.nikogrid.backend.dto.ClosestBatchResultDTO;
+import com.nikogrid.backend.dto.ClosestLocationDTO;
+import com.nikogrid.backend.dto.CorridorLocationDTO;
+import com.nikogrid.backend.dto.CorridorSearch;
 import com.nikogrid.backend.dto.CreateLocation;
+import com.nikogrid.backend.dto.HeatmapDTO;
 import com.nikogrid.backend.dto.InterestPointBaseDTO;
 import com.nikogrid.backend.dto.LocationDTO;
 import com.nikogrid.backend.dto.LocationDetailsDTO;
+import com.nikogrid.backend.dto.LocationDetailsRequest;
+import com.nikogrid.backend.dto.NearbyDiffDTO;
 import com.nikogrid.backend.entities.Location;
 import com.nikogrid.backend.exceptions.ResourceNotFound;
+import com.nikogrid.backend.services.AvailabilityStreamService;
+import com.nikogrid.backend.services.ChargerScheduleService;
 import com.nikogrid.backend.services.LocationService;
+import com.nikogrid.backend.spatial.ClusteringStrategy;
+import com.nikogrid.backend.spatial.Route;
+import com.nikogrid.backend.spatial.TileKey;
+import com.nikogrid.backend.spatial.Viewport;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -25,20 +51,48 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping(value = "/api/v1/locations", produces = MediaType.APPLICATION_JSON_VALUE)
 @Validated
 public class LocationController {
+    public static final String VECTOR_TILE_VALUE = "application/vnd.mapbox-vector-tile";
+    public static final int MAX_ROUTE_POINTS = 100_000;
+    public static final int MAX_DETAILS_IDS = 1000;
+    public static final String INCLUDE_CHARGERS = "chargers";
+
     private final LocationService locationService;
+    private final AvailabilityStreamService availabilityStreamService;
+    private final ChargerScheduleService scheduleService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
     @Autowired
-    public LocationController(LocationService locationService) {
+    public LocationController(
+            LocationService locationService,
+            AvailabilityStreamService availabilityStreamService,
+            ChargerScheduleService scheduleService,
+            ObjectMapper objectMapper,
+            Validator validator
+    ) {
         this.locationService = locationService;
+        this.availabilityStreamService = availabilityStreamService;
+        this.scheduleService = scheduleService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
     }
 
     @PostMapping("/")
@@ -52,35 +106,244 @@ public class LocationController {
         return LocationDTO.fromLocation(this.locationService.createLocation(location));
     }
 
-    @GetMapping("/nearby")
+    @GetMapping(value = "/nearby", produces = {MediaType.APPLICATION_JSON_VALUE, InterestPointsProtobufConverter.MEDIA_TYPE_VALUE})
     public Collection<InterestPointBaseDTO> getNearbyLocations(
             @RequestParam("w") @Min(-180) @Max(180) float west,
             @RequestParam("e") @Min(-180) @Max(180) float east,
             @RequestParam("s") @Min(-90) @Max(90) float south,
             @RequestParam("n") @Min(-90) @Max(90) float north,
             @RequestParam("z") @Min(0) @Max(18) int zoom,
-            @RequestParam(value = "onlyActive", defaultValue = "false") boolean onlyActive
+            @RequestParam(value = "onlyActive", defaultValue = "false") boolean onlyActive,
+            @RequestParam(value = "clustering", required = false) ClusteringStrategy clustering,
+            @RequestParam(value = "include", required = false) Set<String> include,
+            WebRequest request,
+            HttpServletResponse response
     ) {
-        if (west > east)
-            throw new ConstraintViolationException("East must be greater than west", Set.of());
+        validateEnvelope(west, east, south, north);
+        final boolean includeChargers = validateInclude(include);
+        final String version = this.locationService.getDatasetVersion();
+        if (nearbyNotModified(version, request, response)) return null;
 
-        if (south > north)
-            throw new ConstraintViolationException("North must be greater than south", Set.of());
+        final Collection<InterestPointBaseDTO> points = clustering == null
+                ? this.locationService.getNearbyLocations(west, south, east, north, zoom, onlyActive, version)
+                : this.locationService.getNearbyLocations(west, south, east, north, zoom, onlyActive, clustering, version);
+
+        return includeChargers ? this.locationService.embedChargers(points) : points;
+    }
+
+    /** Writes each point as soon as it is read instead of building the whole result first */
+    @GetMapping(value = "/nearby", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamNearbyLocations(
+            @RequestParam("w") @Min(-180) @Max(180) float west,
+            @RequestParam("e") @Min(-180) @Max(180) float east,
+            @RequestParam("s") @Min(-90) @Max(90) float south,
+            @RequestParam("n") @Min(-90) @Max(90) float north,
+            @RequestParam("z") @Min(0) @Max(18) int zoom,
+            @RequestParam(value = "onlyActive", defaultValue = "false") boolean onlyActive,
+            @RequestParam(value = "clustering", required = false) ClusteringStrategy clustering,
+            @RequestParam(value = "include", required = false) Set<String> include,
+            WebRequest request,
+            HttpServletResponse response
+    ) {
+        validateEnvelope(west, east, south, north);
+        final boolean includeChargers = validateInclude(include);
+        final String version = this.locationService.getDatasetVersion();
+        if (nearbyNotModified(version, request, response)) return null;
+
+        return NdjsonResponses.stream(this.objectMapper, InterestPointBaseDTO.class, consumer ->
+                this.locationService.streamNearbyLocations(west, south, east, north, zoom, onlyActive, clustering, includeChargers, version, consumer));
+    }
+
+    /** Locations along a route, ordered by how far along it they are */
+    @PostMapping(value = "/corridor", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<CorridorLocationDTO> getCorridorLocations(@Valid @RequestBody CorridorSearch req) {
+        final Route route = decodeRoute(req.polyline);
+
+        final List<CorridorLocationDTO> result = new ArrayList<>();
+        this.locationService.streamCorridorLocations(route, req.maxDetour, !Boolean.FALSE.equals(req.onlyAvailable), result::add);
+        return result;
+    }
+
+    /** Same as the JSON form, but each section of the route is written as soon as it has been searched */
+    @PostMapping(value = "/corridor", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCorridorLocations(@Valid @RequestBody CorridorSearch req) {
+        final Route route = decodeRoute(req.polyline);
+
+        return NdjsonResponses.stream(this.objectMapper, CorridorLocationDTO.class, consumer ->
+                this.locationService.streamCorridorLocations(route, req.maxDetour, !Boolean.FALSE.equals(req.onlyAvailable), consumer));
+    }
+
+    /**
+     * What changed between the previous viewport ({@code p*} parameters) at dataset version {@code v} and the new one,
+     * meant for clients that keep the points on screen while panning
+     */
+    @GetMapping("/nearby/diff")
+    public NearbyDiffDTO getNearbyDiff(
+            @RequestParam("w") @Min(-180) @Max(180) float west,
+            @RequestParam("e") @Min(-180) @Max(180) float east,
+            @RequestParam("s") @Min(-90) @Max(90) float south,
+            @RequestParam("n") @Min(-90) @Max(90) float north,
+            @RequestParam("z") @Min(0) @Max(18) int zoom,
+            @RequestParam("pw") @Min(-180) @Max(180) float previousWest,
+            @RequestParam("pe") @Min(-180) @Max(180) float previousEast,
+            @RequestParam("ps") @Min(-90) @Max(90) float previousSouth,
+            @RequestParam("pn") @Min(-90) @Max(90) float previousNorth,
+            @RequestParam("pz") @Min(0) @Max(18) int previousZoom,
+            @RequestParam("v") String previousVersion,
+            @RequestParam(value = "onlyActive", defaultValue = "false") boolean onlyActive,
+            @RequestParam(value = "clustering", required = false) ClusteringStrategy clustering
+    ) {
+        validateEnvelope(west, east, south, north);
+        validateEnvelope(previousWest, previousEast, previousSouth, previousNorth);
+
+        return this.locationService.getNearbyDiff(
+                new Viewport(previousWest, previousSouth, previousEast, previousNorth, previousZoom),
+                previousVersion,
+                new Viewport(west, south, east, north, zoom),
+                onlyActive,
+                clustering
+        );
+    }
 
-        return this.locationService.getNearbyLocations(west, south, east, north, zoom, onlyActive);
+    /**
+     * Pushes an {@code availability} event whenever a charger inside the viewport changes, clients subscribe
+     * again when the viewport moves
+     */
+    @GetMapping(value = "/availability/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAvailability(
+            @RequestParam("w") @Min(-180) @Max(180) float west,
+            @RequestParam("e") @Min(-180) @Max(180) float east,
+            @RequestParam("s") @Min(-90) @Max(90) float south,
+            @RequestParam("n") @Min(-90) @Max(90) float north
+    ) {
+        validateEnvelope(west, east, south, north);
+
+        return this.availabilityStreamService.subscribe(west, south, east, north)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many subscribers"));
+    }
+
+    @GetMapping("/heatmap")
+    public HeatmapDTO getHeatmap(
+            @RequestParam("w") @Min(-180) @Max(180) float west,
+            @RequestParam("e") @Min(-180) @Max(180) float east,
+            @RequestParam("s") @Min(-90) @Max(90) float south,
+            @RequestParam("n") @Min(-90) @Max(90) float north,
+            @RequestParam("z") @Min(0) @Max(18) int zoom
+    ) {
+        validateEnvelope(west, east, south, north);
+
+        return this.locationService.getHeatmap(west, south, east, north, zoom)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Heatmap is still loading"));
+    }
+
+    /**
+     * Tiles only change with the dataset version, which is their ETag. Requests pinned to the current
+     * version with {@code v} can be cached forever, anything else has to be revalidated.
+     */
+    @GetMapping(value = "/tiles/{z}/{x}/{y}.mvt", produces = VECTOR_TILE_VALUE)
+    public ResponseEntity<byte[]> getVectorTile(
+            @PathVariable("z") @Min(0) @Max(TileKey.MAX_ZOOM) int zoom,
+            @PathVariable("x") @Min(0) int x,
+            @PathVariable("y") @Min(0) int y,
+            @RequestParam(value = "v", required = false) String version,
+            @RequestParam(value = "onlyActive", defaultValue = "false") boolean onlyActive,
+            WebRequest request
+    ) {
+        if (x >= 1 << zoom || y >= 1 << zoom)
+            throw new ConstraintViolationException("Tile is outside of the zoom level", Set.of());
+
+        final String currentVersion = this.locationService.getDatasetVersion();
+        final String etag = etag(currentVersion);
+        final CacheControl cacheControl = currentVersion.equals(version)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache().cachePublic();
+
+        if (request.checkNotModified(etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(this.locationService.getVectorTile(new TileKey(zoom, x, y), onlyActive));
     }
 
     @GetMapping("/closest")
     public LocationDTO getClosestAvailableLocation(
             @RequestParam("lon") @Min(-180) @Max(180) float longitude,
-            @RequestParam("lat") @Min(-90) @Max(90) float latitude
+            @RequestParam("lat") @Min(-90) @Max(90) float latitude,
+            WebRequest request
     ) throws ResourceNotFound {
-        return LocationDTO.fromLocation(this.locationService.getClosestAvailable(longitude, latitude));
+        final String version = this.locationService.getDatasetVersion();
+        if (request.checkNotModified(etag(version))) return null;
+
+        return LocationDTO.fromLocation(this.locationService.getClosestAvailable(longitude, latitude, version));
+    }
+
+    /** Ranked by great-circle distance, each location comes with its chargers matching the filters */
+    @GetMapping(value = "/closest", params = "k")
+    public List<ClosestLocationDTO> getClosestLocations(
+            @RequestParam("lon") @Min(-180) @Max(180) float longitude,
+            @RequestParam("lat") @Min(-90) @Max(90) float latitude,
+            @RequestParam("k") @Min(1) @Max(100) int k,
+            @RequestParam(value = "minPower", defaultValue = "0") @Min(0) float minPower,
+            @RequestParam(value = "onlyAvailable", defaultValue = "true") boolean onlyAvailable,
+            WebRequest request
+    ) {
+        final String version = this.locationService.getDatasetVersion();
+        if (request.checkNotModified(etag(version))) return null;
+
+        return this.locationService.getClosestLocations(longitude, latitude, k, minPower, onlyAvailable, version);
     }
 
+    /**
+     * Resolves every point in one round trip, results are in the order of the points. A point that
+     * fails validation only fails its own result.
+     */
+    @PostMapping("/closest/batch")
+    public List<ClosestBatchResultDTO> getClosestLocationsBatch(@Valid @RequestBody ClosestBatchRequest req) {
+        final List<ClosestBatchResultDTO> results = new ArrayList<>(Collections.nCopies(req.points.size(), null));
+        final List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < req.points.size(); i++) {
+            final Set<ConstraintViolation<ClosestBatchPoint>> violations = this.validator.validate(req.points.get(i));
+            if (violations.isEmpty()) {
+                valid.add(i);
+            } else {
+                results.set(i, ClosestBatchResultDTO.failed(violations.stream()
+                        .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", "))));
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            final List<List<ClosestLocationDTO>> found = this.locationService.getClosestLocations(
+                    valid.stream().map(req.points::get).toList(), !Boolean.FALSE.equals(req.onlyAvailable));
+            for (int j = 0; j < valid.size(); j++) {
+                results.set(valid.get(j), ClosestBatchResultDTO.ok(found.get(j)));
+            }
+        }
+        return results;
+    }
+
+    /** Details of several locations at once, in the order of {@code ids}. Unknown ids are left out. */
+    @GetMapping(params = "ids")
+    public List<LocationDetailsDTO> getLocationDetails(
+            @RequestParam("ids") @Size(min = 1, max = MAX_DETAILS_IDS) List<@NotNull Long> ids) {
+        return this.locationService.getLocationDetails(ids);
+    }
+
+    /** Same as the GET form, for lists of ids too long to fit in a URL */
+    @PostMapping("/details")
+    public List<LocationDetailsDTO> getLocationDetails(@Valid @RequestBody LocationDetailsRequest req) {
+        return this.locationService.getLocationDetails(req.ids);
+    }
+
+    /** Only found locations have a version, any other id is a 404 whatever the client has cached */
     @GetMapping("/{id}")
-    public LocationDetailsDTO getLocationById(@PathVariable("id") long id) throws ResourceNotFound {
+    public LocationDetailsDTO getLocationById(@PathVariable("id") long id, WebRequest request) throws ResourceNotFound {
+        final String version = this.locationService.getLocationVersion(id);
         final Location location = this.locationService.getLocationById(id);
+        if (request.checkNotModified(etag(version))) return null;
 
         List<ChargerDTO> chargers = List.of();
         if (location.getChargers() != null) {
@@ -98,4 +361,57 @@ public class LocationController {
                 chargers
         );
     }
+
+    /** Free slots of every charger of the location, ordered by charger id */
+    @GetMapping("/{id}/availability")
+    public List<ChargerScheduleDTO> getAvailability(
+            @PathVariable("id") long id,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to) throws ResourceNotFound {
+        return this.scheduleService.getLocationSchedule(id, from, to);
+    }
+
+    /**
+     * The JSON, protobuf and NDJSON forms of a result are equivalent, so they share a weak ETag.
+     * {@code version} must be the one passed to the service, so the result is never older than its ETag.
+     */
+    private static boolean nearbyNotModified(String version, WebRequest request, HttpServletResponse response) {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return request.checkNotModified("W/" + etag(version));
+    }
+
+    private static String etag(String version) {
+        return "\"" + version + "\"";
+    }
+
+    private static Route decodeRoute(String polyline) {
+        final Route route;
+        try {
+            route = Route.decode(polyline, MAX_ROUTE_POINTS);
+        } catch (IllegalArgumentException e) {
+            throw new ConstraintViolationException(e.getMessage(), Set.of());
+        }
+
+        if (route.size() < 2)
+            throw new ConstraintViolationException("Route must have at least two points", Set.of());
+        return route;
+    }
+
+    /** Embedded chargers are only written in JSON and NDJSON, the protobuf form has no field for them */
+    private static boolean validateInclude(Set<String> include) {
+        if (include == null) return false;
+        for (final String value : include) {
+            if (!INCLUDE_CHARGERS.equals(value))
+                throw new ConstraintViolationException("include must be one of: " + INCLUDE_CHARGERS, Set.of());
+        }
+        return !include.isEmpty();
+    }
+
+    private static void validateEnvelope(float west, float east, float south, float north) {
+        if (west > east)
+            throw new ConstraintViolationException("East must be greater than west", Set.of());
+
+        if (south > north)
+            throw new ConstraintViolationException("North must be greater than south", Set.of());
+    }
 }
@@ -0,0 +1,56 @@
+package com.nikogrid.backend.controllers;
+
+import com.nikogrid.backend.dto.ImportProgressDTO;
+import com.nikogrid.backend.dto.ImportResultDTO;
+import com.nikogrid.backend.exceptions.ImportInProgress;
+import com.nikogrid.backend.exceptions.InvalidImportData;
+import com.nikogrid.backend.exceptions.ResourceNotFound;
+import com.nikogrid.backend.services.LocationImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The body is read as it is uploaded, so files of any size can be imported. The request only returns
+ * once the import is committed, its progress can be followed from {@code /progress} meanwhile.
+ */
+@RestController
+@RequestMapping(value = "/api/v1/locations/import", produces = MediaType.APPLICATION_JSON_VALUE)
+public class LocationImportController {
+    public static final String CSV_VALUE = "text/csv";
+
+    private final LocationImportService importService;
+
+    @Autowired
+    public LocationImportController(LocationImportService importService) {
+        this.importService = importService;
+    }
+
+    @PostMapping(consumes = CSV_VALUE)
+    @PreAuthorize("principal.getUser().isAdmin()")
+    public ImportResultDTO importCsv(InputStream body) throws ImportInProgress, InvalidImportData, IOException {
+        return this.importService.importLocations(body, LocationImportService.Format.CSV, progress -> {
+        });
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("principal.getUser().isAdmin()")
+    public ImportResultDTO importNdjson(InputStream body) throws ImportInProgress, InvalidImportData, IOException {
+        return this.importService.importLocations(body, LocationImportService.Format.NDJSON, progress -> {
+        });
+    }
+
+    /** Progress of the import running on the instance serving the request */
+    @GetMapping("/progress")
+    @PreAuthorize("principal.getUser().isAdmin()")
+    public ImportProgressDTO getProgress() throws ResourceNotFound {
+        return this.importService.getProgress().orElseThrow(ResourceNotFound::new);
+    }
+}
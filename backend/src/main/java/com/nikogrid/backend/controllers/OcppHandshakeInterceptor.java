@@ -0,0 +1,83 @@
+package com.nikogrid.backend.controllers;
+
+import com.nikogrid.backend.services.ChargerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Authenticates charge points the way OCPP 1.6-J security profile 1 does. The charge point identity is the
+ * last segment of the path, here the charger id, and the handshake carries HTTP Basic credentials made of
+ * that identity and the authorization key issued for the charger. Charge points hold no user account, so
+ * the connection is turned away with a 401 before the upgrade unless both match.
+ */
+@Component
+public class OcppHandshakeInterceptor implements HandshakeInterceptor {
+    static final String CHARGER_ID = "chargerId";
+
+    private static final String BASIC = "Basic ";
+
+    private final ChargerService chargerService;
+
+    @Autowired
+    public OcppHandshakeInterceptor(ChargerService chargerService) {
+        this.chargerService = chargerService;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler,
+                                   Map<String, Object> attributes) {
+        final String path = request.getURI().getPath();
+        final String identity = path.substring(path.lastIndexOf('/') + 1);
+        final String[] credentials = basicCredentials(request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+
+        final Long chargerId = credentials == null || !credentials[0].equals(identity) ? null : parseId(identity);
+        if (chargerId == null || !this.chargerService.isOcppKeyValid(chargerId, credentials[1])) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            response.getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Basic realm=\"ocpp\"");
+            return false;
+        }
+
+        attributes.put(CHARGER_ID, chargerId);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler,
+                               Exception exception) {
+        // Nothing to clean up
+    }
+
+    /** User and password, or null if the header is missing or not Basic */
+    private static String[] basicCredentials(String header) {
+        if (header == null || !header.regionMatches(true, 0, BASIC, 0, BASIC.length())) return null;
+
+        final String decoded;
+        try {
+            decoded = new String(Base64.getDecoder().decode(header.substring(BASIC.length()).trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        final int colon = decoded.indexOf(':');
+        if (colon < 0) return null;
+        return new String[]{decoded.substring(0, colon), decoded.substring(colon + 1)};
+    }
+
+    private static Long parseId(String identity) {
+        try {
+            return Long.parseLong(identity);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
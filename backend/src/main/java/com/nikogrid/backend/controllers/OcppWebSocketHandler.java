@@ -0,0 +1,135 @@
+package com.nikogrid.backend.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nikogrid.backend.dto.ChargerStatusDTO;
+import com.nikogrid.backend.services.ChargerStatusIngestionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The subset of OCPP 1.6-J a charge point needs to report its status: {@code BootNotification}, {@code Heartbeat}
+ * and {@code StatusNotification}. Each charge point connects to {@code /ocpp/{chargerId}}, authenticated by
+ * {@link OcppHandshakeInterceptor}, and is treated as a single charger, whatever connector it reports on. It is
+ * available when the status is {@code Available}.
+ */
+@Component
+public class OcppWebSocketHandler extends TextWebSocketHandler implements SubProtocolCapable {
+    public static final String PATH = "/ocpp/*";
+    public static final String SUBPROTOCOL = "ocpp1.6";
+
+    static final int CALL = 2;
+    static final int CALL_RESULT = 3;
+    static final int CALL_ERROR = 4;
+
+    private static final String AVAILABLE = "Available";
+
+    private final ChargerStatusIngestionService ingestionService;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final Duration heartbeatInterval;
+
+    @Autowired
+    public OcppWebSocketHandler(
+            ChargerStatusIngestionService ingestionService,
+            ObjectMapper objectMapper,
+            Clock clock,
+            @Value("${chargers.ingestion.ocpp.heartbeat-interval:5m}") Duration heartbeatInterval
+    ) {
+        this.ingestionService = ingestionService;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(SUBPROTOCOL);
+    }
+
+    /** Sessions only reach the handler through the handshake interceptor, which sets the charger */
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        if (!(session.getAttributes().get(OcppHandshakeInterceptor.CHARGER_ID) instanceof Long))
+            session.close(CloseStatus.POLICY_VIOLATION);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        final Long chargerId = (Long) session.getAttributes().get(OcppHandshakeInterceptor.CHARGER_ID);
+        if (chargerId == null) return;
+
+        JsonNode call;
+        try {
+            call = this.objectMapper.readTree(message.getPayload());
+        } catch (JsonProcessingException e) {
+            call = null;
+        }
+        // Without a message id there is nothing to answer to
+        if (call == null || !call.isArray() || !call.path(1).isTextual()) {
+            session.close(CloseStatus.BAD_DATA);
+            return;
+        }
+
+        final String messageId = call.get(1).asText();
+        if (call.size() != 4 || call.get(0).asInt() != CALL || !call.get(2).isTextual() || !call.get(3).isObject()) {
+            send(session, error(messageId, "FormationViolation", "Expected a CALL"));
+            return;
+        }
+
+        final JsonNode payload = call.get(3);
+        send(session, switch (call.get(2).asText()) {
+            case "BootNotification" -> result(messageId, this.objectMapper.createObjectNode()
+                    .put("status", "Accepted")
+                    .put("currentTime", this.clock.instant().toString())
+                    .put("interval", this.heartbeatInterval.toSeconds()));
+            case "Heartbeat" -> result(messageId, this.objectMapper.createObjectNode()
+                    .put("currentTime", this.clock.instant().toString()));
+            case "StatusNotification" -> statusNotification(messageId, chargerId, payload);
+            default -> error(messageId, "NotImplemented", "Unsupported action");
+        });
+    }
+
+    private JsonNode statusNotification(String messageId, long chargerId, JsonNode payload) {
+        final JsonNode status = payload.path("status");
+        if (!status.isTextual())
+            return error(messageId, "ProtocolError", "Missing status");
+
+        if (!this.ingestionService.submit(List.of(new ChargerStatusDTO(chargerId, AVAILABLE.equals(status.asText())))))
+            return error(messageId, "InternalError", "Too many pending statuses");
+        return result(messageId, this.objectMapper.createObjectNode());
+    }
+
+    private JsonNode result(String messageId, ObjectNode payload) {
+        return this.objectMapper.createArrayNode()
+                .add(CALL_RESULT)
+                .add(messageId)
+                .add(payload);
+    }
+
+    private JsonNode error(String messageId, String code, String description) {
+        return this.objectMapper.createArrayNode()
+                .add(CALL_ERROR)
+                .add(messageId)
+                .add(code)
+                .add(description)
+                .add(this.objectMapper.createObjectNode());
+    }
+
+    private void send(WebSocketSession session, JsonNode message) throws IOException {
+        session.sendMessage(new TextMessage(this.objectMapper.writeValueAsString(message)));
+    }
+}
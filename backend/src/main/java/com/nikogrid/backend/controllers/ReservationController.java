@@ -1,15 +1,22 @@
 package com.nikogrid.backend.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nikogrid.backend.dto.CreateReservation;
+import com.nikogrid.backend.dto.CreateReservationBatch;
+import com.nikogrid.backend.dto.ReservationBatchResultDTO;
+import com.nikogrid.backend.dto.ReservationCursor;
 import com.nikogrid.backend.dto.ReservationDTO;
 import com.nikogrid.backend.dto.ReservationListDTO;
+import com.nikogrid.backend.dto.ReservationPageDTO;
 import com.nikogrid.backend.entities.BackendUserDetails;
 import com.nikogrid.backend.entities.Charger;
 import com.nikogrid.backend.entities.Reservation;
 import com.nikogrid.backend.exceptions.ChargerUnavailable;
 import com.nikogrid.backend.exceptions.ReservationConflict;
 import com.nikogrid.backend.exceptions.ResourceNotFound;
+import com.nikogrid.backend.scheduling.Recurrences;
 import com.nikogrid.backend.services.ChargerService;
+import com.nikogrid.backend.services.ReservationBatchService;
 import com.nikogrid.backend.services.ReservationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -18,9 +25,12 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.annotation.Validated;
@@ -30,11 +40,15 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Clock;
+import java.time.DateTimeException;
 import java.time.Instant;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Stream;
 
@@ -42,17 +56,29 @@ import java.util.stream.Stream;
 @RequestMapping(value = "/api/v1/reservations", produces = MediaType.APPLICATION_JSON_VALUE)
 @Validated
 public class ReservationController {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final ReservationService reservationService;
+    private final ReservationBatchService batchService;
     private final ChargerService chargerService;
 
     private final Clock clock;
+    private final ObjectMapper objectMapper;
 
     @Autowired
     public ReservationController(
-            ReservationService reservationService, ChargerService chargerService, Clock clock) {
+            ReservationService reservationService,
+            ReservationBatchService batchService,
+            ChargerService chargerService,
+            Clock clock,
+            ObjectMapper objectMapper
+    ) {
         this.reservationService = reservationService;
+        this.batchService = batchService;
         this.chargerService = chargerService;
         this.clock = clock;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/")
@@ -61,12 +87,7 @@ public class ReservationController {
             @Valid @RequestBody CreateReservation req,
             @AuthenticationPrincipal BackendUserDetails userDetails)
             throws ResourceNotFound, ChargerUnavailable, ReservationConflict {
-        if (req.start.isBefore(Instant.now(clock)))
-            throw new ConstraintViolationException(
-                    "Reservation must start in the future", Set.of());
-
-        if (!req.end.isAfter(req.start))
-            throw new ConstraintViolationException("Reservation end must be after start", Set.of());
+        checkTimes(req.start, req.end, Instant.now(clock));
 
         final Charger charger = this.chargerService.findChargerById(req.chargedId);
 
@@ -79,6 +100,40 @@ public class ReservationController {
         return ReservationDTO.fromReservation(this.reservationService.create(reservation));
     }
 
+    /**
+     * Creates an explicit list of reservations, or every occurrence of a recurrence, in one transaction.
+     * Answers 201 when anything was created and 409 otherwise, with a report of every reservation either way.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ReservationBatchResultDTO> createReservations(
+            @Valid @RequestBody CreateReservationBatch req,
+            @AuthenticationPrincipal BackendUserDetails userDetails) {
+        if ((req.reservations == null) == (req.recurrence == null))
+            throw new ConstraintViolationException("Either reservations or a recurrence is required", Set.of());
+
+        final List<CreateReservation> reservations;
+        if (req.reservations != null) {
+            reservations = req.reservations;
+        } else {
+            try {
+                reservations = Recurrences.expand(req.recurrence).stream()
+                        .map(slot -> new CreateReservation(req.recurrence.chargerId, slot.start, slot.end))
+                        .toList();
+            } catch (DateTimeException e) {
+                throw new ConstraintViolationException("Unknown time zone", Set.of());
+            }
+        }
+
+        final Instant now = Instant.now(clock);
+        for (final CreateReservation reservation : reservations) {
+            checkTimes(reservation.start, reservation.end, now);
+        }
+
+        final ReservationBatchResultDTO result = this.batchService.create(
+                userDetails.getUser(), reservations, !Boolean.FALSE.equals(req.allOrNothing));
+        return ResponseEntity.status(result.created > 0 ? HttpStatus.CREATED : HttpStatus.CONFLICT).body(result);
+    }
+
     @GetMapping("/")
     @Operation(responses = @ApiResponse(responseCode = "200", content = @Content(mediaType = "application/json",
             array = @ArraySchema(schema = @Schema(implementation = ReservationListDTO.class)))))
@@ -88,10 +143,52 @@ public class ReservationController {
                 .map(ReservationListDTO::fromReservation);
     }
 
+    @GetMapping(value = "/", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUserReservations(
+            @AuthenticationPrincipal BackendUserDetails userDetails) {
+        return NdjsonResponses.stream(this.objectMapper, ReservationListDTO.class, consumer ->
+                this.reservationService.streamUserReservations(userDetails.getUser(), consumer));
+    }
+
+    /** Reservations not started yet, soonest first. Pass the {@code nextCursor} of a page to get the next one. */
+    @GetMapping("/upcoming")
+    public ReservationPageDTO getUpcomingReservations(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) @Min(1) @Max(MAX_PAGE_SIZE) int limit,
+            @AuthenticationPrincipal BackendUserDetails userDetails) {
+        return this.reservationService.getUserReservations(
+                userDetails.getUser(), ReservationService.Period.UPCOMING, decodeCursor(cursor), limit);
+    }
+
+    /** Reservations already started, latest first */
+    @GetMapping("/past")
+    public ReservationPageDTO getPastReservations(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) @Min(1) @Max(MAX_PAGE_SIZE) int limit,
+            @AuthenticationPrincipal BackendUserDetails userDetails) {
+        return this.reservationService.getUserReservations(
+                userDetails.getUser(), ReservationService.Period.PAST, decodeCursor(cursor), limit);
+    }
+
     @DeleteMapping("/{reservationId}")
     @PreAuthorize("@reservationAuthz.isReservationOwner(principal, #reservationId)")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void cancelReservation(@PathVariable("reservationId") long reservationId) {
         reservationService.cancel(reservationId);
     }
+
+    private static void checkTimes(Instant start, Instant end, Instant now) {
+        if (start.isBefore(now))
+            throw new ConstraintViolationException(
+                    "Reservation must start in the future", Set.of());
+
+        if (!end.isAfter(start))
+            throw new ConstraintViolationException("Reservation end must be after start", Set.of());
+    }
+
+    private static ReservationCursor decodeCursor(String cursor) {
+        if (cursor == null) return null;
+        return ReservationCursor.decode(cursor)
+                .orElseThrow(() -> new ConstraintViolationException("Invalid cursor", Set.of()));
+    }
 }
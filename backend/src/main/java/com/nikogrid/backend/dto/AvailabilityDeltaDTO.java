@@ -0,0 +1,34 @@
+package com.nikogrid.backend.dto;
+
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/** A charger that went free or busy, as pushed by the availability stream */
+@Data
+public class AvailabilityDeltaDTO {
+    @NotNull
+    public final long chargerId;
+
+    @NotNull
+    public final long locationId;
+
+    @NotNull
+    public final float lat;
+
+    @NotNull
+    public final float lon;
+
+    @NotNull
+    public final boolean available;
+
+    @NotNull
+    @Schema(description = "Number of chargers available at the location after the change")
+    public final int availableChargers;
+
+    public static AvailabilityDeltaDTO fromEvent(ChargerAvailabilityChanged event) {
+        return new AvailabilityDeltaDTO(event.chargerId(), event.locationId(), event.latitude(), event.longitude(),
+                event.available(), event.availableChargers());
+    }
+}
@@ -1,6 +1,7 @@
 package com.nikogrid.backend.dto;
 
 import com.nikogrid.backend.entities.Charger;
+import com.nikogrid.backend.repositories.projections.ChargerListing;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
@@ -21,4 +22,8 @@ public class ChargerDTO {
     public static ChargerDTO fromCharger(Charger charger) {
         return new ChargerDTO(charger.getId(), charger.getName(), charger.isAvailable(), charger.getMaxPower());
     }
+
+    public static ChargerDTO fromChargerListing(ChargerListing charger) {
+        return new ChargerDTO(charger.getId(), charger.getName(), charger.isAvailable(), charger.getMaxPower());
+    }
 }
@@ -0,0 +1,19 @@
+package com.nikogrid.backend.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ChargerScheduleDTO {
+    @NotNull
+    public final long chargerId;
+
+    @NotNull
+    public final boolean isAvailable;
+
+    /** Empty when the charger is unavailable, since it can't be reserved at all */
+    @NotNull
+    public final List<TimeSlotDTO> free;
+}
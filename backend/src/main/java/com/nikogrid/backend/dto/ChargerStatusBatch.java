@@ -0,0 +1,16 @@
+package com.nikogrid.backend.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ChargerStatusBatch {
+    /** Later statuses of the same charger win */
+    @NotNull
+    @Size(min = 1, max = 10_000)
+    public final List<@NotNull @Valid ChargerStatusDTO> statuses;
+}
@@ -0,0 +1,13 @@
+package com.nikogrid.backend.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class ChargerStatusDTO {
+    @NotNull
+    public final Long chargerId;
+
+    @NotNull
+    public final Boolean available;
+}
@@ -0,0 +1,37 @@
+package com.nikogrid.backend.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class ClosestBatchPoint {
+    @NotNull
+    @Min(-180)
+    @Max(180)
+    public final Float lon;
+
+    @NotNull
+    @Min(-90)
+    @Max(90)
+    public final Float lat;
+
+    @Min(1)
+    @Max(100)
+    @Schema(description = "Number of locations to return, defaults to 1")
+    public final Integer k;
+
+    @Min(0)
+    @Schema(description = "Only chargers with at least this max power, in kW")
+    public final Float minPower;
+
+    public int kOrDefault() {
+        return this.k == null ? 1 : this.k;
+    }
+
+    public float minPowerOrDefault() {
+        return this.minPower == null ? 0 : this.minPower;
+    }
+}
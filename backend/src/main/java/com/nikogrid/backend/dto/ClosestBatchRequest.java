@@ -0,0 +1,19 @@
+package com.nikogrid.backend.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ClosestBatchRequest {
+    /** Points are validated one by one, an invalid point only fails its own result */
+    @NotNull
+    @Size(min = 1, max = 1000)
+    public final List<@NotNull ClosestBatchPoint> points;
+
+    @Schema(description = "Only locations and chargers that are available, defaults to true")
+    public final Boolean onlyAvailable;
+}
@@ -0,0 +1,24 @@
+package com.nikogrid.backend.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+/** Result for one point of a batch, exactly one of the fields is set */
+@Data
+public class ClosestBatchResultDTO {
+    @Schema(description = "Closest locations first, empty when none match")
+    public final List<ClosestLocationDTO> locations;
+
+    @Schema(description = "Why the point couldn't be resolved")
+    public final String error;
+
+    public static ClosestBatchResultDTO ok(List<ClosestLocationDTO> locations) {
+        return new ClosestBatchResultDTO(locations, null);
+    }
+
+    public static ClosestBatchResultDTO failed(String error) {
+        return new ClosestBatchResultDTO(null, error);
+    }
+}
@@ -0,0 +1,30 @@
+package com.nikogrid.backend.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ClosestLocationDTO {
+    @NotNull
+    public final long id;
+
+    @NotNull
+    public final String name;
+
+    @NotNull
+    public final float lat;
+
+    @NotNull
+    public final float lon;
+
+    @NotNull
+    @Schema(description = "Great-circle distance from the requested point, in metres")
+    public final double distance;
+
+    @NotNull
+    @Schema(description = "Chargers of the location matching the filters")
+    public final List<ChargerDTO> chargers;
+}
@@ -0,0 +1,48 @@
+package com.nikogrid.backend.dto;
+
+import com.nikogrid.backend.repositories.projections.LocationListing;
+import com.nikogrid.backend.spatial.Route;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class CorridorLocationDTO {
+    @NotNull
+    public final long id;
+
+    @NotNull
+    public final String name;
+
+    @NotNull
+    public final float lat;
+
+    @NotNull
+    public final float lon;
+
+    @NotNull
+    @Schema(description = "Number of chargers at the location")
+    public final int chargers;
+
+    @NotNull
+    @Schema(description = "Number of chargers currently available")
+    public final int availableChargers;
+
+    @NotNull
+    @Schema(description = "Highest max power among the chargers, in kW")
+    public final float maxPower;
+
+    @NotNull
+    @Schema(description = "Distance from the start of the route to the point closest to the location, in metres")
+    public final double distanceAlong;
+
+    @NotNull
+    @Schema(description = "Distance of the location from the route, in metres")
+    public final double distanceFrom;
+
+    public static CorridorLocationDTO of(LocationListing location, Route.Position position) {
+        return new CorridorLocationDTO(location.getId(), location.getName(), location.getLat(), location.getLon(),
+                location.getChargerCount(), location.getAvailableChargers(), location.getMaxPower(),
+                position.distanceAlong(), position.distanceFrom());
+    }
+}
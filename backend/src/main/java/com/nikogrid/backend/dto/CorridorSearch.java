@@ -0,0 +1,24 @@
+package com.nikogrid.backend.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class CorridorSearch {
+    @NotBlank
+    @Schema(description = "Route in the encoded polyline format, with 5 decimal places")
+    public final String polyline;
+
+    @NotNull
+    @Min(0)
+    @Max(50000)
+    @Schema(description = "Max distance of a location from the route, in metres")
+    public final Float maxDetour;
+
+    @Schema(description = "Only locations with an available charger, defaults to true")
+    public final Boolean onlyAvailable;
+}
@@ -0,0 +1,24 @@
+package com.nikogrid.backend.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/** Either an explicit list of reservations or a recurrence, not both */
+@Data
+public class CreateReservationBatch {
+    public static final int MAX_RESERVATIONS = 500;
+
+    @Size(min = 1, max = MAX_RESERVATIONS)
+    public final List<@NotNull @Valid CreateReservation> reservations;
+
+    @Valid
+    public final ReservationRecurrence recurrence;
+
+    @Schema(description = "Create nothing unless every reservation can be created, defaults to true")
+    public final Boolean allOrNothing;
+}
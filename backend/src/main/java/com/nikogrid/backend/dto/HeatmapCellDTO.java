@@ -0,0 +1,27 @@
+package com.nikogrid.backend.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/** Totals of a heatmap cell, cells are Web Mercator tiles at the level of the {@link HeatmapDTO} */
+@Data
+public class HeatmapCellDTO {
+    @NotNull
+    public final int x;
+
+    @NotNull
+    public final int y;
+
+    @NotNull
+    @Schema(description = "Number of chargers in the cell")
+    public final int chargers;
+
+    @NotNull
+    @Schema(description = "Number of chargers currently available in the cell")
+    public final int availableChargers;
+
+    @NotNull
+    @Schema(description = "Sum of the max power of the chargers in the cell, in kW")
+    public final double totalPower;
+}
@@ -0,0 +1,18 @@
+package com.nikogrid.backend.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class HeatmapDTO {
+    @NotNull
+    @Schema(description = "Tile zoom level of the cells, each map tile at zoom `z` holds up to 8x8 of them")
+    public final int level;
+
+    @NotNull
+    @Schema(description = "Cells intersecting the envelope with at least one charger")
+    public final List<HeatmapCellDTO> cells;
+}
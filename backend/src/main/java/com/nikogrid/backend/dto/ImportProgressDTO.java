@@ -0,0 +1,24 @@
+package com.nikogrid.backend.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class ImportProgressDTO {
+    public enum Phase {
+        COPYING,
+        MERGING,
+    }
+
+    @NotNull
+    public final Phase phase;
+
+    @NotNull
+    @Schema(description = "Rows received so far")
+    public final long rows;
+
+    @NotNull
+    @Schema(description = "Bytes of the body received so far")
+    public final long bytes;
+}
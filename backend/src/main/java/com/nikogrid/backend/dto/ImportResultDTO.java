@@ -0,0 +1,25 @@
+package com.nikogrid.backend.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class ImportResultDTO {
+    @NotNull
+    public final long rows;
+
+    @NotNull
+    public final long locationsInserted;
+
+    @NotNull
+    public final long locationsUpdated;
+
+    @NotNull
+    public final long chargersInserted;
+
+    @NotNull
+    public final long chargersUpdated;
+
+    @NotNull
+    public final long durationMillis;
+}
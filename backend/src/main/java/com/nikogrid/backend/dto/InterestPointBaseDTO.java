@@ -37,16 +37,18 @@ public abstract sealed class InterestPointBaseDTO permits ClusterInterestPoint,
     }
 
     public static InterestPointBaseDTO fromInterestPoint(InterestPoint ip) {
-        final float lon = (float) ip.centroid().getPosition().getLon();
-        final float lat = (float) ip.centroid().getPosition().getLat();
+        final float lon = (float) ip.longitude();
+        final float lat = (float) ip.latitude();
 
         if (ip.isClustered())
             return new ClusterInterestPoint(lon, lat, ip.numPoints());
         else
-            return new LocationInterestPoint(lon, lat, ip.id(), ip.name());
+            return new LocationInterestPoint(lon, lat, ip.id(), ip.name(),
+                    ip.chargerCount(), ip.availableChargers(), ip.maxPower().floatValue());
     }
 
     public static InterestPointBaseDTO fromLocationListing(LocationListing loc) {
-        return new LocationInterestPoint(loc.getLon(), loc.getLat(), loc.getId(), loc.getName());
+        return new LocationInterestPoint(loc.getLon(), loc.getLat(), loc.getId(), loc.getName(),
+                loc.getChargerCount(), loc.getAvailableChargers(), loc.getMaxPower());
     }
 }
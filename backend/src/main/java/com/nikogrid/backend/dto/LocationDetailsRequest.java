@@ -0,0 +1,14 @@
+package com.nikogrid.backend.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class LocationDetailsRequest {
+    @NotNull
+    @Size(min = 1, max = 1000)
+    public final List<@NotNull Long> ids;
+}
@@ -0,0 +1,29 @@
+package com.nikogrid.backend.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * One charger per line of an NDJSON import, along with its location. Locations and chargers are
+ * matched to existing ones by their reference, so importing the same file twice changes nothing.
+ */
+@Data
+public class LocationImportRow {
+    public final String locationRef;
+
+    public final String locationName;
+
+    public final Double lat;
+
+    public final Double lon;
+
+    public final String chargerRef;
+
+    public final String chargerName;
+
+    @Schema(description = "Max charging rate in kW")
+    public final Double maxPower;
+
+    @Schema(description = "Defaults to true")
+    public final Boolean available;
+}
@@ -1,5 +1,7 @@
 package com.nikogrid.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.media.SchemaProperty;
@@ -7,6 +9,8 @@ import jakarta.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
+import java.util.List;
+
 @ToString(callSuper = true)
 @EqualsAndHashCode(callSuper = true)
 @SchemaProperty(name = "t", schema = @Schema(allowableValues = {LocationInterestPoint.DISCRIMINATOR}))
@@ -20,9 +24,44 @@ public final class LocationInterestPoint extends InterestPointBaseDTO {
     @JsonProperty("n")
     public final String name;
 
-    public LocationInterestPoint(float longitude, float latitude, long id, String name) {
+    @NotNull
+    @JsonProperty("c")
+    @Schema(description = "Number of chargers at the location")
+    public final int chargers;
+
+    @NotNull
+    @JsonProperty("a")
+    @Schema(description = "Number of chargers currently available")
+    public final int availableChargers;
+
+    @NotNull
+    @JsonProperty("p")
+    @Schema(description = "Highest max power among the chargers, in kW")
+    public final float maxPower;
+
+    @JsonProperty("cs")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(description = "The chargers of the location, only when asked for with `include=chargers`")
+    public final List<ChargerDTO> chargerDetails;
+
+    @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+    public LocationInterestPoint(float longitude, float latitude, long id, String name, int chargers, int availableChargers, float maxPower) {
+        this(longitude, latitude, id, name, chargers, availableChargers, maxPower, null);
+    }
+
+    private LocationInterestPoint(float longitude, float latitude, long id, String name, int chargers, int availableChargers, float maxPower,
+                                  List<ChargerDTO> chargerDetails) {
         super(longitude, latitude);
         this.id = id;
         this.name = name;
+        this.chargers = chargers;
+        this.availableChargers = availableChargers;
+        this.maxPower = maxPower;
+        this.chargerDetails = chargerDetails;
+    }
+
+    public LocationInterestPoint withChargers(List<ChargerDTO> chargerDetails) {
+        return new LocationInterestPoint(this.longitude, this.latitude, this.id, this.name, this.chargers, this.availableChargers,
+                this.maxPower, chargerDetails);
     }
 }
@@ -0,0 +1,43 @@
+package com.nikogrid.backend.dto;
+
+import com.nikogrid.backend.spatial.TileKey;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Changes to apply to the points of the previous viewport to get the new one. Points are grouped by
+ * the tile that owns them at the requested zoom, a point belongs to the tile its coordinates fall in.
+ */
+@Data
+public class NearbyDiffDTO {
+    @NotNull
+    @Schema(description = "Dataset version to send with the next diff")
+    public final String version;
+
+    @NotNull
+    @Schema(description = "When set the diff couldn't be computed, `points` replaces everything the client has")
+    public final boolean full;
+
+    @Schema(description = "Every point of the new viewport, only for full responses")
+    public final Collection<InterestPointBaseDTO> points;
+
+    @NotNull
+    @Schema(description = "Tiles that entered the viewport or changed, with their complete contents")
+    public final List<TileContentsDTO> tiles;
+
+    @NotNull
+    @Schema(description = "Tiles that left the viewport, their points should be dropped")
+    public final List<TileKey> removed;
+
+    public static NearbyDiffDTO full(String version, Collection<InterestPointBaseDTO> points) {
+        return new NearbyDiffDTO(version, true, points, List.of(), List.of());
+    }
+
+    public static NearbyDiffDTO incremental(String version, List<TileContentsDTO> tiles, List<TileKey> removed) {
+        return new NearbyDiffDTO(version, false, null, tiles, removed);
+    }
+}
@@ -0,0 +1,15 @@
+package com.nikogrid.backend.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class OcppKeyDTO {
+    /** The identity the charge point connects with, at {@code /ocpp/{chargePointId}} */
+    @NotNull
+    public final String chargePointId;
+
+    /** Password of the Basic credentials, it is only ever shown here */
+    @NotNull
+    public final String authorizationKey;
+}
@@ -0,0 +1,36 @@
+package com.nikogrid.backend.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class ReservationBatchItemDTO {
+    public enum Status {
+        CREATED,
+        /** Overlaps an existing reservation or an earlier one of the batch */
+        CONFLICT,
+        CHARGER_UNAVAILABLE,
+        CHARGER_NOT_FOUND,
+        /** Could have been created, but another reservation of the all-or-nothing batch failed */
+        SKIPPED
+    }
+
+    @NotNull
+    public final Long chargerId;
+
+    @NotNull
+    public final Instant start;
+
+    @NotNull
+    public final Instant end;
+
+    @NotNull
+    public final Status status;
+
+    public final Long id;
+
+    /** The reservation in the way, when known. Null if it was cancelled again before the batch could look it up. */
+    public final TimeSlotDTO conflictsWith;
+}
@@ -0,0 +1,16 @@
+package com.nikogrid.backend.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ReservationBatchResultDTO {
+    @NotNull
+    public final int created;
+
+    /** In the order of the request, or of the occurrences of a recurrence */
+    @NotNull
+    public final List<ReservationBatchItemDTO> items;
+}
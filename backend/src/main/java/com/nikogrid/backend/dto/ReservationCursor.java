@@ -0,0 +1,41 @@
+package com.nikogrid.backend.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Position in a reservation listing, the last reservation of the previous page.
+ * Opaque to clients, it only has to round trip.
+ */
+public record ReservationCursor(Instant startsAt, long id) {
+    private static final char SEPARATOR = '_';
+
+    public static ReservationCursor after(ReservationListDTO reservation) {
+        return new ReservationCursor(reservation.start, reservation.id);
+    }
+
+    /**
+     * @return empty if the cursor wasn't produced by {@link #encode()}
+     */
+    public static Optional<ReservationCursor> decode(String cursor) {
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final int separator = decoded.lastIndexOf(SEPARATOR);
+            if (separator < 0) return Optional.empty();
+
+            return Optional.of(new ReservationCursor(
+                    Instant.parse(decoded.substring(0, separator)),
+                    Long.parseLong(decoded.substring(separator + 1))));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((this.startsAt.toString() + SEPARATOR + this.id).getBytes(StandardCharsets.UTF_8));
+    }
+}
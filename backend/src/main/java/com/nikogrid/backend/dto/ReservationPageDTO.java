@@ -0,0 +1,19 @@
+package com.nikogrid.backend.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ReservationPageDTO {
+    @NotNull
+    public final List<ReservationListDTO> items;
+
+    /** Reservations in the whole listing, not only this page */
+    @NotNull
+    public final long total;
+
+    /** Null on the last page */
+    public final String nextCursor;
+}
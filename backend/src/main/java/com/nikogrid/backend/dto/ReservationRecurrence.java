@@ -0,0 +1,40 @@
+package com.nikogrid.backend.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class ReservationRecurrence {
+    public enum Frequency {
+        DAILY,
+        /** Monday to Friday, in {@code zone} */
+        WEEKDAYS,
+        WEEKLY
+    }
+
+    @NotNull
+    public final Long chargerId;
+
+    /** First occurrence, later ones keep its local time of day in {@code zone} */
+    @NotNull
+    public final Instant start;
+
+    @NotNull
+    public final Instant end;
+
+    @NotNull
+    public final Frequency frequency;
+
+    @NotNull
+    @Min(1)
+    @Max(CreateReservationBatch.MAX_RESERVATIONS)
+    public final Integer occurrences;
+
+    @Schema(description = "Time zone the recurrence follows, defaults to UTC", example = "Europe/Lisbon")
+    public final String zone;
+}
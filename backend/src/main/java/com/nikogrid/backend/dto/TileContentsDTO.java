@@ -0,0 +1,27 @@
+package com.nikogrid.backend.dto;
+
+import com.nikogrid.backend.spatial.TileKey;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+/** Every interest point owned by a tile, they replace whatever the client had for it */
+@Data
+public class TileContentsDTO {
+    @NotNull
+    public final int z;
+
+    @NotNull
+    public final int x;
+
+    @NotNull
+    public final int y;
+
+    @NotNull
+    public final List<InterestPointBaseDTO> points;
+
+    public static TileContentsDTO of(TileKey tile, List<InterestPointBaseDTO> points) {
+        return new TileContentsDTO(tile.z(), tile.x(), tile.y(), points);
+    }
+}
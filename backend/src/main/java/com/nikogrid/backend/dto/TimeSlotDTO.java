@@ -0,0 +1,15 @@
+package com.nikogrid.backend.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class TimeSlotDTO {
+    @NotNull
+    public final Instant start;
+
+    @NotNull
+    public final Instant end;
+}
@@ -1,5 +1,7 @@
 package com.nikogrid.backend.entities;
 
+import com.nikogrid.backend.configurations.SecondLevelCacheConfig;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -9,10 +11,15 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import lombok.Data;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Data
 @Entity
 @Table(name = "chargers")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.CHARGERS_REGION)
 public class Charger {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -28,6 +35,10 @@ public class Charger {
     @Column(nullable = false)
     private float maxPower;
 
+    /** Hash of the key the charge point authenticates with over OCPP, null until one is issued */
+    @ToString.Exclude
+    private String ocppKeyHash;
+
     @ManyToOne(optional = false)
     @JoinColumn(name = "location_id")
     private Location location;
@@ -1,9 +1,8 @@
 package com.nikogrid.backend.entities;
 
-import org.geolatte.geom.G2D;
-import org.geolatte.geom.Point;
-
-public record InterestPoint(long numPoints, Point<G2D> centroid, Long id, String name) {
+/** The charger summary is only set for interest points that are a single location */
+public record InterestPoint(long numPoints, double longitude, double latitude, Long id, String name,
+                            Integer chargerCount, Integer availableChargers, Double maxPower) {
     public boolean isClustered() {
         return this.numPoints > 1;
     }
@@ -1,5 +1,7 @@
 package com.nikogrid.backend.entities;
 
+import com.nikogrid.backend.configurations.SecondLevelCacheConfig;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -13,6 +15,8 @@ import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.geolatte.geom.G2D;
 import org.geolatte.geom.Point;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Generated;
 import org.hibernate.generator.EventType;
 
@@ -21,6 +25,8 @@ import java.util.Set;
 @Data
 @Entity
 @Table(name = "locations")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.LOCATIONS_REGION)
 @ToString(exclude = "chargers")
 @EqualsAndHashCode(exclude = "chargers")
 public class Location {
@@ -41,6 +47,20 @@ public class Location {
     @Column(columnDefinition = "GEOMETRY", insertable = false, updatable = false)
     private Point<G2D> geom;
 
+    /** Charger summary, maintained by a trigger on {@code chargers} */
+    @Generated(event = EventType.INSERT)
+    @Column(insertable = false, updatable = false)
+    private int chargerCount;
+
+    @Generated(event = EventType.INSERT)
+    @Column(insertable = false, updatable = false)
+    private int availableChargers;
+
+    @Generated(event = EventType.INSERT)
+    @Column(insertable = false, updatable = false)
+    private float maxPower;
+
     @OneToMany(mappedBy = "location", fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.LOCATION_CHARGERS_REGION)
     private Set<Charger> chargers;
 }
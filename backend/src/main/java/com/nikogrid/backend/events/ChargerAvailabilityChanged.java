@@ -0,0 +1,16 @@
+package com.nikogrid.backend.events;
+
+/**
+ * Published once a charger flips its availability.
+ * {@code availableChargers} is the resulting number of available chargers at the location,
+ * so listeners can apply the event idempotently.
+ */
+public record ChargerAvailabilityChanged(
+        long chargerId,
+        long locationId,
+        float longitude,
+        float latitude,
+        boolean available,
+        int availableChargers
+) {
+}
@@ -0,0 +1,12 @@
+package com.nikogrid.backend.events;
+
+/**
+ * Published when another process committed a change to a location, a new one or a charger flipping its
+ * availability. Only where the change happened is known, not what it was.
+ */
+public record LocationChangedElsewhere(
+        long locationId,
+        float longitude,
+        float latitude
+) {
+}
@@ -0,0 +1,6 @@
+package com.nikogrid.backend.events;
+
+import com.nikogrid.backend.entities.Location;
+
+public record LocationCreated(Location location) {
+}
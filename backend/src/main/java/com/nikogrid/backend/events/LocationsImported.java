@@ -0,0 +1,13 @@
+package com.nikogrid.backend.events;
+
+/**
+ * Published once a bulk import committed. Too many locations may have changed to describe them one by
+ * one, so listeners are expected to drop or reload whatever they derived from the dataset.
+ */
+public record LocationsImported(
+        long locationsInserted,
+        long locationsUpdated,
+        long chargersInserted,
+        long chargersUpdated
+) {
+}
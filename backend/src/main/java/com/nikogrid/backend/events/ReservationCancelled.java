@@ -0,0 +1,6 @@
+package com.nikogrid.backend.events;
+
+import java.time.Instant;
+
+public record ReservationCancelled(long reservationId, long chargerId, Instant startsAt, Instant endsAt) {
+}
@@ -0,0 +1,4 @@
+package com.nikogrid.backend.exceptions;
+
+public class ImportInProgress extends Exception {
+}
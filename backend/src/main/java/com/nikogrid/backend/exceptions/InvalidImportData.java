@@ -0,0 +1,7 @@
+package com.nikogrid.backend.exceptions;
+
+public class InvalidImportData extends Exception {
+    public InvalidImportData(String message) {
+        super(message);
+    }
+}
@@ -1,9 +1,58 @@
 package com.nikogrid.backend.repositories;
 
 import com.nikogrid.backend.entities.Charger;
+import com.nikogrid.backend.repositories.projections.ChargerListing;
+import org.springframework.data.jpa.repository.NativeQuery;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ChargerRepository extends CrudRepository<Charger, Long> {
+    int countByLocationIdAndAvailableTrue(long locationId);
+
+    @Query("""
+            SELECT c.id AS id, c.location.id AS locationId, c.name AS name, c.available AS available, c.maxPower AS maxPower
+            FROM Charger c
+            WHERE c.location.id IN ?1
+              AND c.maxPower >= ?2
+              AND (c.available = true OR ?3 = false)
+            ORDER BY c.maxPower DESC, c.id
+            """)
+    List<ChargerListing> findMatchingChargers(Collection<Long> locationIds, float minPower, boolean onlyAvailable);
+
+    /** Every charger of the locations, grouped by location and in the same order as {@link #findMatchingChargers} */
+    @NativeQuery("""
+            SELECT id, location_id AS "locationId", name, available, max_power AS "maxPower"
+            FROM chargers
+            WHERE location_id = ANY(CAST(?1 AS BIGINT[]))
+            ORDER BY location_id, max_power DESC, id
+            """)
+    List<ChargerListing> findByLocationIds(Long[] locationIds);
+
+    /**
+     * Sets the availability of many chargers in one statement, the arrays are paired by position.
+     * Only the chargers whose availability actually changed are updated and returned. The chargers are
+     * locked by location and then id, the same order as the location summaries are locked in by the
+     * trigger, so concurrent batches and single updates can't deadlock on each other.
+     */
+    @NativeQuery("""
+            WITH changed AS (
+                SELECT c.id, s.available
+                FROM chargers c
+                JOIN unnest(CAST(?1 AS BIGINT[]), CAST(?2 AS BOOLEAN[])) AS s(id, available) ON s.id = c.id
+                WHERE c.available <> s.available
+                ORDER BY c.location_id, c.id
+                FOR UPDATE OF c
+            )
+            UPDATE chargers c
+            SET available = changed.available
+            FROM changed
+            WHERE c.id = changed.id
+            RETURNING c.id, c.location_id AS "locationId", c.name, c.available, c.max_power AS "maxPower"
+            """)
+    List<ChargerListing> updateAvailability(Long[] ids, Boolean[] available);
 }
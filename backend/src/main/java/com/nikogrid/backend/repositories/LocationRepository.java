@@ -2,66 +2,264 @@ package com.nikogrid.backend.repositories;
 
 import com.nikogrid.backend.entities.InterestPoint;
 import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.repositories.projections.ChargerPosition;
+import com.nikogrid.backend.repositories.projections.ClosestCandidate;
 import com.nikogrid.backend.repositories.projections.LocationListing;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.NativeQuery;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
 @Repository
 public interface LocationRepository extends CrudRepository<Location, Long> {
-    @NativeQuery(value = """
+    /** Only interest points made of a single location carry its charger summary */
+    String DBSCAN_INTEREST_POINTS = """
             SELECT
                 COUNT(cluster_loc.cluster_id) AS numPoints,
-                ST_Centroid(ST_Collect(geom)) AS centroid,
+                AVG(lon) AS longitude,
+                AVG(lat) AS latitude,
                 CASE COUNT(id) WHEN 1 THEN MIN(id) END AS id,
-                CASE COUNT(id) WHEN 1 THEN MIN(name) END AS name
+                CASE COUNT(id) WHEN 1 THEN MIN(name) END AS name,
+                CASE COUNT(id) WHEN 1 THEN MIN(charger_count) END AS chargerCount,
+                CASE COUNT(id) WHEN 1 THEN MIN(available_chargers) END AS availableChargers,
+                CASE COUNT(id) WHEN 1 THEN MIN(max_power) END AS maxPower
             FROM (
                 SELECT
                     id,
                     name,
-                    geom,
+                    lon,
+                    lat,
+                    charger_count,
+                    available_chargers,
+                    max_power,
                     ST_ClusterDBSCAN(geom, eps := ?5, minpoints := 2) OVER () AS cluster_id
                 FROM locations l
-                WHERE
-                    geom && ST_MakeEnvelope(?1, ?2, ?3, ?4, 4326)
-                    AND (
-                        NOT ?6
-                        OR EXISTS (
-                            SELECT 1
-                            FROM chargers c
-                            WHERE c.location_id = l.id AND c.available
-                        )
-                    )
+                WHERE geom && ST_MakeEnvelope(?1, ?2, ?3, ?4, 4326)
+            """;
+    String DBSCAN_GROUPING = """
             ) AS cluster_loc
             GROUP BY COALESCE(cluster_loc.cluster_id, cluster_loc.id);
-            """)
-    Stream<InterestPoint> findInterestPoints(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, float clusterRadius, boolean onlyActive);
+            """;
 
-    @NativeQuery(value = """
-            SELECT id, name, lat, lon
+    String GRID_INTEREST_POINTS = """
+            SELECT
+                COUNT(*) AS numPoints,
+                AVG(lon) AS longitude,
+                AVG(lat) AS latitude,
+                CASE COUNT(*) WHEN 1 THEN MIN(id) END AS id,
+                CASE COUNT(*) WHEN 1 THEN MIN(name) END AS name,
+                CASE COUNT(*) WHEN 1 THEN MIN(charger_count) END AS chargerCount,
+                CASE COUNT(*) WHEN 1 THEN MIN(available_chargers) END AS availableChargers,
+                CASE COUNT(*) WHEN 1 THEN MIN(max_power) END AS maxPower
             FROM locations l
             WHERE geom && ST_MakeEnvelope(?1, ?2, ?3, ?4, 4326)
-            AND (
-                NOT ?5
-                OR EXISTS (
-                    SELECT 1
-                    FROM chargers c
-                    WHERE c.location_id = l.id AND c.available
-                )
+            """;
+    String GRID_GROUPING = """
+            GROUP BY FLOOR(lon / ?5), FLOOR(lat / ?5);
+            """;
+
+    String LOCATIONS_IN_ENVELOPE = """
+            SELECT id, name, lat, lon, charger_count AS "chargerCount", available_chargers AS "availableChargers", max_power AS "maxPower"
+            FROM locations l
+            WHERE geom && ST_MakeEnvelope(?1, ?2, ?3, ?4, 4326)
+            """;
+
+    /**
+     * Active-only queries test {@code available_chargers > 0} literally rather than through a parameter,
+     * so the planner can always match them to the partial index on available locations.
+     */
+    String ONLY_AVAILABLE = "AND available_chargers > 0\n";
+
+    /** Looks in the second-level cache first, and otherwise loads the chargers in the same statement */
+    @Override
+    @EntityGraph(attributePaths = "chargers")
+    Optional<Location> findById(Long id);
+
+    default Stream<InterestPoint> findInterestPoints(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, float clusterRadius, boolean onlyActive) {
+        return onlyActive
+                ? findAvailableInterestPoints(minLongitude, minLatitude, maxLongitude, maxLatitude, clusterRadius)
+                : findAllInterestPoints(minLongitude, minLatitude, maxLongitude, maxLatitude, clusterRadius);
+    }
+
+    @NativeQuery(value = DBSCAN_INTEREST_POINTS + DBSCAN_GROUPING)
+    Stream<InterestPoint> findAllInterestPoints(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, float clusterRadius);
+
+    @NativeQuery(value = DBSCAN_INTEREST_POINTS + ONLY_AVAILABLE + DBSCAN_GROUPING)
+    Stream<InterestPoint> findAvailableInterestPoints(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, float clusterRadius);
+
+    /** Groups the locations by the grid cell they fall in, cells are {@code cellSize} degrees wide and anchored at (0, 0) */
+    default Stream<InterestPoint> findGridInterestPoints(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, float cellSize, boolean onlyActive) {
+        return onlyActive
+                ? findAvailableGridInterestPoints(minLongitude, minLatitude, maxLongitude, maxLatitude, cellSize)
+                : findAllGridInterestPoints(minLongitude, minLatitude, maxLongitude, maxLatitude, cellSize);
+    }
+
+    @NativeQuery(value = GRID_INTEREST_POINTS + GRID_GROUPING)
+    Stream<InterestPoint> findAllGridInterestPoints(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, float cellSize);
+
+    @NativeQuery(value = GRID_INTEREST_POINTS + ONLY_AVAILABLE + GRID_GROUPING)
+    Stream<InterestPoint> findAvailableGridInterestPoints(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, float cellSize);
+
+    default Stream<LocationListing> getLocationsInEnvelope(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, boolean onlyActive) {
+        return onlyActive
+                ? getAvailableLocationsInEnvelope(minLongitude, minLatitude, maxLongitude, maxLatitude)
+                : getAllLocationsInEnvelope(minLongitude, minLatitude, maxLongitude, maxLatitude);
+    }
+
+    @NativeQuery(value = LOCATIONS_IN_ENVELOPE)
+    Stream<LocationListing> getAllLocationsInEnvelope(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude);
+
+    @NativeQuery(value = LOCATIONS_IN_ENVELOPE + ONLY_AVAILABLE)
+    Stream<LocationListing> getAvailableLocationsInEnvelope(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude);
+
+    /**
+     * Encodes a Mapbox Vector Tile with a {@code clusters} layer (attribute {@code n}) and a {@code locations} layer
+     * (attributes {@code id}, {@code name}, {@code chargers}, {@code available} and {@code maxPower}). A cluster radius of 0 disables clustering.
+     */
+    @NativeQuery(value = """
+            WITH bounds AS (
+                SELECT ST_TileEnvelope(?1, ?2, ?3) AS tile
+            ),
+            cluster_loc AS (
+                SELECT
+                    l.id,
+                    l.name,
+                    l.geom,
+                    l.charger_count,
+                    l.available_chargers,
+                    l.max_power,
+                    CASE WHEN ?4 > 0 THEN ST_ClusterDBSCAN(l.geom, eps := ?4, minpoints := 2) OVER () END AS cluster_id
+                FROM locations l, bounds b
+                WHERE
+                    l.geom && ST_Transform(b.tile, 4326)
+                    AND (NOT ?5 OR l.available_chargers > 0)
+            ),
+            features AS (
+                SELECT
+                    COUNT(*) AS n,
+                    MIN(id) AS id,
+                    MIN(name) AS name,
+                    MIN(charger_count) AS chargers,
+                    MIN(available_chargers) AS available,
+                    MIN(max_power) AS "maxPower",
+                    ST_AsMVTGeom(ST_Transform(ST_Centroid(ST_Collect(geom)), 3857), (SELECT tile FROM bounds)) AS geom
+                FROM cluster_loc
+                GROUP BY cluster_id, CASE WHEN cluster_id IS NULL THEN id END
             )
-            ;
+            SELECT
+                COALESCE((SELECT ST_AsMVT(c, 'clusters', 4096, 'geom') FROM (SELECT n, geom FROM features WHERE n > 1) c), '')
+                || COALESCE((SELECT ST_AsMVT(p, 'locations', 4096, 'geom') FROM (SELECT id, name, chargers, available, "maxPower", geom FROM features WHERE n = 1) p), '');
+            """)
+    byte[] getVectorTile(int zoom, int x, int y, float clusterRadius, boolean onlyActive);
+
+    /** Takes the ids as an array so the statement is the same whatever their number, unlike an {@code IN} list */
+    @NativeQuery(value = """
+            SELECT id, name, lat, lon, charger_count AS "chargerCount", available_chargers AS "availableChargers", max_power AS "maxPower"
+            FROM locations
+            WHERE id = ANY(CAST(?1 AS BIGINT[]));
             """)
-    Stream<LocationListing> getLocationsInEnvelope(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, boolean onlyActive);
+    List<LocationListing> findListingsByIds(Long[] ids);
+
+    /**
+     * Locations with at least one charger of {@code minPower} or more, in planar lon/lat distance order, which
+     * is only an approximation of the geodesic one
+     */
+    default List<Location> findClosestCandidates(float longitude, float latitude, float minPower, boolean onlyAvailable, int limit) {
+        return onlyAvailable
+                ? findClosestAvailableCandidates(longitude, latitude, minPower, limit)
+                : findClosestAnyCandidates(longitude, latitude, minPower, limit);
+    }
 
     @NativeQuery(value = """
             SELECT *
             FROM locations l
-            WHERE EXISTS (SELECT 1 FROM chargers c WHERE l.id = c.location_id AND c.available)
+            WHERE max_power >= ?3
+              AND EXISTS (SELECT 1 FROM chargers c WHERE c.location_id = l.id AND c.max_power >= ?3)
             ORDER BY l.geom <-> ST_SetSRID(ST_MAKEPOINT(?1, ?2), 4326)
-            LIMIT 1;
+            LIMIT ?4;
+            """)
+    List<Location> findClosestAnyCandidates(float longitude, float latitude, float minPower, int limit);
+
+    @NativeQuery(value = """
+            SELECT *
+            FROM locations l
+            WHERE max_power >= ?3
+              AND EXISTS (SELECT 1 FROM chargers c WHERE c.location_id = l.id AND c.max_power >= ?3 AND c.available)
+            """ + ONLY_AVAILABLE + """
+            ORDER BY l.geom <-> ST_SetSRID(ST_MAKEPOINT(?1, ?2), 4326)
+            LIMIT ?4;
+            """)
+    List<Location> findClosestAvailableCandidates(float longitude, float latitude, float minPower, int limit);
+
+    /**
+     * {@link #findClosestCandidates} for every point of a batch at once, each with its own power filter and
+     * limit. Rows are ordered by query point, then by planar distance.
+     */
+    default List<ClosestCandidate> findClosestCandidatesBatch(Float[] longitudes, Float[] latitudes, Float[] minPowers, Integer[] limits, boolean onlyAvailable) {
+        return onlyAvailable
+                ? findClosestAvailableCandidatesBatch(longitudes, latitudes, minPowers, limits)
+                : findClosestAnyCandidatesBatch(longitudes, latitudes, minPowers, limits);
+    }
+
+    @NativeQuery(value = """
+            SELECT p.idx AS "queryIndex", c.id, c.name, c.lat, c.lon
+            FROM unnest(CAST(?1 AS REAL[]), CAST(?2 AS REAL[]), CAST(?3 AS REAL[]), CAST(?4 AS INTEGER[]))
+                WITH ORDINALITY AS p(lon, lat, min_power, max_results, idx)
+            CROSS JOIN LATERAL (
+                SELECT l.id, l.name, l.lat, l.lon, l.geom <-> ST_SetSRID(ST_MAKEPOINT(p.lon, p.lat), 4326) AS planar
+                FROM locations l
+                WHERE max_power >= p.min_power
+                  AND EXISTS (SELECT 1 FROM chargers ch WHERE ch.location_id = l.id AND ch.max_power >= p.min_power)
+                ORDER BY l.geom <-> ST_SetSRID(ST_MAKEPOINT(p.lon, p.lat), 4326)
+                LIMIT p.max_results
+            ) c
+            ORDER BY p.idx, c.planar;
+            """)
+    List<ClosestCandidate> findClosestAnyCandidatesBatch(Float[] longitudes, Float[] latitudes, Float[] minPowers, Integer[] limits);
+
+    @NativeQuery(value = """
+            SELECT p.idx AS "queryIndex", c.id, c.name, c.lat, c.lon
+            FROM unnest(CAST(?1 AS REAL[]), CAST(?2 AS REAL[]), CAST(?3 AS REAL[]), CAST(?4 AS INTEGER[]))
+                WITH ORDINALITY AS p(lon, lat, min_power, max_results, idx)
+            CROSS JOIN LATERAL (
+                SELECT l.id, l.name, l.lat, l.lon, l.geom <-> ST_SetSRID(ST_MAKEPOINT(p.lon, p.lat), 4326) AS planar
+                FROM locations l
+                WHERE max_power >= p.min_power
+                  AND EXISTS (SELECT 1 FROM chargers ch WHERE ch.location_id = l.id AND ch.max_power >= p.min_power AND ch.available)
+            """ + ONLY_AVAILABLE + """
+                ORDER BY l.geom <-> ST_SetSRID(ST_MAKEPOINT(p.lon, p.lat), 4326)
+                LIMIT p.max_results
+            ) c
+            ORDER BY p.idx, c.planar;
+            """)
+    List<ClosestCandidate> findClosestAvailableCandidatesBatch(Float[] longitudes, Float[] latitudes, Float[] minPowers, Integer[] limits);
+
+    @NativeQuery(value = """
+            SELECT
+                l.id,
+                l.name,
+                l.lat,
+                l.lon,
+                l.charger_count AS "chargerCount",
+                l.available_chargers AS "availableChargers",
+                l.max_power AS "maxPower"
+            FROM locations l;
+            """)
+    Stream<LocationListing> streamLocationAvailability();
+
+    @NativeQuery(value = """
+            SELECT
+                c.id,
+                l.lat,
+                l.lon,
+                c.available,
+                c.max_power AS "maxPower"
+            FROM chargers c
+            JOIN locations l ON l.id = c.location_id;
             """)
-    Optional<Location> findClosestAvailable(float longitude, float latitude);
+    Stream<ChargerPosition> streamChargerPositions();
 }
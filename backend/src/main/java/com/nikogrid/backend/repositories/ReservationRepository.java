@@ -1,25 +1,113 @@
 package com.nikogrid.backend.repositories;
 
+import com.nikogrid.backend.dto.ReservationListDTO;
 import com.nikogrid.backend.entities.Reservation;
-import org.springframework.data.jpa.repository.NativeQuery;
+import com.nikogrid.backend.repositories.projections.ReservationInterval;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface ReservationRepository extends CrudRepository<Reservation, Long> {
-    @NativeQuery(
+    /** Fetches the charger and its location along, so listing them takes a single statement */
+    @EntityGraph(attributePaths = {"user", "charger", "charger.location"})
+    @Query(
             """
-                    SELECT *
-                    FROM reservation r
-                    WHERE
-                    user_id = ?1
+                    SELECT r
+                    FROM Reservation r
+                    WHERE r.user.id = ?1
                     ORDER BY
-                        CASE WHEN r.starts_at >= CURRENT_TIMESTAMP THEN 0 ELSE 1 END,
-                        CASE WHEN r.starts_at >= CURRENT_TIMESTAMP THEN r.starts_at END ASC,
-                        CASE WHEN r.starts_at < CURRENT_TIMESTAMP THEN r.starts_at END DESC
+                        CASE WHEN r.startsAt >= CURRENT_TIMESTAMP THEN 0 ELSE 1 END,
+                        CASE WHEN r.startsAt >= CURRENT_TIMESTAMP THEN r.startsAt END ASC,
+                        CASE WHEN r.startsAt < CURRENT_TIMESTAMP THEN r.startsAt END DESC
                     """)
     List<Reservation> getUserReservations(UUID userId);
+
+    /** Same order as {@link #getUserReservations(UUID)}, but builds the DTOs in the query so no entities are loaded */
+    @Query(
+            """
+                    SELECT new com.nikogrid.backend.dto.ReservationListDTO(
+                        r.id, c.id, r.startsAt, r.endsAt, c.name, l.name, c.maxPower
+                    )
+                    FROM Reservation r
+                    JOIN r.charger c
+                    JOIN c.location l
+                    WHERE r.user.id = ?1
+                    ORDER BY
+                        CASE WHEN r.startsAt >= CURRENT_TIMESTAMP THEN 0 ELSE 1 END,
+                        CASE WHEN r.startsAt >= CURRENT_TIMESTAMP THEN r.startsAt END ASC,
+                        CASE WHEN r.startsAt < CURRENT_TIMESTAMP THEN r.startsAt END DESC
+                    """)
+    Stream<ReservationListDTO> streamUserReservations(UUID userId);
+
+    /**
+     * A page of the user's reservations starting from {@code now} on, soonest first, after the cursor.
+     * Same single statement as {@link #streamUserReservations(UUID)}, walking {@code reservation_user_starts_at_idx}.
+     */
+    @Query(
+            """
+                    SELECT new com.nikogrid.backend.dto.ReservationListDTO(
+                        r.id, c.id, r.startsAt, r.endsAt, c.name, l.name, c.maxPower
+                    )
+                    FROM Reservation r
+                    JOIN r.charger c
+                    JOIN c.location l
+                    WHERE r.user.id = ?1
+                      AND r.startsAt >= ?2
+                      AND r.startsAt >= ?3 AND (r.startsAt > ?3 OR r.id > ?4)
+                    ORDER BY r.startsAt ASC, r.id ASC
+                    LIMIT ?5
+                    """)
+    List<ReservationListDTO> findUserUpcoming(UUID userId, Instant now, Instant afterStartsAt, long afterId, int limit);
+
+    /** A page of the user's reservations started before {@code now}, latest first, after the cursor */
+    @Query(
+            """
+                    SELECT new com.nikogrid.backend.dto.ReservationListDTO(
+                        r.id, c.id, r.startsAt, r.endsAt, c.name, l.name, c.maxPower
+                    )
+                    FROM Reservation r
+                    JOIN r.charger c
+                    JOIN c.location l
+                    WHERE r.user.id = ?1
+                      AND r.startsAt < ?2
+                      AND r.startsAt <= ?3 AND (r.startsAt < ?3 OR r.id < ?4)
+                    ORDER BY r.startsAt DESC, r.id DESC
+                    LIMIT ?5
+                    """)
+    List<ReservationListDTO> findUserPast(UUID userId, Instant now, Instant beforeStartsAt, long beforeId, int limit);
+
+    /** Reservations are half-open, {@code [startsAt, endsAt)}, same as in the exclusion constraint */
+    @Query("""
+            SELECT CASE WHEN COUNT(r) > 0 THEN true ELSE false END
+            FROM Reservation r
+            WHERE r.charger.id = ?1
+              AND r.startsAt < ?3
+              AND r.endsAt > ?2
+            """)
+    boolean existsOverlapping(long chargerId, Instant startsAt, Instant endsAt);
+
+    long countByUserIdAndStartsAtGreaterThanEqual(UUID userId, Instant now);
+
+    long countByUserIdAndStartsAtLessThan(UUID userId, Instant now);
+
+    /**
+     * Reservations of the chargers not over yet, ordered by charger and start.
+     * Chargers are looked up through the GiST index backing the exclusion constraint.
+     */
+    @Query("""
+            SELECT r.id AS id, r.charger.id AS chargerId, r.startsAt AS startsAt, r.endsAt AS endsAt
+            FROM Reservation r
+            WHERE r.charger.id IN ?1
+              AND r.endsAt > ?2
+            ORDER BY r.charger.id, r.startsAt
+            """)
+    List<ReservationInterval> findUpcoming(Collection<? extends Long> chargerIds, Instant after);
 }
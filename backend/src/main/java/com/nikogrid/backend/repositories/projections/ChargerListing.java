@@ -0,0 +1,13 @@
+package com.nikogrid.backend.repositories.projections;
+
+public interface ChargerListing {
+    long getId();
+
+    long getLocationId();
+
+    String getName();
+
+    boolean isAvailable();
+
+    float getMaxPower();
+}
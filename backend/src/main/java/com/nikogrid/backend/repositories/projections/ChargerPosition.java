@@ -0,0 +1,13 @@
+package com.nikogrid.backend.repositories.projections;
+
+public interface ChargerPosition {
+    long getId();
+
+    float getLat();
+
+    float getLon();
+
+    boolean isAvailable();
+
+    float getMaxPower();
+}
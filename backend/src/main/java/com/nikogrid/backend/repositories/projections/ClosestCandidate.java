@@ -0,0 +1,14 @@
+package com.nikogrid.backend.repositories.projections;
+
+public interface ClosestCandidate {
+    /** Position of the query point in the batch, starting at 1 */
+    long getQueryIndex();
+
+    long getId();
+
+    String getName();
+
+    float getLat();
+
+    float getLon();
+}
@@ -8,4 +8,10 @@ public interface LocationListing {
     float getLat();
 
     float getLon();
+
+    int getChargerCount();
+
+    int getAvailableChargers();
+
+    float getMaxPower();
 }
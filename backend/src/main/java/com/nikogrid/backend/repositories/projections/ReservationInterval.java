@@ -0,0 +1,13 @@
+package com.nikogrid.backend.repositories.projections;
+
+import java.time.Instant;
+
+public interface ReservationInterval {
+    long getId();
+
+    long getChargerId();
+
+    Instant getStartsAt();
+
+    Instant getEndsAt();
+}
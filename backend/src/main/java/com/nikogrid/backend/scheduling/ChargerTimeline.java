@@ -0,0 +1,81 @@
+package com.nikogrid.backend.scheduling;
+
+import com.nikogrid.backend.dto.TimeSlotDTO;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Reservations of a single charger, as an interval index keyed by start.
+ * Reservations of a charger never overlap, the {@code ec_working_hours_overlap} constraint sees to it, so
+ * ordering them by start also orders them by end. The reservations overlapping a range are then the
+ * one starting last before it and those starting within it, found in {@code O(log n + k)}.
+ *
+ * <p>Safe for concurrent use.
+ */
+public final class ChargerTimeline {
+    private record Entry(long reservationId, Instant end) {
+    }
+
+    private final NavigableMap<Instant, Entry> reservations = new TreeMap<>();
+
+    /** Reservations are half-open, {@code [start, end)}, same as in the exclusion constraint */
+    public synchronized void add(long reservationId, Instant start, Instant end) {
+        this.reservations.put(start, new Entry(reservationId, end));
+    }
+
+    /** Only removes the reservation if it still holds that start, it may have been replaced meanwhile */
+    public synchronized void remove(long reservationId, Instant start) {
+        final Entry entry = this.reservations.get(start);
+        if (entry != null && entry.reservationId() == reservationId) this.reservations.remove(start);
+    }
+
+    public synchronized int size() {
+        return this.reservations.size();
+    }
+
+    /**
+     * @return whether no reservation overlaps {@code [from, to)}
+     */
+    public boolean isFree(Instant from, Instant to) {
+        return overlapping(from, to).isEmpty();
+    }
+
+    /**
+     * @return the earliest reservation overlapping {@code [from, to)}
+     */
+    public synchronized Optional<TimeSlotDTO> overlapping(Instant from, Instant to) {
+        final Map.Entry<Instant, Entry> before = this.reservations.floorEntry(from);
+        if (before != null && before.getValue().end().isAfter(from))
+            return Optional.of(new TimeSlotDTO(before.getKey(), before.getValue().end()));
+
+        final Map.Entry<Instant, Entry> next = this.reservations.higherEntry(from);
+        if (next != null && next.getKey().isBefore(to))
+            return Optional.of(new TimeSlotDTO(next.getKey(), next.getValue().end()));
+        return Optional.empty();
+    }
+
+    /**
+     * @return the gaps between reservations within {@code [from, to)}, in order
+     */
+    public synchronized List<TimeSlotDTO> free(Instant from, Instant to) {
+        final List<TimeSlotDTO> result = new ArrayList<>();
+        Instant cursor = from;
+
+        final Map.Entry<Instant, Entry> before = this.reservations.lowerEntry(from);
+        if (before != null && before.getValue().end().isAfter(cursor)) cursor = before.getValue().end();
+
+        for (final Map.Entry<Instant, Entry> reservation : this.reservations.subMap(from, true, to, false).entrySet()) {
+            if (reservation.getKey().isAfter(cursor)) result.add(new TimeSlotDTO(cursor, reservation.getKey()));
+            if (reservation.getValue().end().isAfter(cursor)) cursor = reservation.getValue().end();
+        }
+
+        if (cursor.isBefore(to)) result.add(new TimeSlotDTO(cursor, to));
+        return result;
+    }
+}
@@ -0,0 +1,131 @@
+package com.nikogrid.backend.scheduling;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.nikogrid.backend.events.ReservationCancelled;
+import com.nikogrid.backend.events.ReservationCreated;
+import com.nikogrid.backend.repositories.ReservationRepository;
+import com.nikogrid.backend.repositories.projections.ReservationInterval;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Upcoming reservations of the chargers looked at recently, loaded from the database in one statement
+ * per request and kept up to date by the reservations created and cancelled on this instance.
+ *
+ * <p>Timelines are reloaded {@code ttl} after being loaded, however often they are updated meanwhile, which
+ * bounds how long reservations made through other instances go unseen. The exclusion constraint stays
+ * the authority on conflicts, a stale timeline can only make a slot look free or busy for that long.
+ */
+@Component
+public class ChargerTimelineCache {
+    public static final String METRICS_NAME = "reservations.timelines";
+
+    private final LoadingCache<Long, ChargerTimeline> cache;
+    private final ReservationRepository reservationRepository;
+    private final Clock clock;
+
+    @Autowired
+    public ChargerTimelineCache(
+            ReservationRepository reservationRepository,
+            Clock clock,
+            MeterRegistry meterRegistry,
+            @Value("${reservations.timelines.max-chargers:100000}") long maxChargers,
+            @Value("${reservations.timelines.ttl:1m}") Duration ttl
+    ) {
+        this.reservationRepository = reservationRepository;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxChargers)
+                .expireAfter(new AfterLoad(ttl))
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public ChargerTimeline load(Long chargerId) {
+                        return loadAll(Set.of(chargerId)).get(chargerId);
+                    }
+
+                    @Override
+                    public Map<Long, ChargerTimeline> loadAll(Set<? extends Long> chargerIds) {
+                        return ChargerTimelineCache.this.loadAll(chargerIds);
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, METRICS_NAME);
+    }
+
+    public ChargerTimeline get(long chargerId) {
+        return this.cache.get(chargerId);
+    }
+
+    /** Chargers missing from the cache are loaded together */
+    public Map<Long, ChargerTimeline> getAll(Collection<Long> chargerIds) {
+        return this.cache.getAll(chargerIds);
+    }
+
+    /** For when the timeline turned out to be missing reservations */
+    public void invalidate(long chargerId) {
+        this.cache.invalidate(chargerId);
+    }
+
+    /** Updates go through the cache map, so they wait for a load in progress instead of being lost */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationCreated(ReservationCreated event) {
+        this.cache.asMap().computeIfPresent(event.chargerId(), (chargerId, timeline) -> {
+            timeline.add(event.reservationId(), event.startsAt(), event.endsAt());
+            return timeline;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationCancelled(ReservationCancelled event) {
+        this.cache.asMap().computeIfPresent(event.chargerId(), (chargerId, timeline) -> {
+            timeline.remove(event.reservationId(), event.startsAt());
+            return timeline;
+        });
+    }
+
+    private Map<Long, ChargerTimeline> loadAll(Collection<? extends Long> chargerIds) {
+        final Map<Long, ChargerTimeline> result = new HashMap<>();
+        for (final Long chargerId : chargerIds) {
+            result.put(chargerId, new ChargerTimeline());
+        }
+
+        for (final ReservationInterval reservation : this.reservationRepository.findUpcoming(
+                chargerIds, this.clock.instant())) {
+            result.get(reservation.getChargerId())
+                    .add(reservation.getId(), reservation.getStartsAt(), reservation.getEndsAt());
+        }
+        return result;
+    }
+
+    /** Updates leave the expiry as it was, unlike {@code expireAfterWrite} */
+    private record AfterLoad(Duration ttl) implements Expiry<Long, ChargerTimeline> {
+        @Override
+        public long expireAfterCreate(Long chargerId, ChargerTimeline timeline, long currentTime) {
+            return this.ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(Long chargerId, ChargerTimeline timeline, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(Long chargerId, ChargerTimeline timeline, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
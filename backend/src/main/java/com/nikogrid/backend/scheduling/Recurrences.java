@@ -0,0 +1,43 @@
+package com.nikogrid.backend.scheduling;
+
+import com.nikogrid.backend.dto.ReservationRecurrence;
+import com.nikogrid.backend.dto.TimeSlotDTO;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Expands recurrences into their occurrences. They are stepped in local time, so a nightly
+ * reservation keeps its time of day across daylight saving changes, and keeps its length.
+ */
+public final class Recurrences {
+    private Recurrences() {
+    }
+
+    /**
+     * @throws java.time.DateTimeException if the zone is unknown
+     */
+    public static List<TimeSlotDTO> expand(ReservationRecurrence recurrence) {
+        final ZoneId zone = recurrence.zone == null ? ZoneOffset.UTC : ZoneId.of(recurrence.zone);
+        final Duration length = Duration.between(recurrence.start, recurrence.end);
+
+        final List<TimeSlotDTO> occurrences = new ArrayList<>(recurrence.occurrences);
+        ZonedDateTime start = recurrence.start.atZone(zone);
+        while (occurrences.size() < recurrence.occurrences) {
+            if (recurrence.frequency != ReservationRecurrence.Frequency.WEEKDAYS || isWeekday(start.getDayOfWeek()))
+                occurrences.add(new TimeSlotDTO(start.toInstant(), start.toInstant().plus(length)));
+
+            start = recurrence.frequency == ReservationRecurrence.Frequency.WEEKLY ? start.plusWeeks(1) : start.plusDays(1);
+        }
+        return occurrences;
+    }
+
+    private static boolean isWeekday(DayOfWeek day) {
+        return day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY;
+    }
+}
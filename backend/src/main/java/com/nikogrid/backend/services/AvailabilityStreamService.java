@@ -0,0 +1,17 @@
+package com.nikogrid.backend.services;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Optional;
+
+public interface AvailabilityStreamService {
+    String EVENT_NAME = "availability";
+
+    /**
+     * Pushes an {@link com.nikogrid.backend.dto.AvailabilityDeltaDTO} for every charger inside the envelope
+     * that changes availability from now on
+     *
+     * @return empty when the stream is at its subscriber limit
+     */
+    Optional<SseEmitter> subscribe(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude);
+}
@@ -0,0 +1,190 @@
+package com.nikogrid.backend.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nikogrid.backend.dto.AvailabilityDeltaDTO;
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import com.nikogrid.backend.spatial.ViewportSubscriptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent availability deltas for the viewports clients subscribed to, fed by
+ * {@link ChargerAvailabilityChanged} events and matched through a {@link ViewportSubscriptions} index.
+ *
+ * <p>Emitters are asynchronous requests, an idle subscriber holds a socket but no thread. Each subscriber
+ * has its own queue drained by a small shared pool, so a slow client never holds up the writer that
+ * published the change or the other clients. A client that falls {@code max-pending} messages behind is
+ * disconnected, it reconnects and reloads its viewport like after any other drop.
+ */
+@Service
+public class AvailabilityStreamServiceImpl implements AvailabilityStreamService {
+    public static final String SUBSCRIBERS_METRIC = "availability.stream.subscribers";
+    public static final String DROPPED_METRIC = "availability.stream.dropped";
+
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+
+    private final ObjectMapper objectMapper;
+    private final ViewportSubscriptions<Subscriber> subscriptions = new ViewportSubscriptions<>();
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final Counter dropped;
+    private final ExecutorService senders;
+    private final ScheduledExecutorService heartbeats;
+    private final int maxSubscribers;
+    private final int maxPending;
+    private final Duration timeout;
+
+    @Autowired
+    public AvailabilityStreamServiceImpl(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${locations.availability-stream.max-subscribers:50000}") int maxSubscribers,
+            @Value("${locations.availability-stream.max-pending:256}") int maxPending,
+            @Value("${locations.availability-stream.timeout:30m}") Duration timeout,
+            @Value("${locations.availability-stream.heartbeat:25s}") Duration heartbeat,
+            @Value("${locations.availability-stream.send-threads:4}") int sendThreads
+    ) {
+        this.objectMapper = objectMapper;
+        this.maxSubscribers = maxSubscribers;
+        this.maxPending = maxPending;
+        this.timeout = timeout;
+        this.senders = Executors.newFixedThreadPool(sendThreads, daemonThreads("availability-stream-"));
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(daemonThreads("availability-heartbeat-"));
+        this.heartbeats.scheduleAtFixedRate(
+                () -> this.subscriptions.forEach(s -> s.offer(HEARTBEAT)),
+                heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+
+        Gauge.builder(SUBSCRIBERS_METRIC, this.subscriptions, ViewportSubscriptions::size)
+                .description("Clients subscribed to the availability stream")
+                .register(meterRegistry);
+        this.dropped = Counter.builder(DROPPED_METRIC)
+                .description("Availability stream clients disconnected for falling behind")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Optional<SseEmitter> subscribe(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude) {
+        if (this.reserved.incrementAndGet() > this.maxSubscribers) {
+            this.reserved.decrementAndGet();
+            return Optional.empty();
+        }
+
+        final SseEmitter emitter = new SseEmitter(this.timeout.toMillis());
+        final Subscriber subscriber = new Subscriber(emitter);
+        final ViewportSubscriptions.Subscription<Subscriber> subscription =
+                this.subscriptions.add(minLongitude, minLatitude, maxLongitude, maxLatitude, subscriber);
+
+        final Runnable unsubscribe = () -> {
+            subscriber.close();
+            if (this.subscriptions.remove(subscription)) this.reserved.decrementAndGet();
+        };
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        return Optional.of(emitter);
+    }
+
+    /** The delta is serialized once and the same message handed to every matching subscriber */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChargerAvailabilityChanged(ChargerAvailabilityChanged event) {
+        final String json;
+        try {
+            json = this.objectMapper.writeValueAsString(AvailabilityDeltaDTO.fromEvent(event));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        final Set<DataWithMediaType> message = SseEmitter.event()
+                .name(EVENT_NAME)
+                .data(json)
+                .build();
+
+        this.subscriptions.forEachContaining(event.longitude(), event.latitude(), s -> s.offer(message));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        this.heartbeats.shutdownNow();
+        this.senders.shutdownNow();
+    }
+
+    private static CustomizableThreadFactory daemonThreads(String prefix) {
+        final CustomizableThreadFactory factory = new CustomizableThreadFactory(prefix);
+        factory.setDaemon(true);
+        return factory;
+    }
+
+    /** Messages are sent in order, by at most one sender thread at a time */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Queue<Set<DataWithMediaType>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(Set<DataWithMediaType> message) {
+            if (this.closed) return;
+            if (this.pending.incrementAndGet() > maxPending) {
+                close();
+                dropped.increment();
+                this.emitter.complete();
+                return;
+            }
+            this.queue.add(message);
+            schedule();
+        }
+
+        void close() {
+            this.closed = true;
+            this.queue.clear();
+        }
+
+        private void schedule() {
+            if (this.draining.compareAndSet(false, true)) senders.execute(this::drain);
+        }
+
+        private void drain() {
+            try {
+                Set<DataWithMediaType> message;
+                while (!this.closed && (message = this.queue.poll()) != null) {
+                    this.pending.decrementAndGet();
+                    this.emitter.send(message);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away or the emitter already completed
+                close();
+                this.emitter.completeWithError(e);
+            } finally {
+                this.draining.set(false);
+            }
+            // A message may have been queued after the last poll but before the flag was cleared
+            if (!this.closed && !this.queue.isEmpty()) schedule();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.nikogrid.backend.services;
+
+import com.nikogrid.backend.dto.ChargerScheduleDTO;
+import com.nikogrid.backend.exceptions.ResourceNotFound;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+public interface ChargerScheduleService {
+    Duration DEFAULT_RANGE = Duration.ofDays(7);
+    Duration MAX_RANGE = Duration.ofDays(31);
+
+    /**
+     * Free slots of the charger within {@code [from, to)}. Past time is never free.
+     *
+     * @param from null for now
+     * @param to   null for {@link #DEFAULT_RANGE} after {@code from}
+     */
+    ChargerScheduleDTO getChargerSchedule(long chargerId, Instant from, Instant to) throws ResourceNotFound;
+
+    /** Same as {@link #getChargerSchedule} for every charger of the location */
+    List<ChargerScheduleDTO> getLocationSchedule(long locationId, Instant from, Instant to) throws ResourceNotFound;
+}
@@ -0,0 +1,87 @@
+package com.nikogrid.backend.services;
+
+import com.nikogrid.backend.dto.ChargerScheduleDTO;
+import com.nikogrid.backend.entities.Charger;
+import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.exceptions.ResourceNotFound;
+import com.nikogrid.backend.scheduling.ChargerTimeline;
+import com.nikogrid.backend.scheduling.ChargerTimelineCache;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class ChargerScheduleServiceImpl implements ChargerScheduleService {
+    private final ChargerService chargerService;
+    private final LocationService locationService;
+    private final ChargerTimelineCache timelines;
+    private final Clock clock;
+
+    @Autowired
+    public ChargerScheduleServiceImpl(
+            ChargerService chargerService, LocationService locationService, ChargerTimelineCache timelines, Clock clock) {
+        this.chargerService = chargerService;
+        this.locationService = locationService;
+        this.timelines = timelines;
+        this.clock = clock;
+    }
+
+    @Override
+    public ChargerScheduleDTO getChargerSchedule(long chargerId, Instant from, Instant to) throws ResourceNotFound {
+        final Instant now = this.clock.instant();
+        final Instant start = from == null ? now : from;
+        final Instant end = to == null ? start.plus(DEFAULT_RANGE) : to;
+        checkRange(start, end);
+
+        final Charger charger = this.chargerService.findChargerById(chargerId);
+        if (!charger.isAvailable()) return new ChargerScheduleDTO(chargerId, false, List.of());
+        return schedule(chargerId, this.timelines.get(chargerId), max(start, now), end);
+    }
+
+    @Override
+    public List<ChargerScheduleDTO> getLocationSchedule(long locationId, Instant from, Instant to) throws ResourceNotFound {
+        final Instant now = this.clock.instant();
+        final Instant start = from == null ? now : from;
+        final Instant end = to == null ? start.plus(DEFAULT_RANGE) : to;
+        checkRange(start, end);
+
+        final Location location = this.locationService.getLocationById(locationId);
+        if (location.getChargers() == null) return List.of();
+
+        final List<Charger> chargers = location.getChargers().stream()
+                .sorted(Comparator.comparing(Charger::getId))
+                .toList();
+        final Map<Long, ChargerTimeline> found = this.timelines.getAll(chargers.stream()
+                .filter(Charger::isAvailable)
+                .map(Charger::getId)
+                .toList());
+
+        return chargers.stream()
+                .map(charger -> charger.isAvailable()
+                        ? schedule(charger.getId(), found.get(charger.getId()), max(start, now), end)
+                        : new ChargerScheduleDTO(charger.getId(), false, List.of()))
+                .toList();
+    }
+
+    private static ChargerScheduleDTO schedule(long chargerId, ChargerTimeline timeline, Instant from, Instant to) {
+        return new ChargerScheduleDTO(chargerId, true, from.isBefore(to) ? timeline.free(from, to) : List.of());
+    }
+
+    private static void checkRange(Instant from, Instant to) {
+        if (!to.isAfter(from))
+            throw new ConstraintViolationException("Range end must be after its start", Set.of());
+        if (from.plus(MAX_RANGE).isBefore(to))
+            throw new ConstraintViolationException("Range must not span more than " + MAX_RANGE.toDays() + " days", Set.of());
+    }
+
+    private static Instant max(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -3,6 +3,27 @@ package com.nikogrid.backend.services;
 import com.nikogrid.backend.entities.Charger;
 import com.nikogrid.backend.exceptions.ResourceNotFound;
 
+import java.util.Map;
+
 public interface ChargerService {
     Charger findChargerById(Long id) throws ResourceNotFound;
+
+    Charger setAvailability(long id, boolean available) throws ResourceNotFound;
+
+    /**
+     * Applies the availability of many chargers at once, unknown chargers are ignored
+     *
+     * @return how many chargers changed
+     */
+    int setAvailability(Map<Long, Boolean> availability);
+
+    /**
+     * Issues a new OCPP authorization key for the charger, the previous one stops working
+     *
+     * @return the key, only its hash is kept
+     */
+    String renewOcppKey(long id) throws ResourceNotFound;
+
+    /** Whether the key is the charger's current OCPP authorization key */
+    boolean isOcppKeyValid(long id, String key);
 }
@@ -1,18 +1,48 @@
 package com.nikogrid.backend.services;
 
 import com.nikogrid.backend.entities.Charger;
+import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
 import com.nikogrid.backend.exceptions.ResourceNotFound;
 import com.nikogrid.backend.repositories.ChargerRepository;
+import com.nikogrid.backend.repositories.LocationRepository;
+import com.nikogrid.backend.repositories.projections.ChargerListing;
+import com.nikogrid.backend.repositories.projections.LocationListing;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ChargerServiceImpl implements ChargerService {
+    /** The most OCPP 1.6 allows for an AuthorizationKey */
+    private static final int OCPP_KEY_BYTES = 20;
+
     private final ChargerRepository chargerRepository;
+    private final LocationRepository locationRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PasswordEncoder passwordEncoder;
+    private final SecureRandom random = new SecureRandom();
 
     @Autowired
-    public ChargerServiceImpl(ChargerRepository chargerRepository) {
+    public ChargerServiceImpl(
+            ChargerRepository chargerRepository,
+            LocationRepository locationRepository,
+            ApplicationEventPublisher eventPublisher,
+            PasswordEncoder passwordEncoder
+    ) {
         this.chargerRepository = chargerRepository;
+        this.locationRepository = locationRepository;
+        this.eventPublisher = eventPublisher;
+        this.passwordEncoder = passwordEncoder;
     }
 
     @Override
@@ -20,4 +50,87 @@ public class ChargerServiceImpl implements ChargerService {
         return this.chargerRepository.findById(id)
                 .orElseThrow(ResourceNotFound::new);
     }
+
+    @Override
+    @Transactional(rollbackFor = ResourceNotFound.class)
+    public Charger setAvailability(long id, boolean available) throws ResourceNotFound {
+        final Charger charger = findChargerById(id);
+        if (charger.isAvailable() == available) return charger;
+
+        charger.setAvailable(available);
+        final Charger saved = this.chargerRepository.save(charger);
+
+        final Location location = saved.getLocation();
+        this.eventPublisher.publishEvent(new ChargerAvailabilityChanged(
+                saved.getId(),
+                location.getId(),
+                location.getLon(),
+                location.getLat(),
+                available,
+                this.chargerRepository.countByLocationIdAndAvailableTrue(location.getId())
+        ));
+        return saved;
+    }
+
+    /**
+     * The update locks chargers and their locations in a fixed order, see
+     * {@link ChargerRepository#updateAvailability}. The location summaries are read after the update, once
+     * the trigger has refreshed them, so every event carries the final count.
+     */
+    @Override
+    @Transactional
+    public int setAvailability(Map<Long, Boolean> availability) {
+        if (availability.isEmpty()) return 0;
+
+        final Long[] ids = availability.keySet().stream().sorted().toArray(Long[]::new);
+        final Boolean[] available = new Boolean[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            available[i] = availability.get(ids[i]);
+        }
+
+        final List<ChargerListing> changed = this.chargerRepository.updateAvailability(ids, available);
+        if (changed.isEmpty()) return 0;
+
+        final Map<Long, LocationListing> locations = this.locationRepository.findListingsByIds(changed.stream()
+                        .map(ChargerListing::getLocationId)
+                        .distinct()
+                        .toArray(Long[]::new))
+                .stream()
+                .collect(Collectors.toMap(LocationListing::getId, Function.identity()));
+
+        for (final ChargerListing charger : changed) {
+            final LocationListing location = locations.get(charger.getLocationId());
+            this.eventPublisher.publishEvent(new ChargerAvailabilityChanged(
+                    charger.getId(),
+                    location.getId(),
+                    location.getLon(),
+                    location.getLat(),
+                    charger.isAvailable(),
+                    location.getAvailableChargers()
+            ));
+        }
+        return changed.size();
+    }
+
+    @Override
+    @Transactional(rollbackFor = ResourceNotFound.class)
+    public String renewOcppKey(long id) throws ResourceNotFound {
+        final Charger charger = findChargerById(id);
+
+        final byte[] bytes = new byte[OCPP_KEY_BYTES];
+        this.random.nextBytes(bytes);
+        final String key = HexFormat.of().formatHex(bytes);
+
+        charger.setOcppKeyHash(this.passwordEncoder.encode(key));
+        this.chargerRepository.save(charger);
+        return key;
+    }
+
+    @Override
+    public boolean isOcppKeyValid(long id, String key) {
+        return this.chargerRepository.findById(id)
+                .map(Charger::getOcppKeyHash)
+                .filter(hash -> this.passwordEncoder.matches(key, hash))
+                .isPresent();
+    }
 }
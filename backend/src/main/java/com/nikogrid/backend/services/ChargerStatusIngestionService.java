@@ -0,0 +1,17 @@
+package com.nikogrid.backend.services;
+
+import com.nikogrid.backend.dto.ChargerStatusDTO;
+
+import java.util.Collection;
+
+/**
+ * Accepts charger status reports and applies them asynchronously. Only the latest status of each
+ * charger is kept until the next flush, so a charger reporting every few seconds costs one row update
+ * per flush at most.
+ */
+public interface ChargerStatusIngestionService {
+    /**
+     * @return false if the backlog is full, in which case none of the statuses were accepted
+     */
+    boolean submit(Collection<ChargerStatusDTO> statuses);
+}
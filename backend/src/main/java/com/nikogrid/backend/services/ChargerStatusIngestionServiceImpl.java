@@ -0,0 +1,133 @@
+package com.nikogrid.backend.services;
+
+import com.nikogrid.backend.dto.ChargerStatusDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for charger statuses. Statuses are coalesced per charger in memory and flushed
+ * by a single thread in batches, each batch being one statement.
+ *
+ * <p>The buffer holds at most one entry per charger, so it only fills up when the database falls behind
+ * with many chargers changing at once. Past {@code max-pending} chargers, new reports are refused so the
+ * sender backs off instead of the backlog growing without bound.
+ */
+@Service
+public class ChargerStatusIngestionServiceImpl implements ChargerStatusIngestionService {
+    public static final String PENDING_METRIC = "charger.status.pending";
+    public static final String FLUSH_METRIC = "charger.status.flush";
+    public static final String COALESCED_METRIC = "charger.status.coalesced";
+    public static final String REJECTED_METRIC = "charger.status.rejected";
+    public static final String FLUSH_FAILURES_METRIC = "charger.status.flush.failures";
+
+    private final ChargerService chargerService;
+    private final ConcurrentMap<Long, Boolean> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final int maxPending;
+    private final int batchSize;
+    private final Timer flushTimer;
+    private final Counter coalesced;
+    private final Counter rejected;
+    private final Counter flushFailures;
+
+    @Autowired
+    public ChargerStatusIngestionServiceImpl(
+            ChargerService chargerService,
+            MeterRegistry meterRegistry,
+            @Value("${chargers.ingestion.max-pending:100000}") int maxPending,
+            @Value("${chargers.ingestion.batch-size:1000}") int batchSize,
+            @Value("${chargers.ingestion.flush-interval:250ms}") Duration flushInterval
+    ) {
+        this.chargerService = chargerService;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+
+        Gauge.builder(PENDING_METRIC, this.pending, Map::size)
+                .description("Chargers with a status waiting to be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder(FLUSH_METRIC)
+                .description("Time to write one batch of charger statuses")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder(COALESCED_METRIC)
+                .description("Charger statuses replaced by a later one before being written")
+                .register(meterRegistry);
+        this.rejected = Counter.builder(REJECTED_METRIC)
+                .description("Charger statuses refused because the backlog was full")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder(FLUSH_FAILURES_METRIC)
+                .description("Batches of charger statuses that failed to be written and were queued again")
+                .register(meterRegistry);
+
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("charger-status-flush-");
+        threadFactory.setDaemon(true);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        this.flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean submit(Collection<ChargerStatusDTO> statuses) {
+        if (this.pending.size() + statuses.size() > this.maxPending) {
+            this.rejected.increment(statuses.size());
+            return false;
+        }
+
+        for (final ChargerStatusDTO status : statuses) {
+            if (this.pending.put(status.chargerId, status.available) != null) this.coalesced.increment();
+        }
+        return true;
+    }
+
+    /**
+     * Each entry is removed as it is taken, so a status arriving meanwhile waits for the next flush
+     * instead of being lost. A failed batch is queued again unless a newer status came in.
+     */
+    void flush() {
+        Map<Long, Boolean> batch = new HashMap<>();
+        for (final Long chargerId : this.pending.keySet()) {
+            final Boolean available = this.pending.remove(chargerId);
+            if (available == null) continue;
+
+            batch.put(chargerId, available);
+            if (batch.size() == this.batchSize) {
+                if (!write(batch)) return;
+                batch = new HashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) write(batch);
+    }
+
+    /** Stops the flusher and writes whatever is left */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        this.flusher.shutdown();
+        if (this.flusher.awaitTermination(10, TimeUnit.SECONDS)) flush();
+    }
+
+    private boolean write(Map<Long, Boolean> batch) {
+        try {
+            this.flushTimer.record(() -> this.chargerService.setAvailability(batch));
+            return true;
+        } catch (RuntimeException e) {
+            this.flushFailures.increment();
+            batch.forEach(this.pending::putIfAbsent);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.nikogrid.backend.services;
+
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import com.nikogrid.backend.events.LocationChangedElsewhere;
+import com.nikogrid.backend.events.LocationCreated;
+import com.nikogrid.backend.events.LocationsImported;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Imports committed by another process, such as one started with {@link com.nikogrid.backend.LocationImportRunner},
+ * publish their {@link LocationsImported} in that process only. Every import also sends a notification on
+ * {@link #CHANNEL} from its transaction, which Postgres only delivers once it commits, and the ones sent by
+ * other processes are published here as if the import had run locally.
+ *
+ * <p>The same goes for changes to single locations, a new location or a charger flipping its availability. They
+ * are sent on {@link #CHANGES_CHANNEL}, once per location and transaction, and published here as a
+ * {@link LocationChangedElsewhere}.
+ *
+ * <p>Listens on a connection opened outside of the pool, since it is held for as long as the application runs,
+ * and opened again after {@code locations.import.relay.retry} when it is lost. Imports and changes committed while
+ * it is disconnected are missed.
+ */
+@Component
+public class LocationImportRelay {
+    public static final String CHANNEL = "nikogrid_location_imports";
+    public static final String CHANGES_CHANNEL = "nikogrid_location_changes";
+    public static final String FAILURES_METRIC = "locations.import.relay.failures";
+
+    private static final int POLL_MILLIS = 1000;
+
+    /** Tells the notifications of this process apart from the others' */
+    private final String origin = UUID.randomUUID().toString();
+    private final JdbcConnectionDetails connectionDetails;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter failures;
+    private final boolean enabled;
+    private final Duration retry;
+    private ExecutorService listener;
+    private volatile boolean running = true;
+
+    @Autowired
+    public LocationImportRelay(
+            JdbcConnectionDetails connectionDetails,
+            JdbcTemplate jdbcTemplate,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry,
+            @Value("${locations.import.relay.enabled:true}") boolean enabled,
+            @Value("${locations.import.relay.retry:10s}") Duration retry
+    ) {
+        this.connectionDetails = connectionDetails;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.retry = retry;
+        this.failures = Counter.builder(FAILURES_METRIC)
+                .description("Times the connection listening for changes of other processes was lost")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!this.enabled || this.listener != null) return;
+
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("location-import-relay-");
+        threadFactory.setDaemon(true);
+        this.listener = Executors.newSingleThreadExecutor(threadFactory);
+        this.listener.execute(this::listen);
+    }
+
+    /** What an import committed by this process sends on {@link #CHANNEL} */
+    public String payload(LocationsImported event) {
+        return String.join(":", this.origin,
+                Long.toString(event.locationsInserted()), Long.toString(event.locationsUpdated()),
+                Long.toString(event.chargersInserted()), Long.toString(event.chargersUpdated()));
+    }
+
+    /**
+     * @return the import described by {@code payload}, empty if it was sent by this process or can't be read
+     */
+    Optional<LocationsImported> parse(String payload) {
+        final String[] parts = payload == null ? new String[0] : payload.split(":");
+        if (parts.length != 5 || parts[0].equals(this.origin)) return Optional.empty();
+
+        try {
+            return Optional.of(new LocationsImported(
+                    Long.parseLong(parts[1]), Long.parseLong(parts[2]), Long.parseLong(parts[3]), Long.parseLong(parts[4])));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /** What a change to a location committed by this process sends on {@link #CHANGES_CHANNEL} */
+    String changePayload(long locationId, float longitude, float latitude) {
+        return String.join(":", this.origin,
+                Long.toString(locationId), Float.toString(longitude), Float.toString(latitude));
+    }
+
+    /**
+     * @return the change described by {@code payload}, empty if it was sent by this process or can't be read
+     */
+    Optional<LocationChangedElsewhere> parseChange(String payload) {
+        final String[] parts = payload == null ? new String[0] : payload.split(":");
+        if (parts.length != 4 || parts[0].equals(this.origin)) return Optional.empty();
+
+        try {
+            return Optional.of(new LocationChangedElsewhere(
+                    Long.parseLong(parts[1]), Float.parseFloat(parts[2]), Float.parseFloat(parts[3])));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /** Runs in the transaction of the change, so it is only announced if it commits */
+    @EventListener
+    public void onLocationCreated(LocationCreated event) {
+        announce(changePayload(event.location().getId(), event.location().getLon(), event.location().getLat()));
+    }
+
+    @EventListener
+    public void onChargerAvailabilityChanged(ChargerAvailabilityChanged event) {
+        announce(changePayload(event.locationId(), event.longitude(), event.latitude()));
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        this.running = false;
+        if (this.listener != null) this.listener.shutdownNow();
+    }
+
+    private void listen() {
+        while (this.running) {
+            try (Connection connection = DriverManager.getConnection(this.connectionDetails.getJdbcUrl(),
+                    this.connectionDetails.getUsername(), this.connectionDetails.getPassword());
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+                statement.execute("LISTEN " + CHANGES_CHANNEL);
+                final PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (this.running) {
+                    final PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications == null) continue;
+
+                    for (final PGNotification notification : notifications) {
+                        final Optional<?> event = CHANGES_CHANNEL.equals(notification.getName())
+                                ? parseChange(notification.getParameter())
+                                : parse(notification.getParameter());
+                        event.ifPresent(this.eventPublisher::publishEvent);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!this.running) return;
+                this.failures.increment();
+                try {
+                    Thread.sleep(this.retry.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Changes of a transaction are gathered and sent in one statement before it commits, outside of one
+     * they are sent right away
+     */
+    private void announce(String payload) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(Set.of(payload));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<String> payloads = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (payloads == null) {
+            final Set<String> pending = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    send(pending);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(LocationImportRelay.this);
+                }
+            });
+            payloads = pending;
+        }
+        payloads.add(payload);
+    }
+
+    private void send(Set<String> payloads) {
+        this.jdbcTemplate.query("SELECT pg_notify(?, p) FROM unnest(CAST(? AS TEXT[])) AS p", row -> {
+        }, CHANGES_CHANNEL, payloads.toArray(String[]::new));
+    }
+}
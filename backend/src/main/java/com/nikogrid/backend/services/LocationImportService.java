@@ -0,0 +1,38 @@
+package com.nikogrid.backend.services;
+
+import com.nikogrid.backend.dto.ImportProgressDTO;
+import com.nikogrid.backend.dto.ImportResultDTO;
+import com.nikogrid.backend.exceptions.ImportInProgress;
+import com.nikogrid.backend.exceptions.InvalidImportData;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public interface LocationImportService {
+    enum Format {
+        /**
+         * The columns of {@code detailed_ev_charging_stations.csv}, with a header. Each row is a location with
+         * a single charger, both identified by the station name.
+         */
+        CSV,
+        /** One {@link com.nikogrid.backend.dto.LocationImportRow} per line */
+        NDJSON,
+    }
+
+    /**
+     * Streams the input into the database and merges it into the locations and chargers, all in one
+     * transaction. Memory use does not depend on the size of the input. Only one import runs at a time
+     * across all instances.
+     *
+     * @param progress called from the importing thread every few rows, then when merging starts
+     */
+    ImportResultDTO importLocations(InputStream input, Format format, Consumer<ImportProgressDTO> progress)
+            throws ImportInProgress, InvalidImportData, IOException;
+
+    /**
+     * @return the progress of the import running on this instance, if any
+     */
+    Optional<ImportProgressDTO> getProgress();
+}
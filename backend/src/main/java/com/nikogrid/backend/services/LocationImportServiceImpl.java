@@ -0,0 +1,454 @@
+package com.nikogrid.backend.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nikogrid.backend.dto.ImportProgressDTO;
+import com.nikogrid.backend.dto.ImportResultDTO;
+import com.nikogrid.backend.dto.LocationImportRow;
+import com.nikogrid.backend.events.LocationsImported;
+import com.nikogrid.backend.exceptions.ImportInProgress;
+import com.nikogrid.backend.exceptions.InvalidImportData;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Bulk import through the COPY protocol. Rows are streamed into temporary staging tables, then merged
+ * into {@code locations} and {@code chargers} with a few set-based statements keyed on their external ids.
+ *
+ * <p>The charger summary trigger is deferred for the transaction, otherwise every charger row would
+ * recompute the summary of its location. The summaries of the imported locations are refreshed in
+ * one statement once the chargers are merged.
+ */
+@Service
+public class LocationImportServiceImpl implements LocationImportService {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String LOCK = "SELECT pg_try_advisory_xact_lock(hashtext('nikogrid.location-import'))";
+
+    /**
+     * Columns of {@code detailed_ev_charging_stations.csv}, only the ones used are typed. {@code line} keeps the
+     * order of the rows in the file.
+     */
+    private static final String CREATE_STAGING = """
+            SET LOCAL nikogrid.defer_charger_summary = 'on';
+            CREATE TEMP TABLE import_stations
+            (
+                name                    TEXT,
+                latitude                FLOAT,
+                longitude               FLOAT,
+                address                 TEXT,
+                charger_type            TEXT,
+                cost                    TEXT,
+                availability            TEXT,
+                distance_to_city        TEXT,
+                usage_stats             TEXT,
+                station_operator        TEXT,
+                charging_capacity       FLOAT,
+                connector_types         TEXT,
+                installation_year       TEXT,
+                renewable_energy_source TEXT,
+                reviews                 TEXT,
+                parking_spots           TEXT,
+                maintenance_frequency   TEXT,
+                line                    BIGINT GENERATED ALWAYS AS IDENTITY
+            ) ON COMMIT DROP;
+            CREATE TEMP TABLE import_rows
+            (
+                location_ref  TEXT    NOT NULL,
+                location_name TEXT    NOT NULL,
+                lat           FLOAT   NOT NULL,
+                lon           FLOAT   NOT NULL,
+                charger_ref   TEXT    NOT NULL,
+                charger_name  TEXT    NOT NULL,
+                max_power     FLOAT   NOT NULL,
+                available     BOOLEAN NOT NULL
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_STATIONS = """
+            COPY import_stations (name, latitude, longitude, address, charger_type, cost, availability, distance_to_city,
+                                  usage_stats, station_operator, charging_capacity, connector_types, installation_year,
+                                  renewable_energy_source, reviews, parking_spots, maintenance_frequency)
+                FROM STDIN WITH (FORMAT csv, HEADER true)
+            """;
+
+    private static final String COPY_ROWS = "COPY import_rows FROM STDIN WITH (FORMAT csv)";
+
+    /**
+     * The file has no ids and station names repeat, so a location is identified by its name and position,
+     * {@code name@lat,lon}, and each row is one of its chargers, {@code name@lat,lon#n} for the n-th row of that
+     * location in the file. Re-importing the same file, or one with stations added elsewhere, keeps the refs.
+     */
+    private static final String STATIONS_TO_ROWS = """
+            INSERT INTO import_rows
+            SELECT location_ref, name, latitude, longitude,
+                   location_ref || '#' || row_number() OVER (PARTITION BY location_ref ORDER BY line),
+                   COALESCE(charger_type, name), charging_capacity, true
+            FROM (SELECT *, name || '@' || latitude || ',' || longitude AS location_ref
+                  FROM import_stations) s
+            """;
+
+    private static final String COUNT_INVALID = """
+            SELECT COUNT(*)
+            FROM import_rows
+            WHERE location_ref = ''
+               OR charger_ref = ''
+               OR lat NOT BETWEEN -90 AND 90
+               OR lon NOT BETWEEN -180 AND 180
+               OR max_power < 0
+            """;
+
+    /**
+     * Locations loaded before imports existed, such as by {@code infra/load-data.sql}, have no external id, and
+     * CSV imports used to identify them by name alone. The first one with the same name and position is taken
+     * over by the import instead of being duplicated.
+     */
+    private static final String ADOPT_LOCATIONS = """
+            UPDATE locations l
+            SET external_id = a.location_ref
+            FROM (SELECT DISTINCT ON (r.location_ref) r.location_ref, e.id
+                  FROM import_rows r
+                           JOIN locations e ON (e.external_id IS NULL OR e.external_id = r.location_name)
+                      AND e.name = r.location_name
+                      AND e.lat = r.lat
+                      AND e.lon = r.lon
+                  WHERE NOT EXISTS (SELECT 1 FROM locations i WHERE i.external_id = r.location_ref)
+                  ORDER BY r.location_ref, e.id) a
+            WHERE l.id = a.id
+            """;
+
+    /**
+     * Same as {@link #ADOPT_LOCATIONS} for the chargers of the imported locations, matched on their max power
+     * since the ones loaded by {@code infra/load-data.sql} all have the same name
+     */
+    private static final String ADOPT_CHARGERS = """
+            UPDATE chargers c
+            SET external_id = a.charger_ref
+            FROM (SELECT DISTINCT ON (r.charger_ref) r.charger_ref, e.id
+                  FROM import_rows r
+                           JOIN locations l ON l.external_id = r.location_ref
+                           JOIN chargers e ON (e.external_id IS NULL OR e.external_id = r.location_name)
+                      AND e.location_id = l.id
+                      AND e.max_power = r.max_power
+                  WHERE NOT EXISTS (SELECT 1 FROM chargers i WHERE i.external_id = r.charger_ref)
+                  ORDER BY r.charger_ref, e.id) a
+            WHERE c.id = a.id
+            """;
+
+    /** When a reference appears more than once, one of its rows is picked */
+    private static final String MERGE_LOCATIONS = """
+            WITH merged AS (
+                INSERT INTO locations (external_id, name, lat, lon)
+                SELECT DISTINCT ON (location_ref) location_ref, location_name, lat, lon
+                FROM import_rows
+                ORDER BY location_ref
+                ON CONFLICT (external_id) DO UPDATE
+                    SET name = EXCLUDED.name,
+                        lat  = EXCLUDED.lat,
+                        lon  = EXCLUDED.lon
+                    WHERE (locations.name, locations.lat, locations.lon)
+                              IS DISTINCT FROM (EXCLUDED.name, EXCLUDED.lat, EXCLUDED.lon)
+                RETURNING xmax = 0 AS inserted
+            )
+            SELECT COUNT(*) FILTER (WHERE inserted), COUNT(*) FILTER (WHERE NOT inserted)
+            FROM merged
+            """;
+
+    /**
+     * A charger stays at the location it was first imported with, so only the summaries of the imported
+     * locations can change. Availability is only set for new chargers: the file is a snapshot of the
+     * stations, not of their live status, which is reported by the chargers themselves.
+     */
+    private static final String MERGE_CHARGERS = """
+            WITH merged AS (
+                INSERT INTO chargers (external_id, name, available, max_power, location_id)
+                SELECT DISTINCT ON (r.charger_ref) r.charger_ref, r.charger_name, r.available, r.max_power, l.id
+                FROM import_rows r
+                         JOIN locations l ON l.external_id = r.location_ref
+                ORDER BY r.charger_ref
+                ON CONFLICT (external_id) DO UPDATE
+                    SET name      = EXCLUDED.name,
+                        max_power = EXCLUDED.max_power
+                    WHERE (chargers.name, chargers.max_power)
+                              IS DISTINCT FROM (EXCLUDED.name, EXCLUDED.max_power)
+                RETURNING xmax = 0 AS inserted
+            )
+            SELECT COUNT(*) FILTER (WHERE inserted), COUNT(*) FILTER (WHERE NOT inserted)
+            FROM merged
+            """;
+
+    private static final String REFRESH_SUMMARIES = """
+            UPDATE locations l
+            SET charger_count      = s.charger_count,
+                available_chargers = s.available_chargers,
+                max_power          = s.max_power
+            FROM (SELECT c.location_id,
+                         COUNT(*)                            AS charger_count,
+                         COUNT(*) FILTER (WHERE c.available) AS available_chargers,
+                         MAX(c.max_power)                    AS max_power
+                  FROM chargers c
+                  WHERE c.location_id IN (SELECT il.id
+                                          FROM locations il
+                                          WHERE il.external_id IN (SELECT location_ref FROM import_rows))
+                  GROUP BY c.location_id) s
+            WHERE l.id = s.location_id
+              AND (l.charger_count, l.available_chargers, l.max_power)
+                IS DISTINCT FROM (s.charger_count, s.available_chargers, s.max_power)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LocationImportRelay relay;
+    private final long progressInterval;
+    private final AtomicReference<ImportProgressDTO> current = new AtomicReference<>();
+
+    @Autowired
+    public LocationImportServiceImpl(
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            ApplicationEventPublisher eventPublisher,
+            LocationImportRelay relay,
+            @Value("${locations.import.progress-interval:100000}") long progressInterval
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.relay = relay;
+        this.progressInterval = progressInterval;
+    }
+
+    @Override
+    @Transactional(rollbackFor = {ImportInProgress.class, InvalidImportData.class, IOException.class})
+    public ImportResultDTO importLocations(InputStream input, Format format, Consumer<ImportProgressDTO> progress)
+            throws ImportInProgress, InvalidImportData, IOException {
+        final long start = System.nanoTime();
+        final DataSource dataSource = this.jdbcTemplate.getDataSource();
+        final Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet lock = statement.executeQuery(LOCK)) {
+                if (!lock.next() || !lock.getBoolean(1)) throw new ImportInProgress();
+            }
+            statement.execute(CREATE_STAGING);
+
+            final Progress tracker = new Progress(progress, format == Format.CSV ? -1 : 0);
+            final CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            final long rows = switch (format) {
+                case CSV -> {
+                    final long copied = copyManager.copyIn(COPY_STATIONS, new CountingInputStream(input, tracker, true), BUFFER_SIZE);
+                    statement.executeUpdate(STATIONS_TO_ROWS);
+                    yield copied;
+                }
+                case NDJSON -> copyNdjson(copyManager, new CountingInputStream(input, tracker, false), tracker);
+            };
+            tracker.merging(rows);
+
+            statement.execute("ANALYZE import_rows");
+            try (ResultSet invalid = statement.executeQuery(COUNT_INVALID)) {
+                invalid.next();
+                if (invalid.getLong(1) > 0)
+                    throw new InvalidImportData(invalid.getLong(1)
+                            + " rows have an empty reference, a negative max power or coordinates out of range");
+            }
+
+            statement.executeUpdate(ADOPT_LOCATIONS);
+            final long[] locations = counts(statement, MERGE_LOCATIONS);
+            statement.executeUpdate(ADOPT_CHARGERS);
+            final long[] chargers = counts(statement, MERGE_CHARGERS);
+            statement.executeUpdate(REFRESH_SUMMARIES);
+
+            final LocationsImported imported = new LocationsImported(locations[0], locations[1], chargers[0], chargers[1]);
+            // Delivered to the other processes on commit
+            try (PreparedStatement notify = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+                notify.setString(1, LocationImportRelay.CHANNEL);
+                notify.setString(2, this.relay.payload(imported));
+                notify.execute();
+            }
+            this.eventPublisher.publishEvent(imported);
+            return new ImportResultDTO(rows, locations[0], locations[1], chargers[0], chargers[1],
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (SQLException e) {
+            // Class 22 is bad data, class 23 a broken constraint such as a missing value
+            if (e.getSQLState() != null && (e.getSQLState().startsWith("22") || e.getSQLState().startsWith("23")))
+                throw new InvalidImportData(e.getMessage());
+            throw this.jdbcTemplate.getExceptionTranslator().translate("Location import", null, e);
+        } finally {
+            this.current.set(null);
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    @Override
+    public Optional<ImportProgressDTO> getProgress() {
+        return Optional.ofNullable(this.current.get());
+    }
+
+    /** Each line is rewritten as a CSV row of {@code import_rows} as it is read */
+    private long copyNdjson(CopyManager copyManager, InputStream input, Progress tracker)
+            throws SQLException, IOException, InvalidImportData {
+        final CopyIn copyIn = copyManager.copyIn(COPY_ROWS);
+        final PGCopyOutputStream out = new PGCopyOutputStream(copyIn, BUFFER_SIZE);
+        try (MappingIterator<LocationImportRow> rows = this.objectMapper.readerFor(LocationImportRow.class).readValues(input)) {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            while (rows.hasNextValue()) {
+                writeRow(writer, rows.nextValue());
+                tracker.rows(1);
+            }
+            writer.flush();
+        } catch (JsonProcessingException e) {
+            cancel(copyIn);
+            final long line = e.getLocation() == null ? tracker.rows + 1 : e.getLocation().getLineNr();
+            throw new InvalidImportData("Line " + line + ": " + e.getOriginalMessage());
+        } catch (IOException | RuntimeException e) {
+            cancel(copyIn);
+            // The server rejecting the data surfaces as a failed write
+            if (e.getCause() instanceof SQLException sqlException) throw sqlException;
+            throw e;
+        }
+        return out.endCopy();
+    }
+
+    private static void writeRow(Writer writer, LocationImportRow row) throws IOException {
+        writeText(writer, row.locationRef);
+        writer.write(',');
+        writeText(writer, row.locationName);
+        writer.write(',');
+        writeNumber(writer, row.lat);
+        writer.write(',');
+        writeNumber(writer, row.lon);
+        writer.write(',');
+        writeText(writer, row.chargerRef);
+        writer.write(',');
+        writeText(writer, row.chargerName);
+        writer.write(',');
+        writeNumber(writer, row.maxPower);
+        writer.write(',');
+        writer.write(row.available == null || row.available ? "t" : "f");
+        writer.write('\n');
+    }
+
+    /** Missing values are left unquoted, which COPY reads as NULL */
+    private static void writeText(Writer writer, String value) throws IOException {
+        if (value == null) return;
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static void writeNumber(Writer writer, Double value) throws IOException {
+        if (value != null) writer.write(Double.toString(value));
+    }
+
+    private static long[] counts(Statement statement, String sql) throws SQLException {
+        try (ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return new long[]{result.getLong(1), result.getLong(2)};
+        }
+    }
+
+    private static void cancel(CopyIn copyIn) throws SQLException {
+        if (copyIn.isActive()) copyIn.cancelCopy();
+    }
+
+    private final class Progress {
+        private final Consumer<ImportProgressDTO> listener;
+        private long rows;
+        private long bytes;
+        private long nextReport;
+
+        private Progress(Consumer<ImportProgressDTO> listener, long initialRows) {
+            this.listener = listener;
+            this.rows = initialRows;
+            this.nextReport = progressInterval;
+        }
+
+        void rows(long count) {
+            this.rows += count;
+            if (this.rows >= this.nextReport) {
+                this.nextReport = this.rows + progressInterval;
+                report(ImportProgressDTO.Phase.COPYING);
+            }
+        }
+
+        void bytes(long count) {
+            this.bytes += count;
+        }
+
+        void merging(long rows) {
+            this.rows = rows;
+            report(ImportProgressDTO.Phase.MERGING);
+        }
+
+        private void report(ImportProgressDTO.Phase phase) {
+            final ImportProgressDTO value = new ImportProgressDTO(phase, Math.max(0, this.rows), this.bytes);
+            current.set(value);
+            this.listener.accept(value);
+        }
+    }
+
+    /** Counts the bytes read and, for CSV, the lines, as an estimate of the rows before COPY reports them */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final Progress progress;
+        private final boolean countLines;
+
+        private CountingInputStream(InputStream in, Progress progress, boolean countLines) {
+            super(in);
+            this.progress = progress;
+            this.countLines = countLines;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) count(b == '\n' ? 1 : 0, 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            final int read = super.read(buffer, offset, length);
+            if (read <= 0) return read;
+
+            int lines = 0;
+            if (this.countLines) {
+                for (int i = offset; i < offset + read; i++) {
+                    if (buffer[i] == '\n') lines++;
+                }
+            }
+            count(lines, read);
+            return read;
+        }
+
+        private void count(int lines, int bytes) {
+            this.progress.bytes(bytes);
+            if (this.countLines && lines > 0) this.progress.rows(lines);
+        }
+    }
+}
@@ -1,17 +1,58 @@
 package com.nikogrid.backend.services;
 
+import com.nikogrid.backend.dto.ClosestBatchPoint;
+import com.nikogrid.backend.dto.ClosestLocationDTO;
+import com.nikogrid.backend.dto.CorridorLocationDTO;
+import com.nikogrid.backend.dto.HeatmapDTO;
 import com.nikogrid.backend.dto.InterestPointBaseDTO;
+import com.nikogrid.backend.dto.LocationDetailsDTO;
+import com.nikogrid.backend.dto.NearbyDiffDTO;
 import com.nikogrid.backend.entities.Location;
 import com.nikogrid.backend.exceptions.ResourceNotFound;
+import com.nikogrid.backend.spatial.ClusteringStrategy;
+import com.nikogrid.backend.spatial.Route;
+import com.nikogrid.backend.spatial.TileKey;
+import com.nikogrid.backend.spatial.Viewport;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface LocationService {
     Location createLocation(Location location);
 
     Location getLocationById(long id) throws ResourceNotFound;
 
-    Location getClosestAvailable(float longitude, float latitude) throws ResourceNotFound;
+    /**
+     * @return the details of the locations found, in the order of {@code ids}, unknown ids are left out
+     */
+    List<LocationDetailsDTO> getLocationDetails(Collection<Long> ids);
+
+    /**
+     * @param version the dataset version read before calling, only calls with the same version share a query
+     */
+    Location getClosestAvailable(float longitude, float latitude, String version) throws ResourceNotFound;
+
+    /**
+     * @return up to {@code k} locations with a charger matching the filters, closest first
+     */
+    List<ClosestLocationDTO> getClosestLocations(float longitude, float latitude, int k, float minPower, boolean onlyAvailable, String version);
+
+    /**
+     * Same as {@link #getClosestLocations(float, float, int, float, boolean, String)} for every point, results are in the order of {@code points}
+     */
+    List<List<ClosestLocationDTO>> getClosestLocations(List<ClosestBatchPoint> points, boolean onlyAvailable);
+
+    Collection<InterestPointBaseDTO> getNearbyLocations(
+            float minLongitude,
+            float minLatitude,
+            float maxLongitude,
+            float maxLatitude,
+            int zoomLevel,
+            boolean onlyActive,
+            String version
+    );
 
     Collection<InterestPointBaseDTO> getNearbyLocations(
             float minLongitude,
@@ -19,6 +60,64 @@ public interface LocationService {
             float maxLongitude,
             float maxLatitude,
             int zoomLevel,
-            boolean onlyActive
+            boolean onlyActive,
+            ClusteringStrategy clustering,
+            String version
     );
+
+    /**
+     * @return {@code points} with the chargers of every location embedded, clusters are left as they are
+     */
+    Collection<InterestPointBaseDTO> embedChargers(Collection<InterestPointBaseDTO> points);
+
+    /**
+     * @param clustering null for the default strategy
+     * @param includeChargers whether to embed the chargers of every location, as {@link #embedChargers} does
+     */
+    void streamNearbyLocations(
+            float minLongitude,
+            float minLatitude,
+            float maxLongitude,
+            float maxLatitude,
+            int zoomLevel,
+            boolean onlyActive,
+            ClusteringStrategy clustering,
+            boolean includeChargers,
+            String version,
+            Consumer<InterestPointBaseDTO> consumer
+    );
+
+    /**
+     * Locations within {@code maxDetour} metres of the route, ordered by their position along it. A location
+     * close to several parts of the route is only reported at the first one.
+     */
+    void streamCorridorLocations(Route route, float maxDetour, boolean onlyAvailable, Consumer<CorridorLocationDTO> consumer);
+
+    /**
+     * @param clustering null for the default strategy
+     */
+    NearbyDiffDTO getNearbyDiff(
+            Viewport previous,
+            String previousVersion,
+            Viewport current,
+            boolean onlyActive,
+            ClusteringStrategy clustering
+    );
+
+    byte[] getVectorTile(TileKey tile, boolean onlyActive);
+
+    /**
+     * @return empty while the heatmap is still loading
+     */
+    Optional<HeatmapDTO> getHeatmap(
+            float minLongitude,
+            float minLatitude,
+            float maxLongitude,
+            float maxLatitude,
+            int zoomLevel
+    );
+
+    String getDatasetVersion();
+
+    String getLocationVersion(long id);
 }
@@ -1,30 +1,125 @@
 package com.nikogrid.backend.services;
 
+import com.nikogrid.backend.dto.ChargerDTO;
+import com.nikogrid.backend.dto.ClosestBatchPoint;
+import com.nikogrid.backend.dto.ClosestLocationDTO;
+import com.nikogrid.backend.dto.CorridorLocationDTO;
+import com.nikogrid.backend.dto.HeatmapDTO;
 import com.nikogrid.backend.dto.InterestPointBaseDTO;
+import com.nikogrid.backend.dto.LocationDetailsDTO;
+import com.nikogrid.backend.dto.LocationInterestPoint;
+import com.nikogrid.backend.dto.NearbyDiffDTO;
+import com.nikogrid.backend.dto.TileContentsDTO;
 import com.nikogrid.backend.entities.InterestPoint;
 import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.events.LocationCreated;
 import com.nikogrid.backend.exceptions.ResourceNotFound;
+import com.nikogrid.backend.repositories.ChargerRepository;
 import com.nikogrid.backend.repositories.LocationRepository;
+import com.nikogrid.backend.repositories.projections.ChargerListing;
+import com.nikogrid.backend.repositories.projections.ClosestCandidate;
 import com.nikogrid.backend.repositories.projections.LocationListing;
-import jakarta.transaction.Transactional;
+import com.nikogrid.backend.spatial.ChargerHeatmap;
+import com.nikogrid.backend.spatial.ClusteringStrategy;
+import com.nikogrid.backend.spatial.GeodesicRanking;
+import com.nikogrid.backend.spatial.GeodesicRanking.Ranked;
+import com.nikogrid.backend.spatial.LocationDatasetVersion;
+import com.nikogrid.backend.spatial.LocationIndex;
+import com.nikogrid.backend.spatial.LocationQueryCoalescer;
+import com.nikogrid.backend.spatial.LocationReadModel;
+import com.nikogrid.backend.spatial.NearbyBudget;
+import com.nikogrid.backend.spatial.NearbyTileCache;
+import com.nikogrid.backend.spatial.Route;
+import com.nikogrid.backend.spatial.TileKey;
+import com.nikogrid.backend.spatial.Viewport;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 @Service
 public class LocationServiceImpl implements LocationService {
+    private record NearbyQuery(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude,
+                               int zoomLevel, boolean onlyActive, ClusteringStrategy clustering, String version) {
+    }
+
+    private record ClosestQuery(float longitude, float latitude, int k, float minPower, boolean onlyAvailable, String version) {
+    }
+
+    /** Candidates fetched per requested location, and the bounds on how many are fetched at once */
+    private static final int CANDIDATES_PER_RESULT = 4;
+    private static final int MIN_CANDIDATES = 16;
+    private static final int MAX_CANDIDATES = 1024;
+
+    /** Most location ids bound in one charger query */
+    private static final int CHARGER_LOOKUP_CHUNK = 1000;
+
+    /** Longest stretch of a route searched with a single envelope, in metres */
+    private static final double CORRIDOR_SECTION_LENGTH = 25_000;
+
     private final LocationRepository locationRepository;
+    private final ChargerRepository chargerRepository;
+    private final LocationReadModel locationReadModel;
+    private final NearbyTileCache nearbyTileCache;
+    private final NearbyBudget nearbyBudget;
+    private final LocationQueryCoalescer queryCoalescer;
+    private final LocationDatasetVersion datasetVersion;
+    private final ChargerHeatmap chargerHeatmap;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ClusteringStrategy defaultClustering;
 
     @Autowired
-    public LocationServiceImpl(LocationRepository locationRepository) {
+    public LocationServiceImpl(
+            LocationRepository locationRepository,
+            ChargerRepository chargerRepository,
+            LocationReadModel locationReadModel,
+            NearbyTileCache nearbyTileCache,
+            NearbyBudget nearbyBudget,
+            LocationQueryCoalescer queryCoalescer,
+            LocationDatasetVersion datasetVersion,
+            ChargerHeatmap chargerHeatmap,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager,
+            @Value("${locations.clustering.strategy:DBSCAN}") ClusteringStrategy defaultClustering
+    ) {
         this.locationRepository = locationRepository;
+        this.chargerRepository = chargerRepository;
+        this.locationReadModel = locationReadModel;
+        this.nearbyTileCache = nearbyTileCache;
+        this.nearbyBudget = nearbyBudget;
+        this.queryCoalescer = queryCoalescer;
+        this.datasetVersion = datasetVersion;
+        this.chargerHeatmap = chargerHeatmap;
+        this.eventPublisher = eventPublisher;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.defaultClustering = defaultClustering;
     }
 
     @Override
     public Location createLocation(Location location) {
-        return this.locationRepository.save(location);
+        final Location saved = this.locationRepository.save(location);
+        this.eventPublisher.publishEvent(new LocationCreated(saved));
+        return saved;
     }
 
     @Override
@@ -32,39 +127,446 @@ public class LocationServiceImpl implements LocationService {
         return this.locationRepository.findById(id).orElseThrow(ResourceNotFound::new);
     }
 
+    /** Two statements whatever the number of ids, one for the locations and one for all their chargers */
     @Override
-    public Location getClosestAvailable(float longitude, float latitude) throws ResourceNotFound {
-        return this.locationRepository.findClosestAvailable(longitude, latitude).orElseThrow(ResourceNotFound::new);
+    public List<LocationDetailsDTO> getLocationDetails(Collection<Long> ids) {
+        final Long[] distinct = ids.stream().distinct().toArray(Long[]::new);
+        if (distinct.length == 0) return List.of();
+
+        return this.readOnlyTransaction.execute(status -> {
+            final Map<Long, LocationListing> locations = new HashMap<>();
+            for (final LocationListing location : this.locationRepository.findListingsByIds(distinct)) {
+                locations.put(location.getId(), location);
+            }
+            final Map<Long, List<ChargerDTO>> chargers = findChargers(distinct);
+
+            final List<LocationDetailsDTO> details = new ArrayList<>(locations.size());
+            for (final Long id : distinct) {
+                final LocationListing location = locations.get(id);
+                if (location == null) continue;
+                details.add(new LocationDetailsDTO(id, location.getName(), location.getLat(), location.getLon(),
+                        chargers.getOrDefault(id, List.of())));
+            }
+            return details;
+        });
     }
 
+    /** Runs after the tile cache and coalescing, so cached points never carry chargers */
     @Override
-    @Transactional
-    public Collection<InterestPointBaseDTO> getNearbyLocations(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, int zoomLevel, boolean onlyActive) {
-        if (zoomLevel >= 18) {
-            try (Stream<LocationListing> stream = this.locationRepository.getLocationsInEnvelope(
+    public Collection<InterestPointBaseDTO> embedChargers(Collection<InterestPointBaseDTO> points) {
+        final Long[] ids = points.stream()
+                .filter(LocationInterestPoint.class::isInstance)
+                .map(p -> ((LocationInterestPoint) p).id)
+                .toArray(Long[]::new);
+        if (ids.length == 0) return points;
+
+        final Map<Long, List<ChargerDTO>> chargers = findChargers(ids);
+        return points.stream()
+                .<InterestPointBaseDTO>map(p -> p instanceof LocationInterestPoint location
+                        ? location.withChargers(chargers.getOrDefault(location.id, List.of()))
+                        : p)
+                .toList();
+    }
+
+    private Map<Long, List<ChargerDTO>> findChargers(Long[] locationIds) {
+        final Map<Long, List<ChargerDTO>> chargers = new HashMap<>();
+        for (final ChargerListing charger : this.chargerRepository.findByLocationIds(locationIds)) {
+            chargers.computeIfAbsent(charger.getLocationId(), id -> new ArrayList<>()).add(ChargerDTO.fromChargerListing(charger));
+        }
+        return chargers;
+    }
+
+    /** Concurrent calls for the same point and dataset version share one query */
+    @Override
+    public Location getClosestAvailable(float longitude, float latitude, String version) throws ResourceNotFound {
+        return this.queryCoalescer.execute("closest", new ClosestQuery(longitude, latitude, 1, 0, true, version),
+                        () -> rankClosest(longitude, latitude, 1, 0, true).stream().findFirst())
+                .map(Ranked::value)
+                .orElseThrow(ResourceNotFound::new);
+    }
+
+    @Override
+    public List<ClosestLocationDTO> getClosestLocations(float longitude, float latitude, int k, float minPower, boolean onlyAvailable, String version) {
+        return this.queryCoalescer.execute("closest_k", new ClosestQuery(longitude, latitude, k, minPower, onlyAvailable, version), () -> {
+            final List<Ranked<Location>> ranked = rankClosest(longitude, latitude, k, minPower, onlyAvailable);
+            final Map<Long, List<ChargerListing>> chargers = findMatchingChargers(
+                    ranked.stream().map(r -> r.value().getId()).toList(), minPower, onlyAvailable);
+            return ranked.stream()
+                    .map(r -> toClosestLocation(r.value().getId(), r.value().getName(), r.value().getLat(), r.value().getLon(),
+                            r.distance(), chargers, minPower))
+                    .toList();
+        });
+    }
+
+    /**
+     * Resolves every point with one candidate query, plus one per widening step for the points that
+     * still need more candidates, and one charger query per {@link #CHARGER_LOOKUP_CHUNK} locations
+     */
+    @Override
+    public List<List<ClosestLocationDTO>> getClosestLocations(List<ClosestBatchPoint> points, boolean onlyAvailable) {
+        final List<List<Ranked<ClosestCandidate>>> ranked = new ArrayList<>(Collections.nCopies(points.size(), List.of()));
+        final int[] limits = points.stream().mapToInt(point -> initialCandidates(point.kOrDefault())).toArray();
+
+        List<Integer> pending = IntStream.range(0, points.size()).boxed().toList();
+        while (!pending.isEmpty()) {
+            final Map<Long, List<ClosestCandidate>> candidatesByQuery = this.locationRepository.findClosestCandidatesBatch(
+                            pending.stream().map(i -> points.get(i).lon).toArray(Float[]::new),
+                            pending.stream().map(i -> points.get(i).lat).toArray(Float[]::new),
+                            pending.stream().map(i -> points.get(i).minPowerOrDefault()).toArray(Float[]::new),
+                            pending.stream().map(i -> limits[i]).toArray(Integer[]::new),
+                            onlyAvailable)
+                    .stream()
+                    .collect(Collectors.groupingBy(ClosestCandidate::getQueryIndex));
+
+            final List<Integer> unsettled = new ArrayList<>();
+            for (int query = 0; query < pending.size(); query++) {
+                final int i = pending.get(query);
+                final ClosestBatchPoint point = points.get(i);
+                final List<ClosestCandidate> candidates = candidatesByQuery.getOrDefault(query + 1L, List.of());
+                final Optional<List<Ranked<ClosestCandidate>>> result = GeodesicRanking.rank(
+                        point.lon, point.lat, point.kOrDefault(), candidates,
+                        candidates.size() < limits[i] || limits[i] >= MAX_CANDIDATES,
+                        ClosestCandidate::getLon, ClosestCandidate::getLat);
+
+                if (result.isPresent()) {
+                    ranked.set(i, result.get());
+                } else {
+                    limits[i] = widerCandidates(limits[i]);
+                    unsettled.add(i);
+                }
+            }
+            pending = unsettled;
+        }
+
+        // Fetched once for the lowest power filter of the batch, each point then drops what's under its own
+        final float minPower = (float) points.stream().mapToDouble(ClosestBatchPoint::minPowerOrDefault).min().orElse(0);
+        final Map<Long, List<ChargerListing>> chargers = findMatchingChargers(
+                ranked.stream().flatMap(List::stream).map(r -> r.value().getId()).distinct().toList(), minPower, onlyAvailable);
+
+        final List<List<ClosestLocationDTO>> results = new ArrayList<>(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            final float pointMinPower = points.get(i).minPowerOrDefault();
+            results.add(ranked.get(i).stream()
+                    .map(r -> toClosestLocation(r.value().getId(), r.value().getName(), r.value().getLat(), r.value().getLon(),
+                            r.distance(), chargers, pointMinPower))
+                    .toList());
+        }
+        return results;
+    }
+
+    private Map<Long, List<ChargerListing>> findMatchingChargers(List<Long> locationIds, float minPower, boolean onlyAvailable) {
+        final Map<Long, List<ChargerListing>> chargers = new HashMap<>();
+        for (int from = 0; from < locationIds.size(); from += CHARGER_LOOKUP_CHUNK) {
+            final List<Long> chunk = locationIds.subList(from, Math.min(from + CHARGER_LOOKUP_CHUNK, locationIds.size()));
+            for (final ChargerListing charger : this.chargerRepository.findMatchingChargers(chunk, minPower, onlyAvailable)) {
+                chargers.computeIfAbsent(charger.getLocationId(), id -> new ArrayList<>()).add(charger);
+            }
+        }
+        return chargers;
+    }
+
+    /** {@code chargers} may hold chargers under {@code minPower} when they were fetched for a whole batch */
+    private static ClosestLocationDTO toClosestLocation(long id, String name, float lat, float lon, double distance,
+                                                        Map<Long, List<ChargerListing>> chargers, float minPower) {
+        return new ClosestLocationDTO(id, name, lat, lon, distance, chargers.getOrDefault(id, List.of()).stream()
+                .filter(c -> c.getMaxPower() >= minPower)
+                .map(ChargerDTO::fromChargerListing)
+                .toList());
+    }
+
+    /**
+     * Fetches candidates in the index's planar order, widening the fetch until {@link GeodesicRanking} can
+     * settle the geodesic order
+     */
+    private List<Ranked<Location>> rankClosest(float longitude, float latitude, int k, float minPower, boolean onlyAvailable) {
+        int limit = initialCandidates(k);
+        while (true) {
+            final List<Location> candidates = this.locationRepository.findClosestCandidates(longitude, latitude, minPower, onlyAvailable, limit);
+            final Optional<List<Ranked<Location>>> ranked = GeodesicRanking.rank(longitude, latitude, k, candidates,
+                    candidates.size() < limit || limit >= MAX_CANDIDATES, Location::getLon, Location::getLat);
+            if (ranked.isPresent()) return ranked.get();
+
+            limit = widerCandidates(limit);
+        }
+    }
+
+    private static int initialCandidates(int k) {
+        return Math.min(Math.max(k * CANDIDATES_PER_RESULT, MIN_CANDIDATES), MAX_CANDIDATES);
+    }
+
+    private static int widerCandidates(int limit) {
+        return Math.min(limit * CANDIDATES_PER_RESULT, MAX_CANDIDATES);
+    }
+
+    @Override
+    public Collection<InterestPointBaseDTO> getNearbyLocations(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, int zoomLevel, boolean onlyActive, String version) {
+        return getNearbyLocations(minLongitude, minLatitude, maxLongitude, maxLatitude, zoomLevel, onlyActive, this.defaultClustering, version);
+    }
+
+    /**
+     * The strategy only applies to database queries, the read model always uses its cluster pyramid.
+     * Results over the point budget are coarsened, see {@link NearbyBudget}, and concurrent calls for the
+     * same query and dataset version share one result.
+     */
+    @Override
+    public Collection<InterestPointBaseDTO> getNearbyLocations(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, int zoomLevel, boolean onlyActive, ClusteringStrategy clustering, String version) {
+        final NearbyQuery query = new NearbyQuery(minLongitude, minLatitude, maxLongitude, maxLatitude, zoomLevel, onlyActive, clustering, version);
+        return this.queryCoalescer.execute("nearby", query, () -> this.nearbyBudget.fit(
+                minLongitude, minLatitude, maxLongitude, maxLatitude, zoomLevel,
+                zoom -> findNearbyLocations(minLongitude, minLatitude, maxLongitude, maxLatitude, zoom, onlyActive, clustering)));
+    }
+
+    /**
+     * Skips the tile cache: the rows go straight from the database cursor to the consumer, which
+     * keeps the connection for as long as the consumer takes to write them. Since points are written
+     * as they are read, results over the point budget are truncated rather than coarsened. Chargers
+     * are embedded {@link #CHARGER_LOOKUP_CHUNK} points at a time, so those points are held back until
+     * their chunk is full.
+     */
+    @Override
+    public void streamNearbyLocations(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, int zoomLevel, boolean onlyActive, ClusteringStrategy clustering, boolean includeChargers, String version, Consumer<InterestPointBaseDTO> consumer) {
+        final ClusteringStrategy strategy = clustering == null ? this.defaultClustering : clustering;
+        if (this.locationReadModel.index().isPresent()) {
+            final Collection<InterestPointBaseDTO> points =
+                    getNearbyLocations(minLongitude, minLatitude, maxLongitude, maxLatitude, zoomLevel, onlyActive, strategy, version);
+            (includeChargers ? embedChargers(points) : points).forEach(consumer);
+            return;
+        }
+
+        final int maxPoints = this.nearbyBudget.maxPoints();
+        final float clusterRadius = (float) (10 / Math.pow(2.0, zoomLevel));
+        final int[] read = {0};
+        final List<InterestPointBaseDTO> pending = new ArrayList<>();
+        final Consumer<InterestPointBaseDTO> target = !includeChargers ? consumer : point -> {
+            pending.add(point);
+            if (pending.size() < CHARGER_LOOKUP_CHUNK) return;
+            embedChargers(pending).forEach(consumer);
+            pending.clear();
+        };
+        this.readOnlyTransaction.executeWithoutResult(status -> {
+            forEachNearbyLocation(
+                    minLongitude, minLatitude, maxLongitude, maxLatitude, clusterRadius, zoomLevel >= 18, onlyActive, strategy,
+                    maxPoints + 1L, point -> {
+                        if (++read[0] <= maxPoints) target.accept(point);
+                    });
+            if (!pending.isEmpty()) embedChargers(pending).forEach(consumer);
+        });
+        this.nearbyBudget.recordStreamed(read[0] > maxPoints);
+    }
+
+    /**
+     * Searches the route section by section, each with the envelope of its own stretch, and sorts only
+     * the locations of one section at a time
+     */
+    @Override
+    public void streamCorridorLocations(Route route, float maxDetour, boolean onlyAvailable, Consumer<CorridorLocationDTO> consumer) {
+        final Set<Long> reported = new HashSet<>();
+        this.readOnlyTransaction.executeWithoutResult(status -> {
+            for (final Route.Section section : route.sections(CORRIDOR_SECTION_LENGTH)) {
+                final double[] envelope = section.envelope(maxDetour);
+                final List<CorridorLocationDTO> found = new ArrayList<>();
+                try (Stream<LocationListing> stream = this.locationRepository.getLocationsInEnvelope(
+                        (float) envelope[0],
+                        (float) envelope[1],
+                        (float) envelope[2],
+                        (float) envelope[3],
+                        onlyAvailable
+                )) {
+                    stream.forEach(location -> {
+                        if (reported.contains(location.getId())) return;
+
+                        final Route.Position position = section.locate(location.getLon(), location.getLat());
+                        if (position.distanceFrom() > maxDetour) return;
+
+                        reported.add(location.getId());
+                        found.add(CorridorLocationDTO.of(location, position));
+                    });
+                }
+                found.sort(Comparator.comparingDouble(CorridorLocationDTO::getDistanceAlong));
+                found.forEach(consumer);
+            }
+        });
+    }
+
+    /**
+     * Diffs tile by tile at the shared zoom: tiles that entered the viewport are sent whole, as are
+     * the retained ones around a location changed since {@code previousVersion}. Anything that can't be
+     * diffed (zoom change, unknown version, too many tiles, over the point budget) gets a full response.
+     */
+    @Override
+    public NearbyDiffDTO getNearbyDiff(Viewport previous, String previousVersion, Viewport current, boolean onlyActive, ClusteringStrategy clustering) {
+        final ClusteringStrategy strategy = clustering == null ? this.defaultClustering : clustering;
+        final String version = this.datasetVersion.current();
+
+        return diffTiles(previous, previousVersion, current, onlyActive, strategy, version)
+                .orElseGet(() -> NearbyDiffDTO.full(version, getNearbyLocations(
+                        current.minLongitude(), current.minLatitude(), current.maxLongitude(), current.maxLatitude(),
+                        current.zoom(), onlyActive, strategy, version)));
+    }
+
+    @Override
+    public byte[] getVectorTile(TileKey tile, boolean onlyActive) {
+        final float clusterRadius = tile.z() >= 18 ? 0 : (float) (10 / Math.pow(2.0, tile.z()));
+        return this.locationRepository.getVectorTile(tile.z(), tile.x(), tile.y(), clusterRadius, onlyActive);
+    }
+
+    @Override
+    public Optional<HeatmapDTO> getHeatmap(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, int zoomLevel) {
+        return this.chargerHeatmap.find(minLongitude, minLatitude, maxLongitude, maxLatitude, zoomLevel);
+    }
+
+    @Override
+    public String getDatasetVersion() {
+        return this.datasetVersion.current();
+    }
+
+    @Override
+    public String getLocationVersion(long id) {
+        return this.datasetVersion.location(id);
+    }
+
+    private Optional<NearbyDiffDTO> diffTiles(Viewport previous, String previousVersion, Viewport current, boolean onlyActive, ClusteringStrategy clustering, String version) {
+        if (previous.zoom() != current.zoom()) return Optional.empty();
+        final int zoom = current.zoom();
+
+        final Optional<List<TileKey>> before = this.nearbyTileCache.covering(
+                previous.minLongitude(), previous.minLatitude(), previous.maxLongitude(), previous.maxLatitude(), zoom);
+        final Optional<List<TileKey>> after = this.nearbyTileCache.covering(
+                current.minLongitude(), current.minLatitude(), current.maxLongitude(), current.maxLatitude(), zoom);
+        final Optional<List<LocationDatasetVersion.Change>> changes = this.datasetVersion.changedSince(previousVersion);
+        if (before.isEmpty() || after.isEmpty() || changes.isEmpty()) return Optional.empty();
+
+        final Set<TileKey> beforeTiles = new HashSet<>(before.get());
+        final Set<TileKey> afterTiles = new HashSet<>(after.get());
+        final Set<TileKey> refresh = new LinkedHashSet<>();
+        for (final TileKey tile : after.get()) {
+            if (!beforeTiles.contains(tile)) refresh.add(tile);
+        }
+        // Clusters near a tile edge can move to the neighbouring tile when one of their locations changes
+        for (final LocationDatasetVersion.Change change : changes.get()) {
+            final TileKey changed = TileKey.containing(change.longitude(), change.latitude(), zoom);
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    final TileKey tile = new TileKey(zoom, changed.x() + dx, changed.y() + dy);
+                    if (beforeTiles.contains(tile) && afterTiles.contains(tile)) refresh.add(tile);
+                }
+            }
+        }
+
+        final List<TileContentsDTO> tiles = new ArrayList<>(refresh.size());
+        int points = 0;
+        for (final TileKey tile : refresh) {
+            final List<InterestPointBaseDTO> contents = tilePoints(tile, onlyActive, clustering);
+            points += contents.size();
+            if (points > this.nearbyBudget.maxPoints()) return Optional.empty();
+            tiles.add(TileContentsDTO.of(tile, contents));
+        }
+
+        final List<TileKey> removed = before.get().stream().filter(tile -> !afterTiles.contains(tile)).toList();
+        return Optional.of(NearbyDiffDTO.incremental(version, tiles, removed));
+    }
+
+    /** The points owned by a tile, as the tile cache holds them */
+    private List<InterestPointBaseDTO> tilePoints(TileKey tile, boolean onlyActive, ClusteringStrategy clustering) {
+        final Optional<LocationIndex> index = this.locationReadModel.index();
+        if (index.isPresent()) {
+            final float minLongitude = Math.nextDown((float) tile.west());
+            final float minLatitude = Math.nextDown((float) tile.south());
+            final float maxLongitude = Math.nextUp((float) tile.east());
+            final float maxLatitude = Math.nextUp((float) tile.north());
+            final List<InterestPointBaseDTO> points = tile.z() >= 18
+                    ? index.get().findInEnvelope(minLongitude, minLatitude, maxLongitude, maxLatitude, onlyActive)
+                    : index.get().findInterestPoints(minLongitude, minLatitude, maxLongitude, maxLatitude, tile.z(), onlyActive);
+            return points.stream().filter(p -> tile.contains(p.longitude, p.latitude)).toList();
+        }
+
+        final float clusterRadius = (float) (10 / Math.pow(2.0, tile.z()));
+        return this.nearbyTileCache.getTile(tile, onlyActive, clustering, t -> queryTile(t, clusterRadius, onlyActive, clustering));
+    }
+
+    /**
+     * Past the budget, database queries stop reading after one extra point since the result will be
+     * coarsened anyway. Cached tiles are always complete.
+     */
+    private Collection<InterestPointBaseDTO> findNearbyLocations(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, int zoomLevel, boolean onlyActive, ClusteringStrategy clustering) {
+        final double clusterRadius = 10 / Math.pow(2.0, zoomLevel);
+
+        final Optional<LocationIndex> index = this.locationReadModel.index();
+        if (index.isPresent()) {
+            if (zoomLevel >= 18)
+                return index.get().findInEnvelope(minLongitude, minLatitude, maxLongitude, maxLatitude, onlyActive);
+
+            return index.get().findInterestPoints(
                     minLongitude,
                     minLatitude,
                     maxLongitude,
                     maxLatitude,
+                    zoomLevel,
                     onlyActive
-            )) {
-                return stream
-                        .map(InterestPointBaseDTO::fromLocationListing)
-                        .toList();
-            }
-        } else {
-            final double clusterRadius = 10 / Math.pow(2.0, zoomLevel);
-            try (Stream<InterestPoint> stream = this.locationRepository.findInterestPoints(
+            );
+        }
+
+        final Optional<List<InterestPointBaseDTO>> cached = this.nearbyTileCache.get(
+                minLongitude, minLatitude, maxLongitude, maxLatitude, zoomLevel, onlyActive, clustering,
+                tile -> queryTile(tile, (float) clusterRadius, onlyActive, clustering));
+        if (cached.isPresent()) return cached.get();
+
+        // The repository streams need an open transaction, which is only started once we know the
+        // read model can't answer, so index hits never check out a connection.
+        return this.readOnlyTransaction.execute(status -> queryNearbyLocations(
+                minLongitude, minLatitude, maxLongitude, maxLatitude, (float) clusterRadius, zoomLevel >= 18, onlyActive, clustering,
+                this.nearbyBudget.maxPoints() + 1L));
+    }
+
+    /**
+     * Clusters a single tile. The envelope is rounded outwards and locations on a shared edge are matched
+     * by both tiles, so every point, clusters by their centroid, is only kept by the tile that owns it.
+     */
+    private List<InterestPointBaseDTO> queryTile(TileKey tile, float clusterRadius, boolean onlyActive, ClusteringStrategy clustering) {
+        final Collection<InterestPointBaseDTO> points = this.readOnlyTransaction.execute(status -> queryNearbyLocations(
+                Math.nextDown((float) tile.west()),
+                Math.nextDown((float) tile.south()),
+                Math.nextUp((float) tile.east()),
+                Math.nextUp((float) tile.north()),
+                clusterRadius,
+                tile.z() >= 18,
+                onlyActive,
+                clustering,
+                Long.MAX_VALUE
+        ));
+
+        return points.stream()
+                .filter(p -> tile.contains(p.longitude, p.latitude))
+                .toList();
+    }
+
+    private Collection<InterestPointBaseDTO> queryNearbyLocations(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, float clusterRadius, boolean unclustered, boolean onlyActive, ClusteringStrategy clustering, long limit) {
+        final List<InterestPointBaseDTO> result = new ArrayList<>();
+        forEachNearbyLocation(minLongitude, minLatitude, maxLongitude, maxLatitude, clusterRadius, unclustered, onlyActive, clustering, limit, result::add);
+        return result;
+    }
+
+    /**
+     * Must be called inside a transaction, rows are handed to the consumer while the cursor is open.
+     * Closing the stream after {@code limit} rows leaves the rest of the cursor unread.
+     */
+    private void forEachNearbyLocation(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, float clusterRadius, boolean unclustered, boolean onlyActive, ClusteringStrategy clustering, long limit, Consumer<InterestPointBaseDTO> consumer) {
+        if (unclustered) {
+            try (Stream<LocationListing> stream = this.locationRepository.getLocationsInEnvelope(
                     minLongitude,
                     minLatitude,
                     maxLongitude,
                     maxLatitude,
-                    (float) clusterRadius,
                     onlyActive
             )) {
-                return stream
-                        .map(InterestPointBaseDTO::fromInterestPoint)
-                        .toList();
+                stream.limit(limit).map(InterestPointBaseDTO::fromLocationListing).forEach(consumer);
+            }
+        } else {
+            try (Stream<InterestPoint> stream = clustering == ClusteringStrategy.GRID
+                    ? this.locationRepository.findGridInterestPoints(minLongitude, minLatitude, maxLongitude, maxLatitude, clusterRadius, onlyActive)
+                    : this.locationRepository.findInterestPoints(minLongitude, minLatitude, maxLongitude, maxLatitude, clusterRadius, onlyActive)
+            ) {
+                stream.limit(limit).map(InterestPointBaseDTO::fromInterestPoint).forEach(consumer);
             }
         }
     }
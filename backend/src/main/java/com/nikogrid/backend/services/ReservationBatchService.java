@@ -0,0 +1,12 @@
+package com.nikogrid.backend.services;
+
+import com.nikogrid.backend.dto.CreateReservation;
+import com.nikogrid.backend.dto.ReservationBatchResultDTO;
+import com.nikogrid.backend.entities.User;
+
+import java.util.List;
+
+public interface ReservationBatchService {
+    /** Creates as many of the reservations as possible, or none of them unless all can be created */
+    ReservationBatchResultDTO create(User user, List<CreateReservation> reservations, boolean allOrNothing);
+}
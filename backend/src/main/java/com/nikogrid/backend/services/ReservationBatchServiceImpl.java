@@ -0,0 +1,225 @@
+package com.nikogrid.backend.services;
+
+import com.nikogrid.backend.dto.CreateReservation;
+import com.nikogrid.backend.dto.ReservationBatchItemDTO;
+import com.nikogrid.backend.dto.ReservationBatchResultDTO;
+import com.nikogrid.backend.dto.TimeSlotDTO;
+import com.nikogrid.backend.entities.Charger;
+import com.nikogrid.backend.entities.User;
+import com.nikogrid.backend.events.ReservationCreated;
+import com.nikogrid.backend.repositories.ChargerRepository;
+import com.nikogrid.backend.scheduling.ChargerTimeline;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Reservations are checked and inserted set-based, one statement for each whatever the batch size.
+ * A reservation made by someone else between the check and the insert is caught by the exclusion
+ * constraint, the rows in its way are checked again to report what they conflict with.
+ *
+ * <p>Times are sent as {@code timestamptz} and converted by the database, the same way Hibernate binds
+ * {@link Instant}s, so the rows match the ones inserted one by one.
+ */
+@Service
+public class ReservationBatchServiceImpl implements ReservationBatchService {
+    private static final String ITEMS = """
+            unnest(CAST(? AS BIGINT[]), CAST(? AS TIMESTAMPTZ[]), CAST(? AS TIMESTAMPTZ[]))
+                WITH ORDINALITY AS s(charger_id, starts_at, ends_at, ord)""";
+
+    /** Served by the exclusion constraint's GiST index */
+    private static final String FIND_OVERLAPS = """
+            SELECT s.ord, CAST(r.starts_at AS TIMESTAMPTZ) AS starts_at, CAST(r.ends_at AS TIMESTAMPTZ) AS ends_at
+            FROM %s
+            JOIN reservation r
+              ON r.charger_id = s.charger_id
+             AND tsrange(r.starts_at, r.ends_at, '[)')
+                 && tsrange(CAST(s.starts_at AS TIMESTAMP), CAST(s.ends_at AS TIMESTAMP), '[)')
+            ORDER BY s.ord, r.starts_at
+            """.formatted(ITEMS);
+
+    private static final String INSERT = """
+            INSERT INTO reservation (user_id, charger_id, starts_at, ends_at)
+            SELECT ?, s.charger_id, s.starts_at, s.ends_at
+            FROM %s
+            ORDER BY s.ord
+            ON CONFLICT DO NOTHING
+            RETURNING id, charger_id, CAST(starts_at AS TIMESTAMPTZ) AS starts_at
+            """.formatted(ITEMS);
+
+    private static final String DELETE = "DELETE FROM reservation WHERE id = ANY (CAST(? AS BIGINT[]))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChargerRepository chargerRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public ReservationBatchServiceImpl(
+            JdbcTemplate jdbcTemplate, ChargerRepository chargerRepository, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chargerRepository = chargerRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    private record Key(long chargerId, Instant start) {
+    }
+
+    @Override
+    @Transactional
+    public ReservationBatchResultDTO create(User user, List<CreateReservation> reservations, boolean allOrNothing) {
+        // The database keeps microseconds, rows are matched back by their start
+        final List<CreateReservation> items = reservations.stream()
+                .map(r -> new CreateReservation(r.chargedId, r.start.truncatedTo(ChronoUnit.MICROS), r.end.truncatedTo(ChronoUnit.MICROS)))
+                .toList();
+        final int size = items.size();
+        final ReservationBatchItemDTO.Status[] statuses = new ReservationBatchItemDTO.Status[size];
+        final TimeSlotDTO[] conflicts = new TimeSlotDTO[size];
+        final Long[] ids = new Long[size];
+
+        checkChargers(items, statuses);
+        checkExisting(items, unsettled(statuses, IntStream.range(0, size).boxed().toList()), statuses, conflicts);
+        checkWithinBatch(items, statuses, conflicts);
+
+        final List<Integer> pending = unsettled(statuses, IntStream.range(0, size).boxed().toList());
+        if (allOrNothing && pending.size() < size) {
+            for (final int i : pending) statuses[i] = ReservationBatchItemDTO.Status.SKIPPED;
+        } else if (!pending.isEmpty()) {
+            insert(user, items, pending, statuses, ids);
+
+            // Rows left out were in the way of a reservation made since the check
+            final List<Integer> dropped = unsettled(statuses, pending);
+            if (!dropped.isEmpty()) {
+                checkExisting(items, dropped, statuses, conflicts);
+                for (final int i : dropped) {
+                    if (statuses[i] == null) statuses[i] = ReservationBatchItemDTO.Status.CONFLICT;
+                }
+                if (allOrNothing) undo(pending, statuses, ids);
+            }
+        }
+
+        final List<ReservationBatchItemDTO> report = new ArrayList<>(size);
+        int created = 0;
+        for (int i = 0; i < size; i++) {
+            final CreateReservation item = items.get(i);
+            if (statuses[i] == ReservationBatchItemDTO.Status.CREATED) {
+                created++;
+                this.eventPublisher.publishEvent(new ReservationCreated(ids[i], item.chargedId, item.start, item.end));
+            }
+            report.add(new ReservationBatchItemDTO(item.chargedId, item.start, item.end, statuses[i], ids[i], conflicts[i]));
+        }
+        return new ReservationBatchResultDTO(created, report);
+    }
+
+    private static List<Integer> unsettled(ReservationBatchItemDTO.Status[] statuses, List<Integer> positions) {
+        return positions.stream().filter(i -> statuses[i] == null).toList();
+    }
+
+    /** Every charger is looked up at once */
+    private void checkChargers(List<CreateReservation> items, ReservationBatchItemDTO.Status[] statuses) {
+        final Set<Long> chargerIds = new HashSet<>();
+        for (final CreateReservation item : items) chargerIds.add(item.chargedId);
+
+        final Map<Long, Charger> chargers = new HashMap<>();
+        for (final Charger charger : this.chargerRepository.findAllById(chargerIds)) chargers.put(charger.getId(), charger);
+
+        for (int i = 0; i < items.size(); i++) {
+            final Charger charger = chargers.get(items.get(i).chargedId);
+            if (charger == null) statuses[i] = ReservationBatchItemDTO.Status.CHARGER_NOT_FOUND;
+            else if (!charger.isAvailable()) statuses[i] = ReservationBatchItemDTO.Status.CHARGER_UNAVAILABLE;
+        }
+    }
+
+    /** Keeps the earliest reservation in the way of each of the {@code candidates} */
+    private void checkExisting(List<CreateReservation> items, List<Integer> candidates,
+                               ReservationBatchItemDTO.Status[] statuses, TimeSlotDTO[] conflicts) {
+        if (candidates.isEmpty()) return;
+
+        this.jdbcTemplate.query(FIND_OVERLAPS, rs -> {
+            final int i = candidates.get(rs.getInt("ord") - 1);
+            if (statuses[i] != null) return;
+
+            statuses[i] = ReservationBatchItemDTO.Status.CONFLICT;
+            conflicts[i] = new TimeSlotDTO(
+                    rs.getObject("starts_at", OffsetDateTime.class).toInstant(),
+                    rs.getObject("ends_at", OffsetDateTime.class).toInstant());
+        }, arrays(items, candidates));
+    }
+
+    /** Items overlapping an earlier item of the batch on the same charger conflict with it */
+    private static void checkWithinBatch(List<CreateReservation> items, ReservationBatchItemDTO.Status[] statuses, TimeSlotDTO[] conflicts) {
+        final Map<Long, ChargerTimeline> accepted = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (statuses[i] != null) continue;
+
+            final CreateReservation item = items.get(i);
+            final ChargerTimeline timeline = accepted.computeIfAbsent(item.chargedId, id -> new ChargerTimeline());
+            final int position = i;
+            timeline.overlapping(item.start, item.end).ifPresentOrElse(
+                    conflict -> {
+                        statuses[position] = ReservationBatchItemDTO.Status.CONFLICT;
+                        conflicts[position] = conflict;
+                    },
+                    () -> timeline.add(position, item.start, item.end));
+        }
+    }
+
+    /**
+     * Rows in the way of a reservation made since the check are left out by the exclusion constraint,
+     * their status stays unset
+     */
+    private void insert(User user, List<CreateReservation> items, List<Integer> pending,
+                        ReservationBatchItemDTO.Status[] statuses, Long[] ids) {
+        final Map<Key, Integer> positions = new HashMap<>();
+        for (final int i : pending) positions.put(new Key(items.get(i).chargedId, items.get(i).start), i);
+
+        final Object[] arrays = arrays(items, pending);
+        this.jdbcTemplate.query(INSERT, rs -> {
+            final Key key = new Key(rs.getLong("charger_id"), rs.getObject("starts_at", OffsetDateTime.class).toInstant());
+            final Integer i = positions.get(key);
+            if (i == null) throw new IllegalStateException("Inserted reservation " + key + " is not part of the batch");
+
+            statuses[i] = ReservationBatchItemDTO.Status.CREATED;
+            ids[i] = rs.getLong("id");
+        }, user.getId(), arrays[0], arrays[1], arrays[2]);
+    }
+
+    /** Deletes the rows of an all-or-nothing batch that turned out not to fit whole, they are reported as skipped */
+    private void undo(List<Integer> pending, ReservationBatchItemDTO.Status[] statuses, Long[] ids) {
+        final List<Long> inserted = new ArrayList<>();
+        for (final int i : pending) {
+            if (statuses[i] != ReservationBatchItemDTO.Status.CREATED) continue;
+
+            inserted.add(ids[i]);
+            statuses[i] = ReservationBatchItemDTO.Status.SKIPPED;
+            ids[i] = null;
+        }
+        if (!inserted.isEmpty())
+            this.jdbcTemplate.update(DELETE, (Object) inserted.toArray(Long[]::new));
+    }
+
+    private static Object[] arrays(List<CreateReservation> items, List<Integer> positions) {
+        final Long[] chargerIds = new Long[positions.size()];
+        final String[] starts = new String[positions.size()];
+        final String[] ends = new String[positions.size()];
+        for (int j = 0; j < positions.size(); j++) {
+            final CreateReservation item = items.get(positions.get(j));
+            chargerIds[j] = item.chargedId;
+            starts[j] = item.start.toString();
+            ends[j] = item.end.toString();
+        }
+        return new Object[]{chargerIds, starts, ends};
+    }
+}
@@ -1,16 +1,35 @@
 package com.nikogrid.backend.services;
 
+import com.nikogrid.backend.dto.ReservationCursor;
+import com.nikogrid.backend.dto.ReservationListDTO;
+import com.nikogrid.backend.dto.ReservationPageDTO;
 import com.nikogrid.backend.entities.Reservation;
 import com.nikogrid.backend.entities.User;
 import com.nikogrid.backend.exceptions.ChargerUnavailable;
 import com.nikogrid.backend.exceptions.ReservationConflict;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ReservationService {
+    /** Reservations are upcoming from the moment they start */
+    enum Period {
+        UPCOMING,
+        PAST
+    }
+
     Reservation create(Reservation reservation) throws ReservationConflict, ChargerUnavailable;
 
     List<Reservation> getUserReservations(User user);
 
+    void streamUserReservations(User user, Consumer<ReservationListDTO> consumer);
+
+    /**
+     * Upcoming reservations come soonest first, past ones latest first
+     *
+     * @param after null for the first page
+     */
+    ReservationPageDTO getUserReservations(User user, Period period, ReservationCursor after, int limit);
+
     void cancel(long reservationId);
 }
@@ -1,26 +1,77 @@
 package com.nikogrid.backend.services;
 
+import com.nikogrid.backend.dto.ReservationCursor;
+import com.nikogrid.backend.dto.ReservationListDTO;
+import com.nikogrid.backend.dto.ReservationPageDTO;
 import com.nikogrid.backend.entities.Reservation;
 import com.nikogrid.backend.entities.User;
+import com.nikogrid.backend.events.ReservationCancelled;
+import com.nikogrid.backend.events.ReservationCreated;
 import com.nikogrid.backend.exceptions.ChargerUnavailable;
 import com.nikogrid.backend.exceptions.ReservationConflict;
 import com.nikogrid.backend.repositories.ReservationRepository;
+import com.nikogrid.backend.scheduling.ChargerTimeline;
+import com.nikogrid.backend.scheduling.ChargerTimelineCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.ServerErrorMessage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * Conflicts are first looked for in the charger's {@link ChargerTimeline}, so most of them are refused
+ * without a failed insert. A free slot in the timeline goes straight to the insert, a busy one is
+ * confirmed with a single overlap query first, since the timeline may still hold reservations cancelled
+ * through other instances. The exclusion constraint still decides, the timeline may also be missing
+ * reservations made through other instances.
+ */
 @Service
 public class ReservationServiceImpl implements ReservationService {
+    public static final String CONFLICTS_METRIC = "reservations.conflicts";
+
     private final ReservationRepository reservationRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChargerTimelineCache timelines;
+    private final Clock clock;
+    private final boolean precheck;
+    private final Counter earlyConflicts;
+    private final Counter databaseConflicts;
 
     @Autowired
-    public ReservationServiceImpl(ReservationRepository reservationRepository) {
+    public ReservationServiceImpl(
+            ReservationRepository reservationRepository,
+            ApplicationEventPublisher eventPublisher,
+            ChargerTimelineCache timelines,
+            Clock clock,
+            MeterRegistry meterRegistry,
+            @Value("${reservations.conflict-precheck.enabled:true}") boolean precheck
+    ) {
         this.reservationRepository = reservationRepository;
+        this.eventPublisher = eventPublisher;
+        this.timelines = timelines;
+        this.clock = clock;
+        this.precheck = precheck;
+        this.earlyConflicts = Counter.builder(CONFLICTS_METRIC)
+                .description("Reservations refused for overlapping another one")
+                .tag("detected", "early")
+                .register(meterRegistry);
+        this.databaseConflicts = Counter.builder(CONFLICTS_METRIC)
+                .description("Reservations refused for overlapping another one")
+                .tag("detected", "database")
+                .register(meterRegistry);
     }
 
     @Override
@@ -28,21 +79,47 @@ public class ReservationServiceImpl implements ReservationService {
             throws ChargerUnavailable, ReservationConflict {
         if (!reservation.getCharger().isAvailable()) throw new ChargerUnavailable();
 
+        final long chargerId = reservation.getCharger().getId();
+        if (this.precheck && !this.timelines.get(chargerId).isFree(reservation.getStartsAt(), reservation.getEndsAt())) {
+            if (this.reservationRepository.existsOverlapping(chargerId, reservation.getStartsAt(), reservation.getEndsAt())) {
+                this.earlyConflicts.increment();
+                throw new ReservationConflict();
+            }
+
+            // The timeline still holds a reservation cancelled since it was loaded, reload it
+            this.timelines.invalidate(chargerId);
+        }
+
+        final Reservation saved;
         try {
-            return this.reservationRepository.save(reservation);
+            saved = this.reservationRepository.save(reservation);
         } catch (DataIntegrityViolationException exc) {
-            if (isReservationOverlapViolation(exc)) throw new ReservationConflict();
+            if (isReservationOverlapViolation(exc)) {
+                this.databaseConflicts.increment();
+                // The timeline didn't see the reservation in the way, reload it
+                this.timelines.invalidate(chargerId);
+                throw new ReservationConflict();
+            }
 
             throw exc;
         }
+
+        this.eventPublisher.publishEvent(new ReservationCreated(
+                saved.getId(), saved.getCharger().getId(), saved.getStartsAt(), saved.getEndsAt()));
+        return saved;
     }
 
+    /** The reservation is read first so listeners know which charger it freed */
     @Override
+    @Transactional
     public void cancel(long reservationId) {
+        final Optional<Reservation> reservation = this.reservationRepository.findById(reservationId);
         this.reservationRepository.deleteById(reservationId);
+        reservation.ifPresent(r -> this.eventPublisher.publishEvent(new ReservationCancelled(
+                r.getId(), r.getCharger().getId(), r.getStartsAt(), r.getEndsAt())));
     }
 
-    private boolean isReservationOverlapViolation(DataIntegrityViolationException e) {
+    static boolean isReservationOverlapViolation(DataIntegrityViolationException e) {
         if (!(e.getRootCause() instanceof PSQLException psqlException)) return false;
 
         final ServerErrorMessage serverErrorMessage = psqlException.getServerErrorMessage();
@@ -55,4 +132,36 @@ public class ReservationServiceImpl implements ReservationService {
     public List<Reservation> getUserReservations(User user) {
         return this.reservationRepository.getUserReservations(user.getId());
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamUserReservations(User user, Consumer<ReservationListDTO> consumer) {
+        try (Stream<ReservationListDTO> stream = this.reservationRepository.streamUserReservations(user.getId())) {
+            stream.forEach(consumer);
+        }
+    }
+
+    /** One more reservation than asked for is read, to know whether there is a next page */
+    @Override
+    @Transactional(readOnly = true)
+    public ReservationPageDTO getUserReservations(User user, Period period, ReservationCursor after, int limit) {
+        final Instant now = this.clock.instant();
+
+        final List<ReservationListDTO> found;
+        final long total;
+        if (period == Period.UPCOMING) {
+            final ReservationCursor cursor = after == null ? new ReservationCursor(now, Long.MIN_VALUE) : after;
+            found = this.reservationRepository.findUserUpcoming(user.getId(), now, cursor.startsAt(), cursor.id(), limit + 1);
+            total = this.reservationRepository.countByUserIdAndStartsAtGreaterThanEqual(user.getId(), now);
+        } else {
+            final ReservationCursor cursor = after == null ? new ReservationCursor(now, Long.MAX_VALUE) : after;
+            found = this.reservationRepository.findUserPast(user.getId(), now, cursor.startsAt(), cursor.id(), limit + 1);
+            total = this.reservationRepository.countByUserIdAndStartsAtLessThan(user.getId(), now);
+        }
+
+        if (found.size() <= limit) return new ReservationPageDTO(found, total, null);
+
+        final List<ReservationListDTO> page = found.subList(0, limit);
+        return new ReservationPageDTO(page, total, ReservationCursor.after(page.get(limit - 1)).encode());
+    }
 }
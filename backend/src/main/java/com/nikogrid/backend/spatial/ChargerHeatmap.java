@@ -0,0 +1,137 @@
+package com.nikogrid.backend.spatial;
+
+import com.nikogrid.backend.dto.HeatmapCellDTO;
+import com.nikogrid.backend.dto.HeatmapDTO;
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import com.nikogrid.backend.events.LocationsImported;
+import com.nikogrid.backend.repositories.LocationRepository;
+import com.nikogrid.backend.repositories.projections.ChargerPosition;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Owns the {@link HeatmapPyramid} behind {@code /heatmap}. It is built once from the chargers on startup and then
+ * kept up to date from availability events, so requests never scan the locations.
+ *
+ * <p>It is built in the background, events arriving meanwhile are applied on top of it before it is swapped
+ * in. The build may or may not have seen them already, which the pyramid tells apart by charger.
+ */
+@Component
+public class ChargerHeatmap {
+    /** Cells per tile side at the requested zoom, as a power of two */
+    static final int CELLS_PER_TILE_SHIFT = 3;
+
+    private final LocationRepository locationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxCells;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Executor loaderThread;
+    private final ReloadingSnapshot<HeatmapPyramid> pyramid;
+
+    @Autowired
+    public ChargerHeatmap(
+            LocationRepository locationRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${locations.heatmap.enabled:true}") boolean enabled,
+            @Value("${locations.heatmap.max-cells:4096}") int maxCells
+    ) {
+        this(locationRepository, transactionManager, enabled, maxCells, ReloadingSnapshot.loaderThread("charger-heatmap-"));
+    }
+
+    ChargerHeatmap(
+            LocationRepository locationRepository,
+            PlatformTransactionManager transactionManager,
+            boolean enabled,
+            int maxCells,
+            Executor loaderThread
+    ) {
+        this.locationRepository = locationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxCells = maxCells;
+        this.loaderThread = loaderThread;
+        this.pyramid = new ReloadingSnapshot<>(this::read, loaderThread);
+    }
+
+    /**
+     * Cells are 8x8 per tile at the requested zoom, or coarser when that would be more than
+     * {@code locations.heatmap.max-cells} of them.
+     *
+     * @return empty until the heatmap is loaded
+     */
+    public Optional<HeatmapDTO> find(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, int zoomLevel) {
+        final HeatmapPyramid current = this.pyramid.current();
+        if (current == null) return Optional.empty();
+
+        int level = Math.min(zoomLevel + CELLS_PER_TILE_SHIFT, HeatmapPyramid.MAX_LEVEL);
+        this.lock.readLock().lock();
+        try {
+            while (true) {
+                final List<HeatmapCellDTO> cells = current.cells(minLongitude, minLatitude, maxLongitude, maxLatitude, level);
+                if (cells.size() <= this.maxCells || level == 0) return Optional.of(new HeatmapDTO(level, cells));
+                level--;
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (this.enabled) this.pyramid.load();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (this.loaderThread instanceof ExecutorService executor) executor.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChargerAvailabilityChanged(ChargerAvailabilityChanged event) {
+        this.pyramid.apply(current -> {
+            this.lock.writeLock().lock();
+            try {
+                apply(current, event);
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /** Chargers may have been added or changed power, so the pyramid is rebuilt rather than patched */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationsImported(LocationsImported event) {
+        this.pyramid.reload();
+    }
+
+    private HeatmapPyramid read() {
+        final HeatmapPyramid newPyramid = new HeatmapPyramid();
+        this.transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<ChargerPosition> stream = this.locationRepository.streamChargerPositions()) {
+                stream.forEach(c -> newPyramid.addCharger(c.getId(), c.getLon(), c.getLat(), c.isAvailable(), c.getMaxPower()));
+            }
+        });
+        return newPyramid;
+    }
+
+    private static void apply(HeatmapPyramid pyramid, ChargerAvailabilityChanged event) {
+        pyramid.setAvailable(event.chargerId(), event.longitude(), event.latitude(), event.available());
+    }
+}
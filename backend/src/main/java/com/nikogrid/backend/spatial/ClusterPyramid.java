@@ -0,0 +1,273 @@
+package com.nikogrid.backend.spatial;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Supercluster-style hierarchy of clusters for zoom levels 0 to {@link #MAX_CLUSTER_ZOOM}.
+ *
+ * <p>Level {@link #LEAF_LEVEL} holds one node per location, every level above it is built bottom-up by greedily
+ * merging the nodes of the level below whose centroid lies within {@link #clusterRadius(int)} of a seed node.
+ * Each node keeps its point count, the running coordinate sums for its centroid and the same values
+ * restricted to active locations, so {@code onlyActive} queries are served from the same tree.
+ *
+ * <p>Nodes are indexed by their seed position and never move in the index. Queries instead widen the envelope by
+ * {@link #reach(int)}, an upper bound on how far any location under a node can be from its seed, so centroids can
+ * shift on incremental updates without re-indexing.
+ *
+ * <p>Not thread-safe, {@link LocationIndex} guards it.
+ */
+final class ClusterPyramid {
+    static final int MAX_CLUSTER_ZOOM = 17;
+    static final int LEAF_LEVEL = MAX_CLUSTER_ZOOM + 1;
+
+    interface Visitor {
+        void leaf(int leaf);
+
+        void cluster(float longitude, float latitude, int numPoints);
+    }
+
+    private final Level[] levels = new Level[LEAF_LEVEL + 1];
+    private boolean built;
+
+    ClusterPyramid() {
+        this.levels[LEAF_LEVEL] = new Level(0);
+    }
+
+    /** Same radius as the one used for {@code ST_ClusterDBSCAN}, in degrees. */
+    static double clusterRadius(int zoom) {
+        return zoom >= LEAF_LEVEL ? 0 : 10 / Math.pow(2.0, zoom);
+    }
+
+    /**
+     * Members are within the radius of the seed and, recursively, their own locations within the reach of
+     * the level below, which sums up to {@code (LEAF_LEVEL - zoom)} radii.
+     */
+    static double reach(int zoom) {
+        return zoom >= LEAF_LEVEL ? 0 : (LEAF_LEVEL - zoom) * clusterRadius(zoom);
+    }
+
+    int addLeaf(float longitude, float latitude, boolean active) {
+        final Level leaves = this.levels[LEAF_LEVEL];
+        final int leaf = leaves.add(longitude, latitude);
+        leaves.count[leaf] = 1;
+        leaves.sumLon[leaf] = longitude;
+        leaves.sumLat[leaf] = latitude;
+        if (active) {
+            leaves.activeCount[leaf] = 1;
+            leaves.activeSumLon[leaf] = longitude;
+            leaves.activeSumLat[leaf] = latitude;
+        }
+
+        if (this.built) insertIncrementally(leaf, longitude, latitude, active);
+        return leaf;
+    }
+
+    void setLeafActive(int leaf, boolean active) {
+        final Level leaves = this.levels[LEAF_LEVEL];
+        if ((leaves.activeCount[leaf] == 1) == active) return;
+
+        final int delta = active ? 1 : -1;
+        final double dLon = delta * leaves.sumLon[leaf];
+        final double dLat = delta * leaves.sumLat[leaf];
+
+        int node = leaf;
+        for (int z = LEAF_LEVEL; z >= 0 && node >= 0; z--) {
+            final Level level = this.levels[z];
+            if (level == null) break;
+            level.activeCount[node] += delta;
+            level.activeSumLon[node] += dLon;
+            level.activeSumLat[node] += dLat;
+            node = level.parent[node];
+        }
+    }
+
+    /** Builds every cluster level from the current leaves, replacing whatever was there. */
+    void build() {
+        for (int z = MAX_CLUSTER_ZOOM; z >= 0; z--) {
+            final Level children = this.levels[z + 1];
+            final Level level = new Level(clusterRadius(z));
+            Arrays.fill(children.parent, 0, children.size, -1);
+
+            final double reach = level.radius + reach(z + 1);
+            for (int child = 0; child < children.size; child++) {
+                if (children.parent[child] >= 0) continue;
+
+                final double lon = children.sumLon[child] / children.count[child];
+                final double lat = children.sumLat[child] / children.count[child];
+                final int node = level.add((float) lon, (float) lat);
+                final double r2 = level.radius * level.radius;
+
+                children.tree.query(lon - reach, lat - reach, lon + reach, lat + reach, candidate -> {
+                    if (children.parent[candidate] >= 0) return;
+                    final double dLon = children.sumLon[candidate] / children.count[candidate] - lon;
+                    final double dLat = children.sumLat[candidate] / children.count[candidate] - lat;
+                    if (dLon * dLon + dLat * dLat <= r2) level.attach(children, candidate, node);
+                });
+            }
+            this.levels[z] = level;
+        }
+        this.built = true;
+    }
+
+    void queryLeaves(double minLon, double minLat, double maxLon, double maxLat, IntConsumer visitor) {
+        this.levels[LEAF_LEVEL].tree.query(minLon, minLat, maxLon, maxLat, visitor);
+    }
+
+    void query(int zoom, double minLon, double minLat, double maxLon, double maxLat, boolean onlyActive, Visitor visitor) {
+        final int z = Math.min(zoom, LEAF_LEVEL);
+        if (z < LEAF_LEVEL && !this.built) throw new IllegalStateException("Cluster levels have not been built");
+
+        final Level level = this.levels[z];
+        final double r = reach(z);
+
+        level.tree.query(minLon - r, minLat - r, maxLon + r, maxLat + r, node -> {
+            final int count = onlyActive ? level.activeCount[node] : level.count[node];
+            if (count == 0) return;
+
+            final double lon = (onlyActive ? level.activeSumLon[node] : level.sumLon[node]) / count;
+            final double lat = (onlyActive ? level.activeSumLat[node] : level.sumLat[node]) / count;
+            if (lon < minLon || lon > maxLon || lat < minLat || lat > maxLat) return;
+
+            if (count == 1)
+                visitor.leaf(singleLeaf(z, node, onlyActive));
+            else
+                visitor.cluster((float) lon, (float) lat, count);
+        });
+    }
+
+    /** Walks down from a node that holds a single (active) location to its leaf. */
+    private int singleLeaf(int zoom, int node, boolean onlyActive) {
+        int current = node;
+        for (int z = zoom; z < LEAF_LEVEL; z++) {
+            final Level children = this.levels[z + 1];
+            int child = this.levels[z].firstChild[current];
+            while (child >= 0 && (onlyActive ? children.activeCount[child] : children.count[child]) == 0) {
+                child = children.nextSibling[child];
+            }
+            current = child;
+        }
+        return current;
+    }
+
+    /**
+     * Attaches a new leaf to the closest existing node at each level, or starts a new node
+     * when none is in range, and updates the branch above the node it joined.
+     */
+    private void insertIncrementally(int leaf, float longitude, float latitude, boolean active) {
+        int child = leaf;
+        for (int z = MAX_CLUSTER_ZOOM; z >= 0; z--) {
+            final Level level = this.levels[z];
+            final Level children = this.levels[z + 1];
+
+            final int existing = level.nearestSeed(longitude, latitude);
+            if (existing >= 0) {
+                level.attach(children, child, existing);
+
+                int node = level.parent[existing];
+                for (int up = z - 1; up >= 0 && node >= 0; up--) {
+                    final Level ancestors = this.levels[up];
+                    ancestors.count[node]++;
+                    ancestors.sumLon[node] += longitude;
+                    ancestors.sumLat[node] += latitude;
+                    if (active) {
+                        ancestors.activeCount[node]++;
+                        ancestors.activeSumLon[node] += longitude;
+                        ancestors.activeSumLat[node] += latitude;
+                    }
+                    node = ancestors.parent[node];
+                }
+                return;
+            }
+
+            final int node = level.add(longitude, latitude);
+            level.attach(children, child, node);
+            child = node;
+        }
+    }
+
+    private static final class Level {
+        private static final int INITIAL_CAPACITY = 256;
+
+        private final double radius;
+        private final PointQuadtree tree = new PointQuadtree(-180, -90, 180, 90);
+
+        private int size;
+        private float[] seedLon = new float[INITIAL_CAPACITY];
+        private float[] seedLat = new float[INITIAL_CAPACITY];
+        private int[] count = new int[INITIAL_CAPACITY];
+        private double[] sumLon = new double[INITIAL_CAPACITY];
+        private double[] sumLat = new double[INITIAL_CAPACITY];
+        private int[] activeCount = new int[INITIAL_CAPACITY];
+        private double[] activeSumLon = new double[INITIAL_CAPACITY];
+        private double[] activeSumLat = new double[INITIAL_CAPACITY];
+        private int[] parent = new int[INITIAL_CAPACITY];
+        private int[] firstChild = new int[INITIAL_CAPACITY];
+        private int[] nextSibling = new int[INITIAL_CAPACITY];
+
+        private Level(double radius) {
+            this.radius = radius;
+        }
+
+        private int add(float seedLon, float seedLat) {
+            if (this.size == this.count.length) grow();
+
+            final int node = this.size++;
+            this.seedLon[node] = seedLon;
+            this.seedLat[node] = seedLat;
+            this.parent[node] = -1;
+            this.firstChild[node] = -1;
+            this.nextSibling[node] = -1;
+            this.tree.insert(node, seedLon, seedLat);
+            return node;
+        }
+
+        /** Links {@code child} from the level below under {@code node} and adds its totals to it. */
+        private void attach(Level children, int child, int node) {
+            children.parent[child] = node;
+            children.nextSibling[child] = this.firstChild[node];
+            this.firstChild[node] = child;
+
+            this.count[node] += children.count[child];
+            this.sumLon[node] += children.sumLon[child];
+            this.sumLat[node] += children.sumLat[child];
+            this.activeCount[node] += children.activeCount[child];
+            this.activeSumLon[node] += children.activeSumLon[child];
+            this.activeSumLat[node] += children.activeSumLat[child];
+        }
+
+        /**
+         * @return the node whose seed is closest to the point and within the radius, or -1
+         */
+        private int nearestSeed(double lon, double lat) {
+            final double r = this.radius;
+            final double[] best = {r * r};
+            final int[] bestNode = {-1};
+            this.tree.query(lon - r, lat - r, lon + r, lat + r, node -> {
+                final double dLon = this.seedLon[node] - lon;
+                final double dLat = this.seedLat[node] - lat;
+                final double d2 = dLon * dLon + dLat * dLat;
+                if (d2 <= best[0]) {
+                    best[0] = d2;
+                    bestNode[0] = node;
+                }
+            });
+            return bestNode[0];
+        }
+
+        private void grow() {
+            final int capacity = this.count.length * 2;
+            this.seedLon = Arrays.copyOf(this.seedLon, capacity);
+            this.seedLat = Arrays.copyOf(this.seedLat, capacity);
+            this.count = Arrays.copyOf(this.count, capacity);
+            this.sumLon = Arrays.copyOf(this.sumLon, capacity);
+            this.sumLat = Arrays.copyOf(this.sumLat, capacity);
+            this.activeCount = Arrays.copyOf(this.activeCount, capacity);
+            this.activeSumLon = Arrays.copyOf(this.activeSumLon, capacity);
+            this.activeSumLat = Arrays.copyOf(this.activeSumLat, capacity);
+            this.parent = Arrays.copyOf(this.parent, capacity);
+            this.firstChild = Arrays.copyOf(this.firstChild, capacity);
+            this.nextSibling = Arrays.copyOf(this.nextSibling, capacity);
+        }
+    }
+}
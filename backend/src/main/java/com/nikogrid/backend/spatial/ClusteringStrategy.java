@@ -0,0 +1,9 @@
+package com.nikogrid.backend.spatial;
+
+/** How the database groups nearby locations below the maximum zoom */
+public enum ClusteringStrategy {
+    /** Density based, clusters follow the points but the cost grows quickly with their number */
+    DBSCAN,
+    /** Fixed cells anchored at (0, 0) and sized like the DBSCAN radius, linear in the number of points */
+    GRID
+}
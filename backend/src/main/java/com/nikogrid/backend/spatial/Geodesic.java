@@ -0,0 +1,43 @@
+package com.nikogrid.backend.spatial;
+
+/** Great-circle distances on a spherical Earth, within 0.5% of the ellipsoidal ones. */
+public final class Geodesic {
+    /** Mean Earth radius, in metres */
+    public static final double EARTH_RADIUS = 6_371_008.8;
+
+    private Geodesic() {
+    }
+
+    /** Haversine distance, in metres */
+    public static double distance(double longitude1, double latitude1, double longitude2, double latitude2) {
+        final double dLat = Math.toRadians(latitude2 - latitude1);
+        final double dLon = Math.toRadians(longitude2 - longitude1);
+        final double h = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * Math.pow(Math.sin(dLon / 2), 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    /** Difference from {@code longitude1} to {@code longitude2} the short way round, in [-180, 180] degrees */
+    public static double longitudeDifference(double longitude1, double longitude2) {
+        return Math.IEEEremainder(longitude2 - longitude1, 360);
+    }
+
+    /**
+     * Lower bound, in metres, of the distance from a point to any point at least {@code degrees} away from it in plain
+     * longitude/latitude degrees, which is how {@code <->} measures SRID 4326 geometries.
+     *
+     * <p>{@code <->} doesn't wrap around the antimeridian, so a point that far may lie just across it. The bound
+     * goes no further than the gap between the point and the antimeridian.
+     *
+     * <p>With {@code φ} the highest latitude either point can be at, the haversine formula gives
+     * {@code sin²(d/2) >= cos²φ (sin²(Δlat/2) + sin²(Δlon/2)) >= cos²φ sin²(degrees/2)}.
+     */
+    public static double minDistance(double longitude, double latitude, double degrees) {
+        final double reach = Math.min(degrees, 180 - Math.abs(longitudeDifference(0, longitude)));
+        if (reach >= 180) return 0;
+
+        final double maxLatitude = Math.toRadians(Math.min(90, Math.abs(latitude) + reach));
+        final double sinHalf = Math.cos(maxLatitude) * Math.sin(Math.toRadians(reach) / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.max(0, sinHalf));
+    }
+}
@@ -0,0 +1,53 @@
+package com.nikogrid.backend.spatial;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Re-ranks candidates fetched in the planar lon/lat order of {@code <->} by great-circle distance. Planar
+ * degrees shrink east-west distances away from the equator, so the planar order is only trusted up to
+ * the point where no location past the last candidate can be closer than the k-th result, see
+ * {@link Geodesic#minDistance}.
+ */
+public final class GeodesicRanking {
+    public record Ranked<T>(T value, double distance) {
+    }
+
+    private GeodesicRanking() {
+    }
+
+    /**
+     * @param candidates in planar distance order from the point
+     * @param complete   whether there are no more candidates than the given ones
+     * @return the closest {@code k} candidates, closest first, or empty when more candidates are needed to be sure
+     */
+    public static <T> Optional<List<Ranked<T>>> rank(
+            double longitude, double latitude, int k, List<T> candidates, boolean complete,
+            ToDoubleFunction<T> longitudeOf, ToDoubleFunction<T> latitudeOf) {
+        // Farthest of the best k on top
+        final PriorityQueue<Ranked<T>> best = new PriorityQueue<>(k + 1,
+                Comparator.<Ranked<T>>comparingDouble(Ranked::distance).reversed());
+        for (final T candidate : candidates) {
+            best.add(new Ranked<>(candidate,
+                    Geodesic.distance(longitude, latitude, longitudeOf.applyAsDouble(candidate), latitudeOf.applyAsDouble(candidate))));
+            if (best.size() > k) best.poll();
+        }
+
+        if (!complete) {
+            if (best.size() < k) return Optional.empty();
+
+            final T last = candidates.get(candidates.size() - 1);
+            final double reach = Math.hypot(
+                    Geodesic.longitudeDifference(longitude, longitudeOf.applyAsDouble(last)), latitudeOf.applyAsDouble(last) - latitude);
+            if (Geodesic.minDistance(longitude, latitude, reach) < best.peek().distance()) return Optional.empty();
+        }
+
+        final List<Ranked<T>> ranked = new ArrayList<>(best);
+        ranked.sort(Comparator.comparingDouble(Ranked::distance));
+        return Optional.of(ranked);
+    }
+}
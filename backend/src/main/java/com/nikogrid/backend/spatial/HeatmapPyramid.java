@@ -0,0 +1,87 @@
+package com.nikogrid.backend.spatial;
+
+import com.nikogrid.backend.dto.HeatmapCellDTO;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Charger totals per Web Mercator tile for every level from 0 to {@link #MAX_LEVEL}, laid out row-major in
+ * one array per level and value. Every charger is counted once per level, so updates touch
+ * {@code MAX_LEVEL + 1} cells and queries never depend on how many chargers are under the envelope.
+ *
+ * <p>The availability of every charger is kept by id, so applying an availability change that is already
+ * counted is a no-op.
+ *
+ * <p>Not thread-safe, {@link ChargerHeatmap} guards it.
+ */
+final class HeatmapPyramid {
+    static final int MAX_LEVEL = 9;
+
+    private final int[][] chargers = new int[MAX_LEVEL + 1][];
+    private final int[][] available = new int[MAX_LEVEL + 1][];
+    private final double[][] power = new double[MAX_LEVEL + 1][];
+    private final BitSet availableChargers = new BitSet();
+
+    HeatmapPyramid() {
+        for (int level = 0; level <= MAX_LEVEL; level++) {
+            final int cells = 1 << (2 * level);
+            this.chargers[level] = new int[cells];
+            this.available[level] = new int[cells];
+            this.power[level] = new double[cells];
+        }
+    }
+
+    void addCharger(long chargerId, float longitude, float latitude, boolean available, float maxPower) {
+        if (available) this.availableChargers.set(Math.toIntExact(chargerId));
+        add(longitude, latitude, 1, available ? 1 : 0, maxPower);
+    }
+
+    /**
+     * @return whether the charger's availability changed
+     */
+    boolean setAvailable(long chargerId, float longitude, float latitude, boolean available) {
+        final int index = Math.toIntExact(chargerId);
+        if (this.availableChargers.get(index) == available) return false;
+
+        this.availableChargers.set(index, available);
+        add(longitude, latitude, 0, available ? 1 : -1, 0);
+        return true;
+    }
+
+    private void add(float longitude, float latitude, int chargers, int available, double power) {
+        // A cell at a level is the parent of the cells at the level below, so the coordinates are only
+        // projected once
+        final int x = TileKey.lonToX(longitude, MAX_LEVEL);
+        final int y = TileKey.latToY(latitude, MAX_LEVEL);
+        for (int level = 0; level <= MAX_LEVEL; level++) {
+            final int shift = MAX_LEVEL - level;
+            final int cell = ((y >> shift) << level) + (x >> shift);
+            this.chargers[level][cell] += chargers;
+            this.available[level][cell] += available;
+            this.power[level][cell] += power;
+        }
+    }
+
+    /**
+     * @return the cells intersecting the envelope that hold at least one charger
+     */
+    List<HeatmapCellDTO> cells(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, int level) {
+        final int minX = TileKey.lonToX(minLongitude, level);
+        final int maxX = TileKey.lonToX(maxLongitude, level);
+        final int minY = TileKey.latToY(maxLatitude, level);
+        final int maxY = TileKey.latToY(minLatitude, level);
+
+        final List<HeatmapCellDTO> cells = new ArrayList<>();
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                final int cell = (y << level) + x;
+                if (this.chargers[level][cell] == 0) continue;
+                cells.add(new HeatmapCellDTO(x, y,
+                        this.chargers[level][cell], this.available[level][cell], this.power[level][cell]));
+            }
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,122 @@
+package com.nikogrid.backend.spatial;
+
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import com.nikogrid.backend.events.LocationChangedElsewhere;
+import com.nikogrid.backend.events.LocationCreated;
+import com.nikogrid.backend.events.LocationsImported;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the location dataset as seen by map responses, bumped after every committed change, including
+ * the ones of other processes as relayed by {@link com.nikogrid.backend.services.LocationImportRelay}.
+ * Each location also remembers the global version of its own last change, so its details can be
+ * revalidated without being affected by changes elsewhere, and map diffs can tell which locations
+ * changed since a client's version.
+ * Only the last {@code locations.diff.max-changes} changed locations are remembered. Locations dropped from
+ * that window report the newest version dropped so far, and diffs from before it fall back to a full result.
+ * Versions are prefixed with the startup time so the ones handed out before a restart, or by another
+ * instance, are never taken for this one's.
+ * Callers must read the version before querying, so a response is never labelled newer than its data.
+ */
+@Component
+public class LocationDatasetVersion {
+    public record Change(long locationId, float longitude, float latitude, long version) {
+    }
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong counter = new AtomicLong();
+    private final int maxChanges;
+    /** Last change of every remembered location, by location id */
+    private final Map<Long, Change> locationChanges = new ConcurrentHashMap<>();
+    /** The same changes by version, so diffs only walk the ones they return */
+    private final NavigableMap<Long, Change> history = new ConcurrentSkipListMap<>();
+    /** Newest version dropped from the window */
+    private volatile long trimmedVersion;
+    /** Version of the last bulk import, which may have changed any location */
+    private volatile long importVersion;
+
+    @Autowired
+    public LocationDatasetVersion(@Value("${locations.diff.max-changes:10000}") int maxChanges) {
+        this.maxChanges = maxChanges;
+    }
+
+    public String current() {
+        return format(this.counter.get());
+    }
+
+    public String location(long locationId) {
+        final Change change = this.locationChanges.get(locationId);
+        final long version = change == null ? this.trimmedVersion : Math.max(change.version(), this.trimmedVersion);
+        return format(Math.max(version, this.importVersion));
+    }
+
+    /**
+     * @return the locations changed after {@code version}, or empty if the version wasn't handed out by this instance,
+     * precedes a bulk import or is older than the remembered changes
+     */
+    public Optional<List<Change>> changedSince(String version) {
+        final String prefix = this.epoch + "-";
+        if (version == null || !version.startsWith(prefix)) return Optional.empty();
+
+        final long since;
+        try {
+            since = Long.parseLong(version.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        if (since < 0 || since > this.counter.get() || since < this.importVersion) return Optional.empty();
+
+        final List<Change> changes = List.copyOf(this.history.tailMap(since, false).values());
+        // Checked after the copy, a trim running meanwhile may have dropped changes newer than `since`
+        if (since < this.trimmedVersion) return Optional.empty();
+        return Optional.of(changes);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationCreated(LocationCreated event) {
+        bump(event.location().getId(), event.location().getLon(), event.location().getLat());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChargerAvailabilityChanged(ChargerAvailabilityChanged event) {
+        bump(event.locationId(), event.longitude(), event.latitude());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationChangedElsewhere(LocationChangedElsewhere event) {
+        bump(event.locationId(), event.longitude(), event.latitude());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationsImported(LocationsImported event) {
+        this.importVersion = this.counter.incrementAndGet();
+    }
+
+    private synchronized void bump(long locationId, float longitude, float latitude) {
+        final Change change = new Change(locationId, longitude, latitude, this.counter.incrementAndGet());
+        final Change previous = this.locationChanges.put(locationId, change);
+        this.history.put(change.version(), change);
+        if (previous != null) this.history.remove(previous.version());
+
+        while (this.locationChanges.size() > this.maxChanges) {
+            final Change oldest = this.history.pollFirstEntry().getValue();
+            this.locationChanges.remove(oldest.locationId());
+            this.trimmedVersion = oldest.version();
+        }
+    }
+
+    private String format(long version) {
+        return this.epoch + "-" + version;
+    }
+}
@@ -0,0 +1,172 @@
+package com.nikogrid.backend.spatial;
+
+import com.nikogrid.backend.dto.ClusterInterestPoint;
+import com.nikogrid.backend.dto.InterestPointBaseDTO;
+import com.nikogrid.backend.dto.LocationInterestPoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of every location and its charger summary.
+ * Rows are kept in struct-of-arrays form, their slot doubles as the leaf id in the {@link ClusterPyramid}
+ * that indexes them and serves the clustered zoom levels.
+ */
+public final class LocationIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ClusterPyramid pyramid = new ClusterPyramid();
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private float[] lons = new float[INITIAL_CAPACITY];
+    private float[] lats = new float[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] chargerCounts = new int[INITIAL_CAPACITY];
+    private int[] availableChargers = new int[INITIAL_CAPACITY];
+    private float[] maxPowers = new float[INITIAL_CAPACITY];
+    private int size;
+
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        this.lock.readLock().lock();
+        try {
+            return this.slotsById.containsKey(id);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the cluster levels over everything added so far. Locations added afterwards are
+     * clustered incrementally.
+     */
+    public void buildClusters() {
+        this.lock.writeLock().lock();
+        try {
+            this.pyramid.build();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /** Adds a location, or refreshes its name and charger summary if it is already indexed. */
+    public void put(long id, String name, float lon, float lat, int chargerCount, int availableChargers, float maxPower) {
+        this.lock.writeLock().lock();
+        try {
+            final Integer existing = this.slotsById.get(id);
+            if (existing != null) {
+                this.names[existing] = name;
+                this.chargerCounts[existing] = chargerCount;
+                this.availableChargers[existing] = availableChargers;
+                this.maxPowers[existing] = maxPower;
+                this.pyramid.setLeafActive(existing, availableChargers > 0);
+                return;
+            }
+
+            if (this.size == this.ids.length) grow();
+
+            final int slot = this.pyramid.addLeaf(lon, lat, availableChargers > 0);
+            this.size++;
+            this.ids[slot] = id;
+            this.lons[slot] = lon;
+            this.lats[slot] = lat;
+            this.names[slot] = name;
+            this.chargerCounts[slot] = chargerCount;
+            this.availableChargers[slot] = availableChargers;
+            this.maxPowers[slot] = maxPower;
+            this.slotsById.put(id, slot);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return false when the location is not indexed
+     */
+    public boolean setAvailableChargers(long id, int availableChargers) {
+        this.lock.writeLock().lock();
+        try {
+            final Integer slot = this.slotsById.get(id);
+            if (slot == null) return false;
+            this.availableChargers[slot] = availableChargers;
+            this.pyramid.setLeafActive(slot, availableChargers > 0);
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public List<InterestPointBaseDTO> findInEnvelope(
+            float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, boolean onlyActive) {
+        this.lock.readLock().lock();
+        try {
+            final List<InterestPointBaseDTO> result = new ArrayList<>();
+            this.pyramid.queryLeaves(minLongitude, minLatitude, maxLongitude, maxLatitude, slot -> {
+                if (matches(slot, onlyActive)) result.add(toInterestPoint(slot));
+            });
+            return result;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /** Reads the pre-built cluster level for the zoom, so {@link #buildClusters()} must have been called. */
+    public List<InterestPointBaseDTO> findInterestPoints(
+            float minLongitude, float minLatitude, float maxLongitude, float maxLatitude,
+            int zoomLevel, boolean onlyActive) {
+        this.lock.readLock().lock();
+        try {
+            final List<InterestPointBaseDTO> result = new ArrayList<>();
+            this.pyramid.query(zoomLevel, minLongitude, minLatitude, maxLongitude, maxLatitude, onlyActive,
+                    new ClusterPyramid.Visitor() {
+                        @Override
+                        public void leaf(int slot) {
+                            result.add(toInterestPoint(slot));
+                        }
+
+                        @Override
+                        public void cluster(float longitude, float latitude, int numPoints) {
+                            result.add(new ClusterInterestPoint(longitude, latitude, numPoints));
+                        }
+                    });
+            return result;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private boolean matches(int slot, boolean onlyActive) {
+        return !onlyActive || this.availableChargers[slot] > 0;
+    }
+
+    private LocationInterestPoint toInterestPoint(int slot) {
+        return new LocationInterestPoint(this.lons[slot], this.lats[slot], this.ids[slot], this.names[slot],
+                this.chargerCounts[slot], this.availableChargers[slot], this.maxPowers[slot]);
+    }
+
+    private void grow() {
+        final int capacity = this.ids.length * 2;
+        this.ids = Arrays.copyOf(this.ids, capacity);
+        this.lons = Arrays.copyOf(this.lons, capacity);
+        this.lats = Arrays.copyOf(this.lats, capacity);
+        this.names = Arrays.copyOf(this.names, capacity);
+        this.chargerCounts = Arrays.copyOf(this.chargerCounts, capacity);
+        this.availableChargers = Arrays.copyOf(this.availableChargers, capacity);
+        this.maxPowers = Arrays.copyOf(this.maxPowers, capacity);
+    }
+}
@@ -0,0 +1,109 @@
+package com.nikogrid.backend.spatial;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Collapses identical concurrent queries into one. The first caller for a key runs the query on its
+ * own thread and every caller that arrives while it is running gets the same result, nothing is kept
+ * once it completes.
+ *
+ * <p>Callers wait at most {@code locations.coalescing.max-wait} before running the query themselves, and if the
+ * running query was interrupted they run it themselves instead of sharing the failure. Other failures
+ * are shared, retrying them would multiply the load this is meant to save.
+ */
+@Component
+public class LocationQueryCoalescer {
+    public static final String METRICS_NAME = "locations.coalescing.calls";
+
+    private record Key(String operation, Object query) {
+    }
+
+    private final ConcurrentMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration maxWait;
+
+    @Autowired
+    public LocationQueryCoalescer(
+            MeterRegistry meterRegistry,
+            @Value("${locations.coalescing.enabled:true}") boolean enabled,
+            @Value("${locations.coalescing.max-wait:5s}") Duration maxWait
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * @param query must be a value with equality, calls for equal queries of an operation are coalesced
+     */
+    public <T> T execute(String operation, Object query, Supplier<T> supplier) {
+        if (!this.enabled) return supplier.get();
+
+        final Key key = new Key(operation, query);
+        final CompletableFuture<Object> own = new CompletableFuture<>();
+        final CompletableFuture<Object> running = this.inFlight.putIfAbsent(key, own);
+        if (running == null) return lead(key, own, supplier);
+
+        return join(operation, running, supplier);
+    }
+
+    private <T> T lead(Key key, CompletableFuture<Object> future, Supplier<T> supplier) {
+        count(key.operation(), "led");
+        try {
+            final T result = supplier.get();
+            // Removed before completing, so callers arriving from now on start a fresh query
+            this.inFlight.remove(key, future);
+            future.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            this.inFlight.remove(key, future);
+            future.completeExceptionally(Thread.currentThread().isInterrupted() ? new CancellationException() : e);
+            throw e;
+        }
+    }
+
+    /**
+     * Counted as joined up front, {@code timed_out} and {@code retried} count the joined calls that ended up
+     * running their own query anyway
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T join(String operation, CompletableFuture<Object> running, Supplier<T> supplier) {
+        count(operation, "joined");
+        try {
+            return (T) running.get(this.maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            count(operation, "timed_out");
+            return supplier.get();
+        } catch (CancellationException e) {
+            // The leader was interrupted
+            count(operation, "retried");
+            return supplier.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            // Only this caller gives up, the running query is left alone for the others
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a coalesced " + operation + " query");
+        }
+    }
+
+    private void count(String operation, String outcome) {
+        this.meterRegistry.counter(METRICS_NAME, "operation", operation, "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,110 @@
+package com.nikogrid.backend.spatial;
+
+import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import com.nikogrid.backend.events.LocationCreated;
+import com.nikogrid.backend.events.LocationsImported;
+import com.nikogrid.backend.repositories.LocationRepository;
+import com.nikogrid.backend.repositories.projections.LocationListing;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+/**
+ * Owns the {@link LocationIndex} used to answer map queries without going to the database.
+ * The index is only built when {@code locations.read-model.enabled} is set, and until it is fully
+ * loaded {@link #index()} stays empty so callers keep using the database. Loads run in the background,
+ * changes received meanwhile are applied to the new index before it is swapped in.
+ */
+@Component
+public class LocationReadModel {
+    private final LocationRepository locationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Executor loaderThread;
+    private final ReloadingSnapshot<LocationIndex> index;
+
+    @Autowired
+    public LocationReadModel(
+            LocationRepository locationRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${locations.read-model.enabled:false}") boolean enabled
+    ) {
+        this(locationRepository, transactionManager, enabled, ReloadingSnapshot.loaderThread("location-read-model-"));
+    }
+
+    LocationReadModel(
+            LocationRepository locationRepository,
+            PlatformTransactionManager transactionManager,
+            boolean enabled,
+            Executor loaderThread
+    ) {
+        this.locationRepository = locationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.loaderThread = loaderThread;
+        this.index = new ReloadingSnapshot<>(this::read, loaderThread);
+    }
+
+    public Optional<LocationIndex> index() {
+        return Optional.ofNullable(this.index.current());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (this.enabled) this.index.load();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (this.loaderThread instanceof ExecutorService executor) executor.shutdownNow();
+    }
+
+    /** A location the load already read is left alone, its chargers may have been added since it was created */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationCreated(LocationCreated event) {
+        final Location location = event.location();
+        this.index.apply(current -> {
+            if (!current.contains(location.getId()))
+                current.put(location.getId(), location.getName(), location.getLon(), location.getLat(), 0, 0, 0);
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChargerAvailabilityChanged(ChargerAvailabilityChanged event) {
+        this.index.apply(current -> current.setAvailableChargers(event.locationId(), event.availableChargers()));
+    }
+
+    /**
+     * Rebuilt from scratch, the current index keeps serving until the new one is ready. Not loaded yet
+     * means the initial load is still to come and will see the import.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationsImported(LocationsImported event) {
+        this.index.reload();
+    }
+
+    private LocationIndex read() {
+        final LocationIndex newIndex = new LocationIndex();
+        this.transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<LocationListing> stream = this.locationRepository.streamLocationAvailability()) {
+                stream.forEach(l -> newIndex.put(l.getId(), l.getName(), l.getLon(), l.getLat(),
+                        l.getChargerCount(), l.getAvailableChargers(), l.getMaxPower()));
+            }
+        });
+        newIndex.buildClusters();
+        return newIndex;
+    }
+}
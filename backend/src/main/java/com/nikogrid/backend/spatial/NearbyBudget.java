@@ -0,0 +1,86 @@
+package com.nikogrid.backend.spatial;
+
+import com.nikogrid.backend.dto.InterestPointBaseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.function.IntFunction;
+
+/**
+ * Caps how many interest points a single {@code /nearby} response can hold. Results over the budget are
+ * recomputed at a coarser zoom, and only truncated if even zoom 0 doesn't fit.
+ */
+@Component
+public class NearbyBudget {
+    public static final String COARSENED_METRIC = "nearby.budget.coarsened";
+    public static final String TRUNCATED_METRIC = "nearby.budget.truncated";
+
+    private final int maxPoints;
+    private final DistributionSummary coarsened;
+    private final Counter truncated;
+
+    @Autowired
+    public NearbyBudget(
+            MeterRegistry meterRegistry,
+            @Value("${locations.nearby.max-points:5000}") int maxPoints
+    ) {
+        this.maxPoints = maxPoints;
+        this.coarsened = DistributionSummary.builder(COARSENED_METRIC)
+                .description("Zoom levels a /nearby response was coarsened by to fit the point budget")
+                .baseUnit("levels")
+                .serviceLevelObjectives(1, 2, 4, 8, 16)
+                .register(meterRegistry);
+        this.truncated = Counter.builder(TRUNCATED_METRIC)
+                .description("/nearby responses cut short at the point budget")
+                .register(meterRegistry);
+    }
+
+    public int maxPoints() {
+        return this.maxPoints;
+    }
+
+    /**
+     * Runs {@code query} at the requested zoom, then at coarser ones until its result fits the budget.
+     * {@code query} may return one point over the budget to signal that there are more.
+     */
+    public Collection<InterestPointBaseDTO> fit(
+            float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, int zoomLevel,
+            IntFunction<Collection<InterestPointBaseDTO>> query) {
+        int zoom = zoomLevel;
+        while (true) {
+            final Collection<InterestPointBaseDTO> points = query.apply(zoom);
+            if (points.size() <= this.maxPoints) {
+                this.coarsened.record(zoomLevel - zoom);
+                return points;
+            }
+            if (zoom == 0) {
+                this.coarsened.record(zoomLevel);
+                this.truncated.increment();
+                return points.stream().limit(this.maxPoints).toList();
+            }
+            zoom = coarserZoom(zoom, minLongitude, minLatitude, maxLongitude, maxLatitude);
+        }
+    }
+
+    /** For responses that are written as they are read and can only be cut short */
+    public void recordStreamed(boolean truncated) {
+        this.coarsened.record(0);
+        if (truncated) this.truncated.increment();
+    }
+
+    /**
+     * Clusters are roughly one per square of the cluster radius, {@code 10 / 2^zoom} degrees, so this picks
+     * the highest zoom whose clusters could still fit the envelope into the budget. Always goes down
+     * at least one level.
+     */
+    int coarserZoom(int zoom, float minLongitude, float minLatitude, float maxLongitude, float maxLatitude) {
+        final double area = Math.max((double) (maxLongitude - minLongitude) * (maxLatitude - minLatitude), 1e-12);
+        final double fitting = Math.floor(Math.log(10 * Math.sqrt(this.maxPoints / area)) / Math.log(2));
+        return (int) Math.max(0, Math.min(zoom - 1, fitting));
+    }
+}
@@ -0,0 +1,121 @@
+package com.nikogrid.backend.spatial;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nikogrid.backend.dto.InterestPointBaseDTO;
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import com.nikogrid.backend.events.LocationCreated;
+import com.nikogrid.backend.events.LocationsImported;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Per-tile cache of {@code /nearby} results, so viewports that snap to the same tiles share work.
+ * Eviction is by total number of cached interest points, and a location change only drops the tiles
+ * containing it at each zoom.
+ */
+@Component
+public class NearbyTileCache {
+    public static final String METRICS_NAME = "nearby.tiles";
+
+    private record Key(TileKey tile, boolean onlyActive, ClusteringStrategy clustering) {
+    }
+
+    private final Cache<Key, List<InterestPointBaseDTO>> cache;
+    private final boolean enabled;
+    private final int maxTilesPerRequest;
+
+    @Autowired
+    public NearbyTileCache(
+            MeterRegistry meterRegistry,
+            @Value("${locations.tile-cache.enabled:true}") boolean enabled,
+            @Value("${locations.tile-cache.max-points:500000}") long maxPoints,
+            @Value("${locations.tile-cache.max-tiles-per-request:64}") int maxTilesPerRequest
+    ) {
+        this.enabled = enabled;
+        this.maxTilesPerRequest = maxTilesPerRequest;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxPoints)
+                .<Key, List<InterestPointBaseDTO>>weigher((key, points) -> Math.max(1, points.size()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, METRICS_NAME);
+    }
+
+    /**
+     * Tiles only hold the points they own, clusters included, so merging them never counts a point twice.
+     *
+     * @return the merged contents of every tile covering the envelope, clipped to it, or empty when caching
+     * is disabled or the envelope covers too many tiles at this zoom to be worth it
+     */
+    public Optional<List<InterestPointBaseDTO>> get(
+            float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, int zoomLevel,
+            boolean onlyActive, ClusteringStrategy clustering, Function<TileKey, List<InterestPointBaseDTO>> loader) {
+        if (!this.enabled) return Optional.empty();
+
+        return covering(minLongitude, minLatitude, maxLongitude, maxLatitude, zoomLevel)
+                .map(tiles -> {
+                    final List<InterestPointBaseDTO> result = new ArrayList<>();
+                    for (final TileKey tile : tiles) {
+                        for (final InterestPointBaseDTO point : getTile(tile, onlyActive, clustering, loader)) {
+                            if (point.longitude >= minLongitude && point.longitude <= maxLongitude
+                                    && point.latitude >= minLatitude && point.latitude <= maxLatitude)
+                                result.add(point);
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * @return the tiles covering the envelope, or empty when there are too many to go tile by tile
+     */
+    public Optional<List<TileKey>> covering(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, int zoomLevel) {
+        return TileKey.covering(minLongitude, minLatitude, maxLongitude, maxLatitude, zoomLevel, this.maxTilesPerRequest);
+    }
+
+    /** Falls through to the loader when caching is disabled */
+    public List<InterestPointBaseDTO> getTile(
+            TileKey tile, boolean onlyActive, ClusteringStrategy clustering, Function<TileKey, List<InterestPointBaseDTO>> loader) {
+        if (!this.enabled) return loader.apply(tile);
+        return this.cache.get(new Key(tile, onlyActive, clustering), key -> loader.apply(key.tile()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationCreated(LocationCreated event) {
+        invalidate(event.location().getLon(), event.location().getLat());
+    }
+
+    /**
+     * Every tile holding the location is dropped, not only the {@code onlyActive} ones, since locations
+     * carry their available charger count
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChargerAvailabilityChanged(ChargerAvailabilityChanged event) {
+        invalidate(event.longitude(), event.latitude());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationsImported(LocationsImported event) {
+        this.cache.invalidateAll();
+    }
+
+    private void invalidate(float longitude, float latitude) {
+        for (int z = 0; z <= TileKey.MAX_ZOOM; z++) {
+            final TileKey tile = TileKey.containing(longitude, latitude, z);
+            for (final ClusteringStrategy clustering : ClusteringStrategy.values()) {
+                this.cache.invalidate(new Key(tile, true, clustering));
+                this.cache.invalidate(new Key(tile, false, clustering));
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.nikogrid.backend.spatial;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Region quadtree of points identified by an int slot.
+ * Leaves keep their entries in parallel primitive arrays so range scans stay cache friendly.
+ */
+public final class PointQuadtree {
+    private static final int LEAF_CAPACITY = 32;
+    private static final int MAX_DEPTH = 24;
+
+    private final Node root;
+    private int size;
+
+    public PointQuadtree(double minX, double minY, double maxX, double maxY) {
+        this.root = new Node(minX, minY, maxX, maxY, 0);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public void insert(int slot, float x, float y) {
+        Node node = this.root;
+        while (node.children != null) {
+            node = node.childFor(x, y);
+        }
+        node.add(slot, x, y);
+        this.size++;
+    }
+
+    /** Visits every slot whose point lies inside the closed envelope. */
+    public void query(double minX, double minY, double maxX, double maxY, IntConsumer visitor) {
+        query(this.root, minX, minY, maxX, maxY, visitor);
+    }
+
+    private static void query(Node node, double minX, double minY, double maxX, double maxY, IntConsumer visitor) {
+        if (node.maxX < minX || node.minX > maxX || node.maxY < minY || node.minY > maxY) return;
+
+        if (node.children != null) {
+            for (final Node child : node.children) {
+                query(child, minX, minY, maxX, maxY, visitor);
+            }
+            return;
+        }
+
+        final boolean contained = node.minX >= minX && node.maxX <= maxX && node.minY >= minY && node.maxY <= maxY;
+        for (int i = 0; i < node.count; i++) {
+            if (contained || (node.xs[i] >= minX && node.xs[i] <= maxX && node.ys[i] >= minY && node.ys[i] <= maxY)) {
+                visitor.accept(node.slots[i]);
+            }
+        }
+    }
+
+    private static final class Node {
+        private final double minX;
+        private final double minY;
+        private final double maxX;
+        private final double maxY;
+        private final double midX;
+        private final double midY;
+        private final int depth;
+
+        private Node[] children;
+        private int[] slots = new int[LEAF_CAPACITY];
+        private float[] xs = new float[LEAF_CAPACITY];
+        private float[] ys = new float[LEAF_CAPACITY];
+        private int count;
+
+        private Node(double minX, double minY, double maxX, double maxY, int depth) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.midX = (minX + maxX) / 2;
+            this.midY = (minY + maxY) / 2;
+            this.depth = depth;
+        }
+
+        private Node childFor(float x, float y) {
+            return this.children[(x < this.midX ? 0 : 1) + (y < this.midY ? 0 : 2)];
+        }
+
+        private void add(int slot, float x, float y) {
+            if (this.count == this.slots.length) {
+                if (this.depth < MAX_DEPTH) {
+                    split();
+                    childFor(x, y).add(slot, x, y);
+                    return;
+                }
+                // Too many coincident points to separate, let the leaf grow instead
+                this.slots = Arrays.copyOf(this.slots, this.count * 2);
+                this.xs = Arrays.copyOf(this.xs, this.count * 2);
+                this.ys = Arrays.copyOf(this.ys, this.count * 2);
+            }
+            this.slots[this.count] = slot;
+            this.xs[this.count] = x;
+            this.ys[this.count] = y;
+            this.count++;
+        }
+
+        private void split() {
+            final int d = this.depth + 1;
+            this.children = new Node[]{
+                    new Node(this.minX, this.minY, this.midX, this.midY, d),
+                    new Node(this.midX, this.minY, this.maxX, this.midY, d),
+                    new Node(this.minX, this.midY, this.midX, this.maxY, d),
+                    new Node(this.midX, this.midY, this.maxX, this.maxY, d)
+            };
+            for (int i = 0; i < this.count; i++) {
+                childFor(this.xs[i], this.ys[i]).add(this.slots[i], this.xs[i], this.ys[i]);
+            }
+            this.slots = null;
+            this.xs = null;
+            this.ys = null;
+            this.count = 0;
+        }
+    }
+}
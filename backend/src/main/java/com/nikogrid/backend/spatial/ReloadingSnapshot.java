@@ -0,0 +1,110 @@
+package com.nikogrid.backend.spatial;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * In-memory structure loaded from the database and kept up to date with the changes published meanwhile.
+ *
+ * <p>Loads run on the given executor, one at a time. Asking for a load while one is running makes it run
+ * again once done, so the latest request is always followed by a complete load. Changes received while
+ * loading are buffered, replayed onto the new snapshot and only then is it swapped in, the previous one
+ * keeps serving until then.
+ */
+final class ReloadingSnapshot<T> {
+    private final Supplier<T> loader;
+    private final Executor executor;
+
+    private volatile T current;
+    /** Guarded by {@code this}, set for as long as a load is running */
+    private List<Consumer<T>> pending;
+    private boolean started;
+    private boolean reloadRequested;
+
+    ReloadingSnapshot(Supplier<T> loader, Executor executor) {
+        this.loader = loader;
+        this.executor = executor;
+    }
+
+    /** Single daemon thread for the loads of a component */
+    static ExecutorService loaderThread(String prefix) {
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    /** Null until the first load is done */
+    T current() {
+        return this.current;
+    }
+
+    void load() {
+        synchronized (this) {
+            this.started = true;
+            if (this.pending != null) {
+                this.reloadRequested = true;
+                return;
+            }
+            this.pending = new ArrayList<>();
+        }
+        this.executor.execute(this::run);
+    }
+
+    /** For changes that may touch anything, loads again unless the first load was never asked for */
+    void reload() {
+        synchronized (this) {
+            if (!this.started) return;
+        }
+        load();
+    }
+
+    /**
+     * Applies the change to the current snapshot, and to the one being loaded once it is done. The load may
+     * already have read the change from the database, so changes must be idempotent.
+     */
+    void apply(Consumer<T> change) {
+        final T snapshot;
+        synchronized (this) {
+            if (this.pending != null) this.pending.add(change);
+            snapshot = this.current;
+        }
+
+        if (snapshot != null) change.accept(snapshot);
+    }
+
+    private void run() {
+        while (true) {
+            T loaded = null;
+            RuntimeException failure = null;
+            try {
+                loaded = this.loader.get();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+
+            synchronized (this) {
+                if (loaded != null) {
+                    for (final Consumer<T> change : this.pending) change.accept(loaded);
+                    this.current = loaded;
+                }
+
+                if (this.reloadRequested) {
+                    this.reloadRequested = false;
+                    this.pending = new ArrayList<>();
+                    continue;
+                }
+                this.pending = null;
+            }
+
+            if (failure != null) throw failure;
+            return;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.nikogrid.backend.spatial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Polyline of a trip, with the distance along it of every vertex.
+ *
+ * <p>Searches around it go {@link Section} by section, so each one only covers the envelope of a short stretch
+ * instead of a buffer around the whole route.
+ */
+public final class Route {
+    private static final double METRES_PER_DEGREE = Math.toRadians(1) * Geodesic.EARTH_RADIUS;
+
+    /** Where a point projects onto a route */
+    public record Position(double distanceAlong, double distanceFrom) {
+    }
+
+    private final double[] longitudes;
+    private final double[] latitudes;
+    private final double[] distances;
+
+    Route(double[] longitudes, double[] latitudes) {
+        this.longitudes = longitudes;
+        this.latitudes = latitudes;
+        this.distances = new double[longitudes.length];
+        for (int i = 1; i < longitudes.length; i++) {
+            this.distances[i] = this.distances[i - 1]
+                    + Geodesic.distance(longitudes[i - 1], latitudes[i - 1], longitudes[i], latitudes[i]);
+        }
+    }
+
+    private Route(double[] longitudes, double[] latitudes, double[] distances) {
+        this.longitudes = longitudes;
+        this.latitudes = latitudes;
+        this.distances = distances;
+    }
+
+    /**
+     * Decodes a polyline in the <a href="https://developers.google.com/maps/documentation/utilities/polylinealgorithm">encoded polyline format</a>
+     * with 5 decimal places, as produced by most routing services.
+     *
+     * @throws IllegalArgumentException when the polyline is malformed, out of range or has more than {@code maxPoints} points
+     */
+    public static Route decode(String encoded, int maxPoints) {
+        final List<double[]> points = new ArrayList<>();
+        int index = 0;
+        long latitude = 0;
+        long longitude = 0;
+        while (index < encoded.length()) {
+            if (points.size() == maxPoints)
+                throw new IllegalArgumentException("Polyline has more than " + maxPoints + " points");
+
+            final long[] delta = new long[2];
+            for (int i = 0; i < 2; i++) {
+                long result = 0;
+                int shift = 0;
+                int chunk;
+                do {
+                    if (index == encoded.length() || shift > 30)
+                        throw new IllegalArgumentException("Truncated polyline");
+                    chunk = encoded.charAt(index++) - 63;
+                    if (chunk < 0 || chunk > 63)
+                        throw new IllegalArgumentException("Invalid polyline character at " + (index - 1));
+                    result |= (long) (chunk & 0x1f) << shift;
+                    shift += 5;
+                } while (chunk >= 0x20);
+                delta[i] = (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+            }
+            latitude += delta[0];
+            longitude += delta[1];
+
+            final double lat = latitude / 1e5;
+            final double lon = longitude / 1e5;
+            if (Math.abs(lat) > 90 || Math.abs(lon) > 180)
+                throw new IllegalArgumentException("Polyline point out of range");
+            points.add(new double[]{lon, lat});
+        }
+
+        final double[] longitudes = new double[points.size()];
+        final double[] latitudes = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            longitudes[i] = points.get(i)[0];
+            latitudes[i] = points.get(i)[1];
+        }
+        return new Route(longitudes, latitudes);
+    }
+
+    public int size() {
+        return this.longitudes.length;
+    }
+
+    /** In metres */
+    public double length() {
+        return this.distances.length == 0 ? 0 : this.distances[this.distances.length - 1];
+    }
+
+    /**
+     * Consecutive sections of at most {@code maxLength} metres each, edges longer than that are split. Sections
+     * share their end vertices and keep the distances along the whole route.
+     */
+    public List<Section> sections(double maxLength) {
+        final List<Section> sections = new ArrayList<>();
+        SectionBuilder current = new SectionBuilder(this.longitudes[0], this.latitudes[0], 0);
+        for (int i = 1; i < size(); i++) {
+            final double edge = this.distances[i] - this.distances[i - 1];
+            final int pieces = Math.max(1, (int) Math.ceil(edge / maxLength));
+            for (int piece = 1; piece <= pieces; piece++) {
+                final double t = piece / (double) pieces;
+                final double longitude = this.longitudes[i - 1] + t * (this.longitudes[i] - this.longitudes[i - 1]);
+                final double latitude = this.latitudes[i - 1] + t * (this.latitudes[i] - this.latitudes[i - 1]);
+                final double distance = this.distances[i - 1] + t * edge;
+
+                if (current.count > 1 && distance - current.distances[0] > maxLength) {
+                    sections.add(current.build());
+                    current = current.continuation();
+                }
+                current.add(longitude, latitude, distance);
+            }
+        }
+        sections.add(current.build());
+        return sections;
+    }
+
+    private static final class SectionBuilder {
+        private double[] longitudes = new double[16];
+        private double[] latitudes = new double[16];
+        private double[] distances = new double[16];
+        private int count;
+
+        SectionBuilder(double longitude, double latitude, double distance) {
+            add(longitude, latitude, distance);
+        }
+
+        void add(double longitude, double latitude, double distance) {
+            if (this.count == this.longitudes.length) {
+                this.longitudes = Arrays.copyOf(this.longitudes, this.count * 2);
+                this.latitudes = Arrays.copyOf(this.latitudes, this.count * 2);
+                this.distances = Arrays.copyOf(this.distances, this.count * 2);
+            }
+            this.longitudes[this.count] = longitude;
+            this.latitudes[this.count] = latitude;
+            this.distances[this.count] = distance;
+            this.count++;
+        }
+
+        /** Starts the next section at the last vertex of this one */
+        SectionBuilder continuation() {
+            return new SectionBuilder(this.longitudes[this.count - 1], this.latitudes[this.count - 1], this.distances[this.count - 1]);
+        }
+
+        Section build() {
+            return new Section(new Route(
+                    Arrays.copyOf(this.longitudes, this.count),
+                    Arrays.copyOf(this.latitudes, this.count),
+                    Arrays.copyOf(this.distances, this.count)));
+        }
+    }
+
+    /** Stretch of a route, short enough that a flat projection around it is accurate */
+    public static final class Section {
+        private final Route route;
+
+        private Section(Route route) {
+            this.route = route;
+        }
+
+        /** Distance along the whole route where the section starts, in metres */
+        public double start() {
+            return this.route.distances[0];
+        }
+
+        /** Distance along the whole route where the section ends, in metres */
+        public double end() {
+            return this.route.distances[this.route.size() - 1];
+        }
+
+        /**
+         * @return {@code {minLongitude, minLatitude, maxLongitude, maxLatitude}} of every point within {@code margin}
+         * metres of the section
+         */
+        public double[] envelope(double margin) {
+            double minLon = Double.MAX_VALUE, minLat = Double.MAX_VALUE;
+            double maxLon = -Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+            for (int i = 0; i < this.route.size(); i++) {
+                minLon = Math.min(minLon, this.route.longitudes[i]);
+                maxLon = Math.max(maxLon, this.route.longitudes[i]);
+                minLat = Math.min(minLat, this.route.latitudes[i]);
+                maxLat = Math.max(maxLat, this.route.latitudes[i]);
+            }
+
+            final double latMargin = margin / METRES_PER_DEGREE;
+            minLat = Math.max(-90, minLat - latMargin);
+            maxLat = Math.min(90, maxLat + latMargin);
+            final double cos = Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+            if (cos < 1e-6) return new double[]{-180, minLat, 180, maxLat};
+
+            final double lonMargin = latMargin / cos;
+            return new double[]{Math.max(-180, minLon - lonMargin), minLat, Math.min(180, maxLon + lonMargin), maxLat};
+        }
+
+        /** Projects the point onto the closest edge of the section, in a flat projection centred on the point */
+        public Position locate(double longitude, double latitude) {
+            final double cos = Math.cos(Math.toRadians(latitude));
+            final Route r = this.route;
+
+            double bestFrom = Double.MAX_VALUE;
+            double bestAlong = r.distances[0];
+            for (int i = 0; i < Math.max(1, r.size() - 1); i++) {
+                final int j = Math.min(i + 1, r.size() - 1);
+                final double ax = (r.longitudes[i] - longitude) * cos;
+                final double ay = r.latitudes[i] - latitude;
+                final double dx = (r.longitudes[j] - r.longitudes[i]) * cos;
+                final double dy = r.latitudes[j] - r.latitudes[i];
+                final double lengthSquared = dx * dx + dy * dy;
+                final double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+
+                final double from = Math.hypot(ax + t * dx, ay + t * dy) * METRES_PER_DEGREE;
+                if (from < bestFrom) {
+                    bestFrom = from;
+                    bestAlong = r.distances[i] + t * (r.distances[j] - r.distances[i]);
+                }
+            }
+            return new Position(bestAlong, bestFrom);
+        }
+    }
+}
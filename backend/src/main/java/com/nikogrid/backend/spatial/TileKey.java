@@ -0,0 +1,79 @@
+package com.nikogrid.backend.spatial;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/** Slippy-map (Web Mercator) tile address. */
+public record TileKey(int z, int x, int y) {
+    public static final int MAX_ZOOM = 18;
+    public static final double MAX_LATITUDE = 85.0511287798066;
+
+    public static TileKey containing(double longitude, double latitude, int zoom) {
+        return new TileKey(zoom, lonToX(longitude, zoom), latToY(latitude, zoom));
+    }
+
+    /**
+     * @return the tiles intersecting the envelope, or empty when there are more than {@code maxTiles} of them
+     */
+    public static Optional<List<TileKey>> covering(
+            double minLongitude, double minLatitude, double maxLongitude, double maxLatitude, int zoom, int maxTiles) {
+        final int minX = lonToX(minLongitude, zoom);
+        final int maxX = lonToX(maxLongitude, zoom);
+        final int minY = latToY(maxLatitude, zoom);
+        final int maxY = latToY(minLatitude, zoom);
+
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) > maxTiles) return Optional.empty();
+
+        final List<TileKey> tiles = new ArrayList<>((maxX - minX + 1) * (maxY - minY + 1));
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                tiles.add(new TileKey(zoom, x, y));
+            }
+        }
+        return Optional.of(tiles);
+    }
+
+    public double west() {
+        return this.x / (double) (1 << this.z) * 360 - 180;
+    }
+
+    public double east() {
+        return (this.x + 1) / (double) (1 << this.z) * 360 - 180;
+    }
+
+    /** The first row also covers the polar cap Web Mercator can't project */
+    public double north() {
+        return this.y == 0 ? 90 : yToLat(this.y, this.z);
+    }
+
+    /** The last row also covers the polar cap Web Mercator can't project */
+    public double south() {
+        return this.y == (1 << this.z) - 1 ? -90 : yToLat(this.y + 1, this.z);
+    }
+
+    public boolean contains(double longitude, double latitude) {
+        return lonToX(longitude, this.z) == this.x && latToY(latitude, this.z) == this.y;
+    }
+
+    static int lonToX(double longitude, int zoom) {
+        final int n = 1 << zoom;
+        return clamp((int) Math.floor((longitude + 180) / 360 * n), n);
+    }
+
+    static int latToY(double latitude, int zoom) {
+        final int n = 1 << zoom;
+        final double lat = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+        final double y = (1 - Math.log(Math.tan(lat) + 1 / Math.cos(lat)) / Math.PI) / 2;
+        return clamp((int) Math.floor(y * n), n);
+    }
+
+    private static double yToLat(int y, int zoom) {
+        final double mercatorY = Math.PI * (1 - 2.0 * y / (1 << zoom));
+        return Math.toDegrees(Math.atan(Math.sinh(mercatorY)));
+    }
+
+    private static int clamp(int index, int n) {
+        return Math.max(0, Math.min(n - 1, index));
+    }
+}
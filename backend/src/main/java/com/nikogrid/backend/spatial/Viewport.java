@@ -0,0 +1,4 @@
+package com.nikogrid.backend.spatial;
+
+public record Viewport(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, int zoom) {
+}
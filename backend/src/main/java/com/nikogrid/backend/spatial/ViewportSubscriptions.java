@@ -0,0 +1,118 @@
+package com.nikogrid.backend.spatial;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Spatial index of viewport subscriptions, so a change is only matched against the viewports around it.
+ * Viewports are registered in every cell of a fixed tile grid they overlap. The few too large for that
+ * are kept aside and checked against every change.
+ *
+ * <p>Safe for concurrent use, a subscriber is only guaranteed to see changes matched after {@link #add} returned.
+ */
+public final class ViewportSubscriptions<T> {
+    /** Cells are about 1.4 degrees wide, a city viewport covers one to four of them */
+    public static final int CELL_ZOOM = 8;
+    public static final int MAX_CELLS = 64;
+
+    public static final class Subscription<T> {
+        private final float minLongitude;
+        private final float minLatitude;
+        private final float maxLongitude;
+        private final float maxLatitude;
+        private final T subscriber;
+        /** Null for subscriptions kept aside */
+        private final List<TileKey> cells;
+
+        private Subscription(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, T subscriber, List<TileKey> cells) {
+            this.minLongitude = minLongitude;
+            this.minLatitude = minLatitude;
+            this.maxLongitude = maxLongitude;
+            this.maxLatitude = maxLatitude;
+            this.subscriber = subscriber;
+            this.cells = cells;
+        }
+
+        public T subscriber() {
+            return this.subscriber;
+        }
+
+        boolean contains(float longitude, float latitude) {
+            return longitude >= this.minLongitude && longitude <= this.maxLongitude
+                    && latitude >= this.minLatitude && latitude <= this.maxLatitude;
+        }
+    }
+
+    private final ConcurrentMap<TileKey, Set<Subscription<T>>> cells = new ConcurrentHashMap<>();
+    private final Set<Subscription<T>> wide = ConcurrentHashMap.newKeySet();
+    private final Set<Subscription<T>> all = ConcurrentHashMap.newKeySet();
+
+    public Subscription<T> add(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude, T subscriber) {
+        final Optional<List<TileKey>> covering = TileKey.covering(minLongitude, minLatitude, maxLongitude, maxLatitude, CELL_ZOOM, MAX_CELLS);
+        final Subscription<T> subscription = new Subscription<>(
+                minLongitude, minLatitude, maxLongitude, maxLatitude, subscriber, covering.orElse(null));
+
+        this.all.add(subscription);
+        if (subscription.cells == null) {
+            this.wide.add(subscription);
+            return subscription;
+        }
+        for (final TileKey cell : subscription.cells) {
+            this.cells.compute(cell, (key, subscriptions) -> {
+                final Set<Subscription<T>> result = subscriptions == null ? ConcurrentHashMap.newKeySet() : subscriptions;
+                result.add(subscription);
+                return result;
+            });
+        }
+        return subscription;
+    }
+
+    /**
+     * @return false if the subscription was already removed
+     */
+    public boolean remove(Subscription<T> subscription) {
+        if (!this.all.remove(subscription)) return false;
+
+        if (subscription.cells == null) {
+            this.wide.remove(subscription);
+            return true;
+        }
+        for (final TileKey cell : subscription.cells) {
+            this.cells.computeIfPresent(cell, (key, subscriptions) -> {
+                subscriptions.remove(subscription);
+                return subscriptions.isEmpty() ? null : subscriptions;
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Cells are looked up with the same projection that registered them, so the cell holding a point
+     * is always among the cells of any viewport containing it
+     */
+    public void forEachContaining(float longitude, float latitude, Consumer<T> consumer) {
+        final Set<Subscription<T>> inCell = this.cells.get(TileKey.containing(longitude, latitude, CELL_ZOOM));
+        if (inCell != null) {
+            for (final Subscription<T> subscription : inCell) {
+                if (subscription.contains(longitude, latitude)) consumer.accept(subscription.subscriber);
+            }
+        }
+        for (final Subscription<T> subscription : this.wide) {
+            if (subscription.contains(longitude, latitude)) consumer.accept(subscription.subscriber);
+        }
+    }
+
+    public void forEach(Consumer<T> consumer) {
+        for (final Subscription<T> subscription : this.all) {
+            consumer.accept(subscription.subscriber);
+        }
+    }
+
+    public int size() {
+        return this.all.size();
+    }
+}
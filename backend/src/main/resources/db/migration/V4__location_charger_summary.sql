@@ -0,0 +1,63 @@
+ALTER TABLE locations
+    ADD COLUMN charger_count      INTEGER DEFAULT 0 NOT NULL,
+    ADD COLUMN available_chargers INTEGER DEFAULT 0 NOT NULL,
+    ADD COLUMN max_power          FLOAT   DEFAULT 0 NOT NULL;
+
+UPDATE locations l
+SET charger_count      = s.charger_count,
+    available_chargers = s.available_chargers,
+    max_power          = s.max_power
+FROM (SELECT location_id,
+             COUNT(*)                          AS charger_count,
+             COUNT(*) FILTER (WHERE available) AS available_chargers,
+             MAX(max_power)                    AS max_power
+      FROM chargers
+      GROUP BY location_id) s
+WHERE s.location_id = l.id;
+
+-- Recomputes the summary of a location from its chargers. The location row is locked before the
+-- chargers are read, so concurrent changes to chargers of the same location are serialized and the
+-- last one to commit sees the others.
+CREATE FUNCTION refresh_location_charger_summary(target BIGINT) RETURNS VOID AS
+$$
+BEGIN
+    PERFORM 1 FROM locations WHERE id = target FOR UPDATE;
+
+    UPDATE locations l
+    SET charger_count      = s.charger_count,
+        available_chargers = s.available_chargers,
+        max_power          = s.max_power
+    FROM (SELECT COUNT(*)                          AS charger_count,
+                 COUNT(*) FILTER (WHERE available) AS available_chargers,
+                 COALESCE(MAX(max_power), 0)       AS max_power
+          FROM chargers
+          WHERE location_id = target) s
+    WHERE l.id = target;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION chargers_refresh_location_summary() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        PERFORM refresh_location_charger_summary(OLD.location_id);
+    END IF;
+    IF TG_OP <> 'DELETE' AND (TG_OP = 'INSERT' OR NEW.location_id <> OLD.location_id) THEN
+        PERFORM refresh_location_charger_summary(NEW.location_id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER chargers_location_summary
+    AFTER INSERT OR DELETE OR UPDATE OF available, max_power, location_id
+    ON chargers
+    FOR EACH ROW
+EXECUTE FUNCTION chargers_refresh_location_summary();
+
+-- Only holds locations with an available charger, which is what active-only map queries and
+-- findClosestAvailable filter on
+CREATE INDEX locations_available_geom_idx
+    ON locations
+        USING GIST (geom)
+    WHERE available_chargers > 0;
@@ -0,0 +1,30 @@
+-- Identifiers from the source dataset, used to merge repeated imports into the same rows.
+-- Rows created through the API have none.
+ALTER TABLE locations
+    ADD COLUMN external_id VARCHAR(255);
+
+ALTER TABLE chargers
+    ADD COLUMN external_id VARCHAR(255);
+
+CREATE UNIQUE INDEX locations_external_id_idx ON locations (external_id);
+
+CREATE UNIQUE INDEX chargers_external_id_idx ON chargers (external_id);
+
+-- Bulk imports set nikogrid.defer_charger_summary for their transaction and refresh the summaries of
+-- the locations they touched in one statement at the end, instead of once per charger row
+CREATE OR REPLACE FUNCTION chargers_refresh_location_summary() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF current_setting('nikogrid.defer_charger_summary', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP <> 'INSERT' THEN
+        PERFORM refresh_location_charger_summary(OLD.location_id);
+    END IF;
+    IF TG_OP <> 'DELETE' AND (TG_OP = 'INSERT' OR NEW.location_id <> OLD.location_id) THEN
+        PERFORM refresh_location_charger_summary(NEW.location_id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,2 @@
+-- Keyset pagination of a user's reservations, in both directions
+CREATE INDEX reservation_user_starts_at_idx ON reservation (user_id, starts_at, id);
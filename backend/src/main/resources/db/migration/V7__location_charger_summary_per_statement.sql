@@ -0,0 +1,131 @@
+-- The charger summary of locations used to be recounted once per changed charger row, each time locking
+-- its location on its own, so a batch touching many chargers locked locations in whatever order its rows
+-- came in. It is now maintained once per statement: the locations touched are locked in id order, flips
+-- of availability are applied as per-location deltas, and only the locations whose chargers were added,
+-- removed, moved or changed power are recounted.
+DROP TRIGGER chargers_location_summary ON chargers;
+DROP FUNCTION chargers_refresh_location_summary();
+DROP FUNCTION refresh_location_charger_summary(BIGINT);
+
+-- Concurrent statements lock the locations they share in the same order
+CREATE FUNCTION lock_locations(targets BIGINT[]) RETURNS VOID AS
+$$
+BEGIN
+    PERFORM 1 FROM locations WHERE id = ANY (targets) ORDER BY id FOR UPDATE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Must be called with the locations locked, so the count sees every change committed before
+CREATE FUNCTION recount_location_charger_summaries(targets BIGINT[]) RETURNS VOID AS
+$$
+BEGIN
+    UPDATE locations l
+    SET charger_count      = COALESCE(s.charger_count, 0),
+        available_chargers = COALESCE(s.available_chargers, 0),
+        max_power          = COALESCE(s.max_power, 0)
+    FROM unnest(targets) AS t(id)
+             LEFT JOIN (SELECT location_id,
+                               COUNT(*)                          AS charger_count,
+                               COUNT(*) FILTER (WHERE available) AS available_chargers,
+                               MAX(max_power)                    AS max_power
+                        FROM chargers
+                        WHERE location_id = ANY (targets)
+                        GROUP BY location_id) s ON s.location_id = t.id
+    WHERE l.id = t.id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Bulk imports still set nikogrid.defer_charger_summary and refresh the locations they touched themselves
+CREATE FUNCTION chargers_added_or_removed() RETURNS TRIGGER AS
+$$
+DECLARE
+    targets BIGINT[];
+BEGIN
+    IF current_setting('nikogrid.defer_charger_summary', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP = 'INSERT' THEN
+        SELECT array_agg(DISTINCT location_id) INTO targets FROM new_rows;
+    ELSE
+        SELECT array_agg(DISTINCT location_id) INTO targets FROM old_rows;
+    END IF;
+    IF targets IS NULL THEN
+        RETURN NULL;
+    END IF;
+
+    PERFORM lock_locations(targets);
+    PERFORM recount_location_charger_summaries(targets);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION chargers_updated() RETURNS TRIGGER AS
+$$
+DECLARE
+    touched  BIGINT[];
+    recounts BIGINT[];
+BEGIN
+    IF current_setting('nikogrid.defer_charger_summary', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    SELECT array_agg(DISTINCT l.id),
+           array_agg(DISTINCT l.id) FILTER (WHERE l.recount)
+    INTO touched, recounts
+    FROM (SELECT o.location_id AS id, o.location_id <> n.location_id OR o.max_power <> n.max_power AS recount
+          FROM old_rows o
+                   JOIN new_rows n ON n.id = o.id
+          WHERE o.available <> n.available OR o.max_power <> n.max_power OR o.location_id <> n.location_id
+          UNION ALL
+          SELECT n.location_id, TRUE
+          FROM old_rows o
+                   JOIN new_rows n ON n.id = o.id
+          WHERE o.location_id <> n.location_id) l;
+    IF touched IS NULL THEN
+        RETURN NULL;
+    END IF;
+
+    PERFORM lock_locations(touched);
+
+    UPDATE locations l
+    SET available_chargers = l.available_chargers + d.delta
+    FROM (SELECT n.location_id, SUM(CASE WHEN n.available THEN 1 ELSE -1 END) AS delta
+          FROM old_rows o
+                   JOIN new_rows n ON n.id = o.id
+          WHERE o.available <> n.available
+            AND o.location_id = n.location_id
+            AND o.max_power = n.max_power
+          GROUP BY n.location_id) d
+    WHERE l.id = d.location_id
+      AND d.delta <> 0
+      AND NOT l.id = ANY (COALESCE(recounts, '{}'));
+
+    IF recounts IS NOT NULL THEN
+        PERFORM recount_location_charger_summaries(recounts);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER chargers_location_summary_insert
+    AFTER INSERT
+    ON chargers
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION chargers_added_or_removed();
+
+CREATE TRIGGER chargers_location_summary_delete
+    AFTER DELETE
+    ON chargers
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION chargers_added_or_removed();
+
+-- Transition tables rule out a column list, unchanged rows are filtered out by the function instead
+CREATE TRIGGER chargers_location_summary_update
+    AFTER UPDATE
+    ON chargers
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION chargers_updated();
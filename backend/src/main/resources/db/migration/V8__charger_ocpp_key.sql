@@ -0,0 +1,2 @@
+-- Hash of the key a charge point authenticates with over OCPP, chargers without one can't connect
+ALTER TABLE chargers ADD COLUMN ocpp_key_hash VARCHAR(100);
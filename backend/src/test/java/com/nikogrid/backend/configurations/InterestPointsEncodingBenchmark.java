@@ -0,0 +1,75 @@
+package com.nikogrid.backend.configurations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nikogrid.backend.dto.ClusterInterestPoint;
+import com.nikogrid.backend.dto.InterestPointBaseDTO;
+import com.nikogrid.backend.dto.LocationInterestPoint;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the {@code /nearby} JSON and protobuf encodings on payload size and serialization time.
+ * Not part of the regular test run, use {@code mvn test -Dtest=InterestPointsEncodingBenchmark}.
+ */
+class InterestPointsEncodingBenchmark {
+    private static final int ITERATIONS = 200;
+
+    private static List<InterestPointBaseDTO> points(int size) {
+        final Random random = new Random(42);
+        final List<InterestPointBaseDTO> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            // A city-sized viewport with one cluster for every nine locations
+            final float lon = -8.7f + random.nextFloat() * 0.2f;
+            final float lat = 40.6f + random.nextFloat() * 0.2f;
+            if (i % 10 == 0)
+                points.add(new ClusterInterestPoint(lon, lat, 2 + random.nextInt(200)));
+            else
+                points.add(new LocationInterestPoint(lon, lat, 100_000 + random.nextInt(900_000), "Charging station " + i, 4, random.nextInt(5), 50f));
+        }
+        return points;
+    }
+
+    private static long nanosPerOp(Runnable op) {
+        for (int i = 0; i < ITERATIONS; i++) op.run();
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) op.run();
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {100, 1_000, 10_000})
+    void compareEncodings(int size) throws Exception {
+        final List<InterestPointBaseDTO> points = points(size);
+        final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        final ObjectWriter jsonWriter = objectMapper.writerFor(objectMapper.constructType(
+                new ParameterizedTypeReference<Collection<InterestPointBaseDTO>>() {
+                }.getType()));
+
+        final int jsonSize = jsonWriter.writeValueAsBytes(points).length;
+        final int protobufSize = InterestPointsProtobufConverter.encode(points).length;
+
+        final long jsonNanos = nanosPerOp(() -> {
+            try {
+                jsonWriter.writeValueAsBytes(points);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        final long protobufNanos = nanosPerOp(() -> InterestPointsProtobufConverter.encode(points));
+
+        System.out.printf("%6d points | json %9d B %9d us | protobuf %9d B %9d us%n",
+                size, jsonSize, jsonNanos / 1000, protobufSize, protobufNanos / 1000);
+        assertThat(protobufSize).isLessThan(jsonSize);
+    }
+}
@@ -0,0 +1,89 @@
+package com.nikogrid.backend.configurations;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.dto.ClusterInterestPoint;
+import com.nikogrid.backend.dto.InterestPointBaseDTO;
+import com.nikogrid.backend.dto.LocationInterestPoint;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InterestPointsProtobufConverterTest {
+    /** Minimal protobuf reader, every field of the schema is packed varints, packed floats or a string */
+    private static Map<Integer, List<Object>> decode(byte[] bytes) {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final Map<Integer, List<Object>> fields = new HashMap<>();
+        while (buffer.hasRemaining()) {
+            final long tag = readVarint(buffer);
+            assertThat(tag & 7).isEqualTo(2);
+
+            final int field = (int) (tag >>> 3);
+            final byte[] value = new byte[(int) readVarint(buffer)];
+            buffer.get(value);
+
+            final List<Object> values = fields.computeIfAbsent(field, f -> new ArrayList<>());
+            if (field == 6) {
+                values.add(new String(value, StandardCharsets.UTF_8));
+            } else if (field == 9) {
+                final ByteBuffer packed = ByteBuffer.wrap(value).order(ByteOrder.LITTLE_ENDIAN);
+                while (packed.hasRemaining()) values.add(packed.getFloat());
+            } else {
+                final ByteBuffer packed = ByteBuffer.wrap(value);
+                while (packed.hasRemaining()) values.add(readVarint(packed));
+            }
+        }
+        return fields;
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            final byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void encodesColumns() {
+        final List<InterestPointBaseDTO> points = List.of(
+                new ClusterInterestPoint(21.5f, 30.25f, 12),
+                new LocationInterestPoint(-8.5f, 40.5f, 300, "Aveiro", 4, 2, 150f),
+                new LocationInterestPoint(-8.75f, 40.5f, 7, "Aveiro", 1, 0, 22f),
+                new LocationInterestPoint(-9.0f, -40.0f, 8, "Lisboa", 0, 0, 0f)
+        );
+
+        final Map<Integer, List<Object>> fields = decode(InterestPointsProtobufConverter.encode(points));
+
+        assertThat(fields.get(1)).map(v -> zigZag((long) v))
+                .containsExactly(21_500_000L, -30_000_000L, -250_000L, -250_000L);
+        assertThat(fields.get(2)).map(v -> zigZag((long) v))
+                .containsExactly(30_250_000L, 10_250_000L, 0L, -80_500_000L);
+        assertThat(fields.get(3)).containsExactly(12L, 1L, 1L, 1L);
+        assertThat(fields.get(4)).containsExactly(300L, 7L, 8L);
+        assertThat(fields.get(5)).containsExactly(0L, 0L, 1L);
+        assertThat(fields.get(6)).containsExactly("Aveiro", "Lisboa");
+        assertThat(fields.get(7)).containsExactly(4L, 1L, 0L);
+        assertThat(fields.get(8)).containsExactly(2L, 0L, 0L);
+        assertThat(fields.get(9)).containsExactly(150f, 22f, 0f);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void encodesEmpty() {
+        assertThat(InterestPointsProtobufConverter.encode(List.of())).isEmpty();
+    }
+}
@@ -0,0 +1,54 @@
+package com.nikogrid.backend.configurations;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecondLevelCacheConfigTest {
+    private SimpleMeterRegistry meterRegistry;
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setup() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.cacheManager = new SecondLevelCacheConfig()
+                .secondLevelCacheManager(this.meterRegistry, Duration.ofMinutes(10), 2, 4);
+    }
+
+    @AfterEach
+    void teardown() {
+        this.cacheManager.close();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void createsEveryRegion() {
+        assertThat(this.cacheManager.getCacheNames()).containsExactlyInAnyOrder(
+                SecondLevelCacheConfig.LOCATIONS_REGION,
+                SecondLevelCacheConfig.LOCATION_CHARGERS_REGION,
+                SecondLevelCacheConfig.CHARGERS_REGION
+        );
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void recordsHitRatioPerRegion() {
+        final Cache<Object, Object> locations = this.cacheManager.getCache(SecondLevelCacheConfig.LOCATIONS_REGION);
+        locations.put(1L, "location");
+        locations.get(1L);
+        locations.get(2L);
+
+        assertThat(this.meterRegistry.get(SecondLevelCacheConfig.HIT_RATIO_METRIC)
+                .tag("cache", SecondLevelCacheConfig.LOCATIONS_REGION).gauge().value()).isEqualTo(0.5);
+        assertThat(this.meterRegistry.get(SecondLevelCacheConfig.HIT_RATIO_METRIC)
+                .tag("cache", SecondLevelCacheConfig.CHARGERS_REGION).gauge().value()).isNaN();
+    }
+}
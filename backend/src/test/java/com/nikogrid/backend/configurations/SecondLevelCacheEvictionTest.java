@@ -0,0 +1,41 @@
+package com.nikogrid.backend.configurations;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.entities.Charger;
+import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import com.nikogrid.backend.events.LocationsImported;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class SecondLevelCacheEvictionTest {
+    @Test
+    @Requirement("NIK-37")
+    void evictsChargerAndItsLocation() {
+        final EntityManagerFactory entityManagerFactory = Mockito.mock(EntityManagerFactory.class);
+        final Cache cache = Mockito.mock(Cache.class);
+        Mockito.when(entityManagerFactory.getCache()).thenReturn(cache);
+
+        new SecondLevelCacheEviction(entityManagerFactory)
+                .onChargerAvailabilityChanged(new ChargerAvailabilityChanged(7L, 3L, -8.6f, 41.1f, false, 0));
+
+        Mockito.verify(cache).evict(Location.class, 3L);
+        Mockito.verify(cache).evict(Charger.class, 7L);
+        Mockito.verifyNoMoreInteractions(cache);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void importEvictsEverything() {
+        final EntityManagerFactory entityManagerFactory = Mockito.mock(EntityManagerFactory.class);
+        final Cache cache = Mockito.mock(Cache.class);
+        Mockito.when(entityManagerFactory.getCache()).thenReturn(cache);
+
+        new SecondLevelCacheEviction(entityManagerFactory).onLocationsImported(new LocationsImported(1, 2, 3, 4));
+
+        Mockito.verify(cache).evictAll();
+        Mockito.verifyNoMoreInteractions(cache);
+    }
+}
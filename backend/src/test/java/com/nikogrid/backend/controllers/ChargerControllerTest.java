@@ -0,0 +1,199 @@
+package com.nikogrid.backend.controllers;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nikogrid.backend.TestSecurityBeans;
+import com.nikogrid.backend.auth.SecurityConfig;
+import com.nikogrid.backend.dto.ChargerScheduleDTO;
+import com.nikogrid.backend.dto.ChargerStatusBatch;
+import com.nikogrid.backend.dto.ChargerStatusDTO;
+import com.nikogrid.backend.entities.BackendUserDetails;
+import com.nikogrid.backend.dto.TimeSlotDTO;
+import com.nikogrid.backend.entities.User;
+import com.nikogrid.backend.exceptions.ResourceNotFound;
+import com.nikogrid.backend.services.ChargerScheduleService;
+import com.nikogrid.backend.services.ChargerService;
+import com.nikogrid.backend.services.ChargerStatusIngestionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.test.context.support.TestExecutionEvent;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ChargerController.class)
+@ActiveProfiles("test")
+@Import({SecurityConfig.class, TestSecurityBeans.class})
+class ChargerControllerTest {
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mvc;
+
+    @MockitoBean
+    private ChargerStatusIngestionService ingestionService;
+
+    @MockitoBean
+    private ChargerScheduleService scheduleService;
+
+    @MockitoBean
+    private ChargerService chargerService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private UserDetailsService userDetailsService;
+
+    private final User user = new User();
+
+    @BeforeEach
+    void setup() {
+        mvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(springSecurity())
+                .build();
+
+        user.setEmail("test@test.com");
+        user.setPassword("password");
+        user.setAdmin(true);
+
+        Mockito.when(userDetailsService.loadUserByUsername(Mockito.anyString()))
+                .thenReturn(new BackendUserDetails(user));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void reportStatusesNoAuth() throws Exception {
+        mvc.perform(post("/api/v1/chargers/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ChargerStatusBatch(List.of(new ChargerStatusDTO(1L, true))))))
+                .andExpect(status().isUnauthorized());
+
+        Mockito.verifyNoInteractions(ingestionService);
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-37")
+    void reportStatusesAccepted() throws Exception {
+        final List<ChargerStatusDTO> statuses = List.of(new ChargerStatusDTO(1L, true), new ChargerStatusDTO(2L, false));
+        Mockito.when(ingestionService.submit(statuses)).thenReturn(true);
+
+        mvc.perform(post("/api/v1/chargers/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ChargerStatusBatch(statuses))))
+                .andExpect(status().isAccepted());
+
+        Mockito.verify(ingestionService).submit(statuses);
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-37")
+    void reportStatusesBacklogFull() throws Exception {
+        Mockito.when(ingestionService.submit(Mockito.any())).thenReturn(false);
+
+        mvc.perform(post("/api/v1/chargers/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ChargerStatusBatch(List.of(new ChargerStatusDTO(1L, true))))))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-37")
+    void reportStatusesBadRequest() throws Exception {
+        mvc.perform(post("/api/v1/chargers/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"statuses\":[{\"chargerId\":1}]}"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/api/v1/chargers/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"statuses\":[]}"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(ingestionService);
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-37")
+    void reportStatusesNotAdmin() throws Exception {
+        user.setAdmin(false);
+
+        mvc.perform(post("/api/v1/chargers/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ChargerStatusBatch(List.of(new ChargerStatusDTO(1L, true))))))
+                .andExpect(status().isForbidden());
+
+        Mockito.verifyNoInteractions(ingestionService);
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-12")
+    void getAvailability() throws Exception {
+        final Instant from = Instant.parse("2025-01-01T10:00:00Z");
+        Mockito.when(scheduleService.getChargerSchedule(1L, from, null)).thenReturn(
+                new ChargerScheduleDTO(1L, true, List.of(new TimeSlotDTO(from, Instant.parse("2025-01-08T10:00:00Z")))));
+
+        mvc.perform(get("/api/v1/chargers/1/availability").param("from", from.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.chargerId").value(1))
+                .andExpect(jsonPath("$.free[0].start").value("2025-01-01T10:00:00Z"))
+                .andExpect(jsonPath("$.free[0].end").value("2025-01-08T10:00:00Z"));
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-12")
+    void getAvailabilityNotFound() throws Exception {
+        Mockito.when(scheduleService.getChargerSchedule(1L, null, null)).thenThrow(new ResourceNotFound());
+
+        mvc.perform(get("/api/v1/chargers/1/availability"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-37")
+    void renewOcppKey() throws Exception {
+        Mockito.when(chargerService.renewOcppKey(7L)).thenReturn("0123456789abcdef0123456789abcdef01234567");
+
+        mvc.perform(post("/api/v1/chargers/7/ocpp-key"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.chargePointId").value("7"))
+                .andExpect(jsonPath("$.authorizationKey").value("0123456789abcdef0123456789abcdef01234567"));
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-37")
+    void renewOcppKeyNotAdmin() throws Exception {
+        user.setAdmin(false);
+
+        mvc.perform(post("/api/v1/chargers/7/ocpp-key"))
+                .andExpect(status().isForbidden());
+
+        Mockito.verifyNoInteractions(chargerService);
+    }
+}
@@ -15,6 +15,9 @@ import com.nikogrid.backend.entities.User;
 import com.nikogrid.backend.repositories.ChargerRepository;
 import com.nikogrid.backend.repositories.LocationRepository;
 import com.nikogrid.backend.repositories.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -36,9 +39,10 @@ import static org.springframework.security.test.web.servlet.setup.SecurityMockMv
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @Import(TestcontainersConfiguration.class)
 class LocationControllerIT {
     @Autowired
@@ -58,6 +62,9 @@ class LocationControllerIT {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @BeforeEach
     void setup() {
         mvc = MockMvcBuilders
@@ -143,7 +150,7 @@ class LocationControllerIT {
                 .hasSize(2)
                 .containsExactlyInAnyOrder(
                         new ClusterInterestPoint(-10.5f, 5, 2),
-                        new LocationInterestPoint(15, 15, noCluster.getId(), "Test3")
+                        new LocationInterestPoint(15, 15, noCluster.getId(), "Test3", 0, 0, 0f)
                 );
     }
 
@@ -245,4 +252,35 @@ class LocationControllerIT {
         c.setAvailable(available);
         return c;
     }
+
+    @Test
+    @Requirement("NIK-37")
+    void getLocationByIdTakesOneStatementThenServesFromCache() throws Exception {
+        final Location loc = createTestLocation("Test", 20, 30);
+        this.locationRepository.save(loc);
+        this.chargerRepository.saveAll(List.of(
+                createTestCharger(loc, "E1", true),
+                createTestCharger(loc, "E2", false)
+        ));
+
+        this.entityManagerFactory.getCache().evictAll();
+        final Statistics statistics = statistics();
+        statistics.clear();
+
+        mvc.perform(get("/api/v1/locations/{id}", loc.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.chargers.length()").value(2));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+
+        mvc.perform(get("/api/v1/locations/{id}", loc.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.chargers.length()").value(2));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    private Statistics statistics() {
+        return this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
 }
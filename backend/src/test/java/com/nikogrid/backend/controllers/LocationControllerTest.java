@@ -4,24 +4,47 @@ import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nikogrid.backend.TestSecurityBeans;
 import com.nikogrid.backend.auth.SecurityConfig;
+import com.nikogrid.backend.configurations.InterestPointsProtobufConverter;
+import com.nikogrid.backend.dto.ChargerDTO;
+import com.nikogrid.backend.dto.ChargerScheduleDTO;
+import com.nikogrid.backend.dto.ClosestBatchPoint;
+import com.nikogrid.backend.dto.ClosestBatchRequest;
+import com.nikogrid.backend.dto.ClosestLocationDTO;
 import com.nikogrid.backend.dto.ClusterInterestPoint;
+import com.nikogrid.backend.dto.CorridorLocationDTO;
+import com.nikogrid.backend.dto.CorridorSearch;
 import com.nikogrid.backend.dto.CreateLocation;
+import com.nikogrid.backend.dto.HeatmapCellDTO;
+import com.nikogrid.backend.dto.HeatmapDTO;
 import com.nikogrid.backend.dto.InterestPointBaseDTO;
 import com.nikogrid.backend.dto.LocationDTO;
+import com.nikogrid.backend.dto.LocationDetailsDTO;
+import com.nikogrid.backend.dto.LocationDetailsRequest;
 import com.nikogrid.backend.dto.LocationInterestPoint;
+import com.nikogrid.backend.dto.NearbyDiffDTO;
+import com.nikogrid.backend.dto.TileContentsDTO;
+import com.nikogrid.backend.dto.TimeSlotDTO;
 import com.nikogrid.backend.entities.BackendUserDetails;
 import com.nikogrid.backend.entities.Location;
 import com.nikogrid.backend.entities.User;
 import com.nikogrid.backend.exceptions.ResourceNotFound;
+import com.nikogrid.backend.services.AvailabilityStreamService;
+import com.nikogrid.backend.services.ChargerScheduleService;
 import com.nikogrid.backend.services.LocationService;
+import com.nikogrid.backend.spatial.ClusteringStrategy;
+import com.nikogrid.backend.spatial.TileKey;
+import com.nikogrid.backend.spatial.Viewport;
+import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.test.context.support.TestExecutionEvent;
@@ -30,15 +53,27 @@ import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(LocationController.class)
@@ -53,6 +88,12 @@ class LocationControllerTest {
     @MockitoBean
     private LocationService locationService;
 
+    @MockitoBean
+    private AvailabilityStreamService availabilityStreamService;
+
+    @MockitoBean
+    private ChargerScheduleService scheduleService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -176,8 +217,62 @@ class LocationControllerTest {
                 Mockito.anyFloat(),
                 Mockito.anyFloat(),
                 Mockito.anyInt(),
-                Mockito.anyBoolean()
+                Mockito.anyBoolean(),
+                Mockito.any()
+        );
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyDiffOk() throws Exception {
+        final NearbyDiffDTO diff = NearbyDiffDTO.incremental(
+                "e-5",
+                List.of(TileContentsDTO.of(new TileKey(4, 10, 7), List.of(new ClusterInterestPoint(45f, 0f, 3)))),
+                List.of(new TileKey(4, 8, 7))
         );
+        Mockito.when(locationService.getNearbyDiff(
+                new Viewport(1, 1, 44, 10, 4), "e-3", new Viewport(23.5f, 1, 66.5f, 10, 4), true, null
+        )).thenReturn(diff);
+
+        mvc.perform(get("/api/v1/locations/nearby/diff")
+                        .param("w", "23.5")
+                        .param("e", "66.5")
+                        .param("s", "1")
+                        .param("n", "10")
+                        .param("z", "4")
+                        .param("pw", "1")
+                        .param("pe", "44")
+                        .param("ps", "1")
+                        .param("pn", "10")
+                        .param("pz", "4")
+                        .param("v", "e-3")
+                        .param("onlyActive", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value("e-5"))
+                .andExpect(jsonPath("$.full").value(false))
+                .andExpect(jsonPath("$.tiles[0].x").value(10))
+                .andExpect(jsonPath("$.tiles[0].points[0].numPoints").value(3))
+                .andExpect(jsonPath("$.removed[0].x").value(8));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyDiffInvalidPreviousEnvelope() throws Exception {
+        mvc.perform(get("/api/v1/locations/nearby/diff")
+                        .param("w", "-10")
+                        .param("e", "10")
+                        .param("s", "-10")
+                        .param("n", "10")
+                        .param("z", "4")
+                        .param("pw", "10")
+                        .param("pe", "-10")
+                        .param("ps", "-10")
+                        .param("pn", "10")
+                        .param("pz", "4")
+                        .param("v", "e-3"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(locationService);
     }
 
     @Test
@@ -185,7 +280,7 @@ class LocationControllerTest {
     void getNearbyLocationsOk() throws Exception {
         final List<InterestPointBaseDTO> res = List.of(
                 new ClusterInterestPoint(21.5f, 30.0f, 2),
-                new LocationInterestPoint(21.5f, 30.0f, 2, "Test")
+                new LocationInterestPoint(21.5f, 30.0f, 2, "Test", 2, 1, 22f)
         );
 
         Mockito.when(locationService.getNearbyLocations(
@@ -194,7 +289,8 @@ class LocationControllerTest {
                 Mockito.anyFloat(),
                 Mockito.anyFloat(),
                 Mockito.anyInt(),
-                Mockito.anyBoolean()
+                Mockito.anyBoolean(),
+                Mockito.any()
         )).thenReturn(res);
 
         mvc.perform(get("/api/v1/locations/nearby")
@@ -214,10 +310,214 @@ class LocationControllerTest {
                 180,
                 90,
                 0,
-                false
+                false,
+                null
         );
     }
 
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyLocationsWithClustering() throws Exception {
+        Mockito.when(locationService.getNearbyLocations(
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyInt(),
+                Mockito.anyBoolean(),
+                Mockito.any(),
+                Mockito.any()
+        )).thenReturn(List.of());
+
+        mvc.perform(get("/api/v1/locations/nearby")
+                        .param("w", "-180")
+                        .param("e", "180")
+                        .param("s", "-90")
+                        .param("n", "90")
+                        .param("z", "0")
+                        .param("clustering", "GRID")
+                        .param("include", "chargers")
+                )
+                .andExpect(status().isOk());
+
+        Mockito.verify(locationService, Mockito.times(1)).getNearbyLocations(
+                -180,
+                -90,
+                180,
+                90,
+                0,
+                false,
+                ClusteringStrategy.GRID,
+                null
+        );
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyLocationsUnknownClustering() throws Exception {
+        mvc.perform(get("/api/v1/locations/nearby")
+                        .param("w", "-180")
+                        .param("e", "180")
+                        .param("s", "-90")
+                        .param("n", "90")
+                        .param("z", "0")
+                        .param("clustering", "kmeans")
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void streamNearbyLocations() throws Exception {
+        final List<InterestPointBaseDTO> res = List.of(
+                new ClusterInterestPoint(21.5f, 30.0f, 2),
+                new LocationInterestPoint(21.5f, 30.0f, 2, "Test", 2, 1, 22f)
+        );
+
+        // The body is written on another thread while the security filters are still adding headers
+        // to the same mock response, so only start writing once the request has returned
+        final CountDownLatch requestReturned = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            final Consumer<InterestPointBaseDTO> consumer = invocation.getArgument(9);
+            requestReturned.await();
+            res.forEach(consumer);
+            return null;
+        }).when(locationService).streamNearbyLocations(
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyInt(),
+                Mockito.anyBoolean(),
+                Mockito.eq(ClusteringStrategy.GRID),
+                Mockito.eq(true),
+                Mockito.any(),
+                Mockito.any()
+        );
+
+        final MvcResult result = mvc.perform(get("/api/v1/locations/nearby")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .param("w", "-180")
+                        .param("e", "180")
+                        .param("s", "-90")
+                        .param("n", "90")
+                        .param("z", "0")
+                        .param("clustering", "GRID")
+                        .param("include", "chargers")
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        requestReturned.countDown();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"t\":\"C\",\"lon\":21.5,\"lat\":30.0,\"numPoints\":2}\n"
+                                + "{\"t\":\"L\",\"lon\":21.5,\"lat\":30.0,\"id\":2,\"n\":\"Test\",\"c\":2,\"a\":1,\"p\":22.0}\n"));
+
+        Mockito.verify(locationService, Mockito.never()).getNearbyLocations(
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyInt(),
+                Mockito.anyBoolean(),
+                Mockito.any()
+        );
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyLocationsProtobuf() throws Exception {
+        final List<InterestPointBaseDTO> res = List.of(
+                new ClusterInterestPoint(21.5f, 30.0f, 2),
+                new LocationInterestPoint(21.5f, 30.0f, 2, "Test", 2, 1, 22f)
+        );
+
+        Mockito.when(locationService.getNearbyLocations(
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyInt(),
+                Mockito.anyBoolean(),
+                Mockito.any()
+        )).thenReturn(res);
+
+        mvc.perform(get("/api/v1/locations/nearby")
+                        .accept(InterestPointsProtobufConverter.MEDIA_TYPE)
+                        .param("w", "-180")
+                        .param("e", "180")
+                        .param("s", "-90")
+                        .param("n", "90")
+                        .param("z", "0")
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(InterestPointsProtobufConverter.MEDIA_TYPE))
+                .andExpect(content().bytes(InterestPointsProtobufConverter.encode(res)));
+    }
+
+    @ParameterizedTest
+    @CsvSource(textBlock = """
+            # Zoom, X, Y
+            -1,0,0
+            19,0,0
+            0,1,0
+            0,0,1
+            2,-1,0
+            2,4,0
+            """)
+    @Requirement("NIK-37")
+    void getVectorTileBadData(int zoom, int x, int y) throws Exception {
+        mvc.perform(get("/api/v1/locations/tiles/{z}/{x}/{y}.mvt", zoom, x, y))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE));
+
+        Mockito.verify(locationService, Mockito.never()).getVectorTile(Mockito.any(), Mockito.anyBoolean());
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getVectorTileOk() throws Exception {
+        final byte[] tile = {0x1a, 0x00};
+        Mockito.when(locationService.getDatasetVersion()).thenReturn("abc-1");
+        Mockito.when(locationService.getVectorTile(new TileKey(2, 1, 3), true)).thenReturn(tile);
+
+        mvc.perform(get("/api/v1/locations/tiles/{z}/{x}/{y}.mvt", 2, 1, 3)
+                        .param("onlyActive", "true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(LocationController.VECTOR_TILE_VALUE))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-1\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, public"))
+                .andExpect(content().bytes(tile));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getVectorTileCurrentVersionIsImmutable() throws Exception {
+        Mockito.when(locationService.getDatasetVersion()).thenReturn("abc-1");
+        Mockito.when(locationService.getVectorTile(Mockito.any(), Mockito.anyBoolean())).thenReturn(new byte[0]);
+
+        mvc.perform(get("/api/v1/locations/tiles/{z}/{x}/{y}.mvt", 0, 0, 0)
+                        .param("v", "abc-1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getVectorTileNotModified() throws Exception {
+        Mockito.when(locationService.getDatasetVersion()).thenReturn("abc-1");
+
+        mvc.perform(get("/api/v1/locations/tiles/{z}/{x}/{y}.mvt", 0, 0, 0)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc-1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-1\""));
+
+        Mockito.verify(locationService, Mockito.never()).getVectorTile(Mockito.any(), Mockito.anyBoolean());
+    }
+
     @Test
     @Requirement("NIK-24")
     void getClosestAvailableLocationBadData() throws Exception {
@@ -230,7 +530,8 @@ class LocationControllerTest {
 
         Mockito.verify(locationService, Mockito.never()).getClosestAvailable(
                 Mockito.anyFloat(),
-                Mockito.anyFloat()
+                Mockito.anyFloat(),
+                Mockito.any()
         );
     }
 
@@ -239,7 +540,8 @@ class LocationControllerTest {
     void getClosestAvailableLocationNotFound() throws Exception {
         Mockito.when(locationService.getClosestAvailable(
                 Mockito.anyFloat(),
-                Mockito.anyFloat()
+                Mockito.anyFloat(),
+                Mockito.any()
         )).thenThrow(new ResourceNotFound());
 
         mvc.perform(get("/api/v1/locations/closest")
@@ -251,7 +553,8 @@ class LocationControllerTest {
 
         Mockito.verify(locationService, Mockito.times(1)).getClosestAvailable(
                 20,
-                30
+                30,
+                null
         );
     }
 
@@ -268,7 +571,8 @@ class LocationControllerTest {
 
         Mockito.when(locationService.getClosestAvailable(
                 Mockito.anyFloat(),
-                Mockito.anyFloat()
+                Mockito.anyFloat(),
+                Mockito.any()
         )).thenReturn(location);
 
         mvc.perform(get("/api/v1/locations/closest")
@@ -281,8 +585,191 @@ class LocationControllerTest {
 
         Mockito.verify(locationService, Mockito.times(1)).getClosestAvailable(
                 20,
-                30
+                30,
+                null
+        );
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void getClosestLocationsOk() throws Exception {
+        final List<ClosestLocationDTO> res = List.of(new ClosestLocationDTO(
+                1, "Test", 35.0f, 25.0f, 1234.5, List.of(new ChargerDTO(2, "E2", true, 150))));
+
+        // The version behind the ETag is the one the result is computed for
+        Mockito.when(locationService.getDatasetVersion()).thenReturn("abc-4");
+        Mockito.when(locationService.getClosestLocations(20, 30, 3, 50, false, "abc-4")).thenReturn(res);
+
+        mvc.perform(get("/api/v1/locations/closest")
+                        .param("lat", "30")
+                        .param("lon", "20")
+                        .param("k", "3")
+                        .param("minPower", "50")
+                        .param("onlyAvailable", "false")
+                )
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-4\""))
+                .andExpect(content().json(objectMapper.writeValueAsString(res)));
+
+        Mockito.verify(locationService, Mockito.never()).getClosestAvailable(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.any());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0,0", "101,0", "3,-1"})
+    @Requirement("NIK-24")
+    void getClosestLocationsBadData(String k, String minPower) throws Exception {
+        mvc.perform(get("/api/v1/locations/closest")
+                        .param("lat", "30")
+                        .param("lon", "20")
+                        .param("k", k)
+                        .param("minPower", minPower)
+                )
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(locationService);
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void getCorridorLocationsOk() throws Exception {
+        final CorridorLocationDTO location = new CorridorLocationDTO(1, "Test", 38.5f, -120.2f, 2, 1, 22, 10, 5);
+        Mockito.doAnswer(invocation -> {
+            invocation.<Consumer<CorridorLocationDTO>>getArgument(3).accept(location);
+            return null;
+        }).when(locationService).streamCorridorLocations(Mockito.any(), Mockito.eq(2000f), Mockito.eq(true), Mockito.any());
+
+        mvc.perform(post("/api/v1/locations/corridor")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CorridorSearch("_p~iF~ps|U_ulLnnqC_mqNvxq`@", 2000f, null)))
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(location))));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"_p~iF~ps|U,2000", "_p~iF~ps|,2000", "_p~iF~ps|U_ulLnnqC,-1", "_p~iF~ps|U_ulLnnqC,60000"})
+    @Requirement("NIK-24")
+    void getCorridorLocationsBadData(String polyline, float maxDetour) throws Exception {
+        mvc.perform(post("/api/v1/locations/corridor")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CorridorSearch(polyline, maxDetour, true)))
+                )
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(locationService);
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void getClosestLocationsBatchFailsOnlyInvalidPoints() throws Exception {
+        final ClosestBatchPoint valid = new ClosestBatchPoint(20f, 30f, 2, null);
+        final ClosestBatchPoint invalid = new ClosestBatchPoint(20f, 95f, null, null);
+        final ClosestLocationDTO location = new ClosestLocationDTO(1, "Test", 30.0f, 20.0f, 12.5, List.of());
+        Mockito.when(locationService.getClosestLocations(List.of(valid), false)).thenReturn(List.of(List.of(location)));
+
+        mvc.perform(post("/api/v1/locations/closest/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ClosestBatchRequest(List.of(invalid, valid), false)))
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].error").value("lat must be less than or equal to 90"))
+                .andExpect(jsonPath("$[0].locations").doesNotExist())
+                .andExpect(jsonPath("$[1].locations[0].id").value(1))
+                .andExpect(jsonPath("$[1].error").doesNotExist());
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void getClosestLocationsBatchEmpty() throws Exception {
+        mvc.perform(post("/api/v1/locations/closest/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ClosestBatchRequest(List.of(), null)))
+                )
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(locationService);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyLocationsIncludesChargers() throws Exception {
+        final List<InterestPointBaseDTO> points = List.of(new LocationInterestPoint(21.5f, 30.0f, 2, "Test", 1, 1, 22f));
+        final List<InterestPointBaseDTO> embedded = List.of(((LocationInterestPoint) points.get(0))
+                .withChargers(List.of(new ChargerDTO(5, "E1", true, 22f))));
+
+        Mockito.when(locationService.getNearbyLocations(-10, -10, 10, 10, 18, false, null)).thenReturn(points);
+        Mockito.when(locationService.embedChargers(points)).thenReturn(embedded);
+
+        mvc.perform(get("/api/v1/locations/nearby")
+                        .param("w", "-10")
+                        .param("e", "10")
+                        .param("s", "-10")
+                        .param("n", "10")
+                        .param("z", "18")
+                        .param("include", "chargers")
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].cs[0].id").value(5))
+                .andExpect(jsonPath("$[0].cs[0].name").value("E1"));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyLocationsUnknownInclude() throws Exception {
+        mvc.perform(get("/api/v1/locations/nearby")
+                        .param("w", "-10")
+                        .param("e", "10")
+                        .param("s", "-10")
+                        .param("n", "10")
+                        .param("z", "18")
+                        .param("include", "reservations")
+                )
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(locationService);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getLocationDetailsOk() throws Exception {
+        final List<LocationDetailsDTO> details = List.of(
+                new LocationDetailsDTO(3, "Third", 40, -8, List.of(new ChargerDTO(7, "E1", false, 50f))),
+                new LocationDetailsDTO(1, "First", 41, -8, List.of())
         );
+        Mockito.when(locationService.getLocationDetails(List.of(3L, 2L, 1L))).thenReturn(details);
+
+        mvc.perform(get("/api/v1/locations").param("ids", "3,2,1"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(details)));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getLocationDetailsPost() throws Exception {
+        Mockito.when(locationService.getLocationDetails(List.of(1L, 2L))).thenReturn(List.of());
+
+        mvc.perform(post("/api/v1/locations/details")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LocationDetailsRequest(List.of(1L, 2L))))
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+
+        Mockito.verify(locationService, Mockito.times(1)).getLocationDetails(List.of(1L, 2L));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getLocationDetailsTooManyIds() throws Exception {
+        final String ids = IntStream.rangeClosed(1, LocationController.MAX_DETAILS_IDS + 1)
+                .mapToObj(Integer::toString)
+                .collect(Collectors.joining(","));
+
+        mvc.perform(get("/api/v1/locations").param("ids", ids))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(locationService);
     }
 
     @Test
@@ -317,4 +804,269 @@ class LocationControllerTest {
 
         Mockito.verify(locationService, Mockito.times(1)).getLocationById(1L);
     }
-}
\ No newline at end of file
+
+    @Test
+    @Requirement("NIK-37")
+    void getLocationByIdSendsLocationVersion() throws Exception {
+        final Location location = new Location();
+        location.setId(1L);
+        location.setName("Test");
+
+        Mockito.when(locationService.getLocationVersion(1L)).thenReturn("abc-4");
+        Mockito.when(locationService.getLocationById(1L)).thenReturn(location);
+
+        mvc.perform(get("/api/v1/locations/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-4\""));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getLocationByIdNotModified() throws Exception {
+        final Location location = new Location();
+        location.setId(1L);
+
+        Mockito.when(locationService.getLocationVersion(1L)).thenReturn("abc-4");
+        Mockito.when(locationService.getLocationById(1L)).thenReturn(location);
+
+        mvc.perform(get("/api/v1/locations/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc-4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getLocationByIdUnknownIgnoresCachedVersion() throws Exception {
+        Mockito.when(locationService.getLocationVersion(1L)).thenReturn("abc-4");
+        Mockito.when(locationService.getLocationById(1L)).thenThrow(new ResourceNotFound());
+
+        mvc.perform(get("/api/v1/locations/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc-4\""))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void getClosestAvailableLocationNotModified() throws Exception {
+        Mockito.when(locationService.getDatasetVersion()).thenReturn("abc-4");
+
+        mvc.perform(get("/api/v1/locations/closest")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc-4\"")
+                        .param("lat", "30")
+                        .param("lon", "20")
+                )
+                .andExpect(status().isNotModified());
+
+        Mockito.verify(locationService, Mockito.never()).getClosestAvailable(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.any());
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyLocationsSendsWeakEtag() throws Exception {
+        Mockito.when(locationService.getDatasetVersion()).thenReturn("abc-4");
+        Mockito.when(locationService.getNearbyLocations(
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyInt(),
+                Mockito.anyBoolean(),
+                Mockito.any()
+        )).thenReturn(List.of());
+
+        mvc.perform(get("/api/v1/locations/nearby")
+                        .param("w", "-180")
+                        .param("e", "180")
+                        .param("s", "-90")
+                        .param("n", "90")
+                        .param("z", "0")
+                )
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"abc-4\""))
+                .andExpect(header().stringValues(HttpHeaders.VARY, Matchers.hasItem(HttpHeaders.ACCEPT)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {MediaType.APPLICATION_JSON_VALUE, InterestPointsProtobufConverter.MEDIA_TYPE_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Requirement("NIK-37")
+    void getNearbyLocationsNotModified(String accept) throws Exception {
+        Mockito.when(locationService.getDatasetVersion()).thenReturn("abc-4");
+
+        mvc.perform(get("/api/v1/locations/nearby")
+                        .accept(accept)
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"abc-4\"")
+                        .param("w", "-180")
+                        .param("e", "180")
+                        .param("s", "-90")
+                        .param("n", "90")
+                        .param("z", "0")
+                )
+                .andExpect(status().isNotModified());
+
+        Mockito.verify(locationService, Mockito.never()).getNearbyLocations(
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyInt(),
+                Mockito.anyBoolean(),
+                Mockito.any()
+        );
+        Mockito.verify(locationService, Mockito.never()).streamNearbyLocations(
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyInt(),
+                Mockito.anyBoolean(),
+                Mockito.any(),
+                Mockito.anyBoolean(),
+                Mockito.any(),
+                Mockito.any()
+        );
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getHeatmapOk() throws Exception {
+        final HeatmapDTO heatmap = new HeatmapDTO(4, List.of(new HeatmapCellDTO(9, 6, 3, 1, 66.0)));
+        Mockito.when(locationService.getHeatmap(10f, 40f, 20f, 50f, 1)).thenReturn(Optional.of(heatmap));
+
+        mvc.perform(get("/api/v1/locations/heatmap")
+                        .param("w", "10")
+                        .param("e", "20")
+                        .param("s", "40")
+                        .param("n", "50")
+                        .param("z", "1")
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(heatmap)));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getHeatmapWhileLoading() throws Exception {
+        Mockito.when(locationService.getHeatmap(
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyInt()
+        )).thenReturn(Optional.empty());
+
+        mvc.perform(get("/api/v1/locations/heatmap")
+                        .param("w", "10")
+                        .param("e", "20")
+                        .param("s", "40")
+                        .param("n", "50")
+                        .param("z", "1")
+                )
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getHeatmapInvalidEnvelope() throws Exception {
+        mvc.perform(get("/api/v1/locations/heatmap")
+                        .param("w", "20")
+                        .param("e", "10")
+                        .param("s", "40")
+                        .param("n", "50")
+                        .param("z", "1")
+                )
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(locationService);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void streamAvailabilityOk() throws Exception {
+        final SseEmitter emitter = new SseEmitter();
+        Mockito.when(availabilityStreamService.subscribe(10f, 40f, 20f, 50f)).thenReturn(Optional.of(emitter));
+
+        final MvcResult result = mvc.perform(get("/api/v1/locations/availability/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .param("w", "10")
+                        .param("e", "20")
+                        .param("s", "40")
+                        .param("n", "50")
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        emitter.send(SseEmitter.event().name(AvailabilityStreamService.EVENT_NAME).data("{}"));
+        emitter.complete();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string("event:availability\ndata:{}\n\n"));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void streamAvailabilityTooManySubscribers() throws Exception {
+        Mockito.when(availabilityStreamService.subscribe(
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat(),
+                Mockito.anyFloat()
+        )).thenReturn(Optional.empty());
+
+        mvc.perform(get("/api/v1/locations/availability/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .param("w", "10")
+                        .param("e", "20")
+                        .param("s", "40")
+                        .param("n", "50")
+                )
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void streamAvailabilityInvalidEnvelope() throws Exception {
+        mvc.perform(get("/api/v1/locations/availability/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .param("w", "20")
+                        .param("e", "10")
+                        .param("s", "40")
+                        .param("n", "50")
+                )
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(availabilityStreamService);
+    }
+
+    @Test
+    @WithMockUser
+    @Requirement("NIK-12")
+    void getLocationAvailability() throws Exception {
+        final Instant from = Instant.parse("2025-01-01T10:00:00Z");
+        final Instant to = Instant.parse("2025-01-01T12:00:00Z");
+        Mockito.when(scheduleService.getLocationSchedule(1L, from, to)).thenReturn(List.of(
+                new ChargerScheduleDTO(1L, true, List.of(new TimeSlotDTO(from, Instant.parse("2025-01-01T11:00:00Z")))),
+                new ChargerScheduleDTO(2L, false, List.of())));
+
+        mvc.perform(get("/api/v1/locations/1/availability")
+                        .param("from", from.toString())
+                        .param("to", to.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].chargerId").value(1))
+                .andExpect(jsonPath("$[0].free[0].end").value("2025-01-01T11:00:00Z"))
+                .andExpect(jsonPath("$[1].free").isEmpty());
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void getLocationAvailabilityNoAuth() throws Exception {
+        mvc.perform(get("/api/v1/locations/1/availability"))
+                .andExpect(status().isUnauthorized());
+
+        Mockito.verifyNoInteractions(scheduleService);
+    }
+}
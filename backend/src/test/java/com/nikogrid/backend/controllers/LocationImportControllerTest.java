@@ -0,0 +1,180 @@
+package com.nikogrid.backend.controllers;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nikogrid.backend.TestSecurityBeans;
+import com.nikogrid.backend.auth.SecurityConfig;
+import com.nikogrid.backend.dto.ImportProgressDTO;
+import com.nikogrid.backend.dto.ImportResultDTO;
+import com.nikogrid.backend.entities.BackendUserDetails;
+import com.nikogrid.backend.entities.User;
+import com.nikogrid.backend.exceptions.ImportInProgress;
+import com.nikogrid.backend.exceptions.InvalidImportData;
+import com.nikogrid.backend.services.LocationImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.test.context.support.TestExecutionEvent;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(LocationImportController.class)
+@ActiveProfiles("test")
+@Import({SecurityConfig.class, TestSecurityBeans.class})
+class LocationImportControllerTest {
+    private static final String CSV = """
+            Name,Latitude,Longitude,Address,Charger Type,Cost (USD/kWh),Availability,Distance to City (km),Usage Stats (avg users/day),Station Operator,Charging Capacity (kW),Connector Types,Installation Year,Renewable Energy Source,Reviews (Rating),Parking Spots,Maintenance Frequency
+            EVS00001,-33.400998,77.974972,"4826 Random Rd, City 98, Country",AC Level 2,0.27,9:00-18:00,4.95,35,EVgo,350,"CCS, CHAdeMO",2013,Yes,4.0,7,Annually
+            """;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mvc;
+
+    @MockitoBean
+    private LocationImportService importService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private UserDetailsService userDetailsService;
+
+    @BeforeEach
+    void setup() {
+        mvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(springSecurity())
+                .build();
+
+        final User user = new User();
+        user.setEmail("test@test.com");
+        user.setPassword("password");
+        user.setAdmin(true);
+
+        Mockito.when(userDetailsService.loadUserByUsername(Mockito.anyString()))
+                .thenReturn(new BackendUserDetails(user));
+    }
+
+    @Test
+    @Requirement("NIK-20")
+    void importNoAuth() throws Exception {
+        mvc.perform(post("/api/v1/locations/import")
+                        .contentType(LocationImportController.CSV_VALUE)
+                        .content(CSV))
+                .andExpect(status().isUnauthorized());
+
+        Mockito.verifyNoInteractions(importService);
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-20")
+    void importCsvOk() throws Exception {
+        final ImportResultDTO result = new ImportResultDTO(1, 1, 0, 1, 0, 12);
+        Mockito.when(importService.importLocations(Mockito.any(), Mockito.eq(LocationImportService.Format.CSV), Mockito.any()))
+                .thenAnswer(i -> {
+                    final InputStream body = i.getArgument(0);
+                    assertThat(new String(body.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(CSV);
+                    return result;
+                });
+
+        mvc.perform(post("/api/v1/locations/import")
+                        .contentType(LocationImportController.CSV_VALUE)
+                        .content(CSV))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(result)));
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-20")
+    void importNdjsonOk() throws Exception {
+        final ImportResultDTO result = new ImportResultDTO(1, 0, 1, 0, 0, 3);
+        Mockito.when(importService.importLocations(Mockito.any(), Mockito.eq(LocationImportService.Format.NDJSON), Mockito.any()))
+                .thenReturn(result);
+
+        mvc.perform(post("/api/v1/locations/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"locationRef\":\"a\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.locationsUpdated").value(1));
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-20")
+    void importUnsupportedFormat() throws Exception {
+        mvc.perform(post("/api/v1/locations/import")
+                        .contentType(MediaType.APPLICATION_XML)
+                        .content("<a/>"))
+                .andExpect(status().isUnsupportedMediaType());
+
+        Mockito.verifyNoInteractions(importService);
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-20")
+    void importAlreadyRunning() throws Exception {
+        Mockito.when(importService.importLocations(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenThrow(new ImportInProgress());
+
+        mvc.perform(post("/api/v1/locations/import")
+                        .contentType(LocationImportController.CSV_VALUE)
+                        .content(CSV))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-20")
+    void importInvalidData() throws Exception {
+        Mockito.when(importService.importLocations(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenThrow(new InvalidImportData("Line 2: bad latitude"));
+
+        mvc.perform(post("/api/v1/locations/import")
+                        .contentType(LocationImportController.CSV_VALUE)
+                        .content(CSV))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("Line 2: bad latitude"));
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-20")
+    void getProgress() throws Exception {
+        Mockito.when(importService.getProgress()).thenReturn(Optional.empty());
+        mvc.perform(get("/api/v1/locations/import/progress"))
+                .andExpect(status().isNotFound());
+
+        Mockito.when(importService.getProgress())
+                .thenReturn(Optional.of(new ImportProgressDTO(ImportProgressDTO.Phase.COPYING, 100_000, 4_000_000)));
+        mvc.perform(get("/api/v1/locations/import/progress"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.phase").value("COPYING"))
+                .andExpect(jsonPath("$.rows").value(100_000));
+    }
+}
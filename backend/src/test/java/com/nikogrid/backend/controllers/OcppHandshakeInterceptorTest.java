@@ -0,0 +1,88 @@
+package com.nikogrid.backend.controllers;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.services.ChargerService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OcppHandshakeInterceptorTest {
+    private final ChargerService chargerService = Mockito.mock(ChargerService.class);
+
+    private final OcppHandshakeInterceptor interceptor = new OcppHandshakeInterceptor(chargerService);
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    private boolean handshake(String path, String authorization) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        if (authorization != null) request.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+
+        final ServletServerHttpResponse serverResponse = new ServletServerHttpResponse(response);
+        final boolean accepted = interceptor.beforeHandshake(
+                new ServletServerHttpRequest(request), serverResponse, null, attributes);
+        serverResponse.close();
+        return accepted;
+    }
+
+    private static String basic(String user, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void acceptsChargePointWithItsKey() {
+        Mockito.when(chargerService.isOcppKeyValid(7L, "secret")).thenReturn(true);
+
+        assertThat(handshake("/ocpp/7", basic("7", "secret"))).isTrue();
+
+        assertThat(attributes).containsEntry(OcppHandshakeInterceptor.CHARGER_ID, 7L);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void rejectsWrongKey() {
+        Mockito.when(chargerService.isOcppKeyValid(7L, "guess")).thenReturn(false);
+
+        assertThat(handshake("/ocpp/7", basic("7", "guess"))).isFalse();
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getHeader(HttpHeaders.WWW_AUTHENTICATE)).startsWith("Basic");
+        assertThat(attributes).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void rejectsCredentialsOfAnotherChargePoint() {
+        Mockito.when(chargerService.isOcppKeyValid(8L, "secret")).thenReturn(true);
+
+        assertThat(handshake("/ocpp/7", basic("8", "secret"))).isFalse();
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        Mockito.verifyNoInteractions(chargerService);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void rejectsMissingOrMalformedCredentials() {
+        assertThat(handshake("/ocpp/7", null)).isFalse();
+        assertThat(handshake("/ocpp/7", "Bearer token")).isFalse();
+        assertThat(handshake("/ocpp/7", "Basic not-base64!")).isFalse();
+        assertThat(handshake("/ocpp/CP01", basic("CP01", "secret"))).isFalse();
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        Mockito.verifyNoInteractions(chargerService);
+    }
+}
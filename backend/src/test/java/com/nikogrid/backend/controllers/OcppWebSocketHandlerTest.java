@@ -0,0 +1,118 @@
+package com.nikogrid.backend.controllers;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nikogrid.backend.dto.ChargerStatusDTO;
+import com.nikogrid.backend.services.ChargerStatusIngestionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OcppWebSocketHandlerTest {
+    private final ChargerStatusIngestionService ingestionService = Mockito.mock(ChargerStatusIngestionService.class);
+
+    private final OcppWebSocketHandler handler = new OcppWebSocketHandler(
+            ingestionService,
+            new ObjectMapper(),
+            Clock.fixed(Instant.parse("2025-05-01T10:00:00Z"), ZoneOffset.UTC),
+            Duration.ofMinutes(5)
+    );
+
+    private final WebSocketSession session = Mockito.mock(WebSocketSession.class);
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    @BeforeEach
+    void setup() {
+        attributes.put(OcppHandshakeInterceptor.CHARGER_ID, 7L);
+        Mockito.when(session.getAttributes()).thenReturn(attributes);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void statusNotificationIsSubmitted() throws Exception {
+        Mockito.when(ingestionService.submit(Mockito.any())).thenReturn(true);
+        handler.afterConnectionEstablished(session);
+
+        assertThat(call("[2,\"a\",\"StatusNotification\",{\"connectorId\":1,\"errorCode\":\"NoError\",\"status\":\"Charging\"}]"))
+                .isEqualTo("[3,\"a\",{}]");
+        assertThat(call("[2,\"b\",\"StatusNotification\",{\"connectorId\":1,\"errorCode\":\"NoError\",\"status\":\"Available\"}]"))
+                .isEqualTo("[3,\"b\",{}]");
+
+        Mockito.verify(ingestionService).submit(List.of(new ChargerStatusDTO(7L, false)));
+        Mockito.verify(ingestionService).submit(List.of(new ChargerStatusDTO(7L, true)));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void statusNotificationWhenBacklogIsFull() throws Exception {
+        Mockito.when(ingestionService.submit(Mockito.any())).thenReturn(false);
+        handler.afterConnectionEstablished(session);
+
+        assertThat(call("[2,\"a\",\"StatusNotification\",{\"status\":\"Available\"}]"))
+                .startsWith("[4,\"a\",\"InternalError\"");
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void bootAndHeartbeat() throws Exception {
+        handler.afterConnectionEstablished(session);
+
+        assertThat(call("[2,\"a\",\"BootNotification\",{\"chargePointVendor\":\"X\",\"chargePointModel\":\"Y\"}]"))
+                .isEqualTo("[3,\"a\",{\"status\":\"Accepted\",\"currentTime\":\"2025-05-01T10:00:00Z\",\"interval\":300}]");
+        assertThat(call("[2,\"b\",\"Heartbeat\",{}]"))
+                .isEqualTo("[3,\"b\",{\"currentTime\":\"2025-05-01T10:00:00Z\"}]");
+        assertThat(call("[2,\"c\",\"Authorize\",{\"idTag\":\"1\"}]"))
+                .startsWith("[4,\"c\",\"NotImplemented\"");
+        assertThat(call("[3,\"d\",{}]"))
+                .startsWith("[4,\"d\",\"FormationViolation\"");
+
+        Mockito.verifyNoInteractions(ingestionService);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void malformedMessageClosesSession() throws Exception {
+        handler.afterConnectionEstablished(session);
+
+        handler.handleMessage(session, new TextMessage("not json"));
+
+        Mockito.verify(session).close(CloseStatus.BAD_DATA);
+        Mockito.verify(session, Mockito.never()).sendMessage(Mockito.any());
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void rejectsUnauthenticatedSessions() throws Exception {
+        attributes.clear();
+
+        handler.afterConnectionEstablished(session);
+        handler.handleMessage(session, new TextMessage("[2,\"a\",\"StatusNotification\",{\"status\":\"Available\"}]"));
+
+        Mockito.verify(session).close(CloseStatus.POLICY_VIOLATION);
+        Mockito.verifyNoInteractions(ingestionService);
+    }
+
+    private String call(String message) throws Exception {
+        Mockito.clearInvocations(session);
+        handler.handleMessage(session, new TextMessage(message));
+
+        final ArgumentCaptor<TextMessage> response = ArgumentCaptor.forClass(TextMessage.class);
+        Mockito.verify(session).sendMessage(response.capture());
+        return response.getValue().getPayload();
+    }
+}
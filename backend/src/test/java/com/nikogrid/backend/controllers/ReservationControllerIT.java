@@ -5,6 +5,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nikogrid.backend.TestcontainersConfiguration;
 import com.nikogrid.backend.dto.CreateReservation;
+import com.nikogrid.backend.dto.CreateReservationBatch;
 import com.nikogrid.backend.dto.ReservationDTO;
 import com.nikogrid.backend.dto.ReservationListDTO;
 import com.nikogrid.backend.entities.Charger;
@@ -15,16 +16,26 @@ import com.nikogrid.backend.repositories.ChargerRepository;
 import com.nikogrid.backend.repositories.LocationRepository;
 import com.nikogrid.backend.repositories.ReservationRepository;
 import com.nikogrid.backend.repositories.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hamcrest.Matchers;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.security.test.context.support.TestExecutionEvent;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.bean.override.convention.TestBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
@@ -45,9 +56,10 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @Import(TestcontainersConfiguration.class)
 class ReservationControllerIT {
     @Autowired
@@ -72,9 +84,15 @@ class ReservationControllerIT {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @TestBean
     private Clock clock;
 
+    @MockitoSpyBean
+    private JdbcTemplate jdbcTemplate;
+
     static Clock clock() {
         return Clock.fixed(Instant.parse("2024-01-01T12:00:00.000Z"), ZoneId.of("UTC"));
     }
@@ -371,4 +389,119 @@ class ReservationControllerIT {
         mvc.perform(delete("/api/v1/reservations/{id}", reservation.getId()))
                 .andExpect(status().isNoContent());
     }
+
+    @Test
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-13")
+    void getReservationTakesOneStatement() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            final Reservation reservation = new Reservation();
+            reservation.setUser(this.testUser);
+            reservation.setStartsAt(Instant.now().plus(i + 1, ChronoUnit.HOURS));
+            reservation.setEndsAt(Instant.now().plus(i + 2, ChronoUnit.HOURS));
+            reservation.setCharger(makeCharger(true));
+            this.reservationRepository.save(reservation);
+        }
+
+        final Statistics statistics = statistics();
+        statistics.clear();
+
+        mvc.perform(get("/api/v1/reservations/"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private Statistics statistics() {
+        return this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * An existing reservation, one created, one in the way of the existing reservation, one in the way of
+     * the first of the batch and one created. The first starts with microseconds, which have to survive
+     * the round trip through the database to be matched back.
+     */
+    private List<CreateReservation> mixedBatch(Charger charger) {
+        final Reservation existing = new Reservation();
+        existing.setUser(this.testUser);
+        existing.setCharger(charger);
+        existing.setStartsAt(Instant.parse("2024-01-01T14:00:00Z"));
+        existing.setEndsAt(Instant.parse("2024-01-01T15:00:00Z"));
+        this.reservationRepository.save(existing);
+
+        return List.of(
+                new CreateReservation(charger.getId(), Instant.parse("2024-01-01T13:00:00.123456Z"), Instant.parse("2024-01-01T13:30:00Z")),
+                new CreateReservation(charger.getId(), Instant.parse("2024-01-01T14:30:00Z"), Instant.parse("2024-01-01T15:30:00Z")),
+                new CreateReservation(charger.getId(), Instant.parse("2024-01-01T13:15:00Z"), Instant.parse("2024-01-01T13:45:00Z")),
+                new CreateReservation(charger.getId(), Instant.parse("2024-01-01T16:00:00Z"), Instant.parse("2024-01-01T17:00:00Z")));
+    }
+
+    @Test
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-12")
+    void createReservationBatchBestEffort() throws Exception {
+        final Charger charger = makeCharger(true);
+        final List<CreateReservation> batch = mixedBatch(charger);
+
+        mvc.perform(post("/api/v1/reservations/batch")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(objectMapper.writeValueAsString(new CreateReservationBatch(batch, null, false))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.items[*].status").value(Matchers.contains("CREATED", "CONFLICT", "CONFLICT", "CREATED")))
+                .andExpect(jsonPath("$.items[1].conflictsWith.start").value("2024-01-01T14:00:00Z"))
+                .andExpect(jsonPath("$.items[2].conflictsWith.start").value("2024-01-01T13:00:00.123456Z"));
+
+        assertThat(this.reservationRepository.findAll())
+                .extracting(Reservation::getStartsAt)
+                .containsExactlyInAnyOrder(batch.get(0).start, Instant.parse("2024-01-01T14:00:00Z"), batch.get(3).start);
+    }
+
+    @Test
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-12")
+    void createReservationBatchAllOrNothing() throws Exception {
+        final Charger charger = makeCharger(true);
+        final List<CreateReservation> batch = mixedBatch(charger);
+
+        mvc.perform(post("/api/v1/reservations/batch")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(objectMapper.writeValueAsString(new CreateReservationBatch(batch, null, true))))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.created").value(0))
+                .andExpect(jsonPath("$.items[*].status").value(Matchers.contains("SKIPPED", "CONFLICT", "CONFLICT", "SKIPPED")))
+                .andExpect(jsonPath("$.items[1].conflictsWith.start").value("2024-01-01T14:00:00Z"));
+
+        assertThat(this.reservationRepository.findAll()).hasSize(1);
+    }
+
+    /** A reservation made between the check and the insert is left out by the exclusion constraint */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-12")
+    void createReservationBatchReportsReservationsMadeMeanwhile(boolean allOrNothing) throws Exception {
+        final Charger charger = makeCharger(true);
+        final List<CreateReservation> batch = List.of(
+                new CreateReservation(charger.getId(), Instant.parse("2024-01-01T13:00:00Z"), Instant.parse("2024-01-01T14:00:00Z")),
+                new CreateReservation(charger.getId(), Instant.parse("2024-01-01T16:00:00Z"), Instant.parse("2024-01-01T17:00:00Z")));
+        Mockito.doAnswer(invocation -> {
+            final Reservation meanwhile = new Reservation();
+            meanwhile.setUser(this.testUser);
+            meanwhile.setCharger(charger);
+            meanwhile.setStartsAt(Instant.parse("2024-01-01T16:30:00Z"));
+            meanwhile.setEndsAt(Instant.parse("2024-01-01T17:30:00Z"));
+            this.reservationRepository.save(meanwhile);
+            return invocation.callRealMethod();
+        }).when(this.jdbcTemplate).query(Mockito.startsWith("INSERT"), Mockito.any(RowCallbackHandler.class), Mockito.any(Object[].class));
+
+        mvc.perform(post("/api/v1/reservations/batch")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(objectMapper.writeValueAsString(new CreateReservationBatch(batch, null, allOrNothing))))
+                .andExpect(status().is(allOrNothing ? 409 : 201))
+                .andExpect(jsonPath("$.items[*].status").value(Matchers.contains(allOrNothing ? "SKIPPED" : "CREATED", "CONFLICT")))
+                .andExpect(jsonPath("$.items[1].conflictsWith.start").value("2024-01-01T16:30:00Z"));
+
+        assertThat(this.reservationRepository.findAll()).hasSize(allOrNothing ? 1 : 2);
+    }
 }
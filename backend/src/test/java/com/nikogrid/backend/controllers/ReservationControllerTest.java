@@ -6,7 +6,15 @@ import com.nikogrid.backend.TestSecurityBeans;
 import com.nikogrid.backend.auth.ReservationAuthzLogic;
 import com.nikogrid.backend.auth.SecurityConfig;
 import com.nikogrid.backend.dto.CreateReservation;
+import com.nikogrid.backend.dto.CreateReservationBatch;
+import com.nikogrid.backend.dto.ReservationBatchItemDTO;
+import com.nikogrid.backend.dto.ReservationBatchResultDTO;
+import com.nikogrid.backend.dto.ReservationCursor;
 import com.nikogrid.backend.dto.ReservationDTO;
+import com.nikogrid.backend.dto.ReservationListDTO;
+import com.nikogrid.backend.dto.ReservationPageDTO;
+import com.nikogrid.backend.dto.ReservationRecurrence;
+import com.nikogrid.backend.dto.TimeSlotDTO;
 import com.nikogrid.backend.entities.BackendUserDetails;
 import com.nikogrid.backend.entities.Charger;
 import com.nikogrid.backend.entities.Location;
@@ -14,6 +22,7 @@ import com.nikogrid.backend.entities.Reservation;
 import com.nikogrid.backend.entities.User;
 import com.nikogrid.backend.exceptions.ResourceNotFound;
 import com.nikogrid.backend.services.ChargerService;
+import com.nikogrid.backend.services.ReservationBatchService;
 import com.nikogrid.backend.services.ReservationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -35,6 +44,7 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.convention.TestBean;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
@@ -44,13 +54,19 @@ import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
 
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(ReservationController.class)
@@ -68,6 +84,9 @@ class ReservationControllerTest {
     @MockitoBean
     private ReservationService reservationService;
 
+    @MockitoBean
+    private ReservationBatchService batchService;
+
     @MockitoBean
     private ReservationAuthzLogic reservationAuthzLogic;
 
@@ -223,6 +242,36 @@ class ReservationControllerTest {
         Mockito.verify(reservationService, Mockito.times(1)).getUserReservations(Mockito.any());
     }
 
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-13")
+    void streamReservations() throws Exception {
+        final ReservationListDTO reservation = new ReservationListDTO(
+                1L, 2L, Instant.parse("2025-01-01T10:00:00Z"), Instant.parse("2025-01-01T11:00:00Z"), "AAA1", "Test", 22.0f);
+        // The body is written on another thread while the security filters are still adding headers
+        // to the same mock response, so only start writing once the request has returned
+        final CountDownLatch requestReturned = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            final Consumer<ReservationListDTO> consumer = invocation.getArgument(1);
+            requestReturned.await();
+            consumer.accept(reservation);
+            consumer.accept(reservation);
+            return null;
+        }).when(reservationService).streamUserReservations(Mockito.any(), Mockito.any());
+
+        final MvcResult result = mvc.perform(get("/api/v1/reservations/").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        requestReturned.countDown();
+
+        final String line = objectMapper.writeValueAsString(reservation);
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(line + "\n" + line + "\n"));
+        Mockito.verify(reservationService, Mockito.never()).getUserReservations(Mockito.any());
+    }
+
     @Test
     @Requirement("NIK-25")
     void cancelReservationNoAuth() throws Exception {
@@ -276,4 +325,142 @@ class ReservationControllerTest {
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
     }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-13")
+    void getUpcomingReservationsPage() throws Exception {
+        final ReservationListDTO reservation = new ReservationListDTO(
+                1L, 2L, Instant.parse("2025-01-01T14:30:00Z"), Instant.parse("2025-01-01T14:45:00Z"), "AAA1", "Test location", 22.2f);
+        final ReservationCursor after = new ReservationCursor(Instant.parse("2025-01-01T10:00:00Z"), 7);
+        final String next = ReservationCursor.after(reservation).encode();
+        Mockito.when(reservationService.getUserReservations(Mockito.any(), Mockito.eq(ReservationService.Period.UPCOMING), Mockito.eq(after), Mockito.eq(1)))
+                .thenReturn(new ReservationPageDTO(List.of(reservation), 3, next));
+
+        mvc.perform(get("/api/v1/reservations/upcoming")
+                        .param("cursor", after.encode())
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(1))
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.nextCursor").value(next));
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-13")
+    void getPastReservationsDefaultPageSize() throws Exception {
+        Mockito.when(reservationService.getUserReservations(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt()))
+                .thenReturn(new ReservationPageDTO(List.of(), 0, null));
+
+        mvc.perform(get("/api/v1/reservations/past"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty());
+        Mockito.verify(reservationService).getUserReservations(
+                Mockito.any(), Mockito.eq(ReservationService.Period.PAST), Mockito.isNull(), Mockito.eq(ReservationController.DEFAULT_PAGE_SIZE));
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-13")
+    void getReservationsPageBadRequest() throws Exception {
+        mvc.perform(get("/api/v1/reservations/upcoming").param("cursor", "not a cursor"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/v1/reservations/past").param("limit", "" + (ReservationController.MAX_PAGE_SIZE + 1)))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/v1/reservations/past").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verify(reservationService, Mockito.never())
+                .getUserReservations(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    @Requirement("NIK-13")
+    void getReservationsPageNoAuth() throws Exception {
+        mvc.perform(get("/api/v1/reservations/upcoming")).andExpect(status().isUnauthorized());
+    }
+
+    private static ReservationBatchItemDTO item(CreateReservation reservation, ReservationBatchItemDTO.Status status, Long id, TimeSlotDTO conflict) {
+        return new ReservationBatchItemDTO(reservation.chargedId, reservation.start, reservation.end, status, id, conflict);
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-12")
+    void createReservationBatchBestEffort() throws Exception {
+        final CreateReservation first = new CreateReservation(
+                1L, Instant.parse("2024-01-01T22:00:00Z"), Instant.parse("2024-01-01T23:00:00Z"));
+        final CreateReservation second = new CreateReservation(
+                2L, Instant.parse("2024-01-02T22:00:00Z"), Instant.parse("2024-01-02T23:00:00Z"));
+        final TimeSlotDTO inTheWay = new TimeSlotDTO(Instant.parse("2024-01-02T21:30:00Z"), Instant.parse("2024-01-02T22:30:00Z"));
+        Mockito.when(batchService.create(Mockito.any(), Mockito.eq(List.of(first, second)), Mockito.eq(false)))
+                .thenReturn(new ReservationBatchResultDTO(1, List.of(
+                        item(first, ReservationBatchItemDTO.Status.CREATED, 10L, null),
+                        item(second, ReservationBatchItemDTO.Status.CONFLICT, null, inTheWay))));
+
+        mvc.perform(post("/api/v1/reservations/batch")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(objectMapper.writeValueAsString(new CreateReservationBatch(List.of(first, second), null, false))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(10))
+                .andExpect(jsonPath("$.items[1].status").value("CONFLICT"))
+                .andExpect(jsonPath("$.items[1].conflictsWith.start").value("2024-01-02T21:30:00Z"));
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-12")
+    void createReservationBatchFromRecurrence() throws Exception {
+        Mockito.when(batchService.create(Mockito.any(), Mockito.any(), Mockito.eq(true)))
+                .thenReturn(new ReservationBatchResultDTO(0, List.of()));
+
+        // 2024-01-05 is a Friday, the weekend is skipped
+        final ReservationRecurrence recurrence = new ReservationRecurrence(
+                1L, Instant.parse("2024-01-05T22:00:00Z"), Instant.parse("2024-01-06T06:00:00Z"),
+                ReservationRecurrence.Frequency.WEEKDAYS, 2, null);
+        mvc.perform(post("/api/v1/reservations/batch")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(objectMapper.writeValueAsString(new CreateReservationBatch(null, recurrence, null))))
+                .andExpect(status().isConflict());
+
+        Mockito.verify(batchService).create(Mockito.any(), Mockito.eq(List.of(
+                new CreateReservation(1L, Instant.parse("2024-01-05T22:00:00Z"), Instant.parse("2024-01-06T06:00:00Z")),
+                new CreateReservation(1L, Instant.parse("2024-01-08T22:00:00Z"), Instant.parse("2024-01-09T06:00:00Z")))), Mockito.eq(true));
+    }
+
+    @Test
+    @WithUserDetails(setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    @Requirement("NIK-12")
+    void createReservationBatchBadRequest() throws Exception {
+        final CreateReservation past = new CreateReservation(
+                1L, Instant.parse("2023-12-31T22:00:00Z"), Instant.parse("2023-12-31T23:00:00Z"));
+        final ReservationRecurrence recurrence = new ReservationRecurrence(
+                1L, Instant.parse("2024-01-05T22:00:00Z"), Instant.parse("2024-01-06T06:00:00Z"),
+                ReservationRecurrence.Frequency.DAILY, 2, "Mars/Olympus_Mons");
+
+        for (final Object body : List.of(
+                new CreateReservationBatch(null, null, null),
+                new CreateReservationBatch(List.of(past), null, null),
+                new CreateReservationBatch(null, recurrence, null),
+                Map.of("recurrence", Map.of("chargerId", 1, "start", "2024-01-05T22:00:00Z",
+                        "end", "2024-01-06T06:00:00Z", "frequency", "DAILY", "occurrences", 501)))) {
+            mvc.perform(post("/api/v1/reservations/batch")
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content(objectMapper.writeValueAsString(body)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        Mockito.verifyNoInteractions(batchService);
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void createReservationBatchNoAuth() throws Exception {
+        mvc.perform(post("/api/v1/reservations/batch")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content("{\"reservations\":[]}"))
+                .andExpect(status().isUnauthorized());
+    }
 }
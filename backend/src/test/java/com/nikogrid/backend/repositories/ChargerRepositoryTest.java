@@ -4,13 +4,17 @@ import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
 import com.nikogrid.backend.TestcontainersConfiguration;
 import com.nikogrid.backend.entities.Charger;
 import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.repositories.projections.ChargerListing;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @DataJpaTest
 @Import(TestcontainersConfiguration.class)
@@ -40,4 +44,115 @@ class ChargerRepositoryTest {
         final Charger savedCharger = this.chargerRepository.save(charger);
         assertThat(savedCharger.getId()).isNotNull();
     }
+
+    @Test
+    @Requirement("NIK-24")
+    void findMatchingChargers() {
+        final Location location = new Location();
+        location.setName("Test location");
+        location.setLon(20.0f);
+        location.setLat(30.0f);
+        this.entityManager.persistAndFlush(location);
+
+        final Charger slow = new Charger();
+        slow.setName("AAA1");
+        slow.setAvailable(true);
+        slow.setMaxPower(22);
+        slow.setLocation(location);
+        this.entityManager.persistAndFlush(slow);
+
+        final Charger fastBusy = new Charger();
+        fastBusy.setName("AAA2");
+        fastBusy.setAvailable(false);
+        fastBusy.setMaxPower(150);
+        fastBusy.setLocation(location);
+        this.entityManager.persistAndFlush(fastBusy);
+
+        assertThat(this.chargerRepository.findMatchingChargers(List.of(location.getId()), 50, false))
+                .extracting(ChargerListing::getName, ChargerListing::getLocationId)
+                .containsExactly(tuple("AAA2", location.getId()));
+        assertThat(this.chargerRepository.findMatchingChargers(List.of(location.getId()), 0, true))
+                .extracting(ChargerListing::getName)
+                .containsExactly("AAA1");
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void findByLocationIds() {
+        final Location first = new Location();
+        first.setName("First");
+        first.setLon(20.0f);
+        first.setLat(30.0f);
+        this.entityManager.persistAndFlush(first);
+
+        final Location second = new Location();
+        second.setName("Second");
+        second.setLon(21.0f);
+        second.setLat(30.0f);
+        this.entityManager.persistAndFlush(second);
+
+        final Location other = new Location();
+        other.setName("Other");
+        other.setLon(22.0f);
+        other.setLat(30.0f);
+        this.entityManager.persistAndFlush(other);
+
+        int n = 0;
+        for (final Location location : List.of(second, first, other)) {
+            for (final float maxPower : new float[]{22, 150}) {
+                final Charger charger = new Charger();
+                charger.setName(location.getName() + (++n));
+                charger.setAvailable(true);
+                charger.setMaxPower(maxPower);
+                charger.setLocation(location);
+                this.entityManager.persistAndFlush(charger);
+            }
+        }
+
+        assertThat(this.chargerRepository.findByLocationIds(new Long[]{second.getId(), first.getId()}))
+                .extracting(ChargerListing::getLocationId, ChargerListing::getMaxPower)
+                .containsExactly(
+                        tuple(first.getId(), 150f),
+                        tuple(first.getId(), 22f),
+                        tuple(second.getId(), 150f),
+                        tuple(second.getId(), 22f)
+                );
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void updateAvailabilityOnlyReturnsChanges() {
+        final Location location = new Location();
+        location.setName("Test location");
+        location.setLon(20.0f);
+        location.setLat(30.0f);
+        this.entityManager.persistAndFlush(location);
+
+        final Charger free = new Charger();
+        free.setName("AAA1");
+        free.setAvailable(true);
+        free.setMaxPower(22);
+        free.setLocation(location);
+        this.entityManager.persistAndFlush(free);
+
+        final Charger busy = new Charger();
+        busy.setName("AAA2");
+        busy.setAvailable(false);
+        busy.setMaxPower(150);
+        busy.setLocation(location);
+        this.entityManager.persistAndFlush(busy);
+        this.entityManager.clear();
+
+        assertThat(this.chargerRepository.updateAvailability(
+                new Long[]{free.getId(), busy.getId(), -1L},
+                new Boolean[]{true, true, false}
+        ))
+                .extracting(ChargerListing::getId, ChargerListing::getLocationId, ChargerListing::isAvailable)
+                .containsExactly(tuple(busy.getId(), location.getId(), true));
+
+        assertThat(this.chargerRepository.countByLocationIdAndAvailableTrue(location.getId())).isEqualTo(2);
+        assertThat(this.entityManager.find(Location.class, location.getId()))
+                .extracting(Location::getChargerCount, Location::getAvailableChargers)
+                .containsExactly(2, 2);
+    }
 }
@@ -0,0 +1,76 @@
+package com.nikogrid.backend.repositories;
+
+import com.nikogrid.backend.TestcontainersConfiguration;
+import com.nikogrid.backend.entities.InterestPoint;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Compares DBSCAN and grid clustering latency and cluster counts as the number of locations grows.
+ * Needs Docker and is not part of the regular test run, use {@code mvn test -Dtest=ClusteringBenchmark}.
+ */
+@DataJpaTest
+@Import(TestcontainersConfiguration.class)
+class ClusteringBenchmark {
+    private static final int[] SIZES = {5_000, 100_000, 1_000_000};
+    private static final int[] ZOOMS = {4, 8, 12};
+    private static final int RUNS = 5;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    private static long count(Supplier<Stream<InterestPoint>> query) {
+        try (Stream<InterestPoint> stream = query.get()) {
+            return stream.count();
+        }
+    }
+
+    private static long millisPerRun(Supplier<Stream<InterestPoint>> query) {
+        count(query);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) count(query);
+        return (System.nanoTime() - start) / RUNS / 1_000_000;
+    }
+
+    @Test
+    void compareStrategies() {
+        int inserted = 0;
+        for (final int size : SIZES) {
+            // Spread over the Iberian peninsula, with half of the locations packed around a few cities
+            this.entityManager.createNativeQuery("""
+                    INSERT INTO locations (name, lon, lat)
+                    SELECT
+                        'Location ' || i,
+                        CASE WHEN i % 2 = 0 THEN -9.5 + random() * 12.5 ELSE -8.6 + (i % 5) * 2 + random() * 0.3 END,
+                        CASE WHEN i % 2 = 0 THEN 36.5 + random() * 7 ELSE 40.6 - (i % 3) + random() * 0.3 END
+                    FROM generate_series(?1, ?2) AS i
+                    """)
+                    .setParameter(1, inserted)
+                    .setParameter(2, size - 1)
+                    .executeUpdate();
+            this.entityManager.createNativeQuery("ANALYZE locations").executeUpdate();
+            inserted = size;
+
+            for (final int zoom : ZOOMS) {
+                final float radius = (float) (10 / Math.pow(2.0, zoom));
+                final Supplier<Stream<InterestPoint>> dbscan = () ->
+                        this.locationRepository.findInterestPoints(-10, 36, 3.5f, 44, radius, false);
+                final Supplier<Stream<InterestPoint>> grid = () ->
+                        this.locationRepository.findGridInterestPoints(-10, 36, 3.5f, 44, radius, false);
+
+                System.out.printf("%8d locations z%-2d | dbscan %6d ms %7d points | grid %6d ms %7d points%n",
+                        size, zoom, millisPerRun(dbscan), count(dbscan), millisPerRun(grid), count(grid));
+            }
+        }
+    }
+}
@@ -5,17 +5,17 @@ import com.nikogrid.backend.TestcontainersConfiguration;
 import com.nikogrid.backend.entities.Charger;
 import com.nikogrid.backend.entities.InterestPoint;
 import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.repositories.projections.ChargerPosition;
+import com.nikogrid.backend.repositories.projections.ClosestCandidate;
 import com.nikogrid.backend.repositories.projections.LocationListing;
-import org.geolatte.geom.G2D;
-import org.geolatte.geom.Geometries;
-import org.geolatte.geom.crs.CoordinateReferenceSystems;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
 
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -76,12 +76,12 @@ class LocationRepositoryTest {
         assertThat(interestPoints)
                 .isNotEmpty()
                 .hasSize(4)
-                .extracting(InterestPoint::numPoints, InterestPoint::isClustered, InterestPoint::centroid, InterestPoint::name)
+                .extracting(InterestPoint::numPoints, InterestPoint::isClustered, InterestPoint::longitude, InterestPoint::latitude, InterestPoint::name)
                 .containsExactlyInAnyOrder(
-                        tuple(2L, true, Geometries.mkPoint(new G2D(21.5f, 30.0f), CoordinateReferenceSystems.WGS84), null),
-                        tuple(2L, true, Geometries.mkPoint(new G2D(24.5f, 30.0f), CoordinateReferenceSystems.WGS84), null),
-                        tuple(0L, false, Geometries.mkPoint(new G2D(28.0f, 30.0f), CoordinateReferenceSystems.WGS84), "4"),
-                        tuple(0L, false, Geometries.mkPoint(new G2D(28.0f, 33.0f), CoordinateReferenceSystems.WGS84), "5")
+                        tuple(2L, true, 21.5, 30.0, null),
+                        tuple(2L, true, 24.5, 30.0, null),
+                        tuple(0L, false, 28.0, 30.0, "4"),
+                        tuple(0L, false, 28.0, 33.0, "5")
                 );
     }
 
@@ -125,14 +125,72 @@ class LocationRepositoryTest {
         assertThat(interestPoints)
                 .isNotEmpty()
                 .hasSize(3)
-                .extracting(InterestPoint::numPoints, InterestPoint::isClustered, InterestPoint::centroid, InterestPoint::name)
+                .extracting(InterestPoint::numPoints, InterestPoint::isClustered, InterestPoint::longitude, InterestPoint::latitude, InterestPoint::name)
                 .containsExactlyInAnyOrder(
-                        tuple(0L, false, Geometries.mkPoint(new G2D(21.0f, 30.0f), CoordinateReferenceSystems.WGS84), "0"),
-                        tuple(2L, true, Geometries.mkPoint(new G2D(24.5f, 30.0f), CoordinateReferenceSystems.WGS84), null),
-                        tuple(0L, false, Geometries.mkPoint(new G2D(28.0f, 30.0f), CoordinateReferenceSystems.WGS84), "4")
+                        tuple(0L, false, 21.0, 30.0, "0"),
+                        tuple(2L, true, 24.5, 30.0, null),
+                        tuple(0L, false, 28.0, 30.0, "4")
                 );
     }
 
+    @Test
+    @Requirement("NIK-37")
+    void findGridInterestPointsGroupsByCell() {
+        final float[][] points = {
+                // Cell (21, 30)
+                {21.2f, 30.2f},
+                {21.8f, 30.6f},
+                // Cell (22, 30), right next to the previous one but in its own cell
+                {22.1f, 30.2f},
+                // Outside envelope
+                {35.0f, 30.0f}
+        };
+        for (int i = 0; i < points.length; i++) {
+            final Location location = new Location();
+            location.setName(Integer.toString(i));
+            location.setLon(points[i][0]);
+            location.setLat(points[i][1]);
+            entityManager.persistAndFlush(location);
+        }
+
+        final Stream<InterestPoint> interestPoints = locationRepository.findGridInterestPoints(20, 25, 30, 35, 1, false);
+        assertThat(interestPoints)
+                .extracting(InterestPoint::numPoints, InterestPoint::isClustered, InterestPoint::name)
+                .containsExactlyInAnyOrder(
+                        tuple(2L, true, null),
+                        tuple(1L, false, "2")
+                );
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getVectorTileEncodesLayers() {
+        final float[][] points = {
+                // Cluster
+                {21.0f, 30.0f},
+                {22.0f, 30.0f},
+                // No cluster
+                {28.0f, 30.0f},
+                // Other tile
+                {-28.0f, 30.0f}
+        };
+        for (int i = 0; i < points.length; i++) {
+            final Location location = new Location();
+            location.setName("location-" + i);
+            location.setLon(points[i][0]);
+            location.setLat(points[i][1]);
+            entityManager.persistAndFlush(location);
+        }
+
+        final String tile = new String(locationRepository.getVectorTile(1, 1, 0, 5, false), StandardCharsets.ISO_8859_1);
+        assertThat(tile)
+                .contains("clusters", "locations", "location-2")
+                .doesNotContain("location-0", "location-1", "location-3");
+
+        final byte[] empty = locationRepository.getVectorTile(1, 1, 1, 5, false);
+        assertThat(empty).isEmpty();
+    }
+
     @Test
     @Requirement("NIK-37")
     void getLocationsInEnvelopeReturnsInside() {
@@ -209,7 +267,7 @@ class LocationRepositoryTest {
 
     @Test
     @Requirement("NIK-24")
-    void findClosestAvailableReturnsAvailable() {
+    void findClosestCandidatesReturnsAvailable() {
         final Location location1 = new Location();
         location1.setName("1");
         location1.setLon(2);
@@ -256,17 +314,15 @@ class LocationRepositoryTest {
         charger4.setMaxPower(220);
         entityManager.persistAndFlush(charger4);
 
-        final Optional<Location> res = locationRepository.findClosestAvailable(0, 0);
-        assertThat(res)
-                .isNotEmpty()
-                .get()
-                .isEqualTo(location2);
+        assertThat(locationRepository.findClosestCandidates(0, 0, 0, true, 1)).containsExactly(location2);
+        assertThat(locationRepository.findClosestCandidates(0, 0, 0, false, 3)).containsExactly(location1, location2, location3);
+        assertThat(locationRepository.findClosestCandidates(0, 0, 221, false, 3)).isEmpty();
     }
 
 
     @Test
     @Requirement("NIK-24")
-    void findClosestAvailableReturnsEmpty() {
+    void findClosestCandidatesReturnsEmpty() {
         final Location location1 = new Location();
         location1.setName("1");
         location1.setLon(2);
@@ -300,7 +356,132 @@ class LocationRepositoryTest {
         charger3.setMaxPower(220);
         entityManager.persistAndFlush(charger3);
 
-        final Optional<Location> res = locationRepository.findClosestAvailable(0, 0);
-        assertThat(res).isEmpty();
+        assertThat(locationRepository.findClosestCandidates(0, 0, 0, true, 1)).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void chargerSummaryFollowsChargers() {
+        final Location location = new Location();
+        location.setName("Test");
+        location.setLon(20.0f);
+        location.setLat(30.0f);
+        entityManager.persistAndFlush(location);
+
+        final Charger slow = new Charger();
+        slow.setName("E1");
+        slow.setLocation(location);
+        slow.setAvailable(true);
+        slow.setMaxPower(22);
+        entityManager.persistAndFlush(slow);
+
+        final Charger fast = new Charger();
+        fast.setName("E2");
+        fast.setLocation(location);
+        fast.setAvailable(true);
+        fast.setMaxPower(150);
+        entityManager.persistAndFlush(fast);
+
+        fast.setAvailable(false);
+        entityManager.persistAndFlush(fast);
+
+        assertThat(locationRepository.getLocationsInEnvelope(19, 29, 21, 31, true))
+                .extracting(LocationListing::getChargerCount, LocationListing::getAvailableChargers, LocationListing::getMaxPower)
+                .containsExactly(tuple(2, 1, 150.0f));
+
+        slow.setAvailable(false);
+        entityManager.persistAndFlush(slow);
+
+        assertThat(locationRepository.getLocationsInEnvelope(19, 29, 21, 31, true)).isEmpty();
+        assertThat(locationRepository.getLocationsInEnvelope(19, 29, 21, 31, false))
+                .extracting(LocationListing::getChargerCount, LocationListing::getAvailableChargers)
+                .containsExactly(tuple(2, 0));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void streamChargerPositions() {
+        final Location location = new Location();
+        location.setName("Test");
+        location.setLon(20.0f);
+        location.setLat(30.0f);
+        entityManager.persistAndFlush(location);
+
+        final Charger charger = new Charger();
+        charger.setName("E1");
+        charger.setLocation(location);
+        charger.setAvailable(false);
+        charger.setMaxPower(22);
+        entityManager.persistAndFlush(charger);
+
+        try (Stream<ChargerPosition> stream = locationRepository.streamChargerPositions()) {
+            assertThat(stream.filter(c -> c.getId() == charger.getId()))
+                    .extracting(ChargerPosition::getLon, ChargerPosition::getLat, ChargerPosition::isAvailable, ChargerPosition::getMaxPower)
+                    .containsExactly(tuple(20.0f, 30.0f, false, 22.0f));
+        }
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void findClosestCandidatesBatchKeepsPointsApart() {
+        final Location near = new Location();
+        near.setName("near");
+        near.setLon(1);
+        near.setLat(1);
+        entityManager.persistAndFlush(near);
+
+        final Location far = new Location();
+        far.setName("far");
+        far.setLon(10);
+        far.setLat(10);
+        entityManager.persistAndFlush(far);
+
+        for (final Location location : new Location[]{near, far}) {
+            final Charger charger = new Charger();
+            charger.setName("E" + location.getName());
+            charger.setLocation(location);
+            charger.setAvailable(true);
+            charger.setMaxPower(location == near ? 22 : 150);
+            entityManager.persistAndFlush(charger);
+        }
+
+        final List<ClosestCandidate> candidates = locationRepository.findClosestCandidatesBatch(
+                new Float[]{0f, 0f, 10f}, new Float[]{0f, 0f, 10f}, new Float[]{0f, 50f, 0f}, new Integer[]{2, 2, 1}, true);
+
+        assertThat(candidates)
+                .extracting(ClosestCandidate::getQueryIndex, ClosestCandidate::getName)
+                .containsExactly(
+                        tuple(1L, "near"),
+                        tuple(1L, "far"),
+                        tuple(2L, "far"),
+                        tuple(3L, "far")
+                );
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void findListingsByIds() {
+        final Location first = new Location();
+        first.setName("First");
+        first.setLon(1);
+        first.setLat(1);
+        entityManager.persistAndFlush(first);
+
+        final Location other = new Location();
+        other.setName("Other");
+        other.setLon(2);
+        other.setLat(2);
+        entityManager.persistAndFlush(other);
+
+        final Charger charger = new Charger();
+        charger.setName("E1");
+        charger.setLocation(first);
+        charger.setAvailable(true);
+        charger.setMaxPower(50);
+        entityManager.persistAndFlush(charger);
+
+        assertThat(locationRepository.findListingsByIds(new Long[]{first.getId(), -1L}))
+                .extracting(LocationListing::getName, LocationListing::getChargerCount, LocationListing::getMaxPower)
+                .containsExactly(tuple("First", 1, 50f));
     }
 }
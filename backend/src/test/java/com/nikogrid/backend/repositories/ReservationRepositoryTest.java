@@ -2,10 +2,12 @@ package com.nikogrid.backend.repositories;
 
 import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
 import com.nikogrid.backend.TestcontainersConfiguration;
+import com.nikogrid.backend.dto.ReservationListDTO;
 import com.nikogrid.backend.entities.Charger;
 import com.nikogrid.backend.entities.Location;
 import com.nikogrid.backend.entities.Reservation;
 import com.nikogrid.backend.entities.User;
+import com.nikogrid.backend.repositories.projections.ReservationInterval;
 import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,6 +18,8 @@ import org.springframework.context.annotation.Import;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -202,4 +206,108 @@ class ReservationRepositoryTest {
         // The reservations must come by whichever is closest to the present date, but the future reservations come before the past reservations
         assertThat(this.reservationRepository.getUserReservations(user.getId())).containsExactly(reservation1, reservation3, reservation2, reservation4);
     }
+
+    @Test
+    @Requirement("NIK-13")
+    void streamUserReservationsOrder() {
+        final Reservation upcoming = new Reservation();
+        upcoming.setUser(user);
+        upcoming.setCharger(charger);
+        upcoming.setStartsAt(Instant.now().plus(2, ChronoUnit.HOURS).truncatedTo(ChronoUnit.MICROS));
+        upcoming.setEndsAt(Instant.now().plus(3, ChronoUnit.HOURS).truncatedTo(ChronoUnit.MICROS));
+        this.entityManager.persistAndFlush(upcoming);
+
+        final Reservation past = new Reservation();
+        past.setUser(user);
+        past.setCharger(charger);
+        past.setStartsAt(Instant.now().minus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.MICROS));
+        past.setEndsAt(Instant.now().minus(1, ChronoUnit.DAYS).plus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.MICROS));
+        this.entityManager.persistAndFlush(past);
+
+        try (Stream<ReservationListDTO> stream = this.reservationRepository.streamUserReservations(user.getId())) {
+            assertThat(stream).containsExactly(
+                    ReservationListDTO.fromReservation(upcoming),
+                    ReservationListDTO.fromReservation(past)
+            );
+        }
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void findUpcomingSkipsFinishedReservations() {
+        final Instant now = Instant.parse("2025-01-01T12:00:00Z");
+        Reservation ongoing = null;
+        for (final int hour : new int[]{9, 11, 15}) {
+            final Reservation reservation = new Reservation();
+            reservation.setUser(user);
+            reservation.setCharger(charger);
+            reservation.setStartsAt(now.minus(12 - hour, ChronoUnit.HOURS));
+            reservation.setEndsAt(now.minus(12 - hour - 2, ChronoUnit.HOURS));
+            this.entityManager.persistAndFlush(reservation);
+            if (hour == 11) ongoing = reservation;
+        }
+
+        final List<ReservationInterval> upcoming = this.reservationRepository.findUpcoming(List.of(charger.getId()), now);
+        assertThat(upcoming).extracting(ReservationInterval::getStartsAt)
+                .containsExactly(ongoing.getStartsAt(), now.plus(3, ChronoUnit.HOURS));
+        assertThat(upcoming).extracting(ReservationInterval::getChargerId).containsOnly(charger.getId());
+    }
+
+    @Test
+    @Requirement("NIK-13")
+    void userReservationPagesFollowTheCursor() {
+        final Instant now = Instant.parse("2025-01-01T12:00:00Z");
+        final Charger other = new Charger();
+        other.setName("AAA2");
+        other.setAvailable(true);
+        other.setMaxPower(50F);
+        other.setLocation(location);
+        this.entityManager.persistAndFlush(other);
+
+        // Two reservations start at each hour, on different chargers, so pages must break ties on id
+        for (final int hours : new int[]{-2, -1, 1, 2}) {
+            for (final Charger c : List.of(charger, other)) {
+                final Reservation reservation = new Reservation();
+                reservation.setUser(user);
+                reservation.setCharger(c);
+                reservation.setStartsAt(now.plus(hours, ChronoUnit.HOURS));
+                reservation.setEndsAt(now.plus(hours, ChronoUnit.HOURS).plus(30, ChronoUnit.MINUTES));
+                this.entityManager.persistAndFlush(reservation);
+            }
+        }
+
+        final List<ReservationListDTO> first = this.reservationRepository.findUserUpcoming(user.getId(), now, now, Long.MIN_VALUE, 3);
+        assertThat(first).extracting(r -> r.start).containsExactly(
+                now.plus(1, ChronoUnit.HOURS), now.plus(1, ChronoUnit.HOURS), now.plus(2, ChronoUnit.HOURS));
+        final ReservationListDTO last = first.get(2);
+        assertThat(this.reservationRepository.findUserUpcoming(user.getId(), now, last.start, last.id, 3))
+                .extracting(r -> r.start).containsExactly(now.plus(2, ChronoUnit.HOURS));
+
+        final List<ReservationListDTO> past = this.reservationRepository.findUserPast(user.getId(), now, now, Long.MAX_VALUE, 3);
+        assertThat(past).extracting(r -> r.start).containsExactly(
+                now.minus(1, ChronoUnit.HOURS), now.minus(1, ChronoUnit.HOURS), now.minus(2, ChronoUnit.HOURS));
+        assertThat(past.get(0).id).isGreaterThan(past.get(1).id);
+
+        assertThat(this.reservationRepository.countByUserIdAndStartsAtGreaterThanEqual(user.getId(), now)).isEqualTo(4);
+        assertThat(this.reservationRepository.countByUserIdAndStartsAtLessThan(user.getId(), now)).isEqualTo(4);
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void existsOverlappingIsHalfOpen() {
+        final Reservation reservation = new Reservation();
+        reservation.setUser(user);
+        reservation.setCharger(charger);
+        reservation.setStartsAt(Instant.parse("2025-01-01T14:30:00Z"));
+        reservation.setEndsAt(Instant.parse("2025-01-01T14:45:00Z"));
+        this.entityManager.persistAndFlush(reservation);
+
+        final long chargerId = charger.getId();
+        assertThat(this.reservationRepository.existsOverlapping(
+                chargerId, Instant.parse("2025-01-01T14:40:00Z"), Instant.parse("2025-01-01T14:50:00Z"))).isTrue();
+        assertThat(this.reservationRepository.existsOverlapping(
+                chargerId, Instant.parse("2025-01-01T14:45:00Z"), Instant.parse("2025-01-01T14:50:00Z"))).isFalse();
+        assertThat(this.reservationRepository.existsOverlapping(
+                chargerId, Instant.parse("2025-01-01T14:00:00Z"), Instant.parse("2025-01-01T14:30:00Z"))).isFalse();
+    }
 }
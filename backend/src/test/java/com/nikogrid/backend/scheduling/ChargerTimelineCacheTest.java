@@ -0,0 +1,96 @@
+package com.nikogrid.backend.scheduling;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.events.ReservationCancelled;
+import com.nikogrid.backend.events.ReservationCreated;
+import com.nikogrid.backend.repositories.ReservationRepository;
+import com.nikogrid.backend.repositories.projections.ReservationInterval;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class ChargerTimelineCacheTest {
+    private static final Instant NOW = Instant.parse("2025-01-01T08:00:00Z");
+
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    private ChargerTimelineCache cache;
+
+    private static ReservationInterval interval(long id, long chargerId, String start, String end) {
+        return new ReservationInterval() {
+            public long getId() {
+                return id;
+            }
+
+            public long getChargerId() {
+                return chargerId;
+            }
+
+            public Instant getStartsAt() {
+                return Instant.parse("2025-01-01T" + start + ":00Z");
+            }
+
+            public Instant getEndsAt() {
+                return Instant.parse("2025-01-01T" + end + ":00Z");
+            }
+        };
+    }
+
+    @BeforeEach
+    void setup() {
+        this.cache = new ChargerTimelineCache(
+                this.reservationRepository, Clock.fixed(NOW, ZoneId.of("UTC")), new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void loadsChargersTogetherAndOnce() {
+        Mockito.when(this.reservationRepository.findUpcoming(Mockito.anyCollection(), Mockito.eq(NOW)))
+                .thenReturn(List.of(interval(1, 1, "10:00", "11:00"), interval(2, 2, "12:00", "13:00")));
+
+        final Map<Long, ChargerTimeline> timelines = this.cache.getAll(List.of(1L, 2L, 3L));
+        assertThat(timelines.get(1L).size()).isEqualTo(1);
+        assertThat(timelines.get(2L).size()).isEqualTo(1);
+        assertThat(timelines.get(3L).size()).isZero();
+
+        assertThat(this.cache.get(1L)).isSameAs(timelines.get(1L));
+        Mockito.verify(this.reservationRepository).findUpcoming(Set.of(1L, 2L, 3L), NOW);
+        Mockito.verifyNoMoreInteractions(this.reservationRepository);
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void eventsUpdateLoadedTimelines() {
+        Mockito.when(this.reservationRepository.findUpcoming(Mockito.anyCollection(), Mockito.eq(NOW)))
+                .thenReturn(List.of(interval(1, 1, "10:00", "11:00")));
+        final ChargerTimeline timeline = this.cache.get(1L);
+
+        final Instant start = Instant.parse("2025-01-01T12:00:00Z");
+        final Instant end = Instant.parse("2025-01-01T13:00:00Z");
+        this.cache.onReservationCreated(new ReservationCreated(2, 1, start, end));
+        assertThat(timeline.isFree(start, end)).isFalse();
+
+        this.cache.onReservationCancelled(new ReservationCancelled(2, 1, start, end));
+        assertThat(timeline.isFree(start, end)).isTrue();
+
+        // Chargers not loaded yet are left for their first load
+        this.cache.onReservationCreated(new ReservationCreated(3, 2, start, end));
+        Mockito.verify(this.reservationRepository, Mockito.times(1)).findUpcoming(Mockito.anyCollection(), Mockito.any());
+    }
+}
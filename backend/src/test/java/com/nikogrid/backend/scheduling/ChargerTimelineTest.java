@@ -0,0 +1,78 @@
+package com.nikogrid.backend.scheduling;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.dto.TimeSlotDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChargerTimelineTest {
+    private ChargerTimeline timeline;
+
+    private static Instant at(String time) {
+        return Instant.parse("2025-01-01T" + time + ":00Z");
+    }
+
+    @BeforeEach
+    void setup() {
+        this.timeline = new ChargerTimeline();
+        this.timeline.add(1, at("10:00"), at("11:00"));
+        this.timeline.add(2, at("11:00"), at("11:30"));
+        this.timeline.add(3, at("14:00"), at("15:00"));
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void freeSlotsBetweenReservations() {
+        assertThat(this.timeline.free(at("09:00"), at("16:00"))).containsExactly(
+                new TimeSlotDTO(at("09:00"), at("10:00")),
+                new TimeSlotDTO(at("11:30"), at("14:00")),
+                new TimeSlotDTO(at("15:00"), at("16:00")));
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void freeSlotsClippedToTheRange() {
+        // Starts inside the first reservation and ends inside the last one
+        assertThat(this.timeline.free(at("10:30"), at("14:30"))).containsExactly(
+                new TimeSlotDTO(at("11:30"), at("14:00")));
+        assertThat(this.timeline.free(at("10:15"), at("10:45"))).isEmpty();
+        assertThat(this.timeline.free(at("16:00"), at("17:00"))).containsExactly(
+                new TimeSlotDTO(at("16:00"), at("17:00")));
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void isFreeMatchesTheExclusionConstraint() {
+        assertThat(this.timeline.isFree(at("11:30"), at("14:00"))).isTrue();
+        assertThat(this.timeline.isFree(at("09:00"), at("10:00"))).isTrue();
+        assertThat(this.timeline.isFree(at("09:00"), at("10:01"))).isFalse();
+        assertThat(this.timeline.isFree(at("10:59"), at("11:10"))).isFalse();
+        assertThat(this.timeline.isFree(at("13:00"), at("16:00"))).isFalse();
+        assertThat(this.timeline.isFree(at("14:00"), at("14:30"))).isFalse();
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void overlappingReturnsTheEarliestReservationInTheWay() {
+        assertThat(this.timeline.overlapping(at("10:30"), at("14:30")))
+                .contains(new TimeSlotDTO(at("10:00"), at("11:00")));
+        assertThat(this.timeline.overlapping(at("12:00"), at("14:30")))
+                .contains(new TimeSlotDTO(at("14:00"), at("15:00")));
+        assertThat(this.timeline.overlapping(at("11:30"), at("14:00"))).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-25")
+    void removeOnlyTheSameReservation() {
+        this.timeline.remove(9, at("14:00"));
+        assertThat(this.timeline.size()).isEqualTo(3);
+
+        this.timeline.remove(3, at("14:00"));
+        assertThat(this.timeline.size()).isEqualTo(2);
+        assertThat(this.timeline.isFree(at("13:00"), at("16:00"))).isTrue();
+    }
+}
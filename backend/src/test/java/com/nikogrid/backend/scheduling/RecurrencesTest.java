@@ -0,0 +1,45 @@
+package com.nikogrid.backend.scheduling;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.dto.ReservationRecurrence;
+import com.nikogrid.backend.dto.TimeSlotDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecurrencesTest {
+    private static ReservationRecurrence nightly(ReservationRecurrence.Frequency frequency, int occurrences, String zone) {
+        // 2025-03-28 is a Friday, and the weekend of the switch to summer time in Lisbon
+        return new ReservationRecurrence(
+                1L, Instant.parse("2025-03-28T22:00:00Z"), Instant.parse("2025-03-29T06:00:00Z"), frequency, occurrences, zone);
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void weekdaysSkipTheWeekend() {
+        assertThat(Recurrences.expand(nightly(ReservationRecurrence.Frequency.WEEKDAYS, 3, null))).containsExactly(
+                new TimeSlotDTO(Instant.parse("2025-03-28T22:00:00Z"), Instant.parse("2025-03-29T06:00:00Z")),
+                new TimeSlotDTO(Instant.parse("2025-03-31T22:00:00Z"), Instant.parse("2025-04-01T06:00:00Z")),
+                new TimeSlotDTO(Instant.parse("2025-04-01T22:00:00Z"), Instant.parse("2025-04-02T06:00:00Z")));
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void keepsTheLocalTimeAcrossDaylightSaving() {
+        assertThat(Recurrences.expand(nightly(ReservationRecurrence.Frequency.WEEKLY, 2, "Europe/Lisbon"))).containsExactly(
+                new TimeSlotDTO(Instant.parse("2025-03-28T22:00:00Z"), Instant.parse("2025-03-29T06:00:00Z")),
+                new TimeSlotDTO(Instant.parse("2025-04-04T21:00:00Z"), Instant.parse("2025-04-05T05:00:00Z")));
+        assertThat(Recurrences.expand(nightly(ReservationRecurrence.Frequency.DAILY, 4, null))).hasSize(4);
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void unknownZone() {
+        assertThatThrownBy(() -> Recurrences.expand(nightly(ReservationRecurrence.Frequency.DAILY, 1, "Nowhere/Special")))
+                .isInstanceOf(DateTimeException.class);
+    }
+}
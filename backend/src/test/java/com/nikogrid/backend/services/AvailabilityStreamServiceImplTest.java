@@ -0,0 +1,43 @@
+package com.nikogrid.backend.services;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvailabilityStreamServiceImplTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AvailabilityStreamServiceImpl service = new AvailabilityStreamServiceImpl(
+            new ObjectMapper(), meterRegistry, 2, 16, Duration.ofMinutes(1), Duration.ofMinutes(1), 1);
+
+    @AfterEach
+    void teardown() {
+        service.shutdown();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void subscribeUpToTheLimit() {
+        assertThat(service.subscribe(-10f, 30f, 10f, 50f)).isPresent();
+        assertThat(service.subscribe(-180f, -85f, 180f, 85f)).isPresent();
+        assertThat(service.subscribe(-10f, 30f, 10f, 50f)).isEmpty();
+
+        assertThat(meterRegistry.get(AvailabilityStreamServiceImpl.SUBSCRIBERS_METRIC).gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void changesWithoutSubscribersAreIgnored() {
+        service.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(1, 1, 0, 0, true, 1));
+
+        assertThat(meterRegistry.get(AvailabilityStreamServiceImpl.DROPPED_METRIC).counter().count()).isZero();
+    }
+}
@@ -0,0 +1,126 @@
+package com.nikogrid.backend.services;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.dto.ChargerScheduleDTO;
+import com.nikogrid.backend.dto.TimeSlotDTO;
+import com.nikogrid.backend.entities.Charger;
+import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.exceptions.ResourceNotFound;
+import com.nikogrid.backend.scheduling.ChargerTimeline;
+import com.nikogrid.backend.scheduling.ChargerTimelineCache;
+import jakarta.validation.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class ChargerScheduleServiceImplTest {
+    private static final Instant NOW = Instant.parse("2025-01-01T08:00:00Z");
+
+    @Mock
+    private ChargerService chargerService;
+
+    @Mock
+    private LocationService locationService;
+
+    @Mock
+    private ChargerTimelineCache timelines;
+
+    private ChargerScheduleServiceImpl scheduleService;
+
+    private ChargerTimeline timeline;
+
+    private static Charger charger(long id, boolean available) {
+        final Charger charger = new Charger();
+        charger.setId(id);
+        charger.setName("AAA" + id);
+        charger.setAvailable(available);
+        charger.setMaxPower(22.2f);
+        return charger;
+    }
+
+    @BeforeEach
+    void setup() {
+        this.scheduleService = new ChargerScheduleServiceImpl(
+                this.chargerService, this.locationService, this.timelines, Clock.fixed(NOW, ZoneId.of("UTC")));
+        this.timeline = new ChargerTimeline();
+        this.timeline.add(1, NOW.plus(Duration.ofHours(1)), NOW.plus(Duration.ofHours(2)));
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void chargerScheduleDefaultsToTheComingWeek() throws ResourceNotFound {
+        Mockito.when(this.chargerService.findChargerById(1L)).thenReturn(charger(1, true));
+        Mockito.when(this.timelines.get(1L)).thenReturn(this.timeline);
+
+        final ChargerScheduleDTO schedule = this.scheduleService.getChargerSchedule(1, null, null);
+        assertThat(schedule.free).containsExactly(
+                new TimeSlotDTO(NOW, NOW.plus(Duration.ofHours(1))),
+                new TimeSlotDTO(NOW.plus(Duration.ofHours(2)), NOW.plus(ChargerScheduleService.DEFAULT_RANGE)));
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void pastIsNeverFree() throws ResourceNotFound {
+        Mockito.when(this.chargerService.findChargerById(1L)).thenReturn(charger(1, true));
+        Mockito.when(this.timelines.get(1L)).thenReturn(this.timeline);
+
+        assertThat(this.scheduleService.getChargerSchedule(1, NOW.minus(Duration.ofDays(1)), NOW.plus(Duration.ofMinutes(30))).free)
+                .containsExactly(new TimeSlotDTO(NOW, NOW.plus(Duration.ofMinutes(30))));
+        assertThat(this.scheduleService.getChargerSchedule(1, NOW.minus(Duration.ofDays(1)), NOW).free).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void unavailableChargerHasNoFreeSlots() throws ResourceNotFound {
+        Mockito.when(this.chargerService.findChargerById(1L)).thenReturn(charger(1, false));
+
+        final ChargerScheduleDTO schedule = this.scheduleService.getChargerSchedule(1, null, null);
+        assertThat(schedule.isAvailable).isFalse();
+        assertThat(schedule.free).isEmpty();
+        Mockito.verifyNoInteractions(this.timelines);
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void invalidRanges() {
+        assertThatThrownBy(() -> this.scheduleService.getChargerSchedule(1, NOW, NOW))
+                .isInstanceOf(ConstraintViolationException.class);
+        assertThatThrownBy(() -> this.scheduleService.getChargerSchedule(
+                1, NOW, NOW.plus(ChargerScheduleService.MAX_RANGE).plusSeconds(1)))
+                .isInstanceOf(ConstraintViolationException.class);
+        Mockito.verifyNoInteractions(this.chargerService, this.timelines);
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void locationScheduleLoadsAvailableChargersTogether() throws ResourceNotFound {
+        final Location location = new Location();
+        location.setId(1L);
+        location.setChargers(Set.of(charger(3, true), charger(2, false), charger(1, true)));
+        Mockito.when(this.locationService.getLocationById(1L)).thenReturn(location);
+        Mockito.when(this.timelines.getAll(List.of(1L, 3L))).thenReturn(Map.of(3L, new ChargerTimeline(), 1L, this.timeline));
+
+        final List<ChargerScheduleDTO> schedules = this.scheduleService.getLocationSchedule(1, NOW, NOW.plus(Duration.ofHours(3)));
+        assertThat(schedules).containsExactly(
+                new ChargerScheduleDTO(1, true, List.of(
+                        new TimeSlotDTO(NOW, NOW.plus(Duration.ofHours(1))),
+                        new TimeSlotDTO(NOW.plus(Duration.ofHours(2)), NOW.plus(Duration.ofHours(3))))),
+                new ChargerScheduleDTO(2, false, List.of()),
+                new ChargerScheduleDTO(3, true, List.of(new TimeSlotDTO(NOW, NOW.plus(Duration.ofHours(3))))));
+    }
+}
@@ -3,17 +3,26 @@ package com.nikogrid.backend.services;
 import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
 import com.nikogrid.backend.entities.Charger;
 import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
 import com.nikogrid.backend.exceptions.ResourceNotFound;
 import com.nikogrid.backend.repositories.ChargerRepository;
+import com.nikogrid.backend.repositories.LocationRepository;
+import com.nikogrid.backend.repositories.projections.ChargerListing;
+import com.nikogrid.backend.repositories.projections.LocationListing;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,6 +30,15 @@ class ChargerServiceImplTest {
     @Mock
     private ChargerRepository chargerRepository;
 
+    @Mock
+    private LocationRepository locationRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
     @InjectMocks
     private ChargerServiceImpl chargerService;
 
@@ -55,4 +73,111 @@ class ChargerServiceImplTest {
 
         Mockito.verify(this.chargerRepository, Mockito.times(1)).findById(1L);
     }
+
+    @Test
+    @Requirement("NIK-37")
+    void setAvailabilityPublishesChange() throws ResourceNotFound {
+        final Location location = new Location();
+        location.setId(2L);
+        location.setLon(20f);
+        location.setLat(30f);
+
+        final Charger charger = new Charger();
+        charger.setId(1L);
+        charger.setAvailable(true);
+        charger.setLocation(location);
+
+        Mockito.when(chargerRepository.findById(1L)).thenReturn(Optional.of(charger));
+        Mockito.when(chargerRepository.save(charger)).thenReturn(charger);
+        Mockito.when(chargerRepository.countByLocationIdAndAvailableTrue(2L)).thenReturn(3);
+
+        final Charger result = this.chargerService.setAvailability(1L, false);
+
+        assertThat(result.isAvailable()).isFalse();
+        Mockito.verify(this.eventPublisher, Mockito.times(1))
+                .publishEvent(new ChargerAvailabilityChanged(1L, 2L, 20f, 30f, false, 3));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void setAvailabilityUnchangedDoesNothing() throws ResourceNotFound {
+        final Charger charger = new Charger();
+        charger.setId(1L);
+        charger.setAvailable(true);
+
+        Mockito.when(chargerRepository.findById(1L)).thenReturn(Optional.of(charger));
+
+        this.chargerService.setAvailability(1L, true);
+
+        Mockito.verify(this.chargerRepository, Mockito.never()).save(Mockito.any());
+        Mockito.verifyNoInteractions(this.eventPublisher);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void setAvailabilityBatchPublishesChanges() {
+        final ChargerListing changed = Mockito.mock(ChargerListing.class);
+        Mockito.when(changed.getId()).thenReturn(3L);
+        Mockito.when(changed.getLocationId()).thenReturn(2L);
+        Mockito.when(changed.isAvailable()).thenReturn(false);
+
+        final LocationListing location = Mockito.mock(LocationListing.class);
+        Mockito.when(location.getId()).thenReturn(2L);
+        Mockito.when(location.getLon()).thenReturn(20f);
+        Mockito.when(location.getLat()).thenReturn(30f);
+        Mockito.when(location.getAvailableChargers()).thenReturn(4);
+
+        Mockito.when(chargerRepository.updateAvailability(new Long[]{1L, 3L}, new Boolean[]{true, false}))
+                .thenReturn(List.of(changed));
+        Mockito.when(locationRepository.findListingsByIds(new Long[]{2L})).thenReturn(List.of(location));
+
+        assertThat(this.chargerService.setAvailability(Map.of(3L, false, 1L, true))).isEqualTo(1);
+
+        Mockito.verify(this.eventPublisher, Mockito.times(1))
+                .publishEvent(new ChargerAvailabilityChanged(3L, 2L, 20f, 30f, false, 4));
+        Mockito.verifyNoMoreInteractions(this.eventPublisher);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void setAvailabilityBatchUnchangedDoesNothing() {
+        Mockito.when(chargerRepository.updateAvailability(new Long[]{1L}, new Boolean[]{true})).thenReturn(List.of());
+
+        assertThat(this.chargerService.setAvailability(Map.of(1L, true))).isZero();
+
+        Mockito.verifyNoInteractions(this.locationRepository, this.eventPublisher);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void renewOcppKeyOnlyStoresItsHash() throws ResourceNotFound {
+        final Charger charger = new Charger();
+        charger.setId(1L);
+
+        Mockito.when(chargerRepository.findById(1L)).thenReturn(Optional.of(charger));
+        Mockito.when(passwordEncoder.encode(Mockito.anyString())).thenAnswer(invocation -> "hash of " + invocation.getArgument(0));
+
+        final String key = this.chargerService.renewOcppKey(1L);
+
+        assertThat(key).hasSize(40).isNotEqualTo(this.chargerService.renewOcppKey(1L));
+        Mockito.verify(this.chargerRepository, Mockito.times(2)).save(charger);
+        assertThat(charger.getOcppKeyHash()).startsWith("hash of ").doesNotContain(key);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void ocppKeyIsCheckedAgainstItsHash() {
+        final Charger withKey = new Charger();
+        withKey.setOcppKeyHash("hash");
+
+        Mockito.when(chargerRepository.findById(1L)).thenReturn(Optional.of(withKey));
+        Mockito.when(chargerRepository.findById(2L)).thenReturn(Optional.of(new Charger()));
+        Mockito.when(chargerRepository.findById(3L)).thenReturn(Optional.empty());
+        Mockito.when(passwordEncoder.matches("key", "hash")).thenReturn(true);
+
+        assertThat(this.chargerService.isOcppKeyValid(1L, "key")).isTrue();
+        assertThat(this.chargerService.isOcppKeyValid(1L, "other")).isFalse();
+        assertThat(this.chargerService.isOcppKeyValid(2L, "key")).isFalse();
+        assertThat(this.chargerService.isOcppKeyValid(3L, "key")).isFalse();
+    }
 }
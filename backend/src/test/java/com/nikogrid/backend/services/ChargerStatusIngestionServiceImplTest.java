@@ -0,0 +1,109 @@
+package com.nikogrid.backend.services;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.dto.ChargerStatusDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChargerStatusIngestionServiceImplTest {
+    private final ChargerService chargerService = Mockito.mock(ChargerService.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ChargerStatusIngestionServiceImpl service = new ChargerStatusIngestionServiceImpl(
+            chargerService, meterRegistry, 4, 2, Duration.ofHours(1));
+
+    @AfterEach
+    void teardown() throws InterruptedException {
+        service.shutdown();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void keepsLatestStatusPerCharger() {
+        final List<Map<Long, Boolean>> batches = recordBatches();
+
+        assertThat(service.submit(List.of(new ChargerStatusDTO(1L, false), new ChargerStatusDTO(1L, true)))).isTrue();
+        assertThat(service.submit(List.of(new ChargerStatusDTO(1L, false)))).isTrue();
+        service.flush();
+
+        assertThat(batches).containsExactly(Map.of(1L, false));
+        assertThat(meterRegistry.get(ChargerStatusIngestionServiceImpl.COALESCED_METRIC).counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(ChargerStatusIngestionServiceImpl.PENDING_METRIC).gauge().value()).isZero();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void flushesInBatches() {
+        final List<Map<Long, Boolean>> batches = recordBatches();
+
+        service.submit(List.of(new ChargerStatusDTO(1L, true), new ChargerStatusDTO(2L, true), new ChargerStatusDTO(3L, false)));
+        service.flush();
+
+        assertThat(batches).extracting(Map::size).containsExactlyInAnyOrder(2, 1);
+        assertThat(batches.stream().flatMap(b -> b.keySet().stream())).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(meterRegistry.get(ChargerStatusIngestionServiceImpl.FLUSH_METRIC).timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void rejectsWhenBacklogIsFull() {
+        assertThat(service.submit(List.of(
+                new ChargerStatusDTO(1L, true),
+                new ChargerStatusDTO(2L, true),
+                new ChargerStatusDTO(3L, true)
+        ))).isTrue();
+        assertThat(service.submit(List.of(new ChargerStatusDTO(4L, true), new ChargerStatusDTO(5L, true)))).isFalse();
+
+        assertThat(meterRegistry.get(ChargerStatusIngestionServiceImpl.PENDING_METRIC).gauge().value()).isEqualTo(3);
+        assertThat(meterRegistry.get(ChargerStatusIngestionServiceImpl.REJECTED_METRIC).counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void failedBatchIsQueuedAgainBehindNewerStatuses() {
+        Mockito.when(chargerService.setAvailability(Mockito.anyMap())).thenThrow(new IllegalStateException("down"));
+        service.submit(List.of(new ChargerStatusDTO(1L, true)));
+        service.flush();
+
+        assertThat(meterRegistry.get(ChargerStatusIngestionServiceImpl.FLUSH_FAILURES_METRIC).counter().count()).isEqualTo(1);
+
+        Mockito.reset(chargerService);
+        final List<Map<Long, Boolean>> batches = recordBatches();
+        service.submit(List.of(new ChargerStatusDTO(2L, true)));
+        service.flush();
+
+        assertThat(batches).containsExactly(Map.of(1L, true, 2L, true));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void shutdownWritesPendingStatuses() throws InterruptedException {
+        final List<Map<Long, Boolean>> batches = recordBatches();
+        service.submit(List.of(new ChargerStatusDTO(1L, true)));
+
+        service.shutdown();
+
+        assertThat(batches).containsExactly(Map.of(1L, true));
+    }
+
+    private List<Map<Long, Boolean>> recordBatches() {
+        final List<Map<Long, Boolean>> batches = new ArrayList<>();
+        Mockito.when(chargerService.setAvailability(Mockito.anyMap())).thenAnswer(i -> {
+            batches.add(new HashMap<>(i.getArgument(0)));
+            return 0;
+        });
+        return batches;
+    }
+}
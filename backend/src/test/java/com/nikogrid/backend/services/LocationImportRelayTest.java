@@ -0,0 +1,117 @@
+package com.nikogrid.backend.services;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import com.nikogrid.backend.events.LocationChangedElsewhere;
+import com.nikogrid.backend.events.LocationCreated;
+import com.nikogrid.backend.events.LocationsImported;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationImportRelayTest {
+    private final JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+
+    private LocationImportRelay relay() {
+        return new LocationImportRelay(Mockito.mock(JdbcConnectionDetails.class), this.jdbcTemplate,
+                Mockito.mock(ApplicationEventPublisher.class), new SimpleMeterRegistry(), false, Duration.ofSeconds(1));
+    }
+
+    @Test
+    @Requirement("NIK-20")
+    void relaysImportsOfOtherProcesses() {
+        final LocationsImported imported = new LocationsImported(1, 2, 3, 4);
+
+        assertThat(relay().parse(relay().payload(imported))).contains(imported);
+    }
+
+    @Test
+    @Requirement("NIK-20")
+    void ignoresOwnAndUnreadableNotifications() {
+        final LocationImportRelay relay = relay();
+
+        assertThat(relay.parse(relay.payload(new LocationsImported(1, 2, 3, 4)))).isEmpty();
+        assertThat(relay.parse("other:1:2")).isEmpty();
+        assertThat(relay.parse("other:1:2:x:4")).isEmpty();
+        assertThat(relay.parse(null)).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-20")
+    void listensOnlyOnceStarted() {
+        final JdbcConnectionDetails connectionDetails = Mockito.mock(JdbcConnectionDetails.class);
+        final LocationImportRelay relay = new LocationImportRelay(connectionDetails, this.jdbcTemplate,
+                Mockito.mock(ApplicationEventPublisher.class), new SimpleMeterRegistry(), true, Duration.ofSeconds(1));
+
+        Mockito.verifyNoInteractions(connectionDetails);
+
+        relay.start();
+        Mockito.verify(connectionDetails, Mockito.timeout(1000)).getJdbcUrl();
+        relay.shutdown();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void relaysChangesOfOtherProcesses() {
+        final LocationImportRelay relay = relay();
+
+        assertThat(relay.parseChange(relay().changePayload(1, 10.5f, -20.25f)))
+                .contains(new LocationChangedElsewhere(1, 10.5f, -20.25f));
+        assertThat(relay.parseChange(relay.changePayload(1, 10.5f, -20.25f))).isEmpty();
+        assertThat(relay.parseChange("other:1:x:2")).isEmpty();
+        assertThat(relay.parseChange(null)).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void changesOfATransactionAreSentOnceBeforeCommit() {
+        final LocationImportRelay relay = relay();
+        final Location location = new Location();
+        location.setId(2L);
+        location.setLon(30);
+        location.setLat(40);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            relay.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(1, 1, 10, 20, true, 1));
+            relay.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(3, 1, 10, 20, false, 0));
+            relay.onLocationCreated(new LocationCreated(location));
+            Mockito.verifyNoInteractions(this.jdbcTemplate);
+
+            for (final TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.beforeCommit(false);
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        Mockito.verify(this.jdbcTemplate).query(Mockito.anyString(), Mockito.any(RowCallbackHandler.class),
+                Mockito.eq(LocationImportRelay.CHANGES_CHANNEL),
+                Mockito.eq(new String[]{relay.changePayload(1, 10, 20), relay.changePayload(2, 30, 40)}));
+        assertThat(TransactionSynchronizationManager.getResource(relay)).isNull();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void changesOutsideOfTransactionsAreSentRightAway() {
+        final LocationImportRelay relay = relay();
+
+        relay.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(1, 1, 10, 20, true, 1));
+
+        Mockito.verify(this.jdbcTemplate).query(Mockito.anyString(), Mockito.any(RowCallbackHandler.class),
+                Mockito.eq(LocationImportRelay.CHANGES_CHANNEL),
+                Mockito.eq(new String[]{relay.changePayload(1, 10, 20)}));
+    }
+}
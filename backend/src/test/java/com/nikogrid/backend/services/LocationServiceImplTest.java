@@ -1,31 +1,62 @@
 package com.nikogrid.backend.services;
 
 import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.dto.ChargerDTO;
+import com.nikogrid.backend.dto.ClosestBatchPoint;
+import com.nikogrid.backend.dto.ClosestLocationDTO;
 import com.nikogrid.backend.dto.ClusterInterestPoint;
+import com.nikogrid.backend.dto.CorridorLocationDTO;
 import com.nikogrid.backend.dto.InterestPointBaseDTO;
+import com.nikogrid.backend.dto.LocationDetailsDTO;
 import com.nikogrid.backend.dto.LocationInterestPoint;
+import com.nikogrid.backend.dto.NearbyDiffDTO;
 import com.nikogrid.backend.entities.InterestPoint;
 import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.events.LocationCreated;
 import com.nikogrid.backend.exceptions.ResourceNotFound;
+import com.nikogrid.backend.repositories.ChargerRepository;
 import com.nikogrid.backend.repositories.LocationRepository;
+import com.nikogrid.backend.repositories.projections.ChargerListing;
+import com.nikogrid.backend.repositories.projections.ClosestCandidate;
 import com.nikogrid.backend.repositories.projections.LocationListing;
-import org.geolatte.geom.G2D;
-import org.geolatte.geom.Geometries;
-import org.geolatte.geom.crs.CoordinateReferenceSystems;
+import com.nikogrid.backend.spatial.ChargerHeatmap;
+import com.nikogrid.backend.spatial.ClusteringStrategy;
+import com.nikogrid.backend.spatial.Geodesic;
+import com.nikogrid.backend.spatial.LocationDatasetVersion;
+import com.nikogrid.backend.spatial.LocationIndex;
+import com.nikogrid.backend.spatial.LocationQueryCoalescer;
+import com.nikogrid.backend.spatial.LocationReadModel;
+import com.nikogrid.backend.spatial.NearbyBudget;
+import com.nikogrid.backend.spatial.NearbyTileCache;
+import com.nikogrid.backend.spatial.Route;
+import com.nikogrid.backend.spatial.TileKey;
+import com.nikogrid.backend.spatial.Viewport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
 
 @ExtendWith(MockitoExtension.class)
 class LocationServiceImplTest {
@@ -33,6 +64,35 @@ class LocationServiceImplTest {
     @Mock
     private LocationRepository locationRepository;
 
+    @Mock
+    private ChargerRepository chargerRepository;
+
+    @Mock
+    private LocationReadModel locationReadModel;
+
+    @Mock
+    private NearbyTileCache nearbyTileCache;
+
+    @Mock
+    private LocationDatasetVersion datasetVersion;
+
+    @Mock
+    private ChargerHeatmap chargerHeatmap;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private NearbyBudget nearbyBudget = new NearbyBudget(new SimpleMeterRegistry(), 2);
+
+    private final SimpleMeterRegistry coalescingMetrics = new SimpleMeterRegistry();
+
+    @Spy
+    private LocationQueryCoalescer queryCoalescer = new LocationQueryCoalescer(this.coalescingMetrics, true, Duration.ofSeconds(1));
+
     @InjectMocks
     private LocationServiceImpl locationService;
 
@@ -44,10 +104,13 @@ class LocationServiceImplTest {
         location.setLat(20.0f);
         location.setLon(30.0f);
 
+        Mockito.when(this.locationRepository.save(location)).thenReturn(location);
+
         this.locationService.createLocation(location);
 
         // Verify that the service persisted the menu to the repo
         Mockito.verify(this.locationRepository, Mockito.times(1)).save(Mockito.any());
+        Mockito.verify(this.eventPublisher, Mockito.times(1)).publishEvent(new LocationCreated(location));
     }
 
     @Test
@@ -65,6 +128,46 @@ class LocationServiceImplTest {
         assertThat(result).isNotNull();
     }
 
+    @Test
+    @Requirement("NIK-37")
+    void getLocationDetailsKeepsRequestOrder() {
+        final LocationListing first = createLocationListing(1L, "Test1", 21.5f, 30.0f);
+        final LocationListing third = createLocationListing(3L, "Test3", 22.5f, 30.0f);
+        final ChargerListing charger = chargerListing(7, 3, 50f);
+
+        Mockito.when(this.locationRepository.findListingsByIds(new Long[]{3L, 2L, 1L})).thenReturn(List.of(first, third));
+        Mockito.when(this.chargerRepository.findByLocationIds(new Long[]{3L, 2L, 1L})).thenReturn(List.of(charger));
+
+        final List<LocationDetailsDTO> result = this.locationService.getLocationDetails(List.of(3L, 2L, 1L, 3L));
+
+        assertThat(result).extracting(d -> d.id).containsExactly(3L, 1L);
+        assertThat(result.get(0).chargers).containsExactly(new ChargerDTO(7, "E7", true, 50f));
+        assertThat(result.get(1).chargers).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void embedChargersOnlyTouchesLocations() {
+        final ClusterInterestPoint cluster = new ClusterInterestPoint(10f, 10f, 4);
+        final LocationInterestPoint location = new LocationInterestPoint(20f, 20f, 3, "Test3", 1, 1, 50f);
+        final ChargerListing charger = chargerListing(7, 3, 50f);
+
+        Mockito.when(this.chargerRepository.findByLocationIds(new Long[]{3L})).thenReturn(List.of(charger));
+
+        final Collection<InterestPointBaseDTO> result = this.locationService.embedChargers(List.of(cluster, location));
+
+        assertThat(result).containsExactly(cluster, location.withChargers(List.of(new ChargerDTO(7, "E7", true, 50f))));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void embedChargersWithoutLocationsSkipsQuery() {
+        final List<InterestPointBaseDTO> points = List.of(new ClusterInterestPoint(10f, 10f, 4));
+
+        assertThat(this.locationService.embedChargers(points)).isSameAs(points);
+        Mockito.verifyNoInteractions(this.chargerRepository);
+    }
+
     @Test
     @Requirement("NIK-37")
     void getLocationByIdThrowsNotFound() {
@@ -82,10 +185,10 @@ class LocationServiceImplTest {
         location.setLat(20.0f);
         location.setLon(30.0f);
 
-        Mockito.when(this.locationRepository.findClosestAvailable(Mockito.anyFloat(), Mockito.anyFloat()))
-                .thenReturn(Optional.of(location));
+        Mockito.when(this.locationRepository.findClosestCandidates(20.0f, 30.0f, 0, true, 16))
+                .thenReturn(List.of(location));
 
-        final Location result = this.locationService.getClosestAvailable(20.0f, 30.0f);
+        final Location result = this.locationService.getClosestAvailable(20.0f, 30.0f, "e-1");
 
         assertThat(result).isNotNull();
     }
@@ -93,28 +196,212 @@ class LocationServiceImplTest {
     @Test
     @Requirement("NIK-24")
     void getClosestAvailableThrowsNotFound() {
-        Mockito.when(this.locationRepository.findClosestAvailable(Mockito.anyFloat(), Mockito.anyFloat()))
-                .thenReturn(Optional.empty());
+        Mockito.when(this.locationRepository.findClosestCandidates(20.0f, 30.0f, 0, true, 16))
+                .thenReturn(List.of());
 
-        assertThatThrownBy(() -> this.locationService.getClosestAvailable(20.0f, 30.0f))
+        assertThatThrownBy(() -> this.locationService.getClosestAvailable(20.0f, 30.0f, "e-1"))
                 .isInstanceOf(ResourceNotFound.class);
     }
 
+    private static Location location(long id, float longitude, float latitude) {
+        final Location location = new Location();
+        location.setId(id);
+        location.setName("Test" + id);
+        location.setLon(longitude);
+        location.setLat(latitude);
+        return location;
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void getClosestLocationsRanksByGeodesicDistance() {
+        // 1 degree north is farther than 1.5 degrees east at 60N, though planar order says otherwise
+        final Location north = location(1, 0, 61);
+        final Location east = location(2, 1.5f, 60);
+        Mockito.when(this.locationRepository.findClosestCandidates(0, 60, 50, true, 16))
+                .thenReturn(List.of(north, east));
+
+        final ChargerListing charger = Mockito.mock(ChargerListing.class);
+        Mockito.when(charger.getId()).thenReturn(5L);
+        Mockito.when(charger.getLocationId()).thenReturn(2L);
+        Mockito.when(charger.getName()).thenReturn("E5");
+        Mockito.when(charger.isAvailable()).thenReturn(true);
+        Mockito.when(charger.getMaxPower()).thenReturn(150f);
+        Mockito.when(this.chargerRepository.findMatchingChargers(List.of(2L, 1L), 50, true))
+                .thenReturn(List.of(charger));
+
+        final List<ClosestLocationDTO> result = this.locationService.getClosestLocations(0, 60, 2, 50, true, "e-1");
+
+        assertThat(result).extracting(r -> r.id).containsExactly(2L, 1L);
+        assertThat(result.get(0).distance).isCloseTo(83_500, within(500.0));
+        assertThat(result.get(0).chargers).containsExactly(new ChargerDTO(5, "E5", true, 150));
+        assertThat(result.get(1).chargers).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void getClosestLocationsWidensUntilNothingCanBeCloser() {
+        final List<Location> firstBatch = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            firstBatch.add(location(i, 0, 71 + i * 0.01f));
+        }
+        // Farther in planar degrees than the whole first batch, but closer on the ground
+        final Location east = location(100, 2, 70);
+        final List<Location> secondBatch = new ArrayList<>(firstBatch);
+        secondBatch.add(east);
+
+        Mockito.when(this.locationRepository.findClosestCandidates(0, 70, 0, false, 16)).thenReturn(firstBatch);
+        Mockito.when(this.locationRepository.findClosestCandidates(0, 70, 0, false, 64)).thenReturn(secondBatch);
+
+        final List<ClosestLocationDTO> result = this.locationService.getClosestLocations(0, 70, 1, 0, false, "e-1");
+
+        assertThat(result).extracting(r -> r.id).containsExactly(100L);
+    }
+
+    private static ClosestCandidate candidate(long queryIndex, long id, float longitude, float latitude) {
+        final ClosestCandidate candidate = Mockito.mock(ClosestCandidate.class);
+        Mockito.lenient().when(candidate.getQueryIndex()).thenReturn(queryIndex);
+        Mockito.lenient().when(candidate.getId()).thenReturn(id);
+        Mockito.lenient().when(candidate.getName()).thenReturn("Test" + id);
+        Mockito.lenient().when(candidate.getLon()).thenReturn(longitude);
+        Mockito.lenient().when(candidate.getLat()).thenReturn(latitude);
+        return candidate;
+    }
+
+    private static ChargerListing chargerListing(long id, long locationId, float maxPower) {
+        final ChargerListing charger = Mockito.mock(ChargerListing.class);
+        Mockito.lenient().when(charger.getId()).thenReturn(id);
+        Mockito.when(charger.getLocationId()).thenReturn(locationId);
+        Mockito.lenient().when(charger.getName()).thenReturn("E" + id);
+        Mockito.lenient().when(charger.isAvailable()).thenReturn(true);
+        Mockito.when(charger.getMaxPower()).thenReturn(maxPower);
+        return charger;
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void getClosestLocationsBatchWidensOnlyUnsettledPoints() {
+        final List<ClosestBatchPoint> points = List.of(
+                new ClosestBatchPoint(0f, 70f, null, 100f),
+                new ClosestBatchPoint(10f, 0f, 2, null)
+        );
+
+        final List<ClosestCandidate> firstRound = new ArrayList<>();
+        // 16 candidates straight north of the first point, the order isn't settled at 70N
+        for (int i = 0; i < 16; i++) {
+            firstRound.add(candidate(1, i, 0, 71 + i * 0.01f));
+        }
+        // Fewer than asked for around the second point, so that's all there is
+        firstRound.add(candidate(2, 20, 10, 0.5f));
+        firstRound.add(candidate(2, 21, 10.1f, 0));
+
+        // Farther in planar degrees than the whole first round, but closer on the ground
+        final List<ClosestCandidate> secondRound = List.of(candidate(1, 30, 2, 70));
+        final List<ChargerListing> chargers = List.of(chargerListing(1, 30, 150), chargerListing(2, 30, 22), chargerListing(3, 21, 22));
+
+        Mockito.when(this.locationRepository.findClosestCandidatesBatch(
+                        new Float[]{0f, 10f}, new Float[]{70f, 0f}, new Float[]{100f, 0f}, new Integer[]{16, 16}, true))
+                .thenReturn(firstRound);
+        Mockito.when(this.locationRepository.findClosestCandidatesBatch(
+                        new Float[]{0f}, new Float[]{70f}, new Float[]{100f}, new Integer[]{64}, true))
+                .thenReturn(secondRound);
+        Mockito.when(this.chargerRepository.findMatchingChargers(List.of(30L, 21L, 20L), 0, true)).thenReturn(chargers);
+
+        final List<List<ClosestLocationDTO>> result = this.locationService.getClosestLocations(points, true);
+
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0)).singleElement().satisfies(location -> {
+            assertThat(location.id).isEqualTo(30);
+            // The 22kW charger was only fetched for the second point
+            assertThat(location.chargers).extracting(c -> c.id).containsExactly(1L);
+        });
+        assertThat(result.get(1)).extracting(l -> l.id).containsExactly(21L, 20L);
+        assertThat(result.get(1).get(0).chargers).extracting(c -> c.id).containsExactly(3L);
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void getClosestLocationsEmpty() {
+        Mockito.when(this.locationRepository.findClosestCandidates(0, 70, 0, true, 16)).thenReturn(List.of());
+
+        assertThat(this.locationService.getClosestLocations(0, 70, 1, 0, true, "e-1")).isEmpty();
+        Mockito.verifyNoInteractions(this.chargerRepository);
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void getClosestLocationsOnlySharesQueriesOfTheSameVersion() throws Exception {
+        final CountDownLatch leaderStarted = new CountDownLatch(1);
+        final CountDownLatch releaseLeader = new CountDownLatch(1);
+        final AtomicBoolean first = new AtomicBoolean(true);
+        Mockito.when(this.locationRepository.findClosestCandidates(0, 70, 0, true, 16)).thenAnswer(invocation -> {
+            if (first.getAndSet(false)) {
+                leaderStarted.countDown();
+                releaseLeader.await();
+            }
+            return List.of();
+        });
+
+        final CompletableFuture<List<ClosestLocationDTO>> leader = CompletableFuture.supplyAsync(
+                () -> this.locationService.getClosestLocations(0, 70, 1, 0, true, "e-1"));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Started before the change behind e-2, so its result can't be labelled e-2
+        assertThat(this.locationService.getClosestLocations(0, 70, 1, 0, true, "e-2")).isEmpty();
+        releaseLeader.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEmpty();
+
+        Mockito.verify(this.locationRepository, Mockito.times(2)).findClosestCandidates(0, 70, 0, true, 16);
+        assertThat(this.coalescingMetrics.find(LocationQueryCoalescer.METRICS_NAME).tag("outcome", "joined").counter()).isNull();
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void streamCorridorLocationsInRouteOrder() {
+        // (38.5, -120.2), (40.7, -120.95), (43.252, -126.453)
+        final Route route = Route.decode("_p~iF~ps|U_ulLnnqC_mqNvxq`@", 10);
+        final LocationListing second = createLocationListing(2L, "Test2", -120.95f, 40.7f);
+        final LocationListing first = createLocationListing(1L, "Test1", -120.21f, 38.5f);
+        final LocationListing offRoute = createLocationListing(3L, "Test3", -100f, 40f);
+        Mockito.when(this.locationRepository.getLocationsInEnvelope(
+                        Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.eq(true)))
+                .thenAnswer(invocation -> Stream.of(second, offRoute, first));
+
+        final List<CorridorLocationDTO> result = new ArrayList<>();
+        this.locationService.streamCorridorLocations(route, 2000, true, result::add);
+
+        assertThat(result).extracting(l -> l.id).containsExactly(1L, 2L);
+        assertThat(result.get(0).distanceFrom).isBetween(800.0, 870.0);
+        assertThat(result.get(1).distanceAlong).isCloseTo(
+                Geodesic.distance(-120.2, 38.5, -120.95, 40.7), within(10.0));
+        // One envelope per section, never one for the whole route
+        Mockito.verify(this.locationRepository, Mockito.times(route.sections(25_000).size())).getLocationsInEnvelope(
+                Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.eq(true));
+    }
+
     @Test
     @Requirement("NIK-37")
     void getNearbyLocationsClusterZoom() {
         final InterestPoint ip1 = new InterestPoint(
                 2,
-                Geometries.mkPoint(new G2D(21.5f, 30.0f), CoordinateReferenceSystems.WGS84),
+                21.5,
+                30.0,
+                null,
+                null,
+                null,
                 null,
                 null
         );
 
         final InterestPoint ip2 = new InterestPoint(
                 0,
-                Geometries.mkPoint(new G2D(22.5f, 30.0f), CoordinateReferenceSystems.WGS84),
+                22.5,
+                30.0,
                 2L,
-                "Test"
+                "Test",
+                3,
+                1,
+                50.0
         );
 
         final AtomicBoolean wasClosed = new AtomicBoolean(false);
@@ -126,19 +413,34 @@ class LocationServiceImplTest {
                 .thenReturn(stream);
 
         final Collection<InterestPointBaseDTO> result =
-                this.locationService.getNearbyLocations(-180, -90, 180, 90, 17, false);
+                this.locationService.getNearbyLocations(-180, -90, 180, 90, 17, false, "e-1");
 
         assertThat(result)
                 .hasSize(2)
                 .containsExactlyInAnyOrder(
                         new ClusterInterestPoint(21.5f, 30.0f, 2),
-                        new LocationInterestPoint(22.5f, 30.0f, 2L, "Test")
+                        new LocationInterestPoint(22.5f, 30.0f, 2L, "Test", 3, 1, 50f)
                 );
 
         assertThat(wasClosed).isTrue();
     }
 
 
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyLocationsGridClustering() {
+        final InterestPoint cell = new InterestPoint(3, 21.5, 30.0, null, null, null, null, null);
+        Mockito.when(this.locationRepository.findGridInterestPoints(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyBoolean()))
+                .thenReturn(Stream.of(cell));
+
+        final Collection<InterestPointBaseDTO> result =
+                this.locationService.getNearbyLocations(-180, -90, 180, 90, 3, false, ClusteringStrategy.GRID, "e-1");
+
+        assertThat(result).containsExactly(new ClusterInterestPoint(21.5f, 30.0f, 3));
+        Mockito.verify(this.locationRepository).findGridInterestPoints(-180, -90, 180, 90, 1.25f, false);
+        Mockito.verify(this.locationRepository, Mockito.never()).findInterestPoints(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyBoolean());
+    }
+
     @Test
     @Requirement("NIK-37")
     void getNearbyLocationsNoClusterZoom() {
@@ -154,18 +456,250 @@ class LocationServiceImplTest {
                 .thenReturn(stream);
 
         final Collection<InterestPointBaseDTO> result =
-                this.locationService.getNearbyLocations(-180, -90, 180, 90, 18, false);
+                this.locationService.getNearbyLocations(-180, -90, 180, 90, 18, false, "e-1");
 
         assertThat(result)
                 .hasSize(2)
                 .containsExactlyInAnyOrder(
-                        new LocationInterestPoint(21.5f, 30.0f, 1L, "Test1"),
-                        new LocationInterestPoint(22.5f, 30.0f, 2L, "Test2")
+                        new LocationInterestPoint(21.5f, 30.0f, 1L, "Test1", 2, 1, 22f),
+                        new LocationInterestPoint(22.5f, 30.0f, 2L, "Test2", 2, 1, 22f)
                 );
 
         assertThat(wasClosed).isTrue();
     }
 
+    @Test
+    @Requirement("NIK-37")
+    void streamNearbyLocationsSkipsTileCache() {
+        final LocationListing l1 = createLocationListing(1L, "Test1", 21.5f, 30.0f);
+        final LocationListing l2 = createLocationListing(2L, "Test2", 22.5f, 30.0f);
+
+        final AtomicBoolean wasClosed = new AtomicBoolean(false);
+        final Stream<LocationListing> stream = Stream.of(l1, l2).onClose(() -> wasClosed.set(true));
+
+        Mockito.when(this.locationRepository.getLocationsInEnvelope(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyBoolean()))
+                .thenReturn(stream);
+
+        final List<InterestPointBaseDTO> result = new ArrayList<>();
+        this.locationService.streamNearbyLocations(-180, -90, 180, 90, 18, false, null, false, "e-1", result::add);
+
+        assertThat(result).containsExactly(
+                new LocationInterestPoint(21.5f, 30.0f, 1L, "Test1", 2, 1, 22f),
+                new LocationInterestPoint(22.5f, 30.0f, 2L, "Test2", 2, 1, 22f)
+        );
+        assertThat(wasClosed).isTrue();
+        Mockito.verifyNoInteractions(this.nearbyTileCache);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyLocationsUsesReadModelWhenLoaded() {
+        final LocationIndex index = new LocationIndex();
+        index.put(1L, "Test1", 21.5f, 30.0f, 2, 1, 22f);
+        index.put(2L, "Test2", 22.5f, 30.0f, 2, 0, 22f);
+
+        Mockito.when(this.locationReadModel.index()).thenReturn(Optional.of(index));
+
+        final Collection<InterestPointBaseDTO> result =
+                this.locationService.getNearbyLocations(-180, -90, 180, 90, 18, true, "e-1");
+
+        assertThat(result).containsExactly(new LocationInterestPoint(21.5f, 30.0f, 1L, "Test1", 2, 1, 22f));
+        Mockito.verifyNoInteractions(this.locationRepository, this.transactionManager);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyLocationsQueriesMissingTiles() {
+        final LocationListing inside = createLocationListing(1L, "Test1", 21.5f, 30.0f);
+        final LocationListing neighbour = createLocationListing(2L, "Test2", -21.5f, 30.0f);
+
+        Mockito.when(this.locationRepository.getLocationsInEnvelope(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyBoolean()))
+                .thenAnswer(invocation -> Stream.of(inside, neighbour));
+        Mockito.when(this.nearbyTileCache.get(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyInt(), Mockito.anyBoolean(), Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    final Function<TileKey, List<InterestPointBaseDTO>> loader = invocation.getArgument(7);
+                    return Optional.of(loader.apply(TileKey.containing(21.5f, 30.0f, 18)));
+                });
+
+        final Collection<InterestPointBaseDTO> result =
+                this.locationService.getNearbyLocations(21, 29, 22, 31, 18, false, "e-1");
+
+        assertThat(result).containsExactly(new LocationInterestPoint(21.5f, 30.0f, 1L, "Test1", 2, 1, 22f));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyLocationsKeepsClustersInTheTileOfTheirCentroid() {
+        // Tiles are 22.5 degrees wide at zoom 4, the second cluster straddles the edge at 22.5 but is centred past it
+        final InterestPoint owned = new InterestPoint(3, 21.5, 30.0, null, null, null, null, null);
+        final InterestPoint straddling = new InterestPoint(2, 22.6, 30.0, null, null, null, null, null);
+        Mockito.when(this.locationRepository.findInterestPoints(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyBoolean()))
+                .thenAnswer(invocation -> Stream.of(owned, straddling));
+        Mockito.when(this.nearbyTileCache.get(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyInt(), Mockito.anyBoolean(), Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    final Function<TileKey, List<InterestPointBaseDTO>> loader = invocation.getArgument(7);
+                    return Optional.of(loader.apply(TileKey.containing(21.5f, 30.0f, 4)));
+                });
+
+        final Collection<InterestPointBaseDTO> result =
+                this.locationService.getNearbyLocations(21, 29, 23, 31, 4, false, "e-1");
+
+        assertThat(result).containsExactly(new ClusterInterestPoint(21.5f, 30.0f, 3));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyLocationsCoarsensOverBudget() {
+        final LocationListing l1 = createLocationListing(1L, "Test1", 21.5f, 30.0f);
+        final LocationListing l2 = createLocationListing(2L, "Test2", 22.5f, 30.0f);
+        final LocationListing l3 = createLocationListing(3L, "Test3", 23.5f, 30.0f);
+        final InterestPoint cluster = new InterestPoint(3, 22.5, 30.0, null, null, null, null, null);
+
+        Mockito.when(this.locationRepository.getLocationsInEnvelope(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyBoolean()))
+                .thenReturn(Stream.of(l1, l2, l3));
+        Mockito.when(this.locationRepository.findInterestPoints(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyBoolean()))
+                .thenReturn(Stream.of(cluster));
+
+        final Collection<InterestPointBaseDTO> result =
+                this.locationService.getNearbyLocations(-180, -90, 180, 90, 18, false, "e-1");
+
+        assertThat(result).containsExactly(new ClusterInterestPoint(22.5f, 30.0f, 3));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void streamNearbyLocationsTruncatesOverBudget() {
+        final LocationListing l1 = createLocationListing(1L, "Test1", 21.5f, 30.0f);
+        final LocationListing l2 = createLocationListing(2L, "Test2", 22.5f, 30.0f);
+        final LocationListing l3 = createLocationListing(3L, "Test3", 23.5f, 30.0f);
+
+        Mockito.when(this.locationRepository.getLocationsInEnvelope(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyBoolean()))
+                .thenReturn(Stream.of(l1, l2, l3));
+
+        final List<InterestPointBaseDTO> result = new ArrayList<>();
+        this.locationService.streamNearbyLocations(-180, -90, 180, 90, 18, false, null, false, "e-1", result::add);
+
+        assertThat(result).extracting(p -> ((LocationInterestPoint) p).id).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void streamNearbyLocationsEmbedsChargers() {
+        final LocationListing l1 = createLocationListing(1L, "Test1", 21.5f, 30.0f);
+        final LocationListing l2 = createLocationListing(2L, "Test2", 22.5f, 30.0f);
+        final ChargerListing charger = chargerListing(7, 2, 50f);
+
+        Mockito.when(this.locationRepository.getLocationsInEnvelope(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyBoolean()))
+                .thenReturn(Stream.of(l1, l2));
+        Mockito.when(this.chargerRepository.findByLocationIds(new Long[]{1L, 2L})).thenReturn(List.of(charger));
+
+        final List<InterestPointBaseDTO> result = new ArrayList<>();
+        this.locationService.streamNearbyLocations(-180, -90, 180, 90, 18, false, null, true, "e-1", result::add);
+
+        assertThat(result).containsExactly(
+                new LocationInterestPoint(21.5f, 30.0f, 1L, "Test1", 2, 1, 22f).withChargers(List.of()),
+                new LocationInterestPoint(22.5f, 30.0f, 2L, "Test2", 2, 1, 22f).withChargers(List.of(new ChargerDTO(7, "E7", true, 50f)))
+        );
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void streamNearbyLocationsGridClustering() {
+        final InterestPoint cell = new InterestPoint(3, 21.5, 30.0, null, null, null, null, null);
+        Mockito.when(this.locationRepository.findGridInterestPoints(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyBoolean()))
+                .thenReturn(Stream.of(cell));
+
+        final List<InterestPointBaseDTO> result = new ArrayList<>();
+        this.locationService.streamNearbyLocations(-180, -90, 180, 90, 3, false, ClusteringStrategy.GRID, false, "e-1", result::add);
+
+        assertThat(result).containsExactly(new ClusterInterestPoint(21.5f, 30.0f, 3));
+        Mockito.verify(this.locationRepository, Mockito.never()).findInterestPoints(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyBoolean());
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getVectorTileClustersBelowMaxZoom() {
+        final byte[] tile = {0x1a};
+        Mockito.when(this.locationRepository.getVectorTile(3, 4, 5, 1.25f, true)).thenReturn(tile);
+        Mockito.when(this.locationRepository.getVectorTile(18, 4, 5, 0, false)).thenReturn(tile);
+
+        assertThat(this.locationService.getVectorTile(new TileKey(3, 4, 5), true)).isSameAs(tile);
+        assertThat(this.locationService.getVectorTile(new TileKey(18, 4, 5), false)).isSameAs(tile);
+    }
+
+    private void stubTiles() {
+        Mockito.when(this.nearbyTileCache.covering(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyInt()))
+                .thenAnswer(invocation -> TileKey.covering(
+                        invocation.<Float>getArgument(0), invocation.<Float>getArgument(1),
+                        invocation.<Float>getArgument(2), invocation.<Float>getArgument(3),
+                        invocation.getArgument(4), 64));
+        Mockito.lenient().when(this.nearbyTileCache.getTile(Mockito.any(), Mockito.anyBoolean(), Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    final TileKey tile = invocation.getArgument(0);
+                    return List.of(new ClusterInterestPoint((float) tile.west(), (float) tile.south(), tile.x()));
+                });
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyDiffSendsEnteredAndRemovedTiles() {
+        stubTiles();
+        Mockito.when(this.datasetVersion.current()).thenReturn("e-5");
+        Mockito.when(this.datasetVersion.changedSince("e-3")).thenReturn(Optional.of(List.of()));
+
+        // Tiles are 22.5 degrees wide at zoom 4, panning east by one tile
+        final NearbyDiffDTO diff = this.locationService.getNearbyDiff(
+                new Viewport(1, 1, 44, 10, 4), "e-3", new Viewport(23.5f, 1, 66.5f, 10, 4), false, null);
+
+        assertThat(diff.full).isFalse();
+        assertThat(diff.version).isEqualTo("e-5");
+        assertThat(diff.tiles).extracting(t -> t.x).containsExactly(10);
+        assertThat(diff.tiles.get(0).points).containsExactly(new ClusterInterestPoint(45f, 0f, 10));
+        assertThat(diff.removed).containsExactly(new TileKey(4, 8, 7));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyDiffRefreshesChangedTiles() {
+        stubTiles();
+        Mockito.when(this.datasetVersion.current()).thenReturn("e-5");
+        Mockito.when(this.datasetVersion.changedSince("e-3"))
+                .thenReturn(Optional.of(List.of(new LocationDatasetVersion.Change(1, 100, 5, 4))));
+
+        final NearbyDiffDTO diff = this.locationService.getNearbyDiff(
+                new Viewport(1, 1, 44, 10, 4), "e-3", new Viewport(1, 1, 44, 10, 4), false, null);
+        assertThat(diff.full).isFalse();
+        assertThat(diff.tiles).isEmpty();
+        assertThat(diff.removed).isEmpty();
+
+        Mockito.when(this.datasetVersion.changedSince("e-4"))
+                .thenReturn(Optional.of(List.of(new LocationDatasetVersion.Change(1, 50, 5, 5))));
+
+        // The change is one tile east of the viewport, only the tile next to it is refreshed
+        final NearbyDiffDTO changed = this.locationService.getNearbyDiff(
+                new Viewport(1, 1, 44, 10, 4), "e-4", new Viewport(1, 1, 44, 10, 4), false, null);
+        assertThat(changed.tiles).extracting(t -> t.x).containsExactly(9);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void getNearbyDiffFallsBackToFullResponse() {
+        Mockito.when(this.datasetVersion.current()).thenReturn("e-5");
+        Mockito.when(this.nearbyTileCache.get(Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyFloat(), Mockito.anyInt(), Mockito.anyBoolean(), Mockito.any(), Mockito.any()))
+                .thenReturn(Optional.of(List.of(new ClusterInterestPoint(21.5f, 30.0f, 2))));
+
+        final NearbyDiffDTO zoomed = this.locationService.getNearbyDiff(
+                new Viewport(1, 1, 44, 10, 4), "e-3", new Viewport(1, 1, 22, 5, 5), false, null);
+        assertThat(zoomed.full).isTrue();
+        assertThat(zoomed.points).containsExactly(new ClusterInterestPoint(21.5f, 30.0f, 2));
+
+        stubTiles();
+        Mockito.when(this.datasetVersion.changedSince("old-3")).thenReturn(Optional.empty());
+        final NearbyDiffDTO unknownVersion = this.locationService.getNearbyDiff(
+                new Viewport(1, 1, 44, 10, 4), "old-3", new Viewport(23.5f, 1, 66.5f, 10, 4), false, null);
+        assertThat(unknownVersion.full).isTrue();
+    }
+
     private LocationListing createLocationListing(long id, String name, float lon, float lat) {
         return new LocationListing() {
             @Override
@@ -187,6 +721,21 @@ class LocationServiceImplTest {
             public float getLon() {
                 return lon;
             }
+
+            @Override
+            public int getChargerCount() {
+                return 2;
+            }
+
+            @Override
+            public int getAvailableChargers() {
+                return 1;
+            }
+
+            @Override
+            public float getMaxPower() {
+                return 22f;
+            }
         };
     }
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+package com.nikogrid.backend.services;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.dto.CreateReservation;
+import com.nikogrid.backend.dto.ReservationBatchItemDTO;
+import com.nikogrid.backend.dto.ReservationBatchResultDTO;
+import com.nikogrid.backend.dto.TimeSlotDTO;
+import com.nikogrid.backend.entities.Charger;
+import com.nikogrid.backend.entities.User;
+import com.nikogrid.backend.events.ReservationCreated;
+import com.nikogrid.backend.repositories.ChargerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationBatchServiceImplTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ChargerRepository chargerRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private ReservationBatchServiceImpl batchService;
+
+    private final User user = new User();
+
+    private static Instant at(String time) {
+        return Instant.parse("2025-01-01T" + time + ":00Z");
+    }
+
+    private static Charger charger(long id, boolean available) {
+        final Charger charger = new Charger();
+        charger.setId(id);
+        charger.setAvailable(available);
+        return charger;
+    }
+
+    /**
+     * Feeds the rows to the row handler of a query, each row a column name to value map. Successive
+     * calls get the successive lists of rows, the last one is repeated.
+     */
+    @SafeVarargs
+    private static void rows(JdbcTemplate jdbcTemplate, String sqlStart, List<Map<String, Object>>... calls) {
+        final AtomicInteger call = new AtomicInteger();
+        Mockito.doAnswer(i -> {
+            final RowCallbackHandler handler = i.getArgument(1);
+            for (final Map<String, Object> row : calls[Math.min(call.getAndIncrement(), calls.length - 1)]) {
+                final ResultSet rs = Mockito.mock(ResultSet.class);
+                Mockito.lenient().when(rs.getInt(Mockito.anyString())).thenAnswer(c -> ((Number) row.get(c.<String>getArgument(0))).intValue());
+                Mockito.lenient().when(rs.getLong(Mockito.anyString())).thenAnswer(c -> ((Number) row.get(c.<String>getArgument(0))).longValue());
+                Mockito.lenient().when(rs.getObject(Mockito.anyString(), Mockito.eq(OffsetDateTime.class)))
+                        .thenAnswer(c -> ((Instant) row.get(c.<String>getArgument(0))).atOffset(ZoneOffset.UTC));
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(Mockito.startsWith(sqlStart), Mockito.any(RowCallbackHandler.class), Mockito.any(Object[].class));
+    }
+
+    @BeforeEach
+    void setup() {
+        Mockito.when(chargerRepository.findAllById(Mockito.any()))
+                .thenReturn(List.of(charger(1, true), charger(2, false)));
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void bestEffortCreatesWhatItCan() throws SQLException {
+        final List<CreateReservation> reservations = List.of(
+                new CreateReservation(1L, at("10:00"), at("11:00")),
+                new CreateReservation(1L, at("10:30"), at("11:30")),
+                new CreateReservation(1L, at("12:00"), at("13:00")),
+                new CreateReservation(2L, at("10:00"), at("11:00")),
+                new CreateReservation(3L, at("10:00"), at("11:00")),
+                new CreateReservation(1L, at("14:00"), at("15:00")));
+        // The third reservation overlaps one already made, the first candidate of the check is the first reservation
+        rows(jdbcTemplate, "SELECT", List.of(Map.of("ord", 3, "starts_at", at("12:30"), "ends_at", at("13:30"))));
+        rows(jdbcTemplate, "INSERT", List.of(
+                Map.of("id", 20L, "charger_id", 1L, "starts_at", at("14:00")),
+                Map.of("id", 21L, "charger_id", 1L, "starts_at", at("10:00"))));
+
+        final ReservationBatchResultDTO result = batchService.create(user, reservations, false);
+
+        assertThat(result.created).isEqualTo(2);
+        assertThat(result.items).extracting(item -> item.status).containsExactly(
+                ReservationBatchItemDTO.Status.CREATED,
+                ReservationBatchItemDTO.Status.CONFLICT,
+                ReservationBatchItemDTO.Status.CONFLICT,
+                ReservationBatchItemDTO.Status.CHARGER_UNAVAILABLE,
+                ReservationBatchItemDTO.Status.CHARGER_NOT_FOUND,
+                ReservationBatchItemDTO.Status.CREATED);
+        assertThat(result.items).extracting(item -> item.id).containsExactly(21L, null, null, null, null, 20L);
+        assertThat(result.items.get(1).conflictsWith).isEqualTo(new TimeSlotDTO(at("10:00"), at("11:00")));
+        assertThat(result.items.get(2).conflictsWith).isEqualTo(new TimeSlotDTO(at("12:30"), at("13:30")));
+
+        Mockito.verify(jdbcTemplate).query(Mockito.contains("ON CONFLICT DO NOTHING"), Mockito.any(RowCallbackHandler.class), Mockito.any(Object[].class));
+        Mockito.verify(eventPublisher).publishEvent(new ReservationCreated(21, 1, at("10:00"), at("11:00")));
+        Mockito.verify(eventPublisher).publishEvent(new ReservationCreated(20, 1, at("14:00"), at("15:00")));
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void allOrNothingCreatesNothingOnConflict() {
+        final List<CreateReservation> reservations = List.of(
+                new CreateReservation(1L, at("10:00"), at("11:00")),
+                new CreateReservation(1L, at("12:00"), at("13:00")));
+        rows(jdbcTemplate, "SELECT", List.of(Map.of("ord", 2, "starts_at", at("12:30"), "ends_at", at("13:30"))));
+
+        final ReservationBatchResultDTO result = batchService.create(user, reservations, true);
+
+        assertThat(result.created).isZero();
+        assertThat(result.items).extracting(item -> item.status).containsExactly(
+                ReservationBatchItemDTO.Status.SKIPPED, ReservationBatchItemDTO.Status.CONFLICT);
+        Mockito.verify(jdbcTemplate, Mockito.never())
+                .query(Mockito.startsWith("INSERT"), Mockito.any(RowCallbackHandler.class), Mockito.any(Object[].class));
+        Mockito.verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void allOrNothingInsertsEverything() {
+        final List<CreateReservation> reservations = List.of(
+                new CreateReservation(1L, at("10:00"), at("11:00")),
+                new CreateReservation(1L, at("11:00"), at("12:00")));
+        rows(jdbcTemplate, "SELECT", List.of());
+        rows(jdbcTemplate, "INSERT", List.of(
+                Map.of("id", 1L, "charger_id", 1L, "starts_at", at("10:00")),
+                Map.of("id", 2L, "charger_id", 1L, "starts_at", at("11:00"))));
+
+        final ReservationBatchResultDTO result = batchService.create(user, reservations, true);
+
+        assertThat(result.created).isEqualTo(2);
+        Mockito.verify(jdbcTemplate, Mockito.never()).update(Mockito.startsWith("DELETE"), Mockito.any(Object[].class));
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void bestEffortReportsReservationsMadeMeanwhile() {
+        final List<CreateReservation> reservations = List.of(
+                new CreateReservation(1L, at("10:00"), at("11:00")),
+                new CreateReservation(1L, at("12:00"), at("13:00")));
+        // Nothing in the way at first, then the second one is left out of the insert
+        rows(jdbcTemplate, "SELECT", List.of(), List.of(Map.of("ord", 1, "starts_at", at("12:30"), "ends_at", at("13:30"))));
+        rows(jdbcTemplate, "INSERT", List.of(Map.of("id", 1L, "charger_id", 1L, "starts_at", at("10:00"))));
+
+        final ReservationBatchResultDTO result = batchService.create(user, reservations, false);
+
+        assertThat(result.created).isEqualTo(1);
+        assertThat(result.items).extracting(item -> item.status).containsExactly(
+                ReservationBatchItemDTO.Status.CREATED, ReservationBatchItemDTO.Status.CONFLICT);
+        assertThat(result.items.get(1).conflictsWith).isEqualTo(new TimeSlotDTO(at("12:30"), at("13:30")));
+        Mockito.verify(jdbcTemplate, Mockito.never()).update(Mockito.startsWith("DELETE"), Mockito.any(Object[].class));
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void allOrNothingUndoesInsertOnReservationMadeMeanwhile() {
+        final List<CreateReservation> reservations = List.of(
+                new CreateReservation(1L, at("10:00"), at("11:00")),
+                new CreateReservation(1L, at("12:00"), at("13:00")));
+        rows(jdbcTemplate, "SELECT", List.of(), List.of(Map.of("ord", 1, "starts_at", at("12:30"), "ends_at", at("13:30"))));
+        rows(jdbcTemplate, "INSERT", List.of(Map.of("id", 7L, "charger_id", 1L, "starts_at", at("10:00"))));
+
+        final ReservationBatchResultDTO result = batchService.create(user, reservations, true);
+
+        assertThat(result.created).isZero();
+        assertThat(result.items).extracting(item -> item.status).containsExactly(
+                ReservationBatchItemDTO.Status.SKIPPED, ReservationBatchItemDTO.Status.CONFLICT);
+        assertThat(result.items).extracting(item -> item.id).containsOnlyNulls();
+        assertThat(result.items.get(1).conflictsWith).isEqualTo(new TimeSlotDTO(at("12:30"), at("13:30")));
+        final ArgumentCaptor<Object[]> deleted = ArgumentCaptor.forClass(Object[].class);
+        Mockito.verify(jdbcTemplate).update(Mockito.startsWith("DELETE"), deleted.capture());
+        assertThat(deleted.getValue()).containsExactly((Object) new Long[]{7L});
+        Mockito.verifyNoInteractions(eventPublisher);
+    }
+}
@@ -1,32 +1,60 @@
 package com.nikogrid.backend.services;
 
 import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.dto.ReservationCursor;
+import com.nikogrid.backend.dto.ReservationListDTO;
+import com.nikogrid.backend.dto.ReservationPageDTO;
 import com.nikogrid.backend.entities.Charger;
 import com.nikogrid.backend.entities.Location;
 import com.nikogrid.backend.entities.Reservation;
 import com.nikogrid.backend.entities.User;
+import com.nikogrid.backend.events.ReservationCancelled;
+import com.nikogrid.backend.events.ReservationCreated;
 import com.nikogrid.backend.exceptions.ChargerUnavailable;
 import com.nikogrid.backend.exceptions.ReservationConflict;
 import com.nikogrid.backend.repositories.ReservationRepository;
+import com.nikogrid.backend.scheduling.ChargerTimeline;
+import com.nikogrid.backend.scheduling.ChargerTimelineCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import java.time.Clock;
 import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @ExtendWith(MockitoExtension.class)
 class ReservationServiceImplTest {
+    private static final Instant NOW = Instant.parse("2025-01-01T12:00:00Z");
+    private static final Clock CLOCK = Clock.fixed(NOW, ZoneId.of("UTC"));
 
     @Mock
     private ReservationRepository reservationRepository;
 
-    @InjectMocks
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ChargerTimelineCache timelines;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private ReservationServiceImpl reservationServiceImpl;
 
     private Charger charger;
@@ -34,12 +62,17 @@ class ReservationServiceImplTest {
 
     @BeforeEach
     void init() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.reservationServiceImpl = new ReservationServiceImpl(
+                reservationRepository, eventPublisher, timelines, CLOCK, meterRegistry, true);
+
         final Location location = new Location();
         location.setName("Test location");
         location.setLon(20.0f);
         location.setLat(30.0f);
 
         this.charger = new Charger();
+        charger.setId(2L);
         charger.setName("AAA1");
         charger.setAvailable(true);
         charger.setMaxPower(22.2F);
@@ -61,10 +94,119 @@ class ReservationServiceImplTest {
         reservation.setStartsAt(Instant.parse("2025-01-01T14:30:00.000+00:00"));
         reservation.setEndsAt(Instant.parse("2025-01-01T14:45:00.000+00:00"));
 
+        Mockito.when(this.timelines.get(2L)).thenReturn(new ChargerTimeline());
+        Mockito.when(this.reservationRepository.save(reservation)).thenAnswer(i -> {
+            reservation.setId(1L);
+            return reservation;
+        });
+
         this.reservationServiceImpl.create(reservation);
 
         // Verify that the service persisted the reservation to the repo
         Mockito.verify(this.reservationRepository, Mockito.times(1)).save(Mockito.any());
+        Mockito.verify(this.eventPublisher).publishEvent(new ReservationCreated(
+                1L, 2L, reservation.getStartsAt(), reservation.getEndsAt()));
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void createReservationConflictCaughtEarly() {
+        final ChargerTimeline timeline = new ChargerTimeline();
+        timeline.add(5, Instant.parse("2025-01-01T14:00:00Z"), Instant.parse("2025-01-01T15:00:00Z"));
+        Mockito.when(this.timelines.get(2L)).thenReturn(timeline);
+
+        final Reservation reservation = new Reservation();
+        reservation.setUser(user);
+        reservation.setCharger(charger);
+        reservation.setStartsAt(Instant.parse("2025-01-01T14:30:00Z"));
+        reservation.setEndsAt(Instant.parse("2025-01-01T14:45:00Z"));
+        Mockito.when(this.reservationRepository.existsOverlapping(2L, reservation.getStartsAt(), reservation.getEndsAt()))
+                .thenReturn(true);
+
+        assertThatThrownBy(() -> this.reservationServiceImpl.create(reservation))
+                .isInstanceOf(ReservationConflict.class);
+
+        Mockito.verify(this.reservationRepository, Mockito.never()).save(Mockito.any());
+        Mockito.verify(this.timelines, Mockito.never()).invalidate(Mockito.anyLong());
+        assertThat(conflicts("early")).isEqualTo(1);
+        assertThat(conflicts("database")).isZero();
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void createReservationInSlotFreedElsewhere() throws ChargerUnavailable, ReservationConflict {
+        final ChargerTimeline timeline = new ChargerTimeline();
+        timeline.add(5, Instant.parse("2025-01-01T14:00:00Z"), Instant.parse("2025-01-01T15:00:00Z"));
+        Mockito.when(this.timelines.get(2L)).thenReturn(timeline);
+
+        final Reservation reservation = new Reservation();
+        reservation.setUser(user);
+        reservation.setCharger(charger);
+        reservation.setStartsAt(Instant.parse("2025-01-01T14:30:00Z"));
+        reservation.setEndsAt(Instant.parse("2025-01-01T14:45:00Z"));
+        Mockito.when(this.reservationRepository.existsOverlapping(2L, reservation.getStartsAt(), reservation.getEndsAt()))
+                .thenReturn(false);
+        Mockito.when(this.reservationRepository.save(reservation)).thenAnswer(i -> {
+            reservation.setId(1L);
+            return reservation;
+        });
+
+        this.reservationServiceImpl.create(reservation);
+
+        // The timeline still had the cancelled reservation, so it is reloaded
+        Mockito.verify(this.timelines).invalidate(2L);
+        Mockito.verify(this.reservationRepository).save(reservation);
+        assertThat(conflicts("early")).isZero();
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void createReservationConflictCaughtByDatabase() {
+        Mockito.when(this.timelines.get(2L)).thenReturn(new ChargerTimeline());
+        final PSQLException overlap = new PSQLException(new ServerErrorMessage(
+                "SERROR\0C23P01\0Mconflicting key value violates exclusion constraint\0nec_working_hours_overlap\0"));
+        Mockito.when(this.reservationRepository.save(Mockito.any()))
+                .thenThrow(new DataIntegrityViolationException("Overlap", overlap));
+
+        final Reservation reservation = new Reservation();
+        reservation.setUser(user);
+        reservation.setCharger(charger);
+        reservation.setStartsAt(Instant.parse("2025-01-01T14:30:00Z"));
+        reservation.setEndsAt(Instant.parse("2025-01-01T14:45:00Z"));
+
+        assertThatThrownBy(() -> this.reservationServiceImpl.create(reservation))
+                .isInstanceOf(ReservationConflict.class);
+
+        // The stale timeline is dropped so the next attempt sees the reservation
+        Mockito.verify(this.timelines).invalidate(2L);
+        Mockito.verifyNoInteractions(this.eventPublisher);
+        assertThat(conflicts("early")).isZero();
+        assertThat(conflicts("database")).isEqualTo(1);
+    }
+
+    @Test
+    @Requirement("NIK-12")
+    void createReservationWithoutPrecheck() throws ChargerUnavailable, ReservationConflict {
+        this.reservationServiceImpl = new ReservationServiceImpl(
+                reservationRepository, eventPublisher, timelines, CLOCK, meterRegistry, false);
+
+        final Reservation reservation = new Reservation();
+        reservation.setUser(user);
+        reservation.setCharger(charger);
+        reservation.setStartsAt(Instant.parse("2025-01-01T14:30:00Z"));
+        reservation.setEndsAt(Instant.parse("2025-01-01T14:45:00Z"));
+        Mockito.when(this.reservationRepository.save(reservation)).thenAnswer(i -> {
+            reservation.setId(1L);
+            return reservation;
+        });
+
+        this.reservationServiceImpl.create(reservation);
+
+        Mockito.verifyNoInteractions(this.timelines);
+    }
+
+    private double conflicts(String detected) {
+        return this.meterRegistry.get(ReservationServiceImpl.CONFLICTS_METRIC).tag("detected", detected).counter().count();
     }
 
     @Test
@@ -100,4 +242,81 @@ class ReservationServiceImplTest {
         this.reservationServiceImpl.cancel(1);
         Mockito.verify(this.reservationRepository, Mockito.times(1)).deleteById(Mockito.anyLong());
     }
+
+    @Test
+    @Requirement("NIK-25")
+    void cancelReservationPublishesFreedSlot() {
+        final Reservation reservation = new Reservation();
+        reservation.setId(1L);
+        reservation.setUser(user);
+        reservation.setCharger(charger);
+        reservation.setStartsAt(Instant.parse("2025-01-01T14:30:00Z"));
+        reservation.setEndsAt(Instant.parse("2025-01-01T14:45:00Z"));
+        Mockito.when(this.reservationRepository.findById(1L)).thenReturn(Optional.of(reservation));
+
+        this.reservationServiceImpl.cancel(1);
+
+        Mockito.verify(this.reservationRepository).deleteById(1L);
+        Mockito.verify(this.eventPublisher).publishEvent(new ReservationCancelled(
+                1L, 2L, reservation.getStartsAt(), reservation.getEndsAt()));
+    }
+
+    @Test
+    @Requirement("NIK-13")
+    void streamUserReservations() {
+        final ReservationListDTO reservation = new ReservationListDTO(
+                1L, 2L, Instant.parse("2025-01-01T14:30:00Z"), Instant.parse("2025-01-01T14:45:00Z"), "AAA1", "Test location", 22.2f);
+        final AtomicBoolean wasClosed = new AtomicBoolean(false);
+        Mockito.when(this.reservationRepository.streamUserReservations(user.getId()))
+                .thenReturn(Stream.of(reservation).onClose(() -> wasClosed.set(true)));
+
+        final List<ReservationListDTO> result = new ArrayList<>();
+        this.reservationServiceImpl.streamUserReservations(user, result::add);
+
+        assertThat(result).containsExactly(reservation);
+        assertThat(wasClosed).isTrue();
+    }
+
+    private static ReservationListDTO listed(long id, String start) {
+        final Instant startsAt = Instant.parse(start);
+        return new ReservationListDTO(id, 2L, startsAt, startsAt.plusSeconds(900), "AAA1", "Test location", 22.2f);
+    }
+
+    @Test
+    @Requirement("NIK-13")
+    void upcomingFirstPage() {
+        Mockito.when(this.reservationRepository.findUserUpcoming(user.getId(), NOW, NOW, Long.MIN_VALUE, 3))
+                .thenReturn(List.of(listed(1, "2025-01-02T10:00:00Z"), listed(4, "2025-01-02T10:00:00Z"), listed(2, "2025-01-03T10:00:00Z")));
+        Mockito.when(this.reservationRepository.countByUserIdAndStartsAtGreaterThanEqual(user.getId(), NOW)).thenReturn(5L);
+
+        final ReservationPageDTO page = this.reservationServiceImpl.getUserReservations(user, ReservationService.Period.UPCOMING, null, 2);
+
+        assertThat(page.items).extracting(r -> r.id).containsExactly(1L, 4L);
+        assertThat(page.total).isEqualTo(5);
+        assertThat(ReservationCursor.decode(page.nextCursor))
+                .contains(new ReservationCursor(Instant.parse("2025-01-02T10:00:00Z"), 4));
+    }
+
+    @Test
+    @Requirement("NIK-13")
+    void pastLastPage() {
+        final ReservationCursor after = new ReservationCursor(Instant.parse("2024-12-01T10:00:00Z"), 7);
+        Mockito.when(this.reservationRepository.findUserPast(user.getId(), NOW, after.startsAt(), 7, 3))
+                .thenReturn(List.of(listed(3, "2024-11-01T10:00:00Z")));
+        Mockito.when(this.reservationRepository.countByUserIdAndStartsAtLessThan(user.getId(), NOW)).thenReturn(3L);
+
+        final ReservationPageDTO page = this.reservationServiceImpl.getUserReservations(user, ReservationService.Period.PAST, after, 2);
+
+        assertThat(page.items).extracting(r -> r.id).containsExactly(3L);
+        assertThat(page.total).isEqualTo(3);
+        assertThat(page.nextCursor).isNull();
+    }
+
+    @Test
+    @Requirement("NIK-13")
+    void pastFirstPageStartsBeforeNow() {
+        this.reservationServiceImpl.getUserReservations(user, ReservationService.Period.PAST, null, 20);
+
+        Mockito.verify(this.reservationRepository).findUserPast(user.getId(), NOW, NOW, Long.MAX_VALUE, 21);
+    }
 }
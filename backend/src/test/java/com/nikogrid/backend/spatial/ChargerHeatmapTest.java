@@ -0,0 +1,139 @@
+package com.nikogrid.backend.spatial;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.dto.HeatmapCellDTO;
+import com.nikogrid.backend.dto.HeatmapDTO;
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import com.nikogrid.backend.repositories.LocationRepository;
+import com.nikogrid.backend.repositories.projections.ChargerPosition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChargerHeatmapTest {
+    private LocationRepository locationRepository;
+    private ChargerHeatmap heatmap;
+
+    @BeforeEach
+    void setup() {
+        this.locationRepository = Mockito.mock(LocationRepository.class);
+        this.heatmap = new ChargerHeatmap(this.locationRepository, Mockito.mock(PlatformTransactionManager.class), true, 4, Runnable::run);
+    }
+
+    private static ChargerPosition charger(long id, float longitude, float latitude, boolean available, float maxPower) {
+        final ChargerPosition charger = Mockito.mock(ChargerPosition.class);
+        Mockito.when(charger.getId()).thenReturn(id);
+        Mockito.when(charger.getLon()).thenReturn(longitude);
+        Mockito.when(charger.getLat()).thenReturn(latitude);
+        Mockito.when(charger.isAvailable()).thenReturn(available);
+        Mockito.when(charger.getMaxPower()).thenReturn(maxPower);
+        return charger;
+    }
+
+    private void load(ChargerPosition... chargers) {
+        Mockito.when(this.locationRepository.streamChargerPositions()).thenReturn(Stream.of(chargers));
+        this.heatmap.load();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void emptyUntilLoaded() {
+        assertThat(this.heatmap.find(-180, -90, 180, 90, 0)).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void disabledIsNeverLoaded() {
+        final ChargerHeatmap disabled = new ChargerHeatmap(this.locationRepository, Mockito.mock(PlatformTransactionManager.class), false, 4, Runnable::run);
+        disabled.load();
+
+        assertThat(disabled.find(-180, -90, 180, 90, 0)).isEmpty();
+        Mockito.verifyNoInteractions(this.locationRepository);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void sumsChargersPerCell() {
+        load(
+                charger(1, -8.65f, 40.64f, true, 22),
+                charger(2, -8.65f, 40.64f, false, 50),
+                charger(3, -8.60f, 40.70f, true, 11)
+        );
+
+        final TileKey aveiro = TileKey.containing(-8.65, 40.64, 3);
+        assertThat(this.heatmap.find(-10, 40, -8, 42, 0)).get()
+                .isEqualTo(new HeatmapDTO(3, List.of(new HeatmapCellDTO(aveiro.x(), aveiro.y(), 3, 2, 83))));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void onlyReturnsCellsInTheEnvelope() {
+        load(
+                charger(1, -8.65f, 40.64f, true, 22),
+                charger(2, 2.35f, 48.86f, true, 50)
+        );
+
+        final HeatmapDTO result = this.heatmap.find(-10, 40, -8, 42, 6).orElseThrow();
+
+        assertThat(result.level).isEqualTo(9);
+        assertThat(result.cells).singleElement().satisfies(cell -> {
+            assertThat(cell.chargers).isEqualTo(1);
+            assertThat(cell.totalPower).isEqualTo(22);
+        });
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void coarsensOverTheCellBudget() {
+        load(
+                charger(1, -60, -30, true, 1),
+                charger(2, -30, -30, true, 1),
+                charger(3, 30, 30, true, 1),
+                charger(4, 60, 30, true, 1),
+                charger(5, 150, 60, true, 1)
+        );
+
+        final HeatmapDTO result = this.heatmap.find(-180, -85, 180, 85, 0).orElseThrow();
+
+        assertThat(result.cells).hasSizeLessThanOrEqualTo(4);
+        assertThat(result.cells.stream().mapToInt(cell -> cell.chargers).sum()).isEqualTo(5);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void followsAvailabilityChanges() {
+        load(charger(7, -8.65f, 40.64f, true, 22));
+
+        this.heatmap.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(7, 1, -8.65f, 40.64f, false, 0));
+        // Already counted as unavailable
+        this.heatmap.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(7, 1, -8.65f, 40.64f, false, 0));
+
+        assertThat(this.heatmap.find(-10, 40, -8, 42, 0)).get()
+                .satisfies(result -> assertThat(result.cells).singleElement().satisfies(cell -> {
+                    assertThat(cell.chargers).isEqualTo(1);
+                    assertThat(cell.availableChargers).isZero();
+                }));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void appliesChangesReceivedWhileLoading() {
+        final ChargerPosition charger = charger(7, -8.65f, 40.64f, true, 22);
+        Mockito.when(this.locationRepository.streamChargerPositions()).thenAnswer(invocation -> {
+            this.heatmap.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(7, 1, -8.65f, 40.64f, false, 0));
+            return Stream.of(charger);
+        });
+
+        this.heatmap.load();
+
+        assertThat(this.heatmap.find(-10, 40, -8, 42, 0)).get()
+                .satisfies(result -> assertThat(result.cells).singleElement()
+                        .satisfies(cell -> assertThat(cell.availableChargers).isZero()));
+    }
+}
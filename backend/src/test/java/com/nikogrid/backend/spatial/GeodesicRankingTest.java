@@ -0,0 +1,57 @@
+package com.nikogrid.backend.spatial;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeodesicRankingTest {
+    private record Point(double lon, double lat) {
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void ranksByGreatCircleDistance() {
+        final Point north = new Point(0, 61);
+        final Point east = new Point(1.5, 60);
+
+        assertThat(GeodesicRanking.rank(0, 60, 2, List.of(north, east), true, Point::lon, Point::lat))
+                .get()
+                .satisfies(ranked -> assertThat(ranked).extracting(GeodesicRanking.Ranked::value).containsExactly(east, north));
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void needsMoreCandidatesWhileTheOrderIsUnsettled() {
+        final List<Point> candidates = List.of(new Point(0, 71), new Point(0, 71.5));
+
+        assertThat(GeodesicRanking.rank(0, 70, 1, candidates, false, Point::lon, Point::lat)).isEmpty();
+        assertThat(GeodesicRanking.rank(0, 70, 3, candidates, false, Point::lon, Point::lat)).isEmpty();
+        assertThat(GeodesicRanking.rank(0, 70, 1, candidates, true, Point::lon, Point::lat)).get().asInstanceOf(InstanceOfAssertFactories.LIST).hasSize(1);
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void settledWhenNothingPastTheLastCandidateCanBeCloser() {
+        final List<Point> candidates = List.of(new Point(0, 0.1), new Point(0, 5));
+
+        assertThat(GeodesicRanking.rank(0, 0, 1, candidates, false, Point::lon, Point::lat))
+                .get()
+                .satisfies(ranked -> assertThat(ranked).extracting(GeodesicRanking.Ranked::value).containsExactly(new Point(0, 0.1)));
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void unsettledNextToTheAntimeridian() {
+        // Planar order walks west, away from anything just across the antimeridian
+        final List<Point> candidates = List.of(new Point(179, 0), new Point(178, 0));
+
+        assertThat(GeodesicRanking.rank(179.9, 0, 1, candidates, false, Point::lon, Point::lat)).isEmpty();
+        assertThat(GeodesicRanking.rank(179.9, 0, 1, List.of(new Point(179, 0), new Point(-179.95, 0)), true, Point::lon, Point::lat))
+                .get()
+                .satisfies(ranked -> assertThat(ranked).extracting(GeodesicRanking.Ranked::value).containsExactly(new Point(-179.95, 0)));
+    }
+}
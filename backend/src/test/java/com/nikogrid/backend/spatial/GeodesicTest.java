@@ -0,0 +1,60 @@
+package com.nikogrid.backend.spatial;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class GeodesicTest {
+    @Test
+    @Requirement("NIK-24")
+    void distance() {
+        // Aveiro to Porto
+        assertThat(Geodesic.distance(-8.6538, 40.6405, -8.6291, 41.1579)).isCloseTo(57_570, within(100.0));
+        assertThat(Geodesic.distance(10, 20, 10, 20)).isZero();
+        assertThat(Geodesic.distance(0, 0, 180, 0)).isCloseTo(Math.PI * Geodesic.EARTH_RADIUS, within(1.0));
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void minDistanceIsALowerBound() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            final double longitude = random.nextDouble() * 360 - 180;
+            final double latitude = random.nextDouble() * 170 - 85;
+            // Wrapped like stored longitudes, so the planar distance of points across the antimeridian is the long way round
+            final double otherLongitude = Geodesic.longitudeDifference(0, longitude + random.nextGaussian() * 5);
+            final double otherLatitude = Math.max(-90, Math.min(90, latitude + random.nextGaussian() * 5));
+
+            final double degrees = Math.hypot(otherLongitude - longitude, otherLatitude - latitude);
+            assertThat(Geodesic.minDistance(longitude, latitude, degrees))
+                    .isLessThanOrEqualTo(Geodesic.distance(longitude, latitude, otherLongitude, otherLatitude) + 1e-6);
+        }
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void minDistanceShrinksTowardsThePoles() {
+        assertThat(Geodesic.minDistance(0, 0, 1)).isCloseTo(111_000, within(1_000.0));
+        assertThat(Geodesic.minDistance(0, 70, 1)).isLessThan(Geodesic.minDistance(0, 0, 1) / 2);
+        assertThat(Geodesic.minDistance(0, 89.5, 1)).isCloseTo(0, within(1e-6));
+        assertThat(Geodesic.minDistance(0, 0, 180)).isZero();
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void acrossTheAntimeridian() {
+        assertThat(Geodesic.longitudeDifference(179.5, -179.5)).isCloseTo(1, within(1e-9));
+        assertThat(Geodesic.longitudeDifference(-179.5, 179.5)).isCloseTo(-1, within(1e-9));
+        assertThat(Geodesic.longitudeDifference(10, 20)).isCloseTo(10, within(1e-9));
+
+        final double across = Geodesic.distance(179.5, 0, -179.5, 0);
+        assertThat(across).isCloseTo(111_195, within(100.0));
+        // 359 planar degrees apart, but only one across the antimeridian
+        assertThat(Geodesic.minDistance(179.5, 0, 359)).isLessThanOrEqualTo(across);
+        assertThat(Geodesic.minDistance(-179.5, 0, 10)).isLessThanOrEqualTo(across);
+    }
+}
@@ -0,0 +1,134 @@
+package com.nikogrid.backend.spatial;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import com.nikogrid.backend.events.LocationChangedElsewhere;
+import com.nikogrid.backend.events.LocationCreated;
+import com.nikogrid.backend.events.LocationsImported;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class LocationDatasetVersionTest {
+    @Test
+    @Requirement("NIK-37")
+    void changesBumpVersion() {
+        final LocationDatasetVersion version = new LocationDatasetVersion(100);
+        final String initial = version.current();
+        assertThat(version.current()).isEqualTo(initial);
+
+        final Location location = new Location();
+        location.setId(1L);
+        version.onLocationCreated(new LocationCreated(location));
+        final String afterCreate = version.current();
+        assertThat(afterCreate).isNotEqualTo(initial);
+
+        version.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(1, 1, 0, 0, true, 1));
+        assertThat(version.current()).isNotEqualTo(afterCreate).isNotEqualTo(initial);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void locationVersionOnlyChangesWithItsLocation() {
+        final LocationDatasetVersion version = new LocationDatasetVersion(100);
+        final Location location = new Location();
+        location.setId(1L);
+
+        final String initial = version.location(1L);
+        assertThat(version.location(2L)).isEqualTo(initial);
+
+        version.onLocationCreated(new LocationCreated(location));
+        final String created = version.location(1L);
+        assertThat(created).isNotEqualTo(initial);
+
+        version.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(1, 2, 0, 0, true, 1));
+        assertThat(version.location(1L)).isEqualTo(created);
+        assertThat(version.location(2L)).isNotEqualTo(initial).isEqualTo(version.current());
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void changesOfOtherProcessesBumpVersion() {
+        final LocationDatasetVersion version = new LocationDatasetVersion(100);
+        final String initial = version.current();
+        final String location = version.location(1L);
+
+        version.onLocationChangedElsewhere(new LocationChangedElsewhere(1, 10, 20));
+
+        assertThat(version.current()).isNotEqualTo(initial);
+        assertThat(version.location(1L)).isNotEqualTo(location).isEqualTo(version.current());
+        assertThat(version.changedSince(initial)).get().asInstanceOf(InstanceOfAssertFactories.LIST)
+                .extracting("locationId")
+                .containsExactly(1L);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void changedSinceListsLaterChanges() {
+        final LocationDatasetVersion version = new LocationDatasetVersion(100);
+        version.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(1, 1, 10, 20, true, 1));
+        final String seen = version.current();
+        version.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(2, 2, 30, 40, true, 1));
+        version.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(3, 2, 30, 40, false, 0));
+
+        assertThat(version.changedSince(seen)).get().asInstanceOf(InstanceOfAssertFactories.LIST)
+                .extracting("locationId", "longitude", "latitude")
+                .containsExactly(tuple(2L, 30f, 40f));
+        assertThat(version.changedSince(version.current())).get().asInstanceOf(InstanceOfAssertFactories.LIST).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void changedSinceRejectsForeignVersions() {
+        final LocationDatasetVersion version = new LocationDatasetVersion(100);
+
+        assertThat(version.changedSince(null)).isEmpty();
+        assertThat(version.changedSince("abc-1")).isEmpty();
+        assertThat(version.changedSince(version.current() + "1")).isEmpty();
+        assertThat(version.changedSince(version.current().replace("-0", "-x"))).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void changedSinceOnlyCoversRememberedChanges() {
+        final LocationDatasetVersion version = new LocationDatasetVersion(2);
+        final String initial = version.current();
+        version.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(1, 1, 10, 20, true, 1));
+        final String first = version.location(1L);
+        version.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(2, 2, 30, 40, true, 1));
+        final String seen = version.current();
+        version.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(3, 2, 30, 40, false, 0));
+        version.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(4, 3, 50, 60, true, 1));
+
+        assertThat(version.changedSince(initial)).isEmpty();
+        assertThat(version.changedSince(seen)).get().asInstanceOf(InstanceOfAssertFactories.LIST)
+                .extracting("locationId")
+                .containsExactly(2L, 3L);
+        assertThat(version.location(1L)).isEqualTo(first);
+
+        version.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(5, 4, 70, 80, true, 1));
+
+        assertThat(version.changedSince(seen)).isEmpty();
+        assertThat(version.location(1L)).isNotEqualTo(first);
+        assertThat(version.location(2L)).isEqualTo(version.location(1L));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void importChangesEveryLocationAndResetsDiffs() {
+        final LocationDatasetVersion version = new LocationDatasetVersion(100);
+        version.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(1, 1, 10, 20, true, 1));
+        final String beforeImport = version.current();
+        final String untouched = version.location(2L);
+
+        version.onLocationsImported(new LocationsImported(10, 0, 10, 0));
+
+        assertThat(version.current()).isNotEqualTo(beforeImport);
+        assertThat(version.location(2L)).isNotEqualTo(untouched).isEqualTo(version.current());
+        assertThat(version.changedSince(beforeImport)).isEmpty();
+        assertThat(version.changedSince(version.current())).get().asInstanceOf(InstanceOfAssertFactories.LIST).isEmpty();
+    }
+}
@@ -0,0 +1,158 @@
+package com.nikogrid.backend.spatial;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.dto.ClusterInterestPoint;
+import com.nikogrid.backend.dto.InterestPointBaseDTO;
+import com.nikogrid.backend.dto.LocationInterestPoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocationIndexTest {
+    private LocationIndex index;
+
+    @BeforeEach
+    void setup() {
+        this.index = new LocationIndex();
+
+        // Same layout as LocationRepositoryTest#findInterestPointsReturnsClustered
+        final float[][] points = {
+                // Cluster 1
+                {21.0f, 30.0f},
+                {22.0f, 30.0f},
+                // Cluster 2
+                {24.0f, 30.0f},
+                {25.0f, 30.0f},
+                // No cluster 1
+                {28.0f, 30.0f},
+                // No cluster 2
+                {28.0f, 33.0f},
+                // Outside envelope
+                {15.0f, 30.0f},
+                {35.0f, 30.0f},
+                {25.0f, 20.0f},
+                {25.0f, 40.0f}
+        };
+        for (int i = 0; i < points.length; i++) {
+            this.index.put(i, Integer.toString(i), points[i][0], points[i][1], 1, 1, 22f);
+        }
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void findInterestPointsClusters() {
+        this.index.buildClusters();
+
+        // Radius at zoom 3 is 1.25 degrees
+        assertThat(this.index.findInterestPoints(20, 25, 30, 35, 3, false))
+                .containsExactlyInAnyOrder(
+                        new ClusterInterestPoint(21.5f, 30.0f, 2),
+                        new ClusterInterestPoint(24.5f, 30.0f, 2),
+                        new LocationInterestPoint(28.0f, 30.0f, 4, "4", 1, 1, 22f),
+                        new LocationInterestPoint(28.0f, 33.0f, 5, "5", 1, 1, 22f)
+                );
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 4, 8, 12, 17})
+    @Requirement("NIK-37")
+    void findInterestPointsKeepsEveryLocation(int zoom) {
+        this.index.buildClusters();
+        this.index.put(100, "100", 21.2f, 30.0f, 1, 1, 22f);
+        this.index.setAvailableChargers(9, 0);
+
+        assertThat(countPoints(this.index.findInterestPoints(-180, -90, 180, 90, zoom, false))).isEqualTo(11);
+        assertThat(countPoints(this.index.findInterestPoints(-180, -90, 180, 90, zoom, true))).isEqualTo(10);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void findInterestPointsNoClusteringAtHighZoom() {
+        this.index.buildClusters();
+
+        assertThat(this.index.findInterestPoints(20, 25, 30, 35, 17, false))
+                .hasSize(6)
+                .allMatch(LocationInterestPoint.class::isInstance);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void findInterestPointsAddsIncrementally() {
+        this.index.buildClusters();
+        this.index.put(100, "100", 21.2f, 30.0f, 1, 1, 22f);
+        this.index.put(101, "101", 27.0f, 33.0f, 1, 1, 22f);
+
+        assertThat(this.index.findInterestPoints(20, 25, 30, 35, 3, false))
+                .containsExactlyInAnyOrder(
+                        new ClusterInterestPoint(21.4f, 30.0f, 3),
+                        new ClusterInterestPoint(24.5f, 30.0f, 2),
+                        new LocationInterestPoint(28.0f, 30.0f, 4, "4", 1, 1, 22f),
+                        new ClusterInterestPoint(27.5f, 33.0f, 2)
+                );
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void findInterestPointsOnlyActive() {
+        this.index.buildClusters();
+        this.index.setAvailableChargers(1, 0);
+
+        assertThat(this.index.findInterestPoints(20, 25, 30, 35, 3, true))
+                .containsExactlyInAnyOrder(
+                        new LocationInterestPoint(21.0f, 30.0f, 0, "0", 1, 1, 22f),
+                        new ClusterInterestPoint(24.5f, 30.0f, 2),
+                        new LocationInterestPoint(28.0f, 30.0f, 4, "4", 1, 1, 22f),
+                        new LocationInterestPoint(28.0f, 33.0f, 5, "5", 1, 1, 22f)
+                );
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void findInterestPointsRequiresBuild() {
+        assertThatThrownBy(() -> this.index.findInterestPoints(20, 25, 30, 35, 3, false))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void findInEnvelope() {
+        this.index.setAvailableChargers(3, 0);
+
+        assertThat(this.index.findInEnvelope(23, 29, 26, 31, false))
+                .containsExactlyInAnyOrder(
+                        new LocationInterestPoint(24.0f, 30.0f, 2, "2", 1, 1, 22f),
+                        new LocationInterestPoint(25.0f, 30.0f, 3, "3", 1, 0, 22f)
+                );
+        assertThat(this.index.findInEnvelope(23, 29, 26, 31, true))
+                .containsExactly(new LocationInterestPoint(24.0f, 30.0f, 2, "2", 1, 1, 22f));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void putManyPointsSplitsTree() {
+        final LocationIndex large = new LocationIndex();
+        for (int i = 0; i < 5000; i++) {
+            large.put(i, Integer.toString(i), (i % 100) * 0.01f, (i / 100) * 0.01f, 1, 1, 22f);
+        }
+        // Coincident points must not split forever
+        for (int i = 5000; i < 5100; i++) {
+            large.put(i, Integer.toString(i), 10f, 10f, 1, 1, 22f);
+        }
+
+        assertThat(large.size()).isEqualTo(5100);
+        assertThat(large.findInEnvelope(0, 0, 0.995f, 0.245f, false)).hasSize(2500);
+        assertThat(large.findInEnvelope(9, 9, 11, 11, false)).hasSize(100);
+    }
+
+    private static long countPoints(List<InterestPointBaseDTO> points) {
+        return points.stream()
+                .mapToLong(p -> p instanceof ClusterInterestPoint c ? c.numPoints : 1)
+                .sum();
+    }
+}
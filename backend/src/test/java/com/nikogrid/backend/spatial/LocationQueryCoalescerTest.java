@@ -0,0 +1,157 @@
+package com.nikogrid.backend.spatial;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocationQueryCoalescerTest {
+    private SimpleMeterRegistry meterRegistry;
+    private LocationQueryCoalescer coalescer;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setup() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.coalescer = new LocationQueryCoalescer(this.meterRegistry, true, Duration.ofSeconds(5));
+        this.executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void teardown() {
+        this.executor.shutdownNow();
+    }
+
+    private double count(String outcome) {
+        return this.meterRegistry.counter(LocationQueryCoalescer.METRICS_NAME, "operation", "nearby", "outcome", outcome).count();
+    }
+
+    private Future<Integer> submit(Supplier<Integer> query) {
+        return this.executor.submit(() -> this.coalescer.execute("nearby", "key", query));
+    }
+
+    /** Runs the query on another thread and returns once it is in flight and blocked on {@code release} */
+    private Future<Integer> blockedLeader(CountDownLatch release, Supplier<Integer> result) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final Future<Integer> leader = submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return result.get();
+        });
+        started.await();
+        return leader;
+    }
+
+    private void awaitJoined(int joined) {
+        while (count("joined") < joined) Thread.onSpinWait();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void concurrentCallsShareResult() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<Integer> leader = blockedLeader(release, () -> 1);
+
+        final Future<Integer> follower1 = submit(() -> 2);
+        final Future<Integer> follower2 = submit(() -> 3);
+        awaitJoined(2);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(follower1.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(follower2.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(count("led")).isEqualTo(1);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void completedQueriesAreNotReused() {
+        final AtomicInteger calls = new AtomicInteger();
+
+        assertThat(this.coalescer.execute("nearby", "key", calls::incrementAndGet)).isEqualTo(1);
+        assertThat(this.coalescer.execute("nearby", "key", calls::incrementAndGet)).isEqualTo(2);
+        assertThat(count("led")).isEqualTo(2);
+        assertThat(count("joined")).isZero();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void differentQueriesDontWait() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        blockedLeader(release, () -> 1);
+
+        assertThat(this.coalescer.execute("nearby", "other", () -> 2)).isEqualTo(2);
+        assertThat(this.coalescer.execute("closest", "key", () -> 3)).isEqualTo(3);
+        release.countDown();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void waitIsBounded() throws Exception {
+        this.coalescer = new LocationQueryCoalescer(this.meterRegistry, true, Duration.ofMillis(50));
+        final CountDownLatch release = new CountDownLatch(1);
+        blockedLeader(release, () -> 1);
+
+        assertThat(this.coalescer.execute("nearby", "key", () -> 2)).isEqualTo(2);
+        assertThat(count("timed_out")).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void interruptedLeaderIsRetried() throws Exception {
+        final Future<Integer> leader = blockedLeader(new CountDownLatch(1), () -> 1);
+
+        final Future<Integer> follower = submit(() -> 2);
+        awaitJoined(1);
+        leader.cancel(true);
+
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+        assertThat(count("retried")).isEqualTo(1);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void failuresAreShared() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<Integer> leader = blockedLeader(release, () -> {
+            throw new IllegalArgumentException("Broken");
+        });
+
+        final Future<Integer> follower = submit(() -> 2);
+        awaitJoined(1);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void disabledRunsEveryQuery() throws Exception {
+        this.coalescer = new LocationQueryCoalescer(this.meterRegistry, false, Duration.ofSeconds(5));
+        final CountDownLatch release = new CountDownLatch(1);
+        blockedLeader(release, () -> 1);
+
+        assertThat(this.coalescer.execute("nearby", "key", () -> 2)).isEqualTo(2);
+        release.countDown();
+    }
+}
@@ -0,0 +1,91 @@
+package com.nikogrid.backend.spatial;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.dto.LocationInterestPoint;
+import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import com.nikogrid.backend.events.LocationCreated;
+import com.nikogrid.backend.repositories.LocationRepository;
+import com.nikogrid.backend.repositories.projections.LocationListing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationReadModelTest {
+    private LocationRepository locationRepository;
+    private LocationReadModel readModel;
+
+    @BeforeEach
+    void setup() {
+        this.locationRepository = Mockito.mock(LocationRepository.class);
+        this.readModel = new LocationReadModel(this.locationRepository, Mockito.mock(PlatformTransactionManager.class), true, Runnable::run);
+    }
+
+    private static LocationListing listing(long id, String name, float longitude, float latitude, int chargers, int available) {
+        final LocationListing listing = Mockito.mock(LocationListing.class);
+        Mockito.when(listing.getId()).thenReturn(id);
+        Mockito.when(listing.getName()).thenReturn(name);
+        Mockito.when(listing.getLon()).thenReturn(longitude);
+        Mockito.when(listing.getLat()).thenReturn(latitude);
+        Mockito.when(listing.getChargerCount()).thenReturn(chargers);
+        Mockito.when(listing.getAvailableChargers()).thenReturn(available);
+        Mockito.when(listing.getMaxPower()).thenReturn(22f);
+        return listing;
+    }
+
+    private static Location location(long id, String name, float longitude, float latitude) {
+        final Location location = new Location();
+        location.setId(id);
+        location.setName(name);
+        location.setLon(longitude);
+        location.setLat(latitude);
+        return location;
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void appliesChangesReceivedWhileLoading() {
+        final LocationListing loaded = listing(1, "Test1", 21.5f, 30.0f, 2, 2);
+        final LocationListing createdAndLoaded = listing(2, "Test2", 22.5f, 30.0f, 1, 1);
+        Mockito.when(this.locationRepository.streamLocationAvailability()).thenAnswer(invocation -> {
+            this.readModel.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(7, 1, 21.5f, 30.0f, false, 1));
+            this.readModel.onLocationCreated(new LocationCreated(location(2, "Test2", 22.5f, 30.0f)));
+            this.readModel.onLocationCreated(new LocationCreated(location(3, "Test3", 23.5f, 30.0f)));
+            return Stream.of(loaded, createdAndLoaded);
+        });
+
+        this.readModel.load();
+
+        assertThat(this.readModel.index()).get()
+                .satisfies(index -> assertThat(index.findInEnvelope(-180, -90, 180, 90, false))
+                        .containsExactlyInAnyOrder(
+                                new LocationInterestPoint(21.5f, 30.0f, 1, "Test1", 2, 1, 22f),
+                                new LocationInterestPoint(22.5f, 30.0f, 2, "Test2", 1, 1, 22f),
+                                new LocationInterestPoint(23.5f, 30.0f, 3, "Test3", 0, 0, 0f)
+                        ));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void reloadKeepsChangesReceivedMeanwhile() {
+        final LocationListing loaded = listing(1, "Test1", 21.5f, 30.0f, 2, 2);
+        Mockito.when(this.locationRepository.streamLocationAvailability()).thenReturn(Stream.of(loaded));
+        this.readModel.load();
+        final LocationIndex previous = this.readModel.index().orElseThrow();
+
+        Mockito.when(this.locationRepository.streamLocationAvailability()).thenAnswer(invocation -> {
+            this.readModel.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(7, 1, 21.5f, 30.0f, false, 0));
+            return Stream.of(loaded);
+        });
+        this.readModel.load();
+
+        assertThat(this.readModel.index()).get()
+                .isNotSameAs(previous)
+                .satisfies(index -> assertThat(index.findInEnvelope(-180, -90, 180, 90, true)).isEmpty());
+    }
+}
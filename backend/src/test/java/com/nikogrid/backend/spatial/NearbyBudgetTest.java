@@ -0,0 +1,76 @@
+package com.nikogrid.backend.spatial;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.dto.ClusterInterestPoint;
+import com.nikogrid.backend.dto.InterestPointBaseDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearbyBudgetTest {
+    private SimpleMeterRegistry meterRegistry;
+    private NearbyBudget budget;
+
+    @BeforeEach
+    void setup() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.budget = new NearbyBudget(this.meterRegistry, 1000);
+    }
+
+    private static List<InterestPointBaseDTO> points(int count) {
+        return Collections.nCopies(count, new ClusterInterestPoint(0, 0, 2));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void withinBudgetQueriesOnce() {
+        final List<Integer> zooms = new ArrayList<>();
+        final Collection<InterestPointBaseDTO> result = this.budget.fit(-10, -10, 10, 10, 12, zoom -> {
+            zooms.add(zoom);
+            return points(1000);
+        });
+
+        assertThat(result).hasSize(1000);
+        assertThat(zooms).containsExactly(12);
+        assertThat(this.meterRegistry.get(NearbyBudget.COARSENED_METRIC).summary().max()).isZero();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void overBudgetJumpsToFittingZoom() {
+        final List<Integer> zooms = new ArrayList<>();
+        final Collection<InterestPointBaseDTO> result = this.budget.fit(-180, -90, 180, 90, 18, zoom -> {
+            zooms.add(zoom);
+            return points(zoom > 1 ? 1001 : 600);
+        });
+
+        assertThat(result).hasSize(600);
+        assertThat(zooms).containsExactly(18, 0);
+        assertThat(this.meterRegistry.get(NearbyBudget.COARSENED_METRIC).summary().max()).isEqualTo(18);
+        assertThat(this.meterRegistry.get(NearbyBudget.TRUNCATED_METRIC).counter().count()).isZero();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void coarserZoomAlwaysGoesDown() {
+        assertThat(this.budget.coarserZoom(18, 0, 0, 0.001f, 0.001f)).isEqualTo(17);
+        assertThat(this.budget.coarserZoom(18, 0, 0, 10, 10)).isEqualTo(4);
+        assertThat(this.budget.coarserZoom(1, -180, -90, 180, 90)).isZero();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void truncatesAtZoomZero() {
+        final Collection<InterestPointBaseDTO> result = this.budget.fit(-180, -90, 180, 90, 3, zoom -> points(1500));
+
+        assertThat(result).hasSize(1000);
+        assertThat(this.meterRegistry.get(NearbyBudget.TRUNCATED_METRIC).counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,123 @@
+package com.nikogrid.backend.spatial;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import com.nikogrid.backend.dto.ClusterInterestPoint;
+import com.nikogrid.backend.dto.InterestPointBaseDTO;
+import com.nikogrid.backend.dto.LocationInterestPoint;
+import com.nikogrid.backend.entities.Location;
+import com.nikogrid.backend.events.ChargerAvailabilityChanged;
+import com.nikogrid.backend.events.LocationCreated;
+import com.nikogrid.backend.events.LocationsImported;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearbyTileCacheTest {
+    private SimpleMeterRegistry meterRegistry;
+    private NearbyTileCache cache;
+    private List<TileKey> loaded;
+
+    @BeforeEach
+    void setup() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.cache = new NearbyTileCache(this.meterRegistry, true, 1000, 4);
+        this.loaded = new ArrayList<>();
+    }
+
+    private Optional<List<InterestPointBaseDTO>> get(boolean onlyActive) {
+        return this.cache.get(-10, -10, 10, 10, 1, onlyActive, ClusteringStrategy.DBSCAN, tile -> {
+            this.loaded.add(tile);
+            return List.of(new LocationInterestPoint(tile.x() == 0 ? -5 : 5, tile.y() == 0 ? 5 : -5, tile.x(), "Test", 1, 1, 22f));
+        });
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void mergesTilesAndCachesThem() {
+        assertThat(get(false)).get().asInstanceOf(InstanceOfAssertFactories.LIST).hasSize(4);
+        assertThat(get(false)).get().asInstanceOf(InstanceOfAssertFactories.LIST).hasSize(4);
+
+        assertThat(this.loaded).hasSize(4);
+        assertThat(this.meterRegistry.get("cache.gets").tag("cache", NearbyTileCache.METRICS_NAME)
+                .tag("result", "hit").functionCounter().count()).isEqualTo(4);
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void viewportAcrossTileEdgesIsClipped() {
+        // The viewport crosses the edges at the equator and the meridian, each tile also holds a cluster outside of it
+        final Optional<List<InterestPointBaseDTO>> result = this.cache.get(-10, -10, 10, 10, 1, false, ClusteringStrategy.DBSCAN,
+                tile -> List.of(
+                        new ClusterInterestPoint(tile.x() == 0 ? -5 : 5, tile.y() == 0 ? 5 : -5, 2),
+                        new ClusterInterestPoint(tile.x() == 0 ? -90 : 90, tile.y() == 0 ? 45 : -45, 7)));
+
+        assertThat(result).get().asInstanceOf(InstanceOfAssertFactories.list(InterestPointBaseDTO.class))
+                .containsExactlyInAnyOrder(
+                        new ClusterInterestPoint(-5, 5, 2),
+                        new ClusterInterestPoint(5, 5, 2),
+                        new ClusterInterestPoint(-5, -5, 2),
+                        new ClusterInterestPoint(5, -5, 2));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void tooManyTilesIsNotCached() {
+        assertThat(this.cache.get(-10, -10, 10, 10, 6, false, ClusteringStrategy.DBSCAN, tile -> List.of())).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void disabledIsNotCached() {
+        final NearbyTileCache disabled = new NearbyTileCache(new SimpleMeterRegistry(), false, 1000, 4);
+        assertThat(disabled.get(-10, -10, 10, 10, 1, false, ClusteringStrategy.DBSCAN, tile -> List.of())).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void locationCreatedInvalidatesOnlyItsTile() {
+        get(false);
+        get(true);
+
+        final Location location = new Location();
+        location.setLon(5);
+        location.setLat(5);
+        this.cache.onLocationCreated(new LocationCreated(location));
+
+        get(false);
+        get(true);
+        assertThat(this.loaded).hasSize(10).endsWith(new TileKey(1, 1, 0), new TileKey(1, 1, 0));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void availabilityChangeInvalidatesAllTiles() {
+        get(false);
+        get(true);
+
+        this.cache.onChargerAvailabilityChanged(new ChargerAvailabilityChanged(1, 1, -5, -5, false, 0));
+
+        get(false);
+        get(true);
+        assertThat(this.loaded).hasSize(10).endsWith(new TileKey(1, 0, 1));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void importInvalidatesEverything() {
+        get(false);
+        get(true);
+
+        this.cache.onLocationsImported(new LocationsImported(1, 0, 1, 0));
+
+        get(false);
+        get(true);
+        assertThat(this.loaded).hasSize(16);
+    }
+}
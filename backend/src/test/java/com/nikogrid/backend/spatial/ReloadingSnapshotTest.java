@@ -0,0 +1,93 @@
+package com.nikogrid.backend.spatial;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReloadingSnapshotTest {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    @Test
+    @Requirement("NIK-37")
+    void reloadBeforeFirstLoadIsIgnored() {
+        final ReloadingSnapshot<List<String>> snapshot = new ReloadingSnapshot<>(ArrayList::new, this.tasks::add);
+
+        snapshot.reload();
+
+        assertThat(this.tasks).isEmpty();
+        assertThat(snapshot.current()).isNull();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void changesDuringLoadReachTheNewSnapshot() {
+        final List<ReloadingSnapshot<List<String>>> self = new ArrayList<>();
+        final ReloadingSnapshot<List<String>> snapshot = new ReloadingSnapshot<>(() -> {
+            self.get(0).apply(list -> list.add("meanwhile"));
+            return new ArrayList<>(List.of("loaded"));
+        }, Runnable::run);
+        self.add(snapshot);
+
+        snapshot.load();
+
+        assertThat(snapshot.current()).containsExactly("loaded", "meanwhile");
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void overlappingReloadsRunOneAfterTheOther() {
+        final AtomicInteger loads = new AtomicInteger();
+        final List<ReloadingSnapshot<List<String>>> self = new ArrayList<>();
+        final ReloadingSnapshot<List<String>> snapshot = new ReloadingSnapshot<>(() -> {
+            final int load = loads.incrementAndGet();
+            if (load == 1) {
+                // An import arrives while the first load is reading
+                self.get(0).reload();
+                self.get(0).apply(list -> list.add("during first"));
+            }
+            return new ArrayList<>(List.of("load " + load));
+        }, this.tasks::add);
+        self.add(snapshot);
+
+        snapshot.load();
+        snapshot.reload();
+        assertThat(this.tasks).hasSize(1);
+
+        this.tasks.poll().run();
+
+        assertThat(loads).hasValue(2);
+        assertThat(snapshot.current()).containsExactly("load 2");
+
+        snapshot.apply(list -> list.add("after"));
+        assertThat(snapshot.current()).containsExactly("load 2", "after");
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void failedLoadKeepsPreviousSnapshot() {
+        final AtomicInteger loads = new AtomicInteger();
+        final ReloadingSnapshot<List<String>> snapshot = new ReloadingSnapshot<>(() -> {
+            if (loads.incrementAndGet() == 2) throw new IllegalStateException("Database down");
+            return new ArrayList<>(List.of("load " + loads.get()));
+        }, this.tasks::add);
+
+        snapshot.load();
+        this.tasks.poll().run();
+        snapshot.reload();
+        final Runnable failing = this.tasks.poll();
+        assertThatThrownBy(failing::run).isInstanceOf(IllegalStateException.class);
+
+        assertThat(snapshot.current()).containsExactly("load 1");
+        snapshot.reload();
+        this.tasks.poll().run();
+        assertThat(snapshot.current()).containsExactly("load 3");
+    }
+}
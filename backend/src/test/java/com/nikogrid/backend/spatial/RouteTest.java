@@ -0,0 +1,77 @@
+package com.nikogrid.backend.spatial;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class RouteTest {
+    /** (38.5, -120.2), (40.7, -120.95), (43.252, -126.453), the example of the format's documentation */
+    private static final String POLYLINE = "_p~iF~ps|U_ulLnnqC_mqNvxq`@";
+
+    @Test
+    @Requirement("NIK-24")
+    void decode() {
+        final Route route = Route.decode(POLYLINE, 10);
+
+        assertThat(route.size()).isEqualTo(3);
+        assertThat(route.length()).isCloseTo(
+                Geodesic.distance(-120.2, 38.5, -120.95, 40.7) + Geodesic.distance(-120.95, 40.7, -126.453, 43.252),
+                within(1e-6));
+        assertThat(Route.decode("", 10).size()).isZero();
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void decodeRejectsMalformed() {
+        assertThatThrownBy(() -> Route.decode("_p~iF~ps|", 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Route.decode("_p~iF ps|U", 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Route.decode(POLYLINE, 2)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void sectionsAreShortAndContiguous() {
+        final Route route = Route.decode(POLYLINE, 10);
+
+        final List<Route.Section> sections = route.sections(25_000);
+
+        assertThat(sections).hasSizeGreaterThanOrEqualTo((int) Math.ceil(route.length() / 25_000));
+        double previousEnd = 0;
+        for (final Route.Section section : sections) {
+            assertThat(section.start()).isEqualTo(previousEnd);
+            assertThat(section.end() - section.start()).isPositive().isLessThanOrEqualTo(25_000 + 1e-6);
+            previousEnd = section.end();
+        }
+        assertThat(previousEnd).isCloseTo(route.length(), within(1e-6));
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void locate() {
+        final Route route = new Route(new double[]{0, 1}, new double[]{0, 0});
+        final Route.Section section = route.sections(1_000_000).get(0);
+
+        final Route.Position position = section.locate(0.5, 0.01);
+        assertThat(position.distanceAlong()).isCloseTo(route.length() / 2, within(1.0));
+        assertThat(position.distanceFrom()).isCloseTo(1112, within(1.0));
+
+        assertThat(section.locate(-1, 0).distanceAlong()).isZero();
+        assertThat(section.locate(-1, 0).distanceFrom()).isCloseTo(route.length(), within(1.0));
+    }
+
+    @Test
+    @Requirement("NIK-24")
+    void envelopeWidensLongitudeAwayFromTheEquator() {
+        final Route route = new Route(new double[]{10, 10.1}, new double[]{60, 60});
+        final double[] envelope = route.sections(1_000_000).get(0).envelope(11_120);
+
+        assertThat(envelope[1]).isCloseTo(59.9, within(1e-3));
+        assertThat(envelope[3]).isCloseTo(60.1, within(1e-3));
+        assertThat(envelope[0]).isCloseTo(10 - 0.1 / Math.cos(Math.toRadians(60.1)), within(1e-3));
+    }
+}
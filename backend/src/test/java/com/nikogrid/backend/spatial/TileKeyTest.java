@@ -0,0 +1,45 @@
+package com.nikogrid.backend.spatial;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TileKeyTest {
+    @Test
+    @Requirement("NIK-37")
+    void containing() {
+        assertThat(TileKey.containing(0, 0, 0)).isEqualTo(new TileKey(0, 0, 0));
+        assertThat(TileKey.containing(-8.65, 40.63, 10)).isEqualTo(new TileKey(10, 487, 385));
+        assertThat(TileKey.containing(180, -90, 2)).isEqualTo(new TileKey(2, 3, 3));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void bounds() {
+        final TileKey tile = new TileKey(1, 1, 0);
+
+        assertThat(tile.west()).isEqualTo(0);
+        assertThat(tile.east()).isEqualTo(180);
+        assertThat(tile.north()).isEqualTo(90);
+        assertThat(tile.south()).isCloseTo(0, within(1e-9));
+        assertThat(new TileKey(1, 0, 1).south()).isEqualTo(-90);
+        assertThat(new TileKey(2, 0, 1).north()).isCloseTo(66.5132604, within(1e-6));
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void covering() {
+        assertThat(TileKey.covering(-10, -10, 10, 10, 1, 64))
+                .contains(List.of(
+                        new TileKey(1, 0, 0),
+                        new TileKey(1, 1, 0),
+                        new TileKey(1, 0, 1),
+                        new TileKey(1, 1, 1)
+                ));
+        assertThat(TileKey.covering(-180, -90, 180, 90, 18, 64)).isEmpty();
+    }
+}
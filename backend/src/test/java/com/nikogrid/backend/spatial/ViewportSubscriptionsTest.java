@@ -0,0 +1,67 @@
+package com.nikogrid.backend.spatial;
+
+import app.getxray.xray.junit.customjunitxml.annotations.Requirement;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ViewportSubscriptionsTest {
+    @Test
+    @Requirement("NIK-37")
+    void onlyMatchesViewportsContainingThePoint() {
+        final ViewportSubscriptions<String> subscriptions = new ViewportSubscriptions<>();
+        subscriptions.add(-9.2f, 38.6f, -9.0f, 38.8f, "lisbon");
+        subscriptions.add(-8.7f, 41.1f, -8.5f, 41.2f, "porto");
+        subscriptions.add(-9.5f, 37f, -6f, 42f, "portugal");
+
+        assertThat(containing(subscriptions, -9.1f, 38.7f)).containsExactlyInAnyOrder("lisbon", "portugal");
+        assertThat(containing(subscriptions, -8.6f, 41.15f)).containsExactlyInAnyOrder("porto", "portugal");
+        assertThat(containing(subscriptions, 2.35f, 48.85f)).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void pointOnTheEdgeMatches() {
+        final ViewportSubscriptions<String> subscriptions = new ViewportSubscriptions<>();
+        subscriptions.add(-9.2f, 38.6f, -9.0f, 38.8f, "lisbon");
+
+        assertThat(containing(subscriptions, -9.0f, 38.8f)).containsExactly("lisbon");
+        assertThat(containing(subscriptions, -9.2f, 38.6f)).containsExactly("lisbon");
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void wideViewportsAreMatched() {
+        final ViewportSubscriptions<String> subscriptions = new ViewportSubscriptions<>();
+        subscriptions.add(-180f, -85f, 180f, 85f, "world");
+
+        assertThat(containing(subscriptions, 139.7f, 35.7f)).containsExactly("world");
+        assertThat(containing(subscriptions, 0f, 86f)).isEmpty();
+    }
+
+    @Test
+    @Requirement("NIK-37")
+    void removedSubscriptionsNoLongerMatch() {
+        final ViewportSubscriptions<String> subscriptions = new ViewportSubscriptions<>();
+        final ViewportSubscriptions.Subscription<String> lisbon = subscriptions.add(-9.2f, 38.6f, -9.0f, 38.8f, "lisbon");
+        final ViewportSubscriptions.Subscription<String> world = subscriptions.add(-180f, -85f, 180f, 85f, "world");
+        subscriptions.add(-9.2f, 38.6f, -9.0f, 38.8f, "lisbon again");
+        assertThat(subscriptions.size()).isEqualTo(3);
+
+        assertThat(subscriptions.remove(lisbon)).isTrue();
+        assertThat(subscriptions.remove(world)).isTrue();
+        assertThat(subscriptions.remove(lisbon)).isFalse();
+
+        assertThat(containing(subscriptions, -9.1f, 38.7f)).containsExactly("lisbon again");
+        assertThat(subscriptions.size()).isEqualTo(1);
+    }
+
+    private static List<String> containing(ViewportSubscriptions<String> subscriptions, float longitude, float latitude) {
+        final List<String> result = new ArrayList<>();
+        subscriptions.forEachContaining(longitude, latitude, result::add);
+        return result;
+    }
+}